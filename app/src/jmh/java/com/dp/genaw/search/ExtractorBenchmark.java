@@ -0,0 +1,97 @@
+package com.dp.genaw.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single page benchmarks of {@link RecipeExtractor} and {@link TableLinkExtractor} - extraction from an already parsed
+ * DOM, from an already scanned page and the whole page processing from raw bytes in both {@link ParseMode parse
+ * modes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExtractorBenchmark {
+
+    private static final String URL = FixtureSite.ROOT_URL + "page.html";
+
+    @Param({"recipe_single_variant.html", "recipe_multiple.html", "recipe_multiple_variants.html"})
+    public String recipeFixture;
+
+    private final RecipeExtractor recipeExtractor = new RecipeExtractor();
+    private final TableLinkExtractor tableLinkExtractor = new TableLinkExtractor();
+    private final PageExtractor pageExtractor = new PageExtractor(tableLinkExtractor, recipeExtractor);
+
+    private byte[] recipeBody;
+    private Document recipeDocument;
+    private ScannedPage recipePage;
+    private Document linksDocument;
+    private ScannedPage linksPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        recipeBody = FixtureSite.resource(recipeFixture);
+        recipeDocument = parse(recipeBody);
+        recipePage = ScannedPage.scan(recipeDocument);
+
+        linksDocument = parse(FixtureSite.resource("links.html"));
+        linksPage = ScannedPage.scan(linksDocument);
+    }
+
+    @Benchmark
+    public void recipeExtractFromDocument(Blackhole blackhole) {
+        blackhole.consume(recipeExtractor.extractFromDocument(recipeDocument));
+    }
+
+    @Benchmark
+    public void recipeExtractFromPage(Blackhole blackhole) {
+        blackhole.consume(recipeExtractor.extractFromPage(recipePage));
+    }
+
+    @Benchmark
+    public void tableLinkExtractFromDocument(Blackhole blackhole) {
+        blackhole.consume(tableLinkExtractor.extractFromDocument(linksDocument));
+    }
+
+    @Benchmark
+    public void tableLinkExtractFromPage(Blackhole blackhole) {
+        blackhole.consume(tableLinkExtractor.extractFromPage(linksPage));
+    }
+
+    /**
+     * Raw bytes to recipes in {@link ParseMode#DOM} - what {@link TopRecipeSearch} does for every recipe page.
+     */
+    @Benchmark
+    public void recipePageDom(Blackhole blackhole) throws IOException {
+        blackhole.consume(pageExtractor.extractFromDocument(parse(recipeBody)));
+    }
+
+    /**
+     * Raw bytes to recipes in {@link ParseMode#STREAMING}.
+     */
+    @Benchmark
+    public void recipePageStreaming(Blackhole blackhole) throws IOException {
+        try (var reader = new InputStreamReader(new ByteArrayInputStream(recipeBody), StandardCharsets.UTF_8)) {
+            blackhole.consume(pageExtractor.extractFromPage(ScannedPage.scan(URL, reader)));
+        }
+    }
+
+    private static Document parse(byte[] body) throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(body), StandardCharsets.UTF_8.name(), URL);
+    }
+}
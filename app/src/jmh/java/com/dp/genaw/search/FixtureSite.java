@@ -0,0 +1,105 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory Genaw site built from test fixtures - root category page linking {@code sections} category pages, each
+ * linking {@code recipesPerSection} recipe pages. Category pages are {@code links.html} with generated link table,
+ * recipe pages are {@code recipe_*.html} fixtures in round-robin.
+ */
+class FixtureSite {
+
+    static final String ROOT_URL = "http://genaw.fixture/lowcarb/";
+    static final String ROOT_SECTION = "recipes.html";
+
+    // valid recipe pages, recipe_invalid.html is left out
+    static final List<String> RECIPE_FIXTURES = List.of(
+            "recipe_single_variant.html",
+            "recipe_multiple.html",
+            "recipe_multiple_variants.html",
+            "recipe_multiple_methods.html",
+            "recipe_multiple_ingredient_variants.html",
+            "recipe_case_insensitive_nutrition.html",
+            "recipe_missing_space_before_nutrition.html",
+            "recipe_optional_grams.html",
+            "recipe_optional_net.html",
+            "recipe_trace_protein_single.html",
+            "recipe_trace_protein_multiple.html");
+
+    private static final Map<String, String> HTML_HEADERS = Map.of(FetchedPage.CONTENT_TYPE, "text/html; charset=utf-8");
+
+    private final Map<String, byte[]> pages = new HashMap<>();
+
+    FixtureSite(int sections, int recipesPerSection) {
+        var recipeBodies = RECIPE_FIXTURES.stream()
+                .map(FixtureSite::resource)
+                .toList();
+        var links = new String(resource("links.html"), StandardCharsets.UTF_8);
+
+        var sectionLinks = new ArrayList<String>();
+        var recipeIndex = 0;
+        for (var section = 0; section < sections; section++) {
+            var sectionLink = "section_%d.html".formatted(section);
+            sectionLinks.add(sectionLink);
+
+            var recipeLinks = new ArrayList<String>();
+            for (var recipe = 0; recipe < recipesPerSection; recipe++) {
+                var recipeLink = "section_%d_recipe_%d.html".formatted(section, recipe);
+                recipeLinks.add(recipeLink);
+                pages.put(ROOT_URL + recipeLink, recipeBodies.get(recipeIndex++ % recipeBodies.size()));
+            }
+            pages.put(ROOT_URL + sectionLink, categoryPage(links, recipeLinks));
+        }
+        pages.put(ROOT_URL + ROOT_SECTION, categoryPage(links, sectionLinks));
+    }
+
+    int size() {
+        return pages.size();
+    }
+
+    /**
+     * @return Fetcher serving site pages from memory, unknown pages fail as not found.
+     */
+    PageFetcher fetcher() {
+        return (url, requestHeaders) -> {
+            var body = pages.get(url);
+            if (body == null) {
+                throw new IOException("Page not found: " + url);
+            }
+
+            return new FetchedPage(url, 200, HTML_HEADERS, body);
+        };
+    }
+
+    static byte[] resource(String resourceFileName) {
+        try (var in = FixtureSite.class.getResourceAsStream(resourceFileName)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + resourceFileName);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces link table of {@code links.html} by links to given pages.
+     */
+    private static byte[] categoryPage(String links, List<String> hrefs) {
+        var table = new StringBuilder("<table border=0 cellspacing=0 cellpadding=0 width=90%>\n<tr><td><ul>\n");
+        for (var href : hrefs) {
+            table.append("\t<li><a href=\"").append(href).append("\">").append(href).append("</a>\n");
+        }
+        table.append("</ul></td></tr>\n</table>");
+
+        var start = links.indexOf("<table");
+        var end = links.indexOf("</table>") + "</table>".length();
+        return (links.substring(0, start) + table + links.substring(end)).getBytes(StandardCharsets.UTF_8);
+    }
+}
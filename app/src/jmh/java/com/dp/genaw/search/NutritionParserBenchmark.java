@@ -0,0 +1,75 @@
+package com.dp.genaw.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Nutrition info parsing benchmark over nutrition infos of all recipe fixtures - single pass {@link NutritionParser}
+ * used by {@link RecipeExtractor} against the regex based parsing it replaced as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NutritionParserBenchmark {
+
+    // regex parsing of the original RecipeExtractor#fromNutritionInfo
+    private static final Pattern PROTEIN_PATTERN =
+            Pattern.compile(".*[\\s;]([\\d.]+)g?\\s+Protein.*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NET_CARB_PATTERN =
+            Pattern.compile(".*[\\s;]([\\d.]+)g?\\s+(Net\\s+)?Carb.*", Pattern.CASE_INSENSITIVE);
+
+    private String[] nutritionInfos;
+
+    @Setup
+    public void setUp() throws IOException {
+        var recipeExtractor = new RecipeExtractor();
+        var infos = new ArrayList<String>();
+        for (var fixture : FixtureSite.RECIPE_FIXTURES) {
+            var document = Jsoup.parse(
+                    new ByteArrayInputStream(FixtureSite.resource(fixture)), StandardCharsets.UTF_8.name(),
+                    FixtureSite.ROOT_URL + fixture);
+            recipeExtractor.extractFromDocument(document).forEach(recipe -> infos.add(recipe.nutritionInfo()));
+        }
+
+        nutritionInfos = infos.toArray(String[]::new);
+    }
+
+    /**
+     * One operation parses nutrition infos of all fixtures.
+     */
+    @Benchmark
+    public void nutritionParser(Blackhole blackhole) {
+        for (var nutritionInfo : nutritionInfos) {
+            var nutrition = Nutrition.parse(nutritionInfo);
+            blackhole.consume(nutrition.protein() / nutrition.netCarb());
+        }
+    }
+
+    /**
+     * One operation parses nutrition infos of all fixtures.
+     */
+    @Benchmark
+    public void legacyRegex(Blackhole blackhole) {
+        for (var nutritionInfo : nutritionInfos) {
+            var protein = PROTEIN_PATTERN.matcher(nutritionInfo);
+            var netCarb = NET_CARB_PATTERN.matcher(nutritionInfo);
+            if (protein.matches() && netCarb.matches()) {
+                blackhole.consume(Double.parseDouble(protein.group(1)) / Double.parseDouble(netCarb.group(1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.dp.genaw.search;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Full {@link TopRecipeSearch} traversal over an in-memory {@link FixtureSite} - no network, so traversal, parsing and
+ * extraction costs are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TopRecipeSearchBenchmark {
+
+    @Param({"10", "50"})
+    public int sections;
+
+    @Param({"20"})
+    public int recipesPerSection;
+
+    // parse mode as used on command line, see ParseMode#of(String)
+    @Param({"dom", "streaming"})
+    public String parser;
+
+    private ParseMode parseMode;
+    private FixtureSite site;
+    private CrawlExecutor crawlExecutor;
+
+    @Setup
+    public void setUp() {
+        parseMode = ParseMode.of(parser);
+        site = new FixtureSite(sections, recipesPerSection);
+        crawlExecutor = new CommonPoolCrawlExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        crawlExecutor.close();
+    }
+
+    @Benchmark
+    public void findTopRecipes(Blackhole blackhole) {
+        var search = new TopRecipeSearch(
+                new TableLinkExtractor(), new RecipeExtractor(), crawlExecutor, site.fetcher(), parseMode);
+
+        blackhole.consume(search.findTopRecipes(FixtureSite.ROOT_URL, FixtureSite.ROOT_SECTION, new TopRecipes(10)));
+    }
+}
@@ -0,0 +1,352 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PageFetcher} decorator limiting in-flight fetches per host by an adaptive (AIMD) limit, so that the crawl
+ * runs at the highest rate the origin sustains without flooding it:
+ * <ul>
+ *     <li>while fetches keep the limit busy and their latency stays close to the lowest latency seen, the limit grows
+ *     additively by one per round of {@code limit} successful fetches,</li>
+ *     <li>when latency rises above {@code tolerance} times the lowest latency, the limit holds,</li>
+ *     <li>timeouts, {@code 429 Too Many Requests} and {@code 5xx} responses cut the limit multiplicatively - once per
+ *     round, fetches already in-flight at the time of the cut do not cut it again.</li>
+ * </ul>
+ * Fetches over the limit wait for a free slot of their host, asynchronous fetches wait without blocking any thread.
+ * Other fetch failures (e.g. {@code 404}) only free the slot.
+ */
+class AdaptiveLimitPageFetcher implements PageFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveLimitPageFetcher.class);
+
+    static final int INITIAL_LIMIT = 4;
+    static final int MAX_LIMIT = 64;
+    static final double TOLERANCE = 2.0;
+    static final double BACKOFF = 0.5;
+
+    /**
+     * Snapshot of a host limit.
+     *
+     * @param host     Host (and port) of fetched URLs.
+     * @param limit    Current in-flight fetch limit.
+     * @param inFlight Number of fetches in-flight.
+     * @param queued   Number of fetches waiting for a free slot.
+     * @param backoffs Number of times the limit was cut.
+     */
+    record HostStats(String host, int limit, int inFlight, int queued, int backoffs) {
+    }
+
+    private final PageFetcher delegate;
+    private final int initialLimit;
+    private final int maxLimit;
+
+    private final Map<String, HostLimit> hostLimits = new ConcurrentHashMap<>();
+
+    AdaptiveLimitPageFetcher(PageFetcher delegate) {
+        this(delegate, INITIAL_LIMIT, MAX_LIMIT);
+    }
+
+    AdaptiveLimitPageFetcher(PageFetcher delegate, int initialLimit, int maxLimit) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException(
+                    "Invalid adaptive limit bounds: initial %d, max %d".formatted(initialLimit, maxLimit));
+        }
+        this.delegate = delegate;
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public FetchedPage fetch(String url, Map<String, String> requestHeaders) throws IOException {
+        return limited(url, () -> delegate.fetch(url, requestHeaders));
+    }
+
+    /**
+     * Streamed fetch holds its slot until the reader returns.
+     */
+    @Override
+    public <T> T fetchStreaming(String url, BodyReader<T> reader) throws IOException {
+        return limited(url, () -> delegate.fetchStreaming(url, reader));
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Map<String, String> requestHeaders) {
+        var hostLimit = hostLimit(url);
+
+        return hostLimit.acquireAsync().thenCompose(round -> {
+            var start = System.nanoTime();
+            CompletableFuture<FetchedPage> page;
+            try {
+                page = delegate.fetchAsync(url, requestHeaders);
+            } catch (RuntimeException e) {
+                page = CompletableFuture.failedFuture(e);
+            }
+
+            return page.whenComplete((fetchedPage, failure) -> {
+                if (failure == null) {
+                    hostLimit.succeeded(System.nanoTime() - start);
+                } else if (PageFetcher.unwrap(failure) instanceof IOException e && overloaded(e)) {
+                    hostLimit.overloaded(round);
+                } else {
+                    hostLimit.failed();
+                }
+            });
+        });
+    }
+
+    /**
+     * @return Current limits of all hosts fetched so far, sorted by host.
+     */
+    List<HostStats> stats() {
+        return hostLimits.entrySet().stream()
+                .map(entry -> entry.getValue().stats(entry.getKey()))
+                .sorted(Comparator.comparing(HostStats::host))
+                .toList();
+    }
+
+    void logStats() {
+        stats().forEach(stats -> logger.info(
+                "Adaptive fetch limit of {}: limit {}, {} in-flight, {} queued, {} backoffs",
+                stats.host(), stats.limit(), stats.inFlight(), stats.queued(), stats.backoffs()));
+    }
+
+    /**
+     * @return Whether the failure signals that the origin is overloaded - timeout, {@code 429} or {@code 5xx}.
+     */
+    // visible for testing
+    static boolean overloaded(IOException e) {
+        if (e instanceof SocketTimeoutException || e instanceof HttpTimeoutException) {
+            return true;
+        }
+
+        return e instanceof HttpStatusException statusException
+                && (statusException.getStatusCode() == 429 || statusException.getStatusCode() >= 500);
+    }
+
+    private <T> T limited(String url, Fetch<T> fetch) throws IOException {
+        var hostLimit = hostLimit(url);
+
+        long round;
+        try {
+            round = hostLimit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for fetch slot of " + url);
+        }
+
+        var start = System.nanoTime();
+        T result;
+        try {
+            result = fetch.run();
+        } catch (IOException e) {
+            if (overloaded(e)) {
+                hostLimit.overloaded(round);
+            } else {
+                hostLimit.failed();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            hostLimit.failed();
+            throw e;
+        }
+
+        hostLimit.succeeded(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Single delegate fetch holding a slot.
+     */
+    @FunctionalInterface
+    private interface Fetch<T> {
+
+        T run() throws IOException;
+    }
+
+    private HostLimit hostLimit(String url) {
+        return hostLimits.computeIfAbsent(host(url), host -> new HostLimit(initialLimit, maxLimit, TOLERANCE, BACKOFF));
+    }
+
+    private static String host(String url) {
+        var authority = URI.create(url).getAuthority();
+        return authority == null ? "" : authority.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adaptive in-flight limit of a single host.
+     */
+    // visible for testing
+    static class HostLimit {
+
+        // weight of the latest sample in smoothed latency
+        private static final double LATENCY_WEIGHT = 0.2;
+
+        private final int maxLimit;
+        private final double tolerance;
+        private final double backoff;
+        // fetches waiting for a free slot, both blocking and asynchronous ones
+        private final Queue<CompletableFuture<Long>> waiting = new ArrayDeque<>();
+
+        private double limit;
+        private int inFlight;
+        private int backoffs;
+        // incremented on every cut, fetches acquired in earlier rounds do not cut the limit again
+        private long round;
+
+        private long minLatencyNanos = Long.MAX_VALUE;
+        private double smoothedLatencyNanos;
+
+        HostLimit(int initialLimit, int maxLimit, double tolerance, double backoff) {
+            this.limit = initialLimit;
+            this.maxLimit = maxLimit;
+            this.tolerance = tolerance;
+            this.backoff = backoff;
+        }
+
+        /**
+         * Blocks until there is a free fetch slot.
+         *
+         * @return Round the slot was acquired in, to be passed to {@link #overloaded(long)}.
+         */
+        long acquire() throws InterruptedException {
+            var slot = acquireAsync();
+            try {
+                return slot.get();
+            } catch (InterruptedException e) {
+                if (!slot.cancel(false)) {
+                    // slot granted in the meantime
+                    failed();
+                }
+                throw e;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Fetch slot failed", e.getCause());
+            }
+        }
+
+        /**
+         * Acquires fetch slot without blocking, slots are granted in order of requests.
+         *
+         * @return Future of the round the slot was acquired in, to be passed to {@link #overloaded(long)}.
+         */
+        CompletableFuture<Long> acquireAsync() {
+            synchronized (this) {
+                if (waiting.isEmpty() && inFlight < limit()) {
+                    inFlight++;
+                    return CompletableFuture.completedFuture(round);
+                }
+
+                var slot = new CompletableFuture<Long>();
+                waiting.add(slot);
+                return slot;
+            }
+        }
+
+        /**
+         * Releases the slot of a successful fetch, the limit grows when it is busy and latency is flat.
+         *
+         * @param latencyNanos Fetch latency.
+         */
+        void succeeded(long latencyNanos) {
+            synchronized (this) {
+                // busy when at least half of the slots are taken, idle slots say nothing about the origin capacity
+                var busy = inFlight * 2 >= limit();
+                inFlight--;
+
+                minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+                smoothedLatencyNanos = smoothedLatencyNanos == 0
+                        ? latencyNanos
+                        : smoothedLatencyNanos + LATENCY_WEIGHT * (latencyNanos - smoothedLatencyNanos);
+
+                if (busy && smoothedLatencyNanos <= minLatencyNanos * tolerance) {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+            grantWaiting();
+        }
+
+        /**
+         * Releases the slot of a fetch failed due to overloaded origin and cuts the limit, unless it was already cut
+         * while the fetch was in-flight.
+         *
+         * @param acquiredRound Round returned by {@link #acquire()}.
+         */
+        void overloaded(long acquiredRound) {
+            synchronized (this) {
+                inFlight--;
+                if (acquiredRound == round) {
+                    limit = Math.max(1, limit * backoff);
+                    backoffs++;
+                    round++;
+                    logger.debug("Fetch limit cut to {}", limit());
+                }
+            }
+            grantWaiting();
+        }
+
+        /**
+         * Releases the slot of a fetch failed for other reason than overloaded origin.
+         */
+        void failed() {
+            synchronized (this) {
+                inFlight--;
+            }
+            grantWaiting();
+        }
+
+        synchronized int limit() {
+            return (int) limit;
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+
+        synchronized int queued() {
+            return waiting.size();
+        }
+
+        synchronized HostStats stats(String host) {
+            return new HostStats(host, limit(), inFlight, waiting.size(), backoffs);
+        }
+
+        // grants free slots to waiting fetches - outside of the lock, granted fetches continue on this thread
+        private void grantWaiting() {
+            while (true) {
+                CompletableFuture<Long> slot;
+                long grantedRound;
+                synchronized (this) {
+                    if (waiting.isEmpty() || inFlight >= limit()) {
+                        return;
+                    }
+                    slot = waiting.poll();
+                    inFlight++;
+                    grantedRound = round;
+                }
+
+                if (!slot.complete(grantedRound)) {
+                    // cancelled by interrupted waiter
+                    synchronized (this) {
+                        inFlight--;
+                    }
+                }
+            }
+        }
+    }
+}
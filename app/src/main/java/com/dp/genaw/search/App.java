@@ -1,5 +1,19 @@
 package com.dp.genaw.search;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,24 +27,458 @@ public class App {
     private static final String ROOT_URL = "https://www.genaw.com/lowcarb/";
     private static final String RECIPES = "recipes.html";
 
-    public static void main(String[] args) {
+    // crawl executor options, see CrawlExecutor
+    private static final String EXECUTOR = "executor";
+    private static final String MAX_IN_FLIGHT = "max-in-flight";
+    // staged crawl options, see CrawlPipeline
+    private static final String PIPELINE = "pipeline";
+    private static final String FETCH_THREADS = "fetch-threads";
+    private static final String PARSE_THREADS = "parse-threads";
+    private static final String PAGE_QUEUE = "page-queue";
+    // adaptive per-host fetch limit options, see AdaptiveLimitPageFetcher
+    private static final String ADAPTIVE_LIMIT = "adaptive-limit";
+    private static final String INITIAL_HOST_LIMIT = "initial-host-limit";
+    private static final String MAX_HOST_LIMIT = "max-host-limit";
+    // page fetcher, jsoup or http-client, see HttpClientPageFetcher - http-client crawls asynchronously
+    private static final String FETCHER = "fetcher";
+    // fetch policy options, see ResilientPageFetcher
+    private static final String FETCH_TIMEOUT_MS = "fetch-timeout-ms";
+    private static final String RETRIES = "retries";
+    private static final String RETRY_BACKOFF_MS = "retry-backoff-ms";
+    private static final String HEDGE = "hedge";
+    // page cache options, see PageCache - cache is disabled unless cache directory is set
+    private static final String CACHE_DIR = "cache-dir";
+    private static final String CACHE_TTL_MINUTES = "cache-ttl-minutes";
+    private static final String CACHE_MAX_MB = "cache-max-mb";
+    // page parsing option, see ParseMode
+    private static final String PARSER = "parser";
+    // crawl archive options, see CrawlArchive - pages are recorded to / replayed from given archive file
+    private static final String RECORD = "record";
+    private static final String REPLAY = "replay";
+    private static final String REPLAY_LATENCY = "replay-latency";
+    private static final String REPLAY_MMAP = "replay-mmap";
+    // crawl telemetry dump, see CrawlMetrics - summary table is always logged
+    private static final String METRICS_FILE = "metrics-file";
+    // resumable crawl options, see CrawlCheckpoint - checkpoint is deleted when crawl finishes
+    private static final String CHECKPOINT_FILE = "checkpoint-file";
+    private static final String CHECKPOINT_SECONDS = "checkpoint-seconds";
+    // sharded crawl options, see ShardExchange - each shard is a separate process sharing the exchange directory
+    private static final String SHARDS = "shards";
+    private static final String SHARD = "shard";
+    private static final String EXCHANGE_DIR = "exchange-dir";
+    private static final String EXCHANGE_POLL_MS = "exchange-poll-ms";
+    // link graph guided crawl options, see LinkGraph - graph is created by the first crawl
+    private static final String LINK_GRAPH = "link-graph";
+    private static final String CATEGORY_RECHECK_MINUTES = "category-recheck-minutes";
+    // crawled site, Genaw site unless set
+    private static final String ROOT_URL_OPTION = "root-url";
+    // incremental recrawl state, see CrawlState - full crawl when not set
+    private static final String STATE_FILE = "state-file";
+    // recipe index file written by search and read by query mode, see RecipeIndex
+    private static final String INDEX_FILE = "index-file";
+    // server mode options, see RecipeServer
+    private static final String PORT = "port";
+    private static final String SERVER_THREADS = "server-threads";
+    private static final String CACHE_ENTRIES = "cache-entries";
+    private static final String REFRESH_MINUTES = "refresh-minutes";
+    // watch mode options, see TopRecipeWatcher
+    private static final String WATCH_MINUTES = "watch-minutes";
+    private static final String CYCLES = "cycles";
+    private static final String EVENTS_FILE = "events-file";
+    // load mode options, see LoadGenerator
+    private static final String URL = "url";
+    private static final String CONCURRENCY = "concurrency";
+    private static final String REQUESTS = "requests";
+    private static final String WARMUP = "warmup";
+
+    private static final String MODE = "mode";
+    private static final String SEARCH_MODE = "search";
+    private static final String QUERY_MODE = "query";
+    private static final String SERVE_MODE = "serve";
+    private static final String LOAD_MODE = "load";
+    private static final String MERGE_MODE = "merge";
+    private static final String WATCH_MODE = "watch";
+
+    private static final String TOP_RECIPE_LABEL = "Protein to Net Carb, 5-star recipe";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var options = AppOptions.parse(args);
+
+        switch (options.get(MODE, SEARCH_MODE)) {
+            case SEARCH_MODE -> search(options);
+            case QUERY_MODE -> query(options);
+            case SERVE_MODE -> serve(options);
+            case LOAD_MODE -> load(options);
+            case MERGE_MODE -> merge(options);
+            case WATCH_MODE -> watch(options);
+            default -> throw new IllegalArgumentException("Unknown mode: " + options.get(MODE, null));
+        }
+    }
+
+    /**
+     * Live crawl of Genaw site, optionally writing all found recipes to a recipe index.
+     */
+    private static void search(AppOptions options) throws IOException {
+        var topRecipes = new TopRecipes(options.getInt(RecipeQuery.TOP, 1));
+        var indexFile = options.get(INDEX_FILE, null);
+        var allRecipes = new RecipeTable(true);
+        Consumer<Recipe> sink = indexFile == null ? topRecipes : topRecipes.andThen(allRecipes);
+
+        // top recipes are 5-star only, pages with lower rating are not needed unless all recipes are indexed
+        crawl(options, sink, indexFile == null ? 5 : 0);
+
+        var exchangeDir = options.get(EXCHANGE_DIR, null);
+        if (exchangeDir != null) {
+            // partial top recipes of this shard, merged by merge mode
+            var resultFile = ShardExchange.resultFile(Path.of(exchangeDir), options.getInt(SHARD, 0));
+            RecipeIndex.write(resultFile, topRecipes.result());
+            logger.info("Written top recipes of shard to {}", resultFile);
+        }
+
+        printTopRecipes(topRecipes.result(), TOP_RECIPE_LABEL);
+
+        if (indexFile != null) {
+            logStats(allRecipes);
+            RecipeIndex.write(Path.of(indexFile), allRecipes);
+            logger.info("Written {} recipes to index {}", allRecipes.size(), indexFile);
+        }
+    }
+
+    /**
+     * Live crawl of Genaw site, full or incremental when state file is set.
+     *
+     * @param sink          Consumer of all found recipes.
+     * @param minStarRating Recipes with lower star rating are not needed by the sink.
+     */
+    private static void crawl(AppOptions options, Consumer<Recipe> sink, int minStarRating) throws IOException {
+        checkCrawlOptions(options);
         var tableLinkExtractor = new TableLinkExtractor();
         var recipesExtractor = new RecipeExtractor();
+        var cacheDir = options.get(CACHE_DIR, null);
+        var replayFile = options.get(REPLAY, null);
+        var recordFile = options.get(RECORD, null);
+        var checkpointFile = options.get(CHECKPOINT_FILE, null);
+        var exchangeDir = options.get(EXCHANGE_DIR, null);
+        var linkGraphFile = options.get(LINK_GRAPH, null);
+        var rootUrl = options.get(ROOT_URL_OPTION, ROOT_URL);
+
+        try (var crawlExecutor = CrawlExecutor.create(
+                options.get(EXECUTOR, CommonPoolCrawlExecutor.NAME),
+                options.getInt(MAX_IN_FLIGHT, CrawlExecutor.UNLIMITED));
+             var pageCache = cacheDir == null || replayFile != null
+                     ? null
+                     : new PageCache(Path.of(cacheDir), options.getInt(CACHE_MAX_MB, 256) * 1024L * 1024L);
+             var replayArchive = replayFile == null
+                     ? null
+                     : CrawlArchive.open(Path.of(replayFile), Boolean.parseBoolean(options.get(REPLAY_MMAP, "true")));
+             var recordArchive = recordFile == null ? null : CrawlArchive.writer(Path.of(recordFile));
+             var checkpoint = checkpointFile == null
+                     ? null
+                     : CrawlCheckpoint.open(Path.of(checkpointFile), Duration.ofSeconds(
+                             options.getInt(CHECKPOINT_SECONDS, (int) CrawlCheckpoint.INTERVAL.toSeconds())))) {
+
+            PageFetcher pageFetcher;
+            HttpClientPageFetcher httpClientPageFetcher = null;
+            AdaptiveLimitPageFetcher adaptiveLimitPageFetcher = null;
+            ResilientPageFetcher resilientPageFetcher = null;
+            if (replayArchive != null) {
+                // offline crawl of a recorded archive, no network access
+                pageFetcher = new ReplayPageFetcher(
+                        replayArchive, ReplayPageFetcher.Latency.of(options.get(REPLAY_LATENCY, "0")));
+            } else {
+                var fetchTimeout = Duration.ofMillis(options.getInt(FETCH_TIMEOUT_MS, 10_000));
+                pageFetcher = switch (options.get(FETCHER, JsoupPageFetcher.NAME)) {
+                    case JsoupPageFetcher.NAME -> new JsoupPageFetcher(fetchTimeout);
+                    case HttpClientPageFetcher.NAME -> httpClientPageFetcher = new HttpClientPageFetcher(fetchTimeout);
+                    default -> throw new IllegalArgumentException("Unknown fetcher: " + options.get(FETCHER, null));
+                };
+                if (Boolean.parseBoolean(options.get(ADAPTIVE_LIMIT, "false"))) {
+                    // only network fetches are limited, pages served from the cache are not
+                    adaptiveLimitPageFetcher = new AdaptiveLimitPageFetcher(
+                            pageFetcher,
+                            options.getInt(INITIAL_HOST_LIMIT, AdaptiveLimitPageFetcher.INITIAL_LIMIT),
+                            options.getInt(MAX_HOST_LIMIT, AdaptiveLimitPageFetcher.MAX_LIMIT));
+                    pageFetcher = adaptiveLimitPageFetcher;
+                }
+                // each retry and hedged request takes its own adaptive limit slot
+                resilientPageFetcher = new ResilientPageFetcher(
+                        pageFetcher,
+                        options.getInt(RETRIES, ResilientPageFetcher.RETRIES),
+                        Duration.ofMillis(options.getInt(RETRY_BACKOFF_MS, 100)),
+                        Boolean.parseBoolean(options.get(HEDGE, "false")));
+                pageFetcher = resilientPageFetcher;
+                if (pageCache != null) {
+                    pageFetcher = new CachingPageFetcher(
+                            pageFetcher, pageCache, Duration.ofMinutes(options.getInt(CACHE_TTL_MINUTES, 60)));
+                }
+            }
+            if (recordArchive != null) {
+                // pages are recorded as seen by the search, cached pages included
+                pageFetcher = new RecordingPageFetcher(pageFetcher, recordArchive);
+            }
+
+            var parseMode = ParseMode.of(options.get(PARSER, "dom"));
+
+            var search = new TopRecipeSearch(tableLinkExtractor, recipesExtractor, crawlExecutor, pageFetcher,
+                    parseMode, minStarRating, new CrawlMetrics());
+            var stateFile = options.get(STATE_FILE, null);
+            CrawlPipeline pipeline = null;
+            // at most one crawl strategy is selected, see checkCrawlOptions
+            if (WATCH_MODE.equals(options.get(MODE, SEARCH_MODE))) {
+                // the same search and page fetcher for all cycles
+                watchCycles(options, search, rootUrl);
+            } else if (stateFile != null) {
+                var state = CrawlState.load(Path.of(stateFile));
+                state.apply(search.recrawl(rootUrl, RECIPES, state));
+                state.save(Path.of(stateFile));
+                state.recipes().forEach(sink);
+            } else if (exchangeDir != null) {
+                var exchange = new ShardExchange(
+                        Path.of(exchangeDir), options.getInt(SHARD, 0), options.getInt(SHARDS, 1));
+                search.crawlSharded(rootUrl, RECIPES, sink, exchange,
+                        Duration.ofMillis(options.getInt(EXCHANGE_POLL_MS, 50)));
+            } else if (linkGraphFile != null) {
+                var graph = LinkGraph.load(Path.of(linkGraphFile), Duration.ofMinutes(
+                        options.getInt(CATEGORY_RECHECK_MINUTES, (int) LinkGraph.RECHECK_INTERVAL.toMinutes())));
+                search.crawlGraph(rootUrl, RECIPES, sink, graph);
+                graph.save(Path.of(linkGraphFile));
+            } else if (Boolean.parseBoolean(options.get(PIPELINE, "false"))) {
+                pipeline = new CrawlPipeline(
+                        options.getInt(FETCH_THREADS, CrawlPipeline.FETCH_THREADS),
+                        options.getInt(PARSE_THREADS, CrawlPipeline.PARSE_THREADS),
+                        options.getInt(PAGE_QUEUE, CrawlPipeline.QUEUE_CAPACITY));
+                search.crawlPipelined(rootUrl, RECIPES, sink, pipeline);
+            } else if (checkpoint != null) {
+                search.crawl(rootUrl, RECIPES, sink, checkpoint);
+                checkpoint.finish();
+            } else if (httpClientPageFetcher != null) {
+                // non-blocking fetches, crawl executor is not used
+                search.crawlAsync(rootUrl, RECIPES, sink);
+            } else {
+                search.crawl(rootUrl, RECIPES, sink);
+            }
+
+            if (pageFetcher instanceof CachingPageFetcher cachingPageFetcher) {
+                cachingPageFetcher.logStats();
+            } else if (pageFetcher instanceof ReplayPageFetcher replayPageFetcher) {
+                replayPageFetcher.logStats();
+            }
+            if (pipeline != null) {
+                pipeline.logStats();
+            }
+            if (httpClientPageFetcher != null) {
+                httpClientPageFetcher.logStats();
+            }
+            if (adaptiveLimitPageFetcher != null) {
+                adaptiveLimitPageFetcher.logStats();
+            }
+            if (resilientPageFetcher != null) {
+                resilientPageFetcher.logStats();
+            }
+
+            logger.info("Crawl metrics:\n{}", search.metrics().summary());
+            var metricsFile = options.get(METRICS_FILE, null);
+            if (metricsFile != null) {
+                search.metrics().writeJson(Path.of(metricsFile));
+            }
+        }
+    }
+
+    /**
+     * Checks that options select at most one crawl strategy - incremental recrawl (watch mode or state file), sharded,
+     * link graph, pipelined or checkpointed crawl - and no option the selected strategy does not use. With another
+     * strategy, {@code http-client} fetcher serves its blocking fetches, otherwise the crawl is asynchronous.
+     *
+     * @throws IllegalArgumentException When options conflict.
+     */
+    private static void checkCrawlOptions(AppOptions options) {
+        var strategies = new ArrayList<String>();
+        if (WATCH_MODE.equals(options.get(MODE, SEARCH_MODE))) {
+            strategies.add("--" + MODE + "=" + WATCH_MODE);
+        } else if (options.get(STATE_FILE, null) != null) {
+            strategies.add("--" + STATE_FILE);
+        }
+        for (var option : List.of(EXCHANGE_DIR, LINK_GRAPH, CHECKPOINT_FILE)) {
+            if (options.get(option, null) != null) {
+                strategies.add("--" + option);
+            }
+        }
+        var pipeline = Boolean.parseBoolean(options.get(PIPELINE, "false"));
+        if (pipeline) {
+            strategies.add("--" + PIPELINE);
+        }
+        if (strategies.size() > 1) {
+            throw new IllegalArgumentException("Conflicting crawl options: " + String.join(", ", strategies));
+        }
+
+        var asyncCrawl = strategies.isEmpty()
+                && HttpClientPageFetcher.NAME.equals(options.get(FETCHER, JsoupPageFetcher.NAME));
+        if ((pipeline || asyncCrawl) && ParseMode.of(options.get(PARSER, "dom")) == ParseMode.PARTIAL) {
+            throw new IllegalArgumentException("--%s=partial does not apply to %s crawl fetching whole pages".formatted(
+                    PARSER, pipeline ? "pipelined" : "asynchronous " + HttpClientPageFetcher.NAME));
+        }
+        var executorSet = options.get(EXECUTOR, null) != null || options.get(MAX_IN_FLIGHT, null) != null;
+        if ((pipeline || asyncCrawl) && executorSet) {
+            throw new IllegalArgumentException("--%s and --%s do not apply to %s crawl".formatted(
+                    EXECUTOR, MAX_IN_FLIGHT, pipeline ? "pipelined" : "asynchronous " + HttpClientPageFetcher.NAME));
+        }
+    }
+
+    /**
+     * Offline query of a recipe index written by a previous search, no network access.
+     */
+    private static void query(AppOptions options) throws IOException {
+        var indexFile = options.get(INDEX_FILE, null);
+        if (indexFile == null) {
+            throw new IllegalArgumentException("Query mode requires --" + INDEX_FILE);
+        }
+
+        // store columns are read from the mapped index, strings are decoded only for the results
+        var snapshot = new RecipeSnapshot(1, RecipeIndex.open(Path.of(indexFile)));
+        var query = RecipeQuery.parse(options, 1);
+
+        var start = System.nanoTime();
+        // keyword hits are ranked by relevance, ordering keys are not used
+        var recipes = snapshot.query(query, options.get(RecipeQuery.KEYWORDS, null));
+        logger.info("Queried {} recipes in {} us", snapshot.size(), (System.nanoTime() - start) / 1000);
+
+        // recipes match the given query, not necessarily the default 5-star ranking
+        printTopRecipes(recipes, "recipe");
+    }
+
+    /**
+     * Long-running HTTP query server - recipes are loaded from recipe index when it exists, crawled otherwise.
+     * Optionally re-crawls periodically and swaps served recipes without downtime.
+     */
+    private static void serve(AppOptions options) throws IOException, InterruptedException {
+        var indexFile = options.get(INDEX_FILE, null);
+        RecipeColumns recipes = indexFile != null && Files.exists(Path.of(indexFile))
+                ? RecipeIndex.open(Path.of(indexFile))
+                : crawlAll(options);
+
+        var server = new RecipeServer(
+                recipes,
+                options.getInt(PORT, 8080),
+                options.getInt(SERVER_THREADS, Runtime.getRuntime().availableProcessors()),
+                options.getInt(CACHE_ENTRIES, 1024));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+
+        var refreshMinutes = options.getInt(REFRESH_MINUTES, 0);
+        // without refresh server threads keep running after main returns
+        while (refreshMinutes > 0) {
+            Thread.sleep(Duration.ofMinutes(refreshMinutes).toMillis());
+            try {
+                server.swap(crawlAll(options));
+            } catch (IOException | RuntimeException e) {
+                // keep serving the previous snapshot
+                logger.error("Re-crawl failed, serving previous recipes", e);
+            }
+        }
+    }
+
+    /**
+     * Load test of a running query server.
+     */
+    private static void load(AppOptions options) throws InterruptedException {
+        var url = options.get(URL, "http://localhost:8080/recipes?min-stars=4&order-by=protein:desc&top=10");
+        var generator = new LoadGenerator(options.getInt(CONCURRENCY, 16));
+
+        var report = generator.run(
+                List.of(URI.create(url)), options.getInt(WARMUP, 1_000), options.getInt(REQUESTS, 10_000));
+        logger.info("Load test of {}: {}", url, report);
+    }
+
+    /**
+     * Merges partial top recipes written by all shards of a sharded search, no network access.
+     */
+    private static void merge(AppOptions options) throws IOException {
+        var exchangeDir = options.get(EXCHANGE_DIR, null);
+        if (exchangeDir == null) {
+            throw new IllegalArgumentException("Merge mode requires --" + EXCHANGE_DIR);
+        }
+
+        var topRecipes = new TopRecipes(options.getInt(RecipeQuery.TOP, 1));
+        printTopRecipes(
+                ShardExchange.merge(Path.of(exchangeDir), options.getInt(SHARDS, 1), topRecipes), TOP_RECIPE_LABEL);
+    }
+
+    /**
+     * Long-running watch of top recipes - re-crawls periodically and writes change events of top recipes to
+     * standard output or to events file.
+     */
+    private static void watch(AppOptions options) throws IOException {
+        // recipes are taken from crawl state by the watcher, top recipes are 5-star only
+        crawl(options, recipe -> { }, 5);
+    }
+
+    private static void watchCycles(AppOptions options, TopRecipeSearch search, String rootUrl) throws IOException {
+        var stateFile = options.get(STATE_FILE, null);
+        var state = stateFile == null ? CrawlState.empty() : CrawlState.load(Path.of(stateFile));
+        var eventsFile = options.get(EVENTS_FILE, null);
+        var period = Duration.ofMinutes(options.getInt(WATCH_MINUTES, 60));
+        var cycles = options.getInt(CYCLES, 0);
+
+        try (Writer events = eventsFile == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Path.of(eventsFile), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            var watcher = new TopRecipeWatcher(
+                    search, rootUrl, RECIPES, state, options.getInt(RecipeQuery.TOP, 1), events);
+            // no cycle limit by default
+            for (var cycle = 1; cycles <= 0 || cycle <= cycles; cycle++) {
+                if (cycle > 1) {
+                    Thread.sleep(period.toMillis());
+                }
+                try {
+                    watcher.cycle();
+                } catch (RuntimeException e) {
+                    // keep watching, state of pages not recrawled is kept
+                    logger.error("Watch cycle failed", e);
+                }
+                if (stateFile != null) {
+                    state.save(Path.of(stateFile));
+                }
+                logger.info("Crawl metrics:\n{}", search.metrics().summary());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Watch interrupted");
+        }
+    }
+
+    private static RecipeTable crawlAll(AppOptions options) throws IOException {
+        var recipes = new RecipeTable(true);
+        crawl(options, recipes, 0);
+        logStats(recipes);
+        return recipes;
+    }
+
+    private static void logStats(RecipeTable recipes) {
+        logger.info("Collected {} recipes ({} distinct names, {} distinct URLs) in ~{} KB",
+                recipes.size(), recipes.distinctNames(), recipes.distinctUrls(), recipes.footprint() / 1024);
+    }
 
-        new TopRecipeSearch(tableLinkExtractor, recipesExtractor)
-                .findTopRecipe(ROOT_URL, RECIPES)
-                .ifPresentOrElse(
-                        App::printTopRecipeInfo,
-                        () -> logger.error("No recipe with given criteria found"));
+    /**
+     * @param label Description of the ranking, e.g. {@value #TOP_RECIPE_LABEL}.
+     */
+    private static void printTopRecipes(List<Recipe> recipes, String label) {
+        if (recipes.isEmpty()) {
+            logger.error("No recipe with given criteria found");
+        }
+        for (var i = 0; i < recipes.size(); i++) {
+            printTopRecipeInfo(i + 1, label, recipes.get(i));
+        }
     }
 
-    private static void printTopRecipeInfo(Recipe recipe) {
+    private static void printTopRecipeInfo(int rank, String label, Recipe recipe) {
         logger.info("""
-                Top Protein to Net Carb, 5-star recipe:
+                Top #{} {}:
                 Name: {}
                 URL: {}
                 Nutrition info: {}: {}
                 Protein to Net Carb Ratio: {}
-                """, recipe.name(), recipe.url(), recipe.variant(), recipe.nutritionInfo(), recipe.proteinToNetCarb());
+                """,
+                rank, label, recipe.name(), recipe.url(), recipe.variant(), recipe.nutritionInfo(),
+                recipe.proteinToNetCarb());
     }
 }
@@ -0,0 +1,58 @@
+package com.dp.genaw.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimalistic command line options parser for {@link App} - all options are expected in {@code --name=value} format,
+ * e.g. {@code --executor=thread-per-fetch --max-in-flight=64}.
+ */
+class AppOptions {
+
+    private final Map<String, String> options;
+
+    private AppOptions(Map<String, String> options) {
+        this.options = options;
+    }
+
+    static AppOptions parse(String[] args) {
+        var options = new HashMap<String, String>();
+
+        for (var arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument %s, expected --name=value".formatted(arg));
+            }
+
+            var separator = arg.indexOf('=');
+            if (separator < 0) {
+                // flag option without value, e.g. --verbose
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+
+        return new AppOptions(options);
+    }
+
+    /**
+     * @param options Options by name, e.g. query parameters.
+     */
+    static AppOptions of(Map<String, String> options) {
+        return new AppOptions(Map.copyOf(options));
+    }
+
+    String get(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        var value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    double getDouble(String name, double defaultValue) {
+        var value = options.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,80 @@
+package com.dp.genaw.search;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of reusable byte arrays used as scratch buffers for response bodies - bodies are read and decompressed
+ * into pooled buffers, so that a crawl allocates a single exact-size array per page instead of a chain of growing
+ * buffers. Buffers grown above {@code maxPooledSize} are left to the garbage collector.
+ * <p>
+ * Thread-safe, buffers may be acquired and released by different threads.
+ */
+class BufferPool {
+
+    private final BlockingQueue<byte[]> buffers;
+    private final int bufferSize;
+    private final int maxPooledSize;
+
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    /**
+     * @param capacity      Max number of pooled buffers.
+     * @param bufferSize    Size of newly allocated buffers.
+     * @param maxPooledSize Max size of a buffer to be returned to the pool.
+     */
+    BufferPool(int capacity, int bufferSize, int maxPooledSize) {
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+        this.bufferSize = bufferSize;
+        this.maxPooledSize = maxPooledSize;
+    }
+
+    byte[] acquire() {
+        var buffer = buffers.poll();
+        if (buffer == null) {
+            allocated.increment();
+            return new byte[bufferSize];
+        }
+
+        reused.increment();
+        return buffer;
+    }
+
+    /**
+     * Replaces {@code buffer} by a larger one keeping its first {@code length} bytes, the original buffer is released.
+     *
+     * @param minCapacity Minimal size of the new buffer.
+     * @return Buffer of at least {@code minCapacity} bytes.
+     */
+    byte[] grow(byte[] buffer, int length, int minCapacity) {
+        if (minCapacity < 0) {
+            throw new OutOfMemoryError("Buffer size overflow");
+        }
+
+        var doubled = (int) Math.min(Integer.MAX_VALUE - 8, buffer.length * 2L);
+        var grown = Arrays.copyOf(buffer, Math.max(minCapacity, doubled));
+        release(buffer);
+        return grown;
+    }
+
+    void release(byte[] buffer) {
+        if (buffer.length <= maxPooledSize) {
+            buffers.offer(buffer);
+        }
+    }
+
+    long allocated() {
+        return allocated.sum();
+    }
+
+    long reused() {
+        return reused.sum();
+    }
+
+    int pooled() {
+        return buffers.size();
+    }
+}
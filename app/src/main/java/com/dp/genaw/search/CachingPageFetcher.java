@@ -0,0 +1,139 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PageFetcher} decorator serving pages from a persistent {@link PageCache}:
+ * <ul>
+ *     <li>page fetched within {@code ttl} is served from the cache without any network request,</li>
+ *     <li>older page is revalidated by a conditional request ({@code If-None-Match} / {@code If-Modified-Since}),
+ *     {@code 304 Not Modified} response is served from the cache,</li>
+ *     <li>all other pages are fetched by the delegate fetcher and stored to the cache.</li>
+ * </ul>
+ */
+class CachingPageFetcher implements PageFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingPageFetcher.class);
+
+    private final PageFetcher delegate;
+    private final PageCache cache;
+    private final Duration ttl;
+    private final Clock clock;
+
+    private final AtomicInteger freshHits = new AtomicInteger(0);
+    private final AtomicInteger revalidatedHits = new AtomicInteger(0);
+    private final AtomicInteger misses = new AtomicInteger(0);
+
+    CachingPageFetcher(PageFetcher delegate, PageCache cache, Duration ttl) {
+        this(delegate, cache, ttl, Clock.systemUTC());
+    }
+
+    CachingPageFetcher(PageFetcher delegate, PageCache cache, Duration ttl, Clock clock) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    @Override
+    public FetchedPage fetch(String url, Map<String, String> requestHeaders) throws IOException {
+        return PageFetcher.await(fetchAsync(url, requestHeaders));
+    }
+
+    /**
+     * Cache is read on the calling thread, only network fetches of the delegate are asynchronous.
+     */
+    @Override
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Map<String, String> requestHeaders) {
+        var now = clock.instant();
+        var cached = cache.get(url);
+
+        if (cached.isPresent()) {
+            var entry = cached.get();
+
+            if (entry.fetchedAt().plus(ttl).isAfter(now)) {
+                var body = cache.readBody(entry);
+                if (body.isPresent()) {
+                    freshHits.incrementAndGet();
+                    return CompletableFuture.completedFuture(cachedPage(entry, body.get()));
+                }
+            } else if (entry.etag() != null || entry.lastModified() != null) {
+                var conditionalHeaders = new HashMap<>(requestHeaders);
+                conditionalHeaders.putAll(FetchedPage.conditionalHeaders(entry.etag(), entry.lastModified()));
+
+                return delegate.fetchAsync(url, conditionalHeaders).thenCompose(page -> {
+                    if (page.notModified()) {
+                        var body = cache.readBody(entry);
+                        if (body.isPresent()) {
+                            revalidatedHits.incrementAndGet();
+                            cache.touch(url, now);
+                            return CompletableFuture.completedFuture(cachedPage(entry, body.get()));
+                        }
+                        // body got lost in the meantime, fall back to unconditional fetch
+                        return delegate.fetchAsync(url, requestHeaders)
+                                .thenApply(fetchedPage -> store(fetchedPage, now));
+                    }
+
+                    return CompletableFuture.completedFuture(store(page, now));
+                });
+            }
+        }
+
+        return delegate.fetchAsync(url, requestHeaders).thenApply(page -> store(page, now));
+    }
+
+    void logStats() {
+        logger.info("Page cache: {} fresh hits, {} revalidated (304) hits, {} misses, {} pages / {} bytes cached",
+                freshHits.get(), revalidatedHits.get(), misses.get(), cache.size(), cache.totalBytes());
+    }
+
+    int freshHits() {
+        return freshHits.get();
+    }
+
+    int revalidatedHits() {
+        return revalidatedHits.get();
+    }
+
+    int misses() {
+        return misses.get();
+    }
+
+    private FetchedPage store(FetchedPage page, Instant now) {
+        misses.incrementAndGet();
+        if (page.notModified()) {
+            // answer to caller's own conditional request, there is no body to cache
+            return page;
+        }
+
+        cache.put(page.url(), page.header(FetchedPage.ETAG), page.header(FetchedPage.LAST_MODIFIED),
+                page.header(FetchedPage.CONTENT_TYPE), now, page.body());
+        return page;
+    }
+
+    private static FetchedPage cachedPage(PageCache.Entry entry, byte[] body) {
+        var headers = new HashMap<String, String>();
+        if (entry.etag() != null) {
+            headers.put(FetchedPage.ETAG, entry.etag());
+        }
+        if (entry.lastModified() != null) {
+            headers.put(FetchedPage.LAST_MODIFIED, entry.lastModified());
+        }
+        // body is decoded by the original charset
+        if (entry.contentType() != null) {
+            headers.put(FetchedPage.CONTENT_TYPE, entry.contentType());
+        }
+
+        return new FetchedPage(entry.url(), 200, headers, body);
+    }
+}
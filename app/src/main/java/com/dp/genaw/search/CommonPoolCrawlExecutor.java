@@ -0,0 +1,30 @@
+package com.dp.genaw.search;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link CrawlExecutor} running branches as parallel streams on standard {@code ForkJoinPool.common} thread pool which
+ * by default has one thread less than machine's vCPU cores.
+ * <p>
+ * Every blocking fetch pins a pool worker, so number of in-flight fetches never exceeds pool parallelism.
+ */
+class CommonPoolCrawlExecutor extends CrawlExecutor {
+
+    static final String NAME = "common-pool";
+
+    CommonPoolCrawlExecutor() {
+        this(UNLIMITED);
+    }
+
+    CommonPoolCrawlExecutor(int maxInFlight) {
+        super(maxInFlight);
+    }
+
+    @Override
+    void forkAll(List<String> links, Consumer<String> branch) {
+        links.stream()
+                .parallel()
+                .forEach(branch);
+    }
+}
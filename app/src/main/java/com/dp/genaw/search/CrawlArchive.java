@@ -0,0 +1,430 @@
+package com.dp.genaw.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only archive of fetched pages recorded by {@link RecordingPageFetcher} and served by
+ * {@link ReplayPageFetcher}, so that crawls can be repeated offline with the same inputs every time.
+ * <p>
+ * Archive file layout (big-endian) - header with magic number and format version followed by records, one per fetch in
+ * fetch order. Record is length prefixed and holds URL, fetch duration and either response (status, headers and body)
+ * or failure message.
+ * <p>
+ * Offset index - URL to offset of the record served for that URL - is written next to the archive ({@code .idx} file)
+ * when recording finishes. Archive without a valid index (e.g. recording was interrupted) is indexed by scanning record
+ * headers, an incomplete last record is ignored.
+ */
+class CrawlArchive implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlArchive.class);
+
+    private static final int MAGIC = 0x47434152; // "GCAR"
+    private static final int INDEX_MAGIC = 0x47434149; // "GCAI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final byte RESPONSE = 0;
+    private static final byte FAILURE = 1;
+
+    /**
+     * Single archived fetch.
+     *
+     * @param url      Fetched URL.
+     * @param page     Fetched page or {@code null} for failed fetches.
+     * @param failure  Failure message or {@code null} for successful fetches.
+     * @param duration Duration of the original fetch.
+     */
+    record Entry(String url, FetchedPage page, String failure, Duration duration) {
+
+        boolean failed() {
+            return page == null;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    // null when records are read by positional channel reads
+    private final ByteBuffer mapped;
+    private final Map<String, Long> offsets;
+
+    private CrawlArchive(Path file, FileChannel channel, ByteBuffer mapped, Map<String, Long> offsets) {
+        this.file = file;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Opens archive for replay.
+     *
+     * @param file Archive file.
+     * @param mmap {@code true} to read records from a memory-mapped archive, {@code false} for positional reads.
+     * @return Opened archive.
+     * @throws IOException When archive cannot be read or is not a crawl archive file.
+     */
+    static CrawlArchive open(Path file, boolean mmap) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            var length = channel.size();
+            var offsets = readIndex(file, length).orElse(null);
+            if (offsets == null) {
+                logger.info("No valid index of crawl archive {}, scanning records", file);
+                offsets = scan(channel, file).offsets();
+            }
+
+            ByteBuffer mapped = null;
+            if (mmap) {
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException("Crawl archive too large to be memory-mapped: " + file);
+                }
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+
+            logger.info("Opened crawl archive {} with {} pages", file, offsets.size());
+            return new CrawlArchive(file, channel, mapped, offsets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens archive for recording, records are appended to existing archive.
+     *
+     * @param file Archive file, created when it does not exist.
+     * @return Archive writer.
+     */
+    static Writer writer(Path file) throws IOException {
+        var directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        var channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Map<String, Long> offsets;
+            long length;
+            if (channel.size() == 0) {
+                var header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+                writeFully(channel, header, 0);
+                offsets = new LinkedHashMap<>();
+                length = HEADER_SIZE;
+            } else {
+                var scanned = scan(channel, file);
+                offsets = scanned.offsets();
+                // incomplete last record of an interrupted recording is overwritten
+                length = scanned.length();
+            }
+
+            channel.truncate(length);
+            return new Writer(file, channel, offsets, length);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param url Page URL.
+     * @return Archived fetch of the page, {@code Optional.empty} when page was not recorded.
+     */
+    Optional<Entry> get(String url) throws IOException {
+        var offset = offsets.get(url);
+        if (offset == null) {
+            return Optional.empty();
+        }
+
+        ByteBuffer record;
+        if (mapped != null) {
+            var length = mapped.getInt(Math.toIntExact(offset));
+            record = mapped.slice(Math.toIntExact(offset) + Integer.BYTES, length);
+        } else {
+            var lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+            readFully(channel, lengthBuffer, offset);
+            record = ByteBuffer.allocate(lengthBuffer.getInt(0));
+            readFully(channel, record, offset + Integer.BYTES);
+            record.flip();
+        }
+
+        return Optional.of(readEntry(new DataInputStream(new ByteBufferInputStream(record))));
+    }
+
+    int size() {
+        return offsets.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlArchive[file=%s, pages=%d]".formatted(file, offsets.size());
+    }
+
+    /**
+     * Appends fetches to an archive, safe to be called concurrently.
+     */
+    static class Writer implements AutoCloseable {
+
+        private final Path file;
+        private final FileChannel channel;
+        // guarded by this
+        private final Map<String, Long> offsets;
+        private long length;
+        private int records;
+
+        private Writer(Path file, FileChannel channel, Map<String, Long> offsets, long length) {
+            this.file = file;
+            this.channel = channel;
+            this.offsets = offsets;
+            this.length = length;
+        }
+
+        /**
+         * Appends successful fetch.
+         */
+        void append(FetchedPage page, Duration duration) throws IOException {
+            append(page.url(), page, null, duration);
+        }
+
+        /**
+         * Appends failed fetch, replay fails the same way.
+         */
+        void appendFailure(String url, String failure, Duration duration) throws IOException {
+            append(url, null, failure, duration);
+        }
+
+        synchronized int records() {
+            return records;
+        }
+
+        /**
+         * Flushes the archive to disk and writes its offset index.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            try (channel) {
+                channel.force(false);
+                writeIndex(file, length, offsets);
+            }
+            logger.info("Recorded {} fetches to crawl archive {}", records, file);
+        }
+
+        private void append(String url, FetchedPage page, String failure, Duration duration) throws IOException {
+            // serialized outside the lock, only the write itself is serialized
+            var bytes = new ByteArrayOutputStream(page == null ? 256 : page.body().length + 1024);
+            var out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            writeEntry(out, url, page, failure, duration);
+            out.flush();
+
+            var record = ByteBuffer.wrap(bytes.toByteArray());
+            record.putInt(0, record.capacity() - Integer.BYTES);
+
+            synchronized (this) {
+                writeFully(channel, record, length);
+                // 304 Not Modified has no body to serve, previous full response of the URL stays indexed
+                if (page == null || !page.notModified() || !offsets.containsKey(url)) {
+                    offsets.put(url, length);
+                }
+                length += record.capacity();
+                records++;
+            }
+        }
+    }
+
+    private static void writeEntry(
+            DataOutputStream out, String url, FetchedPage page, String failure, Duration duration) throws IOException {
+        out.writeByte(page == null ? FAILURE : RESPONSE);
+        out.writeUTF(url);
+        out.writeLong(duration.toNanos());
+        if (page == null) {
+            out.writeUTF(failure == null ? "" : failure);
+            return;
+        }
+
+        out.writeInt(page.statusCode());
+        out.writeInt(page.headers().size());
+        for (var header : page.headers().entrySet()) {
+            out.writeUTF(header.getKey());
+            out.writeUTF(header.getValue());
+        }
+        out.writeInt(page.body().length);
+        out.write(page.body());
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        var type = in.readByte();
+        var url = in.readUTF();
+        var duration = Duration.ofNanos(in.readLong());
+        if (type == FAILURE) {
+            return new Entry(url, null, in.readUTF(), duration);
+        }
+
+        var statusCode = in.readInt();
+        var headers = new HashMap<String, String>();
+        for (int i = 0, count = in.readInt(); i < count; i++) {
+            headers.put(in.readUTF(), in.readUTF());
+        }
+        var body = new byte[in.readInt()];
+        in.readFully(body);
+
+        return new Entry(url, new FetchedPage(url, statusCode, headers, body), null, duration);
+    }
+
+    private record Scan(Map<String, Long> offsets, long length) {}
+
+    /**
+     * Indexes archive by reading record headers only.
+     *
+     * @return Offsets and length of the archive up to the last complete record.
+     */
+    private static Scan scan(FileChannel channel, Path file) throws IOException {
+        var size = channel.size();
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        if (size < HEADER_SIZE || channel.read(header, 0) < HEADER_SIZE
+                || header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Not a crawl archive file: " + file);
+        }
+
+        var offsets = new LinkedHashMap<String, Long>();
+        var offset = (long) HEADER_SIZE;
+        // length prefix, record type and URL length
+        var prefix = ByteBuffer.allocate(Integer.BYTES + 1 + Short.BYTES);
+        while (offset + prefix.capacity() <= size) {
+            prefix.clear();
+            readFully(channel, prefix, offset);
+            var recordLength = prefix.getInt(0);
+            if (recordLength <= 0 || offset + Integer.BYTES + recordLength > size) {
+                logger.warn("Ignoring incomplete record at offset {} of crawl archive {}", offset, file);
+                break;
+            }
+
+            // URL with its length, fetch duration and status code of responses, record body is skipped
+            var type = prefix.get(Integer.BYTES);
+            var urlLength = Short.toUnsignedInt(prefix.getShort(Integer.BYTES + 1));
+            var fields = ByteBuffer.allocate(
+                    Math.min(Short.BYTES + urlLength + Long.BYTES + Integer.BYTES, recordLength - 1));
+            readFully(channel, fields, offset + Integer.BYTES + 1);
+            var in = new DataInputStream(new ByteBufferInputStream(fields.flip()));
+            var url = in.readUTF();
+            in.readLong();
+            var notModified = type == RESPONSE && in.readInt() == FetchedPage.NOT_MODIFIED;
+
+            if (!notModified || !offsets.containsKey(url)) {
+                offsets.put(url, offset);
+            }
+            offset += Integer.BYTES + recordLength;
+        }
+
+        return new Scan(offsets, offset);
+    }
+
+    private static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    private static void writeIndex(Path file, long length, Map<String, Long> offsets) throws IOException {
+        var indexFile = indexFile(file);
+        var tempFile = Files.createTempFile(
+                indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(length);
+            out.writeInt(offsets.size());
+            for (var entry : offsets.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return Offsets, {@code Optional.empty} when index is missing or does not match archive length (archive was
+     * appended after the index was written).
+     */
+    private static Optional<Map<String, Long>> readIndex(Path file, long length) throws IOException {
+        var indexFile = indexFile(file);
+        if (!Files.exists(indexFile)) {
+            return Optional.empty();
+        }
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != VERSION || in.readLong() != length) {
+                return Optional.empty();
+            }
+
+            var count = in.readInt();
+            var offsets = new HashMap<String, Long>(count * 2);
+            for (var i = 0; i < count; i++) {
+                offsets.put(in.readUTF(), in.readLong());
+            }
+            return Optional.of(offsets);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of crawl archive");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Input stream reading remaining bytes of a buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            var count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.dp.genaw.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durable crawl progress - explicit frontier (pending URLs), completed URLs and recipes extracted so far, so that an
+ * interrupted crawl can be resumed without re-fetching completed pages, see
+ * {@link TopRecipeSearch#crawl(String, String, java.util.function.Consumer, CrawlCheckpoint)}.
+ * <p>
+ * Progress is recorded in memory and periodically appended to the checkpoint file as a single block. Block holds
+ * records in crawl order - a page is recorded as completed only after its links (as pending URLs) or its recipes, so
+ * every block boundary is a consistent crawl state.
+ * <p>
+ * File layout (big-endian) - header with magic number and format version followed by blocks, each block is length
+ * prefixed and CRC32 checked. Incomplete or corrupted last block (e.g. process killed while writing) is ignored and
+ * overwritten by the next block.
+ */
+class CrawlCheckpoint implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlCheckpoint.class);
+
+    private static final int MAGIC = 0x4743434b; // "GCCK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final byte PENDING = 0;
+    private static final byte COMPLETED = 1;
+    private static final byte RECIPE = 2;
+
+    static final Duration INTERVAL = Duration.ofSeconds(10);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long interval;
+
+    // state loaded from the checkpoint file
+    private final Set<String> pending;
+    private final Set<String> completed;
+    private final List<Recipe> recipes;
+
+    // records not yet written to the file
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(block);
+    private long length;
+    private long lastCheckpoint = System.nanoTime();
+    private int completedSinceStart;
+
+    private CrawlCheckpoint(
+            Path file, FileChannel channel, Duration interval, long length,
+            Set<String> pending, Set<String> completed, List<Recipe> recipes) {
+        this.file = file;
+        this.channel = channel;
+        this.interval = interval.toNanos();
+        this.length = length;
+        this.pending = pending;
+        this.completed = completed;
+        this.recipes = recipes;
+    }
+
+    /**
+     * Opens checkpoint file, loads progress of previous crawls and continues appending to it.
+     *
+     * @param file     Checkpoint file, created when it does not exist.
+     * @param interval Min time between two checkpoints written to the file.
+     * @return Opened checkpoint.
+     * @throws IOException When file cannot be read or is not a checkpoint file.
+     */
+    static CrawlCheckpoint open(Path file, Duration interval) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        var channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            var pending = new LinkedHashSet<String>();
+            var completed = new HashSet<String>();
+            var recipes = new ArrayList<Recipe>();
+            long length;
+            if (channel.size() == 0) {
+                writeFully(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+                length = HEADER_SIZE;
+            } else {
+                length = read(channel, file, pending, completed, recipes);
+                pending.removeAll(completed);
+                logger.info("Loaded crawl checkpoint {} - {} completed pages, {} pending pages, {} recipes",
+                        file, completed.size(), pending.size(), recipes.size());
+            }
+
+            channel.truncate(length);
+            return new CrawlCheckpoint(file, channel, interval, length, pending, completed, recipes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return {@code true} when the checkpoint holds progress of a previous crawl.
+     */
+    boolean resumed() {
+        return !completed.isEmpty();
+    }
+
+    /**
+     * @return Pending URLs of the previous crawl - discovered but not completed.
+     */
+    List<String> pending() {
+        return List.copyOf(pending);
+    }
+
+    /**
+     * @return Completed URLs of the previous crawl.
+     */
+    Set<String> completed() {
+        return Set.copyOf(completed);
+    }
+
+    /**
+     * @return Recipes extracted by the previous crawl.
+     */
+    List<Recipe> recipes() {
+        return List.copyOf(recipes);
+    }
+
+    /**
+     * Records discovered URLs, must be called before the page linking them is {@link #completed completed}.
+     *
+     * @param urls Normalized absolute URLs.
+     */
+    synchronized void pending(Collection<String> urls) {
+        try {
+            for (var url : urls) {
+                out.writeByte(PENDING);
+                out.writeUTF(url);
+            }
+        } catch (IOException e) {
+            // in-memory stream
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records completed page with its recipes, writes checkpoint when checkpoint interval elapsed. Failure to write the
+     * checkpoint does not fail the crawl, records are written by the next checkpoint.
+     *
+     * @param url     Normalized absolute URL of the page.
+     * @param recipes Recipes extracted from the page.
+     */
+    synchronized void completed(String url, List<Recipe> recipes) {
+        try {
+            for (var recipe : recipes) {
+                out.writeByte(RECIPE);
+                out.writeUTF(recipe.name());
+                out.writeUTF(recipe.url());
+                out.writeUTF(recipe.variant());
+                out.writeUTF(recipe.nutritionInfo());
+                out.writeInt(recipe.starRating());
+                out.writeDouble(recipe.proteinToNetCarb());
+            }
+            out.writeByte(COMPLETED);
+            out.writeUTF(url);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        completedSinceStart++;
+
+        if (System.nanoTime() - lastCheckpoint >= interval) {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                logger.error("Cannot write crawl checkpoint %s, retrying with next page".formatted(file), e);
+            }
+        }
+    }
+
+    /**
+     * Appends all records since the last checkpoint to the file as a single block.
+     */
+    synchronized void checkpoint() throws IOException {
+        lastCheckpoint = System.nanoTime();
+        if (block.size() == 0) {
+            return;
+        }
+
+        var payload = block.toByteArray();
+        var crc = new CRC32();
+        crc.update(payload);
+        var buffer = ByteBuffer.allocate(BLOCK_HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        writeFully(channel, buffer, length);
+        channel.force(false);
+
+        length += buffer.capacity();
+        block.reset();
+        logger.debug("Crawl checkpoint written, {} pages completed since start", completedSinceStart);
+    }
+
+    /**
+     * Crawl finished - checkpoint is not needed anymore, file is deleted so that the next crawl starts from scratch.
+     */
+    synchronized void finish() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            try {
+                checkpoint();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads all complete blocks.
+     *
+     * @return Length of the valid part of the file.
+     */
+    private static long read(
+            FileChannel channel, Path file, Set<String> pending, Set<String> completed, List<Recipe> recipes)
+            throws IOException {
+        var size = channel.size();
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        if (size < HEADER_SIZE || channel.read(header, 0) < HEADER_SIZE
+                || header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Not a crawl checkpoint file: " + file);
+        }
+
+        var offset = (long) HEADER_SIZE;
+        var blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        while (offset + BLOCK_HEADER_SIZE <= size) {
+            blockHeader.clear();
+            readFully(channel, blockHeader, offset);
+            var blockLength = blockHeader.getInt(0);
+            if (blockLength <= 0 || offset + BLOCK_HEADER_SIZE + blockLength > size) {
+                logger.warn("Ignoring incomplete block at offset {} of crawl checkpoint {}", offset, file);
+                break;
+            }
+
+            var payload = ByteBuffer.allocate(blockLength);
+            readFully(channel, payload, offset + BLOCK_HEADER_SIZE);
+            var crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != blockHeader.getInt(Integer.BYTES)) {
+                logger.warn("Ignoring corrupted block at offset {} of crawl checkpoint {}", offset, file);
+                break;
+            }
+
+            readBlock(new DataInputStream(new ByteArrayInputStream(payload.array())), pending, completed, recipes);
+            offset += BLOCK_HEADER_SIZE + blockLength;
+        }
+
+        return offset;
+    }
+
+    private static void readBlock(
+            DataInputStream in, Set<String> pending, Set<String> completed, List<Recipe> recipes) throws IOException {
+        while (in.available() > 0) {
+            var type = in.readByte();
+            switch (type) {
+                case PENDING -> pending.add(in.readUTF());
+                case COMPLETED -> completed.add(in.readUTF());
+                case RECIPE -> recipes.add(new Recipe(
+                        in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readInt(), in.readDouble()));
+                default -> throw new IOException("Unknown crawl checkpoint record type: " + type);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of crawl checkpoint");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dp.genaw.search;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Abstract crawl executor deciding how sub-page branches of a traversal are run and how many page fetches may be
+ * in-flight at the same time.
+ * <p>
+ * Two strategies are provided:
+ * <ul>
+ *     <li>{@link CommonPoolCrawlExecutor} - parallel streams on {@code ForkJoinPool.common}, in-flight fetches are
+ *     effectively capped by pool parallelism,</li>
+ *     <li>{@link ThreadPerFetchCrawlExecutor} - each branch runs on its own (virtual, when available) thread, so
+ *     in-flight fetches are capped only by the configured limit.</li>
+ * </ul>
+ */
+abstract class CrawlExecutor implements AutoCloseable {
+
+    /**
+     * Value of {@code maxInFlight} meaning there is no in-flight fetch limit.
+     */
+    static final int UNLIMITED = 0;
+
+    // null when there is no in-flight limit
+    private final Semaphore inFlightPermits;
+
+    protected CrawlExecutor(int maxInFlight) {
+        this.inFlightPermits = maxInFlight > UNLIMITED ? new Semaphore(maxInFlight, true) : null;
+    }
+
+    /**
+     * Creates executor by its command line name, see {@link App}.
+     *
+     * @param name        Executor name, either {@code common-pool} or {@code thread-per-fetch}.
+     * @param maxInFlight Max number of in-flight fetches, {@link #UNLIMITED} for no limit.
+     * @return New crawl executor.
+     */
+    static CrawlExecutor create(String name, int maxInFlight) {
+        return switch (name) {
+            case CommonPoolCrawlExecutor.NAME -> new CommonPoolCrawlExecutor(maxInFlight);
+            case ThreadPerFetchCrawlExecutor.NAME -> new ThreadPerFetchCrawlExecutor(maxInFlight);
+            default -> throw new IllegalArgumentException("Unknown crawl executor: " + name);
+        };
+    }
+
+    /**
+     * Runs {@code branch} for each of the {@code links} and waits until all branches are finished. Branches hand their
+     * results over to a sink themselves, so nothing is collected here.
+     *
+     * @param links  Links to process.
+     * @param branch Processing of a single link (typically recursive traversal).
+     */
+    abstract void forkAll(List<String> links, Consumer<String> branch);
+
+    /**
+     * Runs single page {@code fetch} respecting in-flight fetch limit - blocks until fetch permit is available.
+     *
+     * @param fetch Fetch operation.
+     * @param <T>   Fetch result type.
+     * @return Fetch result.
+     */
+    <T> T fetch(Supplier<T> fetch) {
+        if (inFlightPermits == null) {
+            return fetch.get();
+        }
+
+        inFlightPermits.acquireUninterruptibly();
+        try {
+            return fetch.get();
+        } finally {
+            inFlightPermits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        // no resources by default
+    }
+}
@@ -0,0 +1,206 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jsoup.HttpStatusException;
+
+/**
+ * Crawl telemetry - latency histogram per crawl stage, fetched (and truncated) pages and bytes, extracted recipes,
+ * fetch failures by cause and in-flight fetches. All counters are lock-free (striped {@link LongAdder}s), so recording
+ * from crawl threads does not serialize them.
+ * <p>
+ * Summary is printed at the end of the crawl as a table, optionally dumped as JSON, see {@link App}.
+ */
+class CrawlMetrics {
+
+    /**
+     * Measured crawl stages.
+     */
+    enum Stage {
+        FETCH,
+        PARSE,
+        LINKS,
+        RECIPES;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder truncatedPages = new LongAdder();
+    private final LongAdder recipes = new LongAdder();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final LongAccumulator maxInFlight = new LongAccumulator(Math::max, 0);
+
+    CrawlMetrics() {
+        for (var stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    /**
+     * Marks start of a page fetch, must be followed by {@link #fetched(long, int)} or {@link #failed(Throwable)}.
+     */
+    void fetching() {
+        maxInFlight.accumulate(inFlight.incrementAndGet());
+    }
+
+    void fetched(long nanos, int bytes) {
+        inFlight.decrementAndGet();
+        record(Stage.FETCH, nanos);
+        pages.increment();
+        this.bytes.add(bytes);
+    }
+
+    /**
+     * Marks fetched page whose body was not read to the end, see {@link ParseMode#PARTIAL}.
+     */
+    void truncated() {
+        truncatedPages.increment();
+    }
+
+    void failed(Throwable e) {
+        inFlight.decrementAndGet();
+        failures.computeIfAbsent(cause(e), cause -> new LongAdder()).increment();
+    }
+
+    void extracted(int recipes) {
+        this.recipes.add(recipes);
+    }
+
+    LatencyHistogram.Snapshot stage(Stage stage) {
+        return stages.get(stage).snapshot();
+    }
+
+    long pages() {
+        return pages.sum();
+    }
+
+    long bytes() {
+        return bytes.sum();
+    }
+
+    long truncatedPages() {
+        return truncatedPages.sum();
+    }
+
+    long recipes() {
+        return recipes.sum();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    long maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * @return Number of failed fetches by cause, sorted by cause.
+     */
+    Map<String, Long> failures() {
+        var result = new TreeMap<String, Long>();
+        failures.forEach((cause, count) -> result.put(cause, count.sum()));
+        return result;
+    }
+
+    /**
+     * @return Human-readable summary table, latencies in microseconds.
+     */
+    String summary() {
+        var summary = new StringBuilder();
+        summary.append("%-8s %8s %10s %9s %9s %9s %9s %9s%n".formatted(
+                "stage", "count", "total ms", "mean us", "p50 us", "p90 us", "p99 us", "max us"));
+        for (var stage : Stage.values()) {
+            var snapshot = stage(stage);
+            summary.append("%-8s %8d %10d %9d %9d %9d %9d %9d%n".formatted(
+                    stage.label(), snapshot.count(), TimeUnit.NANOSECONDS.toMillis(snapshot.total()),
+                    micros(snapshot.mean()), micros(snapshot.p50()), micros(snapshot.p90()), micros(snapshot.p99()),
+                    micros(snapshot.max())));
+        }
+        summary.append("pages: %d (%d truncated), bytes: %d, recipes: %d, max in-flight fetches: %d%n".formatted(
+                pages(), truncatedPages(), bytes(), recipes(), maxInFlight()));
+        summary.append("failures: ").append(failures().isEmpty() ? "none" : failures());
+
+        return summary.toString();
+    }
+
+    /**
+     * @return Summary as JSON object, latencies in nanoseconds.
+     */
+    String toJson() {
+        var json = new StringBuilder("{\"stages\":{");
+        for (var stage : Stage.values()) {
+            var snapshot = stage(stage);
+            if (stage.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(stage.label()).append("\":{")
+                    .append("\"count\":").append(snapshot.count())
+                    .append(",\"totalNanos\":").append(snapshot.total())
+                    .append(",\"meanNanos\":").append(snapshot.mean())
+                    .append(",\"p50Nanos\":").append(snapshot.p50())
+                    .append(",\"p90Nanos\":").append(snapshot.p90())
+                    .append(",\"p99Nanos\":").append(snapshot.p99())
+                    .append(",\"maxNanos\":").append(snapshot.max())
+                    .append('}');
+        }
+        json.append("},\"pages\":").append(pages())
+                .append(",\"bytes\":").append(bytes())
+                .append(",\"truncatedPages\":").append(truncatedPages())
+                .append(",\"recipes\":").append(recipes())
+                .append(",\"maxInFlight\":").append(maxInFlight())
+                .append(",\"failures\":{");
+        var first = true;
+        for (var failure : failures().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            RecipeServer.appendString(json, failure.getKey());
+            json.append(':').append(failure.getValue());
+        }
+
+        return json.append("}}").toString();
+    }
+
+    void writeJson(Path file) throws IOException {
+        Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+    }
+
+    // visible for testing
+    static String cause(Throwable e) {
+        if (e instanceof HttpStatusException statusException) {
+            return "HTTP " + statusException.getStatusCode();
+        }
+
+        return e.getClass().getSimpleName();
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
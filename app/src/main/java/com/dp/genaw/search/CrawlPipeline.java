@@ -0,0 +1,292 @@
+package com.dp.genaw.search;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Staged crawl - page fetching and page parsing/extraction run on separate, separately sized worker pools connected
+ * by queues:
+ * <pre>
+ *   URL frontier -> fetch workers -> fetched pages (bounded) -> parse workers -> URL frontier
+ * </pre>
+ * Fetch stage is I/O bound and has many workers (fetch slots), parse stage is CPU bound and has about one worker per
+ * core, so parsing does not compete with fetch waits for the same threads.
+ * <p>
+ * Fetched pages queue is bounded - when fetching outpaces parsing, fetch workers block on the full queue
+ * (backpressure), so at most {@code fetchThreads + queueCapacity} page bodies wait for parsing. URL frontier is not
+ * bounded since parse workers must never block on it (both stages would wait for each other), URLs are deduplicated
+ * by the caller, so frontier is bounded by site size anyway.
+ * <p>
+ * Queue depths and per-stage utilization are available while running, see {@link #stats()}.
+ */
+class CrawlPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlPipeline.class);
+
+    static final int FETCH_THREADS = 64;
+    static final int PARSE_THREADS = Runtime.getRuntime().availableProcessors();
+    static final int QUEUE_CAPACITY = 2 * PARSE_THREADS;
+
+    /**
+     * Snapshot of a single stage.
+     *
+     * @param stage       Stage name.
+     * @param threads     Number of stage workers.
+     * @param queued      Current depth of the stage input queue.
+     * @param maxQueued   Max depth of the stage input queue seen so far.
+     * @param processed   Number of items processed by the stage.
+     * @param utilization Busy time of stage workers relative to their whole run time, {@code 0..1}.
+     * @param blocked     Time stage workers were blocked by a full downstream queue relative to their whole run time.
+     */
+    record StageStats(
+            String stage, int threads, int queued, long maxQueued, long processed, double utilization, double blocked) {
+
+        @Override
+        public String toString() {
+            return "%s: %d threads, %d queued (max %d), %d processed, %.0f%% busy, %.0f%% blocked".formatted(
+                    stage, threads, queued, maxQueued, processed, utilization * 100, blocked * 100);
+        }
+    }
+
+    private final Stage fetchStage;
+    private final Stage parseStage;
+    private final int queueCapacity;
+
+    CrawlPipeline() {
+        this(FETCH_THREADS, PARSE_THREADS, QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param fetchThreads  Number of fetch workers, i.e. max in-flight fetches.
+     * @param parseThreads  Number of parse and extraction workers.
+     * @param queueCapacity Capacity of the fetched pages queue.
+     */
+    CrawlPipeline(int fetchThreads, int parseThreads, int queueCapacity) {
+        if (fetchThreads < 1 || parseThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Pipeline threads and queue capacity must be positive");
+        }
+
+        this.fetchStage = new Stage("fetch", fetchThreads);
+        this.parseStage = new Stage("parse", parseThreads);
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Runs the pipeline from {@code seedUrl} until all reachable pages are processed. Exceptions of {@code fetch} and
+     * {@code parse} are logged and the page is skipped, an {@link Error} stops the pipeline and is rethrown.
+     *
+     * @param seedUrl Starting point of the crawl.
+     * @param fetch   Fetch stage - fetches page of given URL, {@code Optional.empty} when page cannot be fetched.
+     * @param parse   Parse stage - processes fetched page and returns URLs to crawl next, these must be deduplicated.
+     * @param <P>     Fetched page type.
+     * @throws InterruptedIOException When the calling thread is interrupted before the crawl is finished, some pages
+     *                                are not processed.
+     */
+    <P> void run(String seedUrl, Function<String, Optional<P>> fetch, Function<P, List<String>> parse)
+            throws InterruptedIOException {
+        var frontier = new LinkedBlockingQueue<String>();
+        var pages = new ArrayBlockingQueue<P>(queueCapacity);
+        // URLs in the frontier or in any stage, crawl is done when there are none
+        var pending = new AtomicInteger(1);
+        var done = new CountDownLatch(1);
+        var failure = new AtomicReference<Throwable>();
+        Runnable finished = () -> {
+            if (pending.decrementAndGet() == 0) {
+                done.countDown();
+            }
+        };
+        Consumer<Throwable> failed = e -> {
+            if (failure.compareAndSet(null, e)) {
+                done.countDown();
+            }
+        };
+
+        fetchStage.start(frontier);
+        parseStage.start(pages);
+        frontier.add(seedUrl);
+
+        var workers = new ArrayList<Thread>();
+        for (var i = 0; i < fetchStage.threads; i++) {
+            workers.add(fetchStage.worker(i, failed, () -> {
+                var url = frontier.take();
+                var queued = false;
+                try {
+                    var start = System.nanoTime();
+                    Optional<P> page;
+                    try {
+                        page = fetch.apply(url);
+                    } catch (RuntimeException e) {
+                        logger.error("Cannot fetch %s, skipping document".formatted(url), e);
+                        page = Optional.empty();
+                    }
+                    fetchStage.processed(System.nanoTime() - start);
+
+                    if (page.isPresent()) {
+                        start = System.nanoTime();
+                        pages.put(page.get());
+                        queued = true;
+                        fetchStage.blocked(System.nanoTime() - start);
+                        parseStage.queued(pages.size());
+                    }
+                } finally {
+                    // queued page is finished by the parse stage
+                    if (!queued) {
+                        finished.run();
+                    }
+                }
+            }));
+        }
+        for (var i = 0; i < parseStage.threads; i++) {
+            workers.add(parseStage.worker(i, failed, () -> {
+                var page = pages.take();
+                var start = System.nanoTime();
+                try {
+                    for (var url : parse.apply(page)) {
+                        pending.incrementAndGet();
+                        frontier.add(url);
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Cannot parse page, skipping document", e);
+                } finally {
+                    parseStage.processed(System.nanoTime() - start);
+                    fetchStage.queued(frontier.size());
+                    finished.run();
+                }
+            }));
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Pipelined crawl interrupted");
+        } finally {
+            // all workers are idle waiting for next item unless the crawl was interrupted or failed
+            workers.forEach(Thread::interrupt);
+            fetchStage.stop();
+            parseStage.stop();
+        }
+
+        if (failure.get() instanceof Error error) {
+            throw error;
+        } else if (failure.get() instanceof RuntimeException e) {
+            throw e;
+        }
+    }
+
+    /**
+     * @return Fetch and parse stage snapshots.
+     */
+    List<StageStats> stats() {
+        return List.of(fetchStage.stats(), parseStage.stats());
+    }
+
+    void logStats() {
+        stats().forEach(stats -> logger.info("Pipeline {}", stats));
+    }
+
+    /**
+     * Stage worker loop body, takes and processes a single item.
+     */
+    @FunctionalInterface
+    private interface Step {
+
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Workers and counters of a single stage.
+     */
+    private static class Stage {
+
+        private final String name;
+        private final int threads;
+
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder blockedNanos = new LongAdder();
+        private final LongAccumulator maxQueued = new LongAccumulator(Math::max, 0);
+
+        private volatile BlockingQueue<?> input;
+        private volatile long started;
+        private volatile long stopped;
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        void start(BlockingQueue<?> input) {
+            this.input = input;
+            this.started = System.nanoTime();
+            this.stopped = 0;
+        }
+
+        void stop() {
+            stopped = System.nanoTime();
+        }
+
+        /**
+         * @param failed Receiver of unexpected failure of the step, which stops the worker.
+         */
+        Thread worker(int index, Consumer<Throwable> failed, Step step) {
+            var thread = new Thread(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        step.run();
+                    }
+                } catch (InterruptedException e) {
+                    // pipeline finished
+                } catch (RuntimeException | Error e) {
+                    failed.accept(e);
+                }
+            }, "crawl-%s-%d".formatted(name, index));
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
+
+        void processed(long nanos) {
+            processed.increment();
+            busyNanos.add(nanos);
+        }
+
+        void blocked(long nanos) {
+            blockedNanos.add(nanos);
+        }
+
+        void queued(int depth) {
+            maxQueued.accumulate(depth);
+        }
+
+        StageStats stats() {
+            var queue = input;
+            var elapsed = (stopped == 0 ? System.nanoTime() : stopped) - started;
+            var total = Math.max(1.0, (double) elapsed * threads);
+
+            return new StageStats(
+                    name,
+                    threads,
+                    queue == null ? 0 : queue.size(),
+                    maxQueued.get(),
+                    processed.sum(),
+                    queue == null ? 0 : busyNanos.sum() / total,
+                    queue == null ? 0 : blockedNanos.sum() / total);
+        }
+    }
+}
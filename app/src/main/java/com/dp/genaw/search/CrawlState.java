@@ -0,0 +1,222 @@
+package com.dp.genaw.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Result of a previous crawl - every visited page with its content fingerprint, HTTP validators and extracted data,
+ * used by {@link TopRecipeSearch#recrawl(String, String, CrawlState)} to re-fetch only what is needed.
+ * <p>
+ * State is updated in place by applying {@link Delta deltas} of a recrawl, only changed pages are touched.
+ */
+class CrawlState {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlState.class);
+
+    private static final int MAGIC = 0x47435354; // "GCST"
+    private static final int VERSION = 1;
+
+    /**
+     * State of a single page.
+     *
+     * @param url          Normalized page URL.
+     * @param category     {@code true} for category pages, {@code false} for recipe pages.
+     * @param fingerprint  Content fingerprint, see {@link ScannedPage#fingerprint()}.
+     * @param etag         {@code ETag} response header or {@code null}.
+     * @param lastModified {@code Last-Modified} response header or {@code null}.
+     * @param links        Links to sub-pages, empty for recipe pages.
+     * @param recipes      Extracted recipes, empty for category pages.
+     */
+    record PageState(
+            String url,
+            boolean category,
+            long fingerprint,
+            String etag,
+            String lastModified,
+            List<String> links,
+            List<Recipe> recipes) {}
+
+    /**
+     * Change of a single page found by recrawl.
+     *
+     * @param type Change type.
+     * @param page New page state, previous page state for {@link Type#TOMBSTONE tombstones}.
+     */
+    record Delta(Type type, PageState page) {
+
+        enum Type {
+            INSERT,
+            UPDATE,
+            TOMBSTONE
+        }
+    }
+
+    // read concurrently by recrawl, updated only by apply() afterwards
+    private final Map<String, PageState> pages;
+
+    private CrawlState(Map<String, PageState> pages) {
+        this.pages = pages;
+    }
+
+    /**
+     * @return State of no previous crawl, i.e. recrawl inserts every page.
+     */
+    static CrawlState empty() {
+        return new CrawlState(new HashMap<>());
+    }
+
+    /**
+     * Loads state saved by {@link #save(Path)}.
+     *
+     * @param file State file.
+     * @return Loaded state, empty state when file does not exist.
+     * @throws IOException When file cannot be read or is not a crawl state file.
+     */
+    static CrawlState load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            logger.info("No crawl state {} found, starting full crawl", file);
+            return empty();
+        }
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a crawl state file: " + file);
+            }
+
+            var count = in.readInt();
+            var pages = new HashMap<String, PageState>(count * 2);
+            for (var i = 0; i < count; i++) {
+                var page = readPage(in);
+                pages.put(page.url(), page);
+            }
+
+            logger.info("Loaded crawl state {} with {} pages", file, pages.size());
+            return new CrawlState(pages);
+        }
+    }
+
+    /**
+     * Saves state, file is replaced atomically.
+     *
+     * @param file State file.
+     */
+    void save(Path file) throws IOException {
+        var directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(pages.size());
+            for (var page : pages.values()) {
+                writePage(out, page);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Optional<PageState> page(String url) {
+        return Optional.ofNullable(pages.get(url));
+    }
+
+    Collection<PageState> pages() {
+        return pages.values();
+    }
+
+    int size() {
+        return pages.size();
+    }
+
+    /**
+     * @return All recipes of all recipe pages.
+     */
+    List<Recipe> recipes() {
+        return pages.values().stream()
+                .flatMap(page -> page.recipes().stream())
+                .toList();
+    }
+
+    /**
+     * Applies recrawl deltas - inserted and updated pages replace their previous state, tombstoned pages are removed.
+     *
+     * @param deltas Deltas returned by {@link TopRecipeSearch#recrawl(String, String, CrawlState)}.
+     */
+    void apply(List<Delta> deltas) {
+        for (var delta : deltas) {
+            switch (delta.type()) {
+                case INSERT, UPDATE -> pages.put(delta.page().url(), delta.page());
+                case TOMBSTONE -> pages.remove(delta.page().url());
+            }
+        }
+    }
+
+    private static void writePage(DataOutputStream out, PageState page) throws IOException {
+        out.writeUTF(page.url());
+        out.writeBoolean(page.category());
+        out.writeLong(page.fingerprint());
+        writeNullable(out, page.etag());
+        writeNullable(out, page.lastModified());
+
+        out.writeInt(page.links().size());
+        for (var link : page.links()) {
+            out.writeUTF(link);
+        }
+
+        out.writeInt(page.recipes().size());
+        for (var recipe : page.recipes()) {
+            out.writeUTF(recipe.name());
+            out.writeUTF(recipe.url());
+            out.writeUTF(recipe.variant());
+            out.writeUTF(recipe.nutritionInfo());
+            out.writeInt(recipe.starRating());
+            out.writeDouble(recipe.proteinToNetCarb());
+        }
+    }
+
+    private static PageState readPage(DataInputStream in) throws IOException {
+        var url = in.readUTF();
+        var category = in.readBoolean();
+        var fingerprint = in.readLong();
+        var etag = readNullable(in);
+        var lastModified = readNullable(in);
+
+        var links = new ArrayList<String>();
+        for (int i = 0, count = in.readInt(); i < count; i++) {
+            links.add(in.readUTF());
+        }
+
+        var recipes = new ArrayList<Recipe>();
+        for (int i = 0, count = in.readInt(); i < count; i++) {
+            recipes.add(new Recipe(
+                    in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readInt(), in.readDouble()));
+        }
+
+        return new PageState(url, category, fingerprint, etag, lastModified, links, recipes);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -7,8 +7,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Abstract and generic data extractor working with a single {@link Document document} instance and extracting a list
- * of items.
+ * Abstract and generic data extractor working with a single {@link Document document} instance (or its
+ * {@link ScannedPage} form) and extracting a list of items.
  * <p>
  * E.g. see {@link TableLinkExtractor} extracting list of {@code String}-typed links.
  *
@@ -21,14 +21,15 @@ abstract class DataExtractor<T> {
     /**
      * Extraction logic to be implemented by sub-classes.
      *
-     * @param doc Document to work with.
+     * @param page Scanned page to work with, see {@link ScannedPage}.
      * @return List of extracted items.
      */
-    protected abstract List<T> extract(Document doc);
+    protected abstract List<T> extract(ScannedPage page);
 
     /**
-     * Interface method to be called by clients - wraps abstract {@link #extract(Document)}, logs all extraction
-     * exceptions and returns empty list in case of any extraction errors.
+     * Interface method to be called by clients - scans the document in a single traversal, wraps abstract
+     * {@link #extract(ScannedPage)}, logs all extraction exceptions and returns empty list in case of any extraction
+     * errors.
      *
      * @param doc Document to work with.
      * @return Extracted items or empty list in case of any {@link Exception}.
@@ -37,10 +38,28 @@ abstract class DataExtractor<T> {
         try {
             logger.debug("Extracting data from: {}", doc.location());
 
-            return extract(doc);
+            return extract(ScannedPage.scan(doc));
         } catch (Exception e) {
             logger.error("Cannot extract data from document %s, skipping document".formatted(doc.location()), e);
             return List.of();
         }
     }
+
+    /**
+     * Same as {@link #extractFromDocument(Document)} but working with already scanned page (by DOM traversal or by
+     * streaming {@link HtmlScanner}).
+     *
+     * @param page Scanned page to work with.
+     * @return Extracted items or empty list in case of any {@link Exception}.
+     */
+    List<T> extractFromPage(ScannedPage page) {
+        try {
+            logger.debug("Extracting data from: {}", page.location());
+
+            return extract(page);
+        } catch (Exception e) {
+            logger.error("Cannot extract data from page %s, skipping page".formatted(page.location()), e);
+            return List.of();
+        }
+    }
 }
@@ -0,0 +1,151 @@
+package com.dp.genaw.search;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Model class representing a single fetched (not yet parsed) page.
+ *
+ * @param url        Page URL.
+ * @param statusCode HTTP status code.
+ * @param headers    HTTP response headers, header names are case-insensitive.
+ * @param body       Raw page body, empty for {@code 304 Not Modified} responses.
+ */
+record FetchedPage(
+        String url,
+        int statusCode,
+        Map<String, String> headers,
+        byte[] body) {
+
+    static final int NOT_MODIFIED = 304;
+
+    static final String ETAG = "ETag";
+    static final String LAST_MODIFIED = "Last-Modified";
+    static final String CONTENT_TYPE = "Content-Type";
+    static final String IF_NONE_MATCH = "If-None-Match";
+    static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    // head of the body searched for charset declaration
+    private static final int CHARSET_SNIFF_LENGTH = 1024;
+    // both <meta charset="..."> and <meta http-equiv="Content-Type" content="text/html; charset=...">
+    private static final Pattern META_CHARSET = Pattern.compile(
+            "<meta[^>]+charset\\s*=\\s*[\"']?([\\w.:-]+)", Pattern.CASE_INSENSITIVE);
+
+    FetchedPage {
+        var caseInsensitiveHeaders = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        caseInsensitiveHeaders.putAll(headers);
+        headers = caseInsensitiveHeaders;
+    }
+
+    /**
+     * Builds conditional request headers from validators of a previously fetched page.
+     *
+     * @param etag         {@code ETag} of the previous response or {@code null}.
+     * @param lastModified {@code Last-Modified} of the previous response or {@code null}.
+     * @return {@code If-None-Match} / {@code If-Modified-Since} headers, empty when there are no validators.
+     */
+    static Map<String, String> conditionalHeaders(String etag, String lastModified) {
+        var headers = new HashMap<String, String>();
+        if (etag != null) {
+            headers.put(IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            headers.put(IF_MODIFIED_SINCE, lastModified);
+        }
+
+        return headers;
+    }
+
+    boolean notModified() {
+        return statusCode == NOT_MODIFIED;
+    }
+
+    /**
+     * @param name Header name, case-insensitive.
+     * @return Header value or {@code null} when header is not present.
+     */
+    String header(String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * @return Charset from {@code Content-Type} header, {@code null} when not present and charset is to be detected
+     * from the page itself.
+     */
+    String charset() {
+        var contentType = header(CONTENT_TYPE);
+        if (contentType == null) {
+            return null;
+        }
+
+        for (var parameter : contentType.split(";")) {
+            var trimmed = parameter.trim();
+            if (trimmed.regionMatches(true, 0, "charset=", 0, "charset=".length())) {
+                return trimmed.substring("charset=".length()).replace("\"", "").trim();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Detects charset of the body like {@code Jsoup} does for DOM parsing.
+     *
+     * @return Charset from byte order mark, {@code Content-Type} header or {@code <meta>} charset declaration in the
+     * head of the body (in this order), UTF-8 when none is present or supported.
+     */
+    Charset detectCharset() {
+        return detectCharset(charset(), body, Math.min(body.length, CHARSET_SNIFF_LENGTH));
+    }
+
+    /**
+     * Detects charset of a streamed body, see {@link #detectCharset()}. The stream is reset to where it was, no bytes
+     * are consumed.
+     *
+     * @param headerCharset Charset from {@code Content-Type} header or {@code null}.
+     * @param body          Body stream.
+     * @return Detected charset, UTF-8 when none is present or supported.
+     * @throws IOException When the body cannot be read.
+     */
+    static Charset detectCharset(String headerCharset, BufferedInputStream body) throws IOException {
+        body.mark(CHARSET_SNIFF_LENGTH);
+        var head = body.readNBytes(CHARSET_SNIFF_LENGTH);
+        body.reset();
+        return detectCharset(headerCharset, head, head.length);
+    }
+
+    private static Charset detectCharset(String headerCharset, byte[] head, int length) {
+        if (length >= 3 && (head[0] & 0xff) == 0xef && (head[1] & 0xff) == 0xbb && (head[2] & 0xff) == 0xbf) {
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 2 && (head[0] & 0xff) == 0xfe && (head[1] & 0xff) == 0xff) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (length >= 2 && (head[0] & 0xff) == 0xff && (head[1] & 0xff) == 0xfe) {
+            return StandardCharsets.UTF_16LE;
+        }
+
+        var charset = supportedCharset(headerCharset);
+        if (charset != null) {
+            return charset;
+        }
+
+        var meta = META_CHARSET.matcher(new String(head, 0, length, StandardCharsets.ISO_8859_1));
+        charset = meta.find() ? supportedCharset(meta.group(1)) : null;
+        return charset == null ? StandardCharsets.UTF_8 : charset;
+    }
+
+    private static Charset supportedCharset(String name) {
+        try {
+            return name == null ? null : Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
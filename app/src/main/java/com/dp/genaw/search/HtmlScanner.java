@@ -0,0 +1,478 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Set;
+import org.jsoup.nodes.Entities;
+
+/**
+ * Streaming HTML tokenizer - reads HTML page sequentially without building any DOM tree and emits events only for
+ * elements relevant for data extraction:
+ * <ul>
+ *     <li>{@code <b>} element text,</li>
+ *     <li>{@code <img src>} image URLs,</li>
+ *     <li>text directly under {@code <i>} elements (one event per text node, i.e. split by nested tags like
+ *     {@code <br>}),</li>
+ *     <li>{@code <a href>} links under {@code <table>} elements.</li>
+ * </ul>
+ * Everything else (other elements, comments, scripts, styles, ...) is discarded while reading. Handler may stop the
+ * scan early, see {@link Handler#done()}.
+ * <p>
+ * Tokenizer mimics what {@code Jsoup} DOM based extraction sees for well-formed Genaw pages, it does not implement
+ * full HTML tree construction rules (e.g. implicitly closed or re-opened formatting elements).
+ */
+class HtmlScanner {
+
+    /**
+     * Receiver of scanned elements.
+     */
+    interface Handler {
+
+        void bold(String text);
+
+        void image(String src);
+
+        void italicText(String text);
+
+        void tableLink(String href);
+
+        /**
+         * @return {@code true} when handler has all it needs, the rest of the page is not read.
+         */
+        default boolean done() {
+            return false;
+        }
+    }
+
+    // elements without content - never pushed to the open element stack
+    private static final Set<String> VOID_ELEMENTS = Set.of(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track",
+            "wbr");
+    // elements with raw text content which is skipped entirely
+    private static final Set<String> RAW_TEXT_ELEMENTS = Set.of("script", "style", "textarea", "title");
+    // longest named character reference known to Jsoup, e.g. "CounterClockwiseContourIntegral"
+    private static final int MAX_REFERENCE_LENGTH = 32;
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final Handler handler;
+
+    private static final int BUFFER_SIZE = 8192;
+    // extra space for characters pushed back by unread()
+    private static final int PUSHBACK_SIZE = 16;
+
+    private final char[] buffer = new char[BUFFER_SIZE + PUSHBACK_SIZE];
+    private int position;
+    private int limit;
+
+    // text of the current text node (only collected when directly under <i>)
+    private final StringBuilder text = new StringBuilder();
+    // text of the current <b> element
+    private final StringBuilder bold = new StringBuilder();
+    private int boldDepth;
+    private int tableDepth;
+    // elements opened since the outermost <i>, text is emitted only when <i> is on top
+    private final Deque<String> italicElements = new ArrayDeque<>();
+
+    private HtmlScanner(Reader reader, Handler handler) {
+        this.reader = reader;
+        this.handler = handler;
+    }
+
+    /**
+     * Scans whole page, emitting found elements to {@code handler}.
+     *
+     * @param reader  Page content.
+     * @param handler Receiver of scanned elements.
+     * @return {@code true} when the scan was stopped by {@link Handler#done()} before the end of page content.
+     * @throws IOException When page content cannot be read.
+     */
+    static boolean scan(Reader reader, Handler handler) throws IOException {
+        return new HtmlScanner(reader, handler).scan();
+    }
+
+    private boolean scan() throws IOException {
+        int c;
+        while ((c = read()) != EOF) {
+            if (c == '<') {
+                markup();
+                // elements are emitted by markup only
+                if (handler.done()) {
+                    return true;
+                }
+            } else if (c == '&') {
+                appendText(entity(false));
+            } else {
+                appendText((char) c);
+            }
+        }
+
+        flushText();
+        if (boldDepth > 0) {
+            emitBold();
+        }
+        return false;
+    }
+
+    private void markup() throws IOException {
+        var c = peek();
+        if (c == '!') {
+            read();
+            if (peek() == '-') {
+                read();
+                if (peek() == '-') {
+                    read();
+                    skipComment();
+                    return;
+                }
+            }
+            skipTag();
+        } else if (c == '?') {
+            skipTag();
+        } else if (c == '/') {
+            read();
+            var name = tagName();
+            skipTag();
+            if (!name.isEmpty()) {
+                endTag(name);
+            }
+        } else if (isLetter(c)) {
+            startTag(tagName());
+        } else {
+            // not a tag, e.g. "a < b"
+            appendText('<');
+        }
+    }
+
+    private void startTag(String name) throws IOException {
+        flushText();
+
+        String src = null;
+        String href = null;
+        int c;
+        while ((c = skipWhitespace()) != EOF && c != '>') {
+            if (c == '/') {
+                read();
+                continue;
+            }
+
+            var attributeName = attributeName();
+            if (attributeName.isEmpty()) {
+                // unexpected character, e.g. quote - skip it
+                read();
+                continue;
+            }
+
+            String value = "";
+            if (skipWhitespace() == '=') {
+                read();
+                skipWhitespace();
+                value = attributeValue();
+            }
+
+            if (attributeName.equals("src")) {
+                src = value;
+            } else if (attributeName.equals("href")) {
+                href = value;
+            }
+        }
+        read(); // '>' or EOF
+
+        switch (name) {
+            case "b" -> {
+                if (boldDepth++ == 0) {
+                    bold.setLength(0);
+                }
+            }
+            case "br" -> {
+                if (boldDepth > 0) {
+                    bold.append(' ');
+                }
+            }
+            case "img" -> {
+                if (src != null) {
+                    handler.image(src);
+                }
+            }
+            case "a" -> {
+                if (tableDepth > 0 && href != null && !href.isBlank()) {
+                    handler.tableLink(href);
+                }
+            }
+            case "table" -> tableDepth++;
+            default -> {
+                if (RAW_TEXT_ELEMENTS.contains(name)) {
+                    skipRawText(name);
+                    return;
+                }
+            }
+        }
+
+        if (name.equals("i")) {
+            italicElements.push(name);
+        } else if (!italicElements.isEmpty() && !VOID_ELEMENTS.contains(name) && !name.equals("p")) {
+            // <p> is transparent - HTML parsers re-open formatting elements like <i> in the new paragraph
+            italicElements.push(name);
+        }
+    }
+
+    private void endTag(String name) {
+        flushText();
+
+        if (name.equals("b") && boldDepth > 0 && --boldDepth == 0) {
+            emitBold();
+        } else if (name.equals("table") && tableDepth > 0) {
+            tableDepth--;
+        }
+
+        if (italicElements.contains(name)) {
+            String closed;
+            do {
+                closed = italicElements.pop();
+            } while (!closed.equals(name));
+        }
+    }
+
+    private void appendText(char c) {
+        if (boldDepth > 0) {
+            bold.append(c);
+        }
+        if ("i".equals(italicElements.peek())) {
+            text.append(c);
+        }
+    }
+
+    private void appendText(String decoded) {
+        if (boldDepth > 0) {
+            bold.append(decoded);
+        }
+        if ("i".equals(italicElements.peek())) {
+            text.append(decoded);
+        }
+    }
+
+    private void flushText() {
+        if (!text.isEmpty()) {
+            handler.italicText(normalizeWhitespace(text, false));
+            text.setLength(0);
+        }
+    }
+
+    private void emitBold() {
+        handler.bold(normalizeWhitespace(bold, true));
+        bold.setLength(0);
+    }
+
+    /**
+     * Decodes character reference after {@code &}, unknown references are kept as they are. Named references are
+     * looked up in the {@code Jsoup} entity table, numeric references decode to full code points (i.e. surrogate pairs
+     * above U+FFFF), invalid code points to U+FFFD like in {@code Jsoup}.
+     *
+     * @return Decoded text, one or two characters.
+     */
+    private String entity(boolean inAttribute) throws IOException {
+        var reference = new StringBuilder();
+        int c;
+        while ((c = peek()) != EOF && (isLetter(c) || Character.isDigit(c) || c == '#')
+                && reference.length() < MAX_REFERENCE_LENGTH) {
+            reference.append((char) read());
+        }
+
+        var terminated = peek() == ';';
+        if (terminated) {
+            read();
+        } else if (inAttribute || reference.isEmpty()) {
+            // e.g. query parameters in links: "?a=1&b=2"
+            return String.valueOf(unread("&" + reference));
+        }
+
+        if (reference.length() > 1 && reference.charAt(0) == '#') {
+            try {
+                var hex = reference.charAt(1) == 'x' || reference.charAt(1) == 'X';
+                var code = Integer.parseInt(reference.substring(hex ? 2 : 1), hex ? 16 : 10);
+                var valid = code >= 0 && code <= Character.MAX_CODE_POINT
+                        && (code < Character.MIN_SURROGATE || code > Character.MAX_SURROGATE);
+                return valid ? Character.toString(code) : "\ufffd";
+            } catch (NumberFormatException e) {
+                return String.valueOf(unread("&" + reference + (terminated ? ";" : "")));
+            }
+        }
+
+        var name = reference.toString();
+        return Entities.isNamedEntity(name)
+                ? Entities.getByName(name)
+                : String.valueOf(unread("&" + reference + (terminated ? ";" : "")));
+    }
+
+    /**
+     * Returns first character of {@code literal} and pushes rest back to be read again.
+     */
+    private char unread(String literal) {
+        var rest = literal.substring(1);
+        if (position >= rest.length()) {
+            position -= rest.length();
+            rest.getChars(0, rest.length(), buffer, position);
+        } else {
+            var remaining = limit - position;
+            System.arraycopy(buffer, position, buffer, rest.length(), remaining);
+            rest.getChars(0, rest.length(), buffer, 0);
+            position = 0;
+            limit = rest.length() + remaining;
+        }
+
+        return literal.charAt(0);
+    }
+
+    private String tagName() throws IOException {
+        var name = new StringBuilder();
+        int c;
+        while ((c = peek()) != EOF && (isLetter(c) || Character.isDigit(c))) {
+            name.append((char) Character.toLowerCase(read()));
+        }
+
+        return name.toString();
+    }
+
+    private String attributeName() throws IOException {
+        var name = new StringBuilder();
+        int c;
+        while ((c = peek()) != EOF && !isWhitespace(c) && c != '=' && c != '>' && c != '/' && c != '"' && c != '\'') {
+            name.append((char) read());
+        }
+
+        return name.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private String attributeValue() throws IOException {
+        var value = new StringBuilder();
+        var quote = peek();
+        if (quote == '"' || quote == '\'') {
+            read();
+            int c;
+            while ((c = read()) != EOF && c != quote) {
+                if (c == '&') {
+                    value.append(entity(true));
+                } else {
+                    value.append((char) c);
+                }
+            }
+        } else {
+            int c;
+            while ((c = peek()) != EOF && !isWhitespace(c) && c != '>') {
+                read();
+                if (c == '&') {
+                    value.append(entity(true));
+                } else {
+                    value.append((char) c);
+                }
+            }
+        }
+
+        return value.toString();
+    }
+
+    private void skipRawText(String name) throws IOException {
+        var endTag = "</" + name;
+        var matched = 0;
+        int c;
+        while ((c = read()) != EOF) {
+            if (Character.toLowerCase(c) == endTag.charAt(matched)) {
+                if (++matched == endTag.length()) {
+                    skipTag();
+                    return;
+                }
+            } else {
+                matched = c == '<' ? 1 : 0;
+            }
+        }
+    }
+
+    private void skipTag() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != EOF && c != '>');
+    }
+
+    private void skipComment() throws IOException {
+        // comment ends with "-->", any number of dashes may precede closing '>', e.g. "<!------->"
+        var dashes = 0;
+        int c;
+        while ((c = read()) != EOF) {
+            if (c == '>' && dashes >= 2) {
+                return;
+            }
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) != EOF && isWhitespace(c)) {
+            read();
+        }
+
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        var read = reader.read(buffer, 0, BUFFER_SIZE);
+        if (read <= 0) {
+            return false;
+        }
+
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u00a0';
+    }
+
+    /**
+     * Collapses whitespace runs to a single space - same as {@code Jsoup} text normalization.
+     */
+    private static String normalizeWhitespace(CharSequence value, boolean trim) {
+        var normalized = new StringBuilder(value.length());
+        var lastWasWhitespace = false;
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (isWhitespace(c)) {
+                if (!lastWasWhitespace) {
+                    normalized.append(' ');
+                }
+                lastWasWhitespace = true;
+            } else {
+                normalized.append(c);
+                lastWasWhitespace = false;
+            }
+        }
+
+        return trim ? normalized.toString().trim() : normalized.toString();
+    }
+}
@@ -0,0 +1,262 @@
+package com.dp.genaw.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking {@link PageFetcher} on a single shared {@link HttpClient} - connections are kept alive and reused
+ * across pages, HTTP/2 is negotiated when the server supports it and responses may be {@code gzip} or {@code deflate}
+ * compressed. No thread is blocked while a page is in-flight, so thousands of fetches may be in-flight on the few
+ * client threads, see {@link TopRecipeSearch#crawlAsync}.
+ * <p>
+ * Response bodies are collected and decompressed in {@link BufferPool pooled} buffers, pages get exact-size copies.
+ * Same as {@link JsoupPageFetcher}, HTTP error statuses fail the fetch by {@link HttpStatusException}.
+ */
+class HttpClientPageFetcher implements PageFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientPageFetcher.class);
+
+    static final String NAME = "http-client";
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    private final HttpClient client;
+    private final Duration timeout;
+    private final BufferPool bufferPool;
+
+    HttpClientPageFetcher() {
+        this(JsoupPageFetcher.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param timeout Connect timeout and timeout of a single request.
+     */
+    HttpClientPageFetcher(Duration timeout) {
+        this(timeout, new BufferPool(256, 64 * 1024, 4 * 1024 * 1024));
+    }
+
+    HttpClientPageFetcher(Duration timeout, BufferPool bufferPool) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(timeout)
+                .build();
+        this.timeout = timeout;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public FetchedPage fetch(String url, Map<String, String> requestHeaders) throws IOException {
+        return PageFetcher.await(fetchAsync(url, requestHeaders));
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Map<String, String> requestHeaders) {
+        HttpRequest request;
+        try {
+            request = request(url, requestHeaders);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Invalid URL or request header: " + url, e));
+        }
+
+        return client.sendAsync(request, this::bodySubscriber)
+                .thenApply(response -> {
+                    if (response.statusCode() >= 400) {
+                        throw new CompletionException(
+                                new HttpStatusException("HTTP error fetching URL", response.statusCode(), url));
+                    }
+
+                    return new FetchedPage(url, response.statusCode(), headers(response.headers()), response.body());
+                });
+    }
+
+    /**
+     * Blocking fetch, body is decompressed while it is being read. Closing the body stream before its end cancels the
+     * response, so the rest of the body is not downloaded.
+     */
+    @Override
+    public <T> T fetchStreaming(String url, BodyReader<T> reader) throws IOException {
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request(url, Map.of()), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + url, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + url);
+        }
+
+        var rawBody = response.body();
+        try (rawBody) {
+            if (response.statusCode() >= 400) {
+                throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+            }
+
+            var encoding = response.headers().firstValue(CONTENT_ENCODING).orElse("identity");
+            try (var body = decoding(rawBody, encoding)) {
+                return reader.read(
+                        new FetchedPage(url, response.statusCode(), headers(response.headers()), new byte[0]), body);
+            }
+        }
+    }
+
+    void logStats() {
+        logger.info("Body buffers: {} allocated, {} reused, {} pooled",
+                bufferPool.allocated(), bufferPool.reused(), bufferPool.pooled());
+    }
+
+    BufferPool bufferPool() {
+        return bufferPool;
+    }
+
+    private HttpRequest request(String url, Map<String, String> requestHeaders) {
+        var builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header(ACCEPT_ENCODING, "gzip, deflate");
+        requestHeaders.forEach(builder::header);
+        return builder.build();
+    }
+
+    private static InputStream decoding(InputStream body, String encoding) throws IOException {
+        return switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(body);
+            case "deflate" -> new InflaterInputStream(body);
+            case "identity", "" -> body;
+            default -> throw new IOException("Unsupported content encoding: " + encoding);
+        };
+    }
+
+    private HttpResponse.BodySubscriber<byte[]> bodySubscriber(HttpResponse.ResponseInfo responseInfo) {
+        return new PooledBodySubscriber(responseInfo.headers().firstValue(CONTENT_ENCODING).orElse("identity"));
+    }
+
+    // first value of each header, body is handed over decompressed so encoding headers do not apply anymore
+    private static Map<String, String> headers(HttpHeaders headers) {
+        var result = new HashMap<String, String>();
+        headers.map().forEach((name, values) -> {
+            if (!values.isEmpty()
+                    && !name.equalsIgnoreCase(CONTENT_ENCODING)
+                    && !name.equalsIgnoreCase(CONTENT_LENGTH)) {
+                result.put(name, values.get(0));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Collects body chunks into a pooled buffer and decompresses it when complete.
+     */
+    private class PooledBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+        private final String encoding;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+
+        private byte[] buffer;
+        private int length;
+
+        PooledBodySubscriber(String encoding) {
+            this.encoding = encoding.trim().toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            buffer = bufferPool.acquire();
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (var item : items) {
+                var remaining = item.remaining();
+                if (length + remaining > buffer.length) {
+                    buffer = bufferPool.grow(buffer, length, length + remaining);
+                }
+                item.get(buffer, length, remaining);
+                length += remaining;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            release();
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            // buffer is released before the body completes, so that the next fetch of the caller may reuse it
+            try {
+                var decoded = decode();
+                release();
+                body.complete(decoded);
+            } catch (IOException e) {
+                release();
+                body.completeExceptionally(e);
+            }
+        }
+
+        private byte[] decode() throws IOException {
+            return switch (encoding) {
+                case "gzip", "x-gzip" -> inflate(new GZIPInputStream(new ByteArrayInputStream(buffer, 0, length)));
+                case "deflate" -> inflate(new InflaterInputStream(new ByteArrayInputStream(buffer, 0, length)));
+                case "identity", "" -> Arrays.copyOf(buffer, length);
+                default -> throw new IOException("Unsupported content encoding: " + encoding);
+            };
+        }
+
+        private byte[] inflate(InputStream in) throws IOException {
+            var inflated = bufferPool.acquire();
+            try (in) {
+                var inflatedLength = 0;
+                int read;
+                while ((read = in.read(inflated, inflatedLength, inflated.length - inflatedLength)) != -1) {
+                    inflatedLength += read;
+                    if (inflatedLength == inflated.length) {
+                        inflated = bufferPool.grow(inflated, inflatedLength, inflatedLength + 1);
+                    }
+                }
+                return Arrays.copyOf(inflated, inflatedLength);
+            } finally {
+                bufferPool.release(inflated);
+            }
+        }
+
+        private void release() {
+            if (buffer != null) {
+                bufferPool.release(buffer);
+                buffer = null;
+            }
+        }
+    }
+}
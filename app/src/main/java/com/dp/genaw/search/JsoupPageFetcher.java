@@ -0,0 +1,67 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+
+/**
+ * Default {@link PageFetcher} implementation opening a new {@code Jsoup} connection for each page.
+ */
+class JsoupPageFetcher implements PageFetcher {
+
+    static final String NAME = "jsoup";
+
+    // Jsoup default connect and read timeout
+    static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Duration timeout;
+
+    JsoupPageFetcher() {
+        this(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param timeout Connect and read timeout of a single request.
+     */
+    JsoupPageFetcher(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public FetchedPage fetch(String url, Map<String, String> requestHeaders) throws IOException {
+        var response = Jsoup.connect(url)
+                .headers(requestHeaders)
+                .timeout((int) timeout.toMillis())
+                // error statuses are handled below - 304 Not Modified must not be treated as an error
+                .ignoreHttpErrors(true)
+                .execute();
+
+        if (response.statusCode() >= 400) {
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+
+        return new FetchedPage(url, response.statusCode(), response.headers(), response.bodyAsBytes());
+    }
+
+    /**
+     * Body is read directly from the connection, closing the stream disconnects it.
+     */
+    @Override
+    public <T> T fetchStreaming(String url, BodyReader<T> reader) throws IOException {
+        var response = Jsoup.connect(url)
+                .timeout((int) timeout.toMillis())
+                .ignoreHttpErrors(true)
+                .execute();
+
+        try (var body = response.bodyStream()) {
+            if (response.statusCode() >= 400) {
+                throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+            }
+
+            return reader.read(new FetchedPage(url, response.statusCode(), response.headers(), new byte[0]), body);
+        }
+    }
+}
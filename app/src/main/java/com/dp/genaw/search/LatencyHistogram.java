@@ -0,0 +1,140 @@
+package com.dp.genaw.search;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of latencies in nanoseconds, safe to record from any number of threads.
+ * <p>
+ * Each power of two range is split into {@value #SUB_BUCKETS} linear buckets, so any recorded value is reported with
+ * at most 12.5% relative error. Bucket counters are striped {@link LongAdder}s - concurrent recording threads do not
+ * contend on a single counter and reading is done only when the histogram is reported.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values below SUB_BUCKETS have a bucket each, every next power of two has SUB_BUCKETS buckets
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Histogram summary, all values in nanoseconds.
+     *
+     * @param count Number of recorded values.
+     * @param total Sum of recorded values.
+     * @param p50   Median (upper bound of its bucket).
+     * @param p90   90th percentile.
+     * @param p99   99th percentile.
+     * @param max   Exact max value.
+     */
+    record Snapshot(long count, long total, long p50, long p90, long p99, long max) {
+
+        long mean() {
+            return count == 0 ? 0 : total / count;
+        }
+    }
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (var i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos Latency to record, negative values are recorded as {@code 0}.
+     */
+    void record(long nanos) {
+        var value = Math.max(0, nanos);
+        counts[bucket(value)].increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    long count() {
+        var count = 0L;
+        for (var bucketCount : counts) {
+            count += bucketCount.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile Percentile between {@code 0} and {@code 1}.
+     * @return Upper bound of the bucket containing given percentile, {@code 0} for empty histogram.
+     */
+    long percentile(double percentile) {
+        return percentile(snapshotCounts(), percentile);
+    }
+
+    Snapshot snapshot() {
+        var snapshotCounts = snapshotCounts();
+        var count = 0L;
+        for (var bucketCount : snapshotCounts) {
+            count += bucketCount;
+        }
+
+        return new Snapshot(
+                count,
+                total.sum(),
+                percentile(snapshotCounts, 0.5),
+                percentile(snapshotCounts, 0.9),
+                percentile(snapshotCounts, 0.99),
+                max.get());
+    }
+
+    // visible for testing
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // visible for testing
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        var shift = bucket / SUB_BUCKETS - 1;
+        var lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    private long[] snapshotCounts() {
+        var snapshotCounts = new long[BUCKETS];
+        for (var i = 0; i < BUCKETS; i++) {
+            snapshotCounts[i] = counts[i].sum();
+        }
+        return snapshotCounts;
+    }
+
+    private long percentile(long[] snapshotCounts, double percentile) {
+        var count = 0L;
+        for (var bucketCount : snapshotCounts) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        var rank = Math.max(1, (long) Math.ceil(percentile * count));
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += snapshotCounts[i];
+            if (seen >= rank) {
+                // bucket bound may be above the exact max
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+}
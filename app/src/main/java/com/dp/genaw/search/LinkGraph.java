@@ -0,0 +1,302 @@
+package com.dp.genaw.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Site link graph discovered by previous crawls - every page is a node marked as a category or a recipe page,
+ * category nodes keep links to their sub-pages and the time they were last checked. Used by
+ * {@link TopRecipeSearch#crawlGraph(String, String, java.util.function.Consumer, LinkGraph)} to take links of recently
+ * checked categories from the graph, so that only recipe pages are fetched and categories are re-checked on their own,
+ * slower schedule.
+ * <p>
+ * Nodes are numbered, links are kept as node numbers. File layout (big-endian) - header with magic number and format
+ * version, node count, nodes (URL, kind, last check time) and adjacency lists (link count and node numbers of every
+ * category node).
+ */
+class LinkGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(LinkGraph.class);
+
+    private static final int MAGIC = 0x47434c47; // "GCLG"
+    private static final int VERSION = 1;
+    private static final int INITIAL_CAPACITY = 256;
+
+    static final Duration RECHECK_INTERVAL = Duration.ofDays(1);
+
+    // linked page not loaded yet
+    private static final byte UNKNOWN = 0;
+    private static final byte CATEGORY = 1;
+    private static final byte RECIPE = 2;
+
+    private static final int[] NO_LINKS = new int[0];
+
+    private final long recheckInterval;
+    private final Clock clock;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private int size;
+    private String[] urls = new String[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    // epoch millis of the last category page load
+    private long[] checkedAt = new long[INITIAL_CAPACITY];
+    private int[][] links = new int[INITIAL_CAPACITY][];
+
+    /**
+     * @param recheckInterval Max age of category links taken from the graph, older categories are loaded again.
+     */
+    LinkGraph(Duration recheckInterval) {
+        this(recheckInterval, Clock.systemUTC());
+    }
+
+    LinkGraph(Duration recheckInterval, Clock clock) {
+        this.recheckInterval = recheckInterval.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Loads graph saved by {@link #save(Path)}.
+     *
+     * @param file            Graph file.
+     * @param recheckInterval Max age of category links taken from the graph, older categories are loaded again.
+     * @return Loaded graph, empty graph when file does not exist.
+     * @throws IOException When file cannot be read or is not a link graph file.
+     */
+    static LinkGraph load(Path file, Duration recheckInterval) throws IOException {
+        return load(file, recheckInterval, Clock.systemUTC());
+    }
+
+    static LinkGraph load(Path file, Duration recheckInterval, Clock clock) throws IOException {
+        var graph = new LinkGraph(recheckInterval, clock);
+        if (!Files.exists(file)) {
+            logger.info("No link graph {} found, starting full crawl", file);
+            return graph;
+        }
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a link graph file: " + file);
+            }
+
+            var count = in.readInt();
+            for (var i = 0; i < count; i++) {
+                var id = graph.id(in.readUTF());
+                graph.kinds[id] = in.readByte();
+                graph.checkedAt[id] = in.readLong();
+            }
+            for (var i = 0; i < count; i++) {
+                if (graph.kinds[i] == CATEGORY) {
+                    var nodeLinks = new int[in.readInt()];
+                    for (var j = 0; j < nodeLinks.length; j++) {
+                        nodeLinks[j] = in.readInt();
+                        if (nodeLinks[j] < 0 || nodeLinks[j] >= count) {
+                            throw new IOException("Invalid link of node %d in link graph %s".formatted(i, file));
+                        }
+                    }
+                    graph.links[i] = nodeLinks;
+                }
+            }
+        }
+
+        logger.info("Loaded link graph {} with {} categories and {} recipe pages",
+                file, graph.categories(), graph.recipes().size());
+        return graph;
+    }
+
+    /**
+     * Saves graph, file is replaced atomically.
+     *
+     * @param file Graph file.
+     */
+    synchronized void save(Path file) throws IOException {
+        var directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            for (var i = 0; i < size; i++) {
+                out.writeUTF(urls[i]);
+                out.writeByte(kinds[i]);
+                out.writeLong(checkedAt[i]);
+            }
+            for (var i = 0; i < size; i++) {
+                if (kinds[i] == CATEGORY) {
+                    out.writeInt(links[i].length);
+                    for (var link : links[i]) {
+                        out.writeInt(link);
+                    }
+                }
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param url Normalized page URL.
+     * @return Links of a category checked within recheck interval, {@code Optional.empty} when the page is not such
+     * category and must be loaded.
+     */
+    synchronized Optional<List<String>> freshLinks(String url) {
+        var id = ids.get(url);
+        if (id == null || kinds[id] != CATEGORY || clock.millis() - checkedAt[id] >= recheckInterval) {
+            return Optional.empty();
+        }
+
+        return Optional.of(urls(links[id]));
+    }
+
+    /**
+     * @param url Normalized page URL.
+     * @return Links of a category regardless of its last check, {@code Optional.empty} when the page is not a known
+     * category.
+     */
+    synchronized Optional<List<String>> links(String url) {
+        var id = ids.get(url);
+        return id == null || kinds[id] != CATEGORY ? Optional.empty() : Optional.of(urls(links[id]));
+    }
+
+    /**
+     * Records loaded category page, replaces its previous links.
+     *
+     * @param url       Normalized page URL.
+     * @param pageLinks Normalized URLs of sub-pages.
+     */
+    synchronized void category(String url, List<String> pageLinks) {
+        var id = id(url);
+        var nodeLinks = new int[pageLinks.size()];
+        for (var i = 0; i < nodeLinks.length; i++) {
+            nodeLinks[i] = id(pageLinks.get(i));
+        }
+
+        kinds[id] = CATEGORY;
+        checkedAt[id] = clock.millis();
+        links[id] = nodeLinks;
+    }
+
+    /**
+     * Records loaded recipe page.
+     *
+     * @param url Normalized page URL.
+     */
+    synchronized void recipe(String url) {
+        var id = id(url);
+        kinds[id] = RECIPE;
+        checkedAt[id] = 0;
+        links[id] = NO_LINKS;
+    }
+
+    /**
+     * @return URLs of all recipe pages.
+     */
+    synchronized List<String> recipes() {
+        var recipes = new ArrayList<String>();
+        for (var i = 0; i < size; i++) {
+            if (kinds[i] == RECIPE) {
+                recipes.add(urls[i]);
+            }
+        }
+
+        return recipes;
+    }
+
+    synchronized int categories() {
+        var categories = 0;
+        for (var i = 0; i < size; i++) {
+            if (kinds[i] == CATEGORY) {
+                categories++;
+            }
+        }
+
+        return categories;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Removes pages not matching given predicate (e.g. pages not reachable anymore) and links to them, remaining
+     * nodes are renumbered.
+     *
+     * @param retained Predicate of normalized URLs of pages to keep.
+     */
+    synchronized void retain(Predicate<String> retained) {
+        var newIds = new int[size];
+        var newSize = 0;
+        for (var i = 0; i < size; i++) {
+            newIds[i] = retained.test(urls[i]) ? newSize++ : -1;
+        }
+        if (newSize == size) {
+            return;
+        }
+
+        ids.clear();
+        for (var i = 0; i < size; i++) {
+            var id = newIds[i];
+            if (id < 0) {
+                continue;
+            }
+
+            urls[id] = urls[i];
+            kinds[id] = kinds[i];
+            checkedAt[id] = checkedAt[i];
+            links[id] = Arrays.stream(links[i]).map(link -> newIds[link]).filter(link -> link >= 0).toArray();
+            ids.put(urls[id], id);
+        }
+
+        Arrays.fill(urls, newSize, size, null);
+        Arrays.fill(links, newSize, size, null);
+        logger.debug("Removed {} unreachable pages from link graph", size - newSize);
+        size = newSize;
+    }
+
+    private int id(String url) {
+        var id = ids.get(url);
+        if (id != null) {
+            return id;
+        }
+
+        if (size == urls.length) {
+            var capacity = size * 2;
+            urls = Arrays.copyOf(urls, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            checkedAt = Arrays.copyOf(checkedAt, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+
+        urls[size] = url;
+        kinds[size] = UNKNOWN;
+        links[size] = NO_LINKS;
+        ids.put(url, size);
+        return size++;
+    }
+
+    private List<String> urls(int[] nodeIds) {
+        var nodeUrls = new ArrayList<String>(nodeIds.length);
+        for (var id : nodeIds) {
+            nodeUrls.add(urls[id]);
+        }
+
+        return nodeUrls;
+    }
+}
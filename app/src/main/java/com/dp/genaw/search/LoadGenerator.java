@@ -0,0 +1,151 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local load generator measuring throughput and latency of {@link RecipeServer} - closed model, each of
+ * {@code concurrency} workers sends the next request as soon as the previous one is answered.
+ */
+class LoadGenerator {
+
+    /**
+     * Load test results, latencies in microseconds.
+     *
+     * @param requests   Number of measured requests.
+     * @param errors     Number of failed requests or non-200 responses.
+     * @param elapsed    Wall clock time of the measured requests.
+     * @param throughput Requests per second.
+     */
+    record Report(
+            int requests,
+            int errors,
+            Duration elapsed,
+            double throughput,
+            long p50Micros,
+            long p90Micros,
+            long p99Micros,
+            long maxMicros) {
+
+        @Override
+        public String toString() {
+            return "%d requests (%d errors) in %d ms: %.0f req/s, latency p50 %d us, p90 %d us, p99 %d us, max %d us"
+                    .formatted(requests, errors, elapsed.toMillis(), throughput, p50Micros, p90Micros, p99Micros,
+                            maxMicros);
+        }
+    }
+
+    private final HttpClient client;
+    private final int concurrency;
+
+    /**
+     * @param concurrency Number of concurrent workers.
+     */
+    LoadGenerator(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+
+        this.concurrency = concurrency;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Runs load test, URIs are requested round-robin.
+     *
+     * @param uris     Requested URIs.
+     * @param warmup   Number of not measured requests sent first, e.g. to warm up JIT and result cache.
+     * @param requests Number of measured requests.
+     * @return Report of the measured requests.
+     */
+    Report run(List<URI> uris, int warmup, int requests) throws InterruptedException {
+        if (uris.isEmpty()) {
+            throw new IllegalArgumentException("No URI to request");
+        }
+
+        var httpRequests = uris.stream()
+                .map(uri -> HttpRequest.newBuilder(uri).GET().build())
+                .toList();
+
+        send(httpRequests, warmup, new long[warmup]);
+
+        var latencies = new long[requests];
+        var start = System.nanoTime();
+        var errors = send(httpRequests, requests, latencies);
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        Arrays.sort(latencies);
+        return new Report(
+                requests,
+                errors,
+                elapsed,
+                requests * 1e9 / Math.max(1, elapsed.toNanos()),
+                percentile(latencies, 0.5),
+                percentile(latencies, 0.9),
+                percentile(latencies, 0.99),
+                percentile(latencies, 1));
+    }
+
+    /**
+     * @return Number of errors.
+     */
+    private int send(List<HttpRequest> httpRequests, int count, long[] latencies) throws InterruptedException {
+        var next = new AtomicInteger();
+        var errors = new AtomicInteger();
+
+        var executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            var workers = new ArrayList<Future<?>>();
+            for (var i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    for (var index = next.getAndIncrement(); index < count; index = next.getAndIncrement()) {
+                        var request = httpRequests.get(index % httpRequests.size());
+                        var start = System.nanoTime();
+                        try {
+                            var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - start;
+                    }
+                    return null;
+                }));
+            }
+
+            for (var worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load generator worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return errors.get();
+    }
+
+    private static long percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+
+        var index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1000;
+    }
+}
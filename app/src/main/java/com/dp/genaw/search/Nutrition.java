@@ -0,0 +1,40 @@
+package com.dp.genaw.search;
+
+/**
+ * Macro nutrient quantities parsed from a single nutrition info string, e.g.:
+ * <tt>
+ * 235 Calories; 20g Fat; 13g Protein; 3g Carbohydrate; 1.5g Dietary Fiber; 1.5g Net Carbs
+ * </tt>
+ * Quantities are in grams (calories in kcal), {@link Double#NaN} when not present in the nutrition info, "trace"
+ * quantities are parsed as zero.
+ *
+ * @param calories     Calories.
+ * @param fat          Fat.
+ * @param protein      Protein.
+ * @param carbohydrate Carbohydrate.
+ * @param fiber        Dietary fiber.
+ * @param netCarb      Net Carb, falls back to Carbohydrate (or any other "Carb..." quantity) when Net Carb is not
+ *                     present.
+ */
+record Nutrition(
+        double calories,
+        double fat,
+        double protein,
+        double carbohydrate,
+        double fiber,
+        double netCarb) {
+
+    /**
+     * Parses nutrition info, see {@link NutritionParser}.
+     *
+     * @param nutritionInfo Nutrition info without variant name.
+     * @return Parsed quantities, never {@code null}.
+     */
+    static Nutrition parse(CharSequence nutritionInfo) {
+        return NutritionParser.parse(nutritionInfo);
+    }
+
+    boolean hasProteinAndNetCarb() {
+        return !Double.isNaN(protein) && !Double.isNaN(netCarb);
+    }
+}
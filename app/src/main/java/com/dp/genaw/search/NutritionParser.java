@@ -0,0 +1,182 @@
+package com.dp.genaw.search;
+
+/**
+ * Single pass nutrition info tokenizer - scans nutrition info once, without regular expressions and without any
+ * intermediate strings, looking for {@code <quantity>[g] <nutrient>} tokens, e.g. {@code 16g Protein}, {@code 117
+ * Calories} or {@code trace Net Carbs}.
+ * <p>
+ * Token rules (all case-insensitive):
+ * <ul>
+ *     <li>quantity must be at the beginning or preceded by whitespace or {@code ;} and is either a decimal number or
+ *     {@code trace} (parsed as zero),</li>
+ *     <li>gram unit after quantity is optional, at least one whitespace separates quantity and nutrient,</li>
+ *     <li>nutrient is matched by prefix - {@code Carb} matches {@code Carbs} and {@code Carbohydrate}, {@code Net}
+ *     keyword before {@code Carb} is optional, i.e. Carbohydrate is used as Net Carb when Net Carb is missing,</li>
+ *     <li>when a nutrient is present multiple times, the last one wins.</li>
+ * </ul>
+ */
+class NutritionParser {
+
+    private static final String TRACE = "trace";
+    private static final String PROTEIN = "protein";
+    private static final String NET = "net";
+    private static final String CARB = "carb";
+    private static final String CARBOHYDRATE = "carbohydrate";
+    private static final String FAT = "fat";
+    private static final String CALORIE = "calorie";
+    private static final String DIETARY = "dietary";
+    private static final String FIBER = "fiber";
+
+    // max digits parsed without allocation - larger values are exact neither as long mantissa nor as power of 10
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    private final CharSequence input;
+    private final int length;
+    // end of the last parsed quantity
+    private int quantityEnd;
+
+    private double calories = Double.NaN;
+    private double fat = Double.NaN;
+    private double protein = Double.NaN;
+    private double carbohydrate = Double.NaN;
+    private double fiber = Double.NaN;
+    private double netCarb = Double.NaN;
+
+    private NutritionParser(CharSequence input) {
+        this.input = input;
+        this.length = input.length();
+    }
+
+    static Nutrition parse(CharSequence nutritionInfo) {
+        var parser = new NutritionParser(nutritionInfo);
+        parser.parse();
+        return new Nutrition(
+                parser.calories, parser.fat, parser.protein, parser.carbohydrate, parser.fiber, parser.netCarb);
+    }
+
+    private void parse() {
+        for (var i = 0; i < length; i++) {
+            if (i == 0 || isSeparator(input.charAt(i - 1))) {
+                nutrient(i);
+            }
+        }
+    }
+
+    private void nutrient(int start) {
+        var quantity = quantity(start);
+        if (Double.isNaN(quantity)) {
+            return;
+        }
+
+        var i = quantityEnd;
+        if (i < length && Character.toLowerCase(input.charAt(i)) == 'g') {
+            i++;
+        }
+        var nutrientStart = skipWhitespace(i);
+        if (nutrientStart == i) {
+            return;
+        }
+
+        if (startsWith(nutrientStart, PROTEIN)) {
+            protein = quantity;
+        } else if (startsWith(nutrientStart, CARB)) {
+            netCarb = quantity;
+            if (startsWith(nutrientStart, CARBOHYDRATE)) {
+                carbohydrate = quantity;
+            }
+        } else if (startsWith(nutrientStart, NET)) {
+            var carbStart = skipWhitespace(nutrientStart + NET.length());
+            if (carbStart > nutrientStart + NET.length() && startsWith(carbStart, CARB)) {
+                netCarb = quantity;
+            }
+        } else if (startsWith(nutrientStart, FAT)) {
+            fat = quantity;
+        } else if (startsWith(nutrientStart, CALORIE)) {
+            calories = quantity;
+        } else if (startsWith(nutrientStart, FIBER)) {
+            fiber = quantity;
+        } else if (startsWith(nutrientStart, DIETARY)) {
+            var fiberStart = skipWhitespace(nutrientStart + DIETARY.length());
+            if (fiberStart > nutrientStart + DIETARY.length() && startsWith(fiberStart, FIBER)) {
+                fiber = quantity;
+            }
+        }
+    }
+
+    /**
+     * Parses quantity at {@code start}, sets {@link #quantityEnd}.
+     *
+     * @return Quantity, {@link Double#NaN} when there is no valid quantity at {@code start}.
+     */
+    private double quantity(int start) {
+        if (startsWith(start, TRACE)) {
+            quantityEnd = start + TRACE.length();
+            return 0;
+        }
+
+        long mantissa = 0;
+        var digits = 0;
+        var fractionDigits = 0;
+        var dots = 0;
+        var i = start;
+        for (; i < length; i++) {
+            var c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (dots > 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.') {
+                dots++;
+            } else {
+                break;
+            }
+        }
+        quantityEnd = i;
+
+        if (digits == 0 || dots > 1) {
+            // e.g. "." or "1.2.3"
+            return Double.NaN;
+        } else if (digits > MAX_FAST_DIGITS) {
+            return Double.parseDouble(input.subSequence(start, i).toString());
+        } else {
+            // both operands are exact, so the division is correctly rounded - same result as Double.parseDouble
+            return mantissa / POWERS_OF_TEN[fractionDigits];
+        }
+    }
+
+    private int skipWhitespace(int start) {
+        var i = start;
+        while (i < length && isWhitespace(input.charAt(i))) {
+            i++;
+        }
+
+        return i;
+    }
+
+    private boolean startsWith(int start, String lowerCasePrefix) {
+        if (start + lowerCasePrefix.length() > length) {
+            return false;
+        }
+
+        for (var i = 0; i < lowerCasePrefix.length(); i++) {
+            if (Character.toLowerCase(input.charAt(start + i)) != lowerCasePrefix.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ';' || isWhitespace(c);
+    }
+
+    private static boolean isWhitespace(char c) {
+        // same as regular expression \s
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r';
+    }
+}
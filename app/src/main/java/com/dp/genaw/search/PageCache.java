@@ -0,0 +1,325 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent on-disk page cache. Page bodies are stored GZIP-compressed in separate files named by URL hash, cache
+ * metadata ({@code ETag}, {@code Last-Modified}, {@code Content-Type} and fetch time) is kept in a small tab-separated
+ * {@code index} file.
+ * <p>
+ * Index is an append-only log - every stored, revalidated and removed page appends a line right away, so the cache
+ * survives a process killed mid-crawl. The log is replayed on open (later lines win, an incomplete last line is
+ * ignored) and compacted to one line per page on open, on {@link #close()} and whenever it grows too long.
+ * <p>
+ * Total size of compressed bodies is bounded - least recently used pages are evicted when the limit is exceeded.
+ */
+class PageCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageCache.class);
+
+    private static final String INDEX_FILE = "index";
+    private static final String BODY_SUFFIX = ".gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // index line: url, ETag, Last-Modified, Content-Type, fetch time (epoch millis), compressed body size
+    private static final String SEPARATOR = "\t";
+    private static final String NONE = "-";
+    // index line of a removed page: marker, url
+    private static final String REMOVED = "-";
+    // index is compacted when it has more lines than this and twice the number of pages
+    private static final int COMPACT_MIN_LINES = 1024;
+
+    /**
+     * Cache entry metadata.
+     *
+     * @param url          Page URL.
+     * @param etag         {@code ETag} response header or {@code null}.
+     * @param lastModified {@code Last-Modified} response header or {@code null}.
+     * @param contentType  {@code Content-Type} response header or {@code null}.
+     * @param fetchedAt    Time of last fetch or successful revalidation.
+     * @param size         Compressed body size in bytes.
+     */
+    record Entry(String url, String etag, String lastModified, String contentType, Instant fetchedAt, long size) {}
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // access-ordered map provides LRU iteration order, guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    // open index for appending, guarded by this
+    private Writer index;
+    private int indexLines;
+
+    /**
+     * Opens cache in given directory, loading index of previous runs when present.
+     *
+     * @param directory Cache directory, created when it does not exist.
+     * @param maxBytes  Max total size of compressed page bodies.
+     */
+    PageCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory);
+        loadIndex();
+    }
+
+    synchronized Optional<Entry> get(String url) {
+        return Optional.ofNullable(entries.get(url));
+    }
+
+    /**
+     * Reads cached page body.
+     *
+     * @param entry Cache entry.
+     * @return Uncompressed body, {@code Optional.empty} when body file is missing or corrupted (entry is dropped).
+     */
+    Optional<byte[]> readBody(Entry entry) {
+        try (var in = new GZIPInputStream(Files.newInputStream(bodyFile(entry.url())))) {
+            return Optional.of(in.readAllBytes());
+        } catch (IOException e) {
+            logger.warn("Cannot read cached body of {}, dropping cache entry", entry.url());
+            remove(entry.url());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores page body and its metadata, evicting least recently used pages when cache size limit is exceeded.
+     */
+    void put(String url, String etag, String lastModified, String contentType, Instant fetchedAt, byte[] body) {
+        try {
+            var bodyFile = bodyFile(url);
+            var tempFile = Files.createTempFile(directory, "body", TEMP_SUFFIX);
+            try (var out = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+                out.write(body);
+            }
+            var size = Files.size(tempFile);
+
+            // body is compressed outside the lock, but moved in place under it - a concurrent removal or eviction of
+            // the same URL cannot delete the new body after it is in place
+            synchronized (this) {
+                Files.move(tempFile, bodyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                var entry = new Entry(url, etag, lastModified, contentType, fetchedAt, size);
+                var previous = entries.put(url, entry);
+                totalBytes += size - (previous == null ? 0 : previous.size());
+                append(line(entry));
+                evict();
+            }
+        } catch (IOException e) {
+            // cache is an optimization only - failing write must not fail the crawl
+            logger.warn("Cannot cache body of %s".formatted(url), e);
+        }
+    }
+
+    /**
+     * Updates fetch time of an entry after successful revalidation ({@code 304 Not Modified}).
+     */
+    synchronized void touch(String url, Instant fetchedAt) {
+        var entry = entries.get(url);
+        if (entry != null) {
+            var touched = new Entry(
+                    url, entry.etag(), entry.lastModified(), entry.contentType(), fetchedAt, entry.size());
+            entries.put(url, touched);
+            append(line(touched));
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Compacts cache index, entries are written in LRU order so that access order survives restarts.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        compact();
+        index.close();
+    }
+
+    private synchronized void remove(String url) {
+        var entry = entries.remove(url);
+        if (entry != null) {
+            totalBytes -= entry.size();
+            append(REMOVED + SEPARATOR + url);
+            deleteBody(url);
+        }
+    }
+
+    // caller holds the lock
+    private void evict() {
+        var iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.size();
+            append(REMOVED + SEPARATOR + eldest.url());
+            deleteBody(eldest.url());
+            logger.debug("Evicted {} from page cache", eldest.url());
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        var indexFile = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            var content = Files.readString(indexFile, StandardCharsets.UTF_8);
+            // last line without line end was not finished before the process died
+            var complete = content.substring(0, content.lastIndexOf('\n') + 1);
+            complete.lines().forEach(this::replay);
+        }
+        entries.values().removeIf(entry -> !Files.exists(bodyFile(entry.url())));
+        entries.values().forEach(entry -> totalBytes += entry.size());
+
+        // drop unfinished writes and bodies of removed pages, every stored body is in the index
+        var referenced = new HashSet<Path>();
+        entries.keySet().forEach(url -> referenced.add(bodyFile(url)));
+        try (var files = Files.list(directory)) {
+            files.filter(file -> file.toString().endsWith(BODY_SUFFIX) || file.toString().endsWith(TEMP_SUFFIX))
+                    .filter(file -> !referenced.contains(file))
+                    .forEach(PageCache::delete);
+        }
+
+        evict();
+        compact();
+        logger.info("Opened page cache {} with {} pages", directory, entries.size());
+    }
+
+    private void replay(String line) {
+        var fields = line.split(SEPARATOR);
+        if (fields.length == 2 && fields[0].equals(REMOVED)) {
+            entries.remove(fields[1]);
+            return;
+        }
+        if (fields.length != 6) {
+            logger.debug("Skipping invalid page cache index line: {}", line);
+            return;
+        }
+
+        try {
+            var entry = new Entry(
+                    fields[0],
+                    noneToNull(fields[1]),
+                    noneToNull(fields[2]),
+                    noneToNull(fields[3]),
+                    Instant.ofEpochMilli(Long.parseLong(fields[4])),
+                    Long.parseLong(fields[5]));
+            entries.put(entry.url(), entry);
+        } catch (NumberFormatException e) {
+            logger.debug("Skipping invalid page cache index line: {}", line);
+        }
+    }
+
+    /**
+     * Appends a line to the index, compacting it when it is too long. Caller holds the lock.
+     */
+    private void append(String line) {
+        if (index == null) {
+            // still loading
+            return;
+        }
+
+        try {
+            index.write(line);
+            index.write('\n');
+            index.flush();
+            if (++indexLines > Math.max(COMPACT_MIN_LINES, 2 * entries.size())) {
+                compact();
+            }
+        } catch (IOException e) {
+            // cache is an optimization only - failing write must not fail the crawl
+            logger.warn("Cannot write page cache index", e);
+        }
+    }
+
+    /**
+     * Replaces index by one line per page and reopens it for appending. Caller holds the lock.
+     */
+    private void compact() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+
+        var lines = new ArrayList<String>(entries.size());
+        entries.values().forEach(entry -> lines.add(line(entry)));
+        var tempFile = Files.createTempFile(directory, INDEX_FILE, TEMP_SUFFIX);
+        Files.write(tempFile, lines, StandardCharsets.UTF_8);
+        var indexFile = directory.resolve(INDEX_FILE);
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        index = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        indexLines = lines.size();
+    }
+
+    private void deleteBody(String url) {
+        delete(bodyFile(url));
+    }
+
+    private Path bodyFile(String url) {
+        return directory.resolve(sha1(url) + BODY_SUFFIX);
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // cache is an optimization only - a body that cannot be deleted must not fail the crawl, unreferenced
+            // bodies are deleted on the next open
+            logger.warn("Cannot delete page cache file %s".formatted(file), e);
+        }
+    }
+
+    private static String sha1(String value) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            var hex = new StringBuilder(digest.length * 2);
+            for (var b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is mandatory for every Java platform implementation
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String line(Entry entry) {
+        return String.join(SEPARATOR,
+                entry.url(),
+                orNone(entry.etag()),
+                orNone(entry.lastModified()),
+                orNone(entry.contentType()),
+                String.valueOf(entry.fetchedAt().toEpochMilli()),
+                String.valueOf(entry.size()));
+    }
+
+    private static String orNone(String value) {
+        return value == null ? NONE : value.replace(SEPARATOR, " ");
+    }
+
+    private static String noneToNull(String value) {
+        return NONE.equals(value) ? null : value;
+    }
+}
@@ -0,0 +1,44 @@
+package com.dp.genaw.search;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event of a single page load (fetch and parse) - event duration is the whole page load, fields split it into
+ * stages. Recorded only while a JFR recording with this event enabled is running, e.g. started by
+ * {@code -XX:StartFlightRecording:filename=crawl.jfr}, otherwise the event costs next to nothing.
+ */
+@Name("com.dp.genaw.search.PageCrawl")
+@Label("Page Crawl")
+@Category({"Genaw", "Crawl"})
+@Description("Fetch and parse of a single page")
+@StackTrace(false)
+class PageCrawlEvent extends Event {
+
+    @Label("URL")
+    String url;
+
+    @Label("Status Code")
+    int statusCode;
+
+    @Label("Body Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Fetch Time")
+    @Timespan
+    long fetchTime;
+
+    @Label("Parse Time")
+    @Timespan
+    long parseTime;
+
+    @Label("Failure")
+    String failure;
+}
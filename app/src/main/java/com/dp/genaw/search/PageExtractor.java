@@ -0,0 +1,88 @@
+package com.dp.genaw.search;
+
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fused page classifier and extractor - page is scanned only once (see {@link ScannedPage}), scan result is used both
+ * to decide whether the page is a category page (page with links to sub-category or recipe pages) or a recipe page and
+ * to extract links or recipes respectively.
+ * <p>
+ * Same as {@link DataExtractor}, extraction never fails - errors are logged and page is treated as empty.
+ */
+class PageExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageExtractor.class);
+
+    /**
+     * Classified page content - category page has links only, recipe page has recipes only.
+     *
+     * @param links   Links to sub-pages, empty for recipe pages.
+     * @param recipes Extracted recipes, empty for category pages.
+     */
+    record ExtractedPage(List<String> links, List<Recipe> recipes) {
+
+        boolean isCategory() {
+            return !links.isEmpty();
+        }
+    }
+
+    private final TableLinkExtractor tableLinkExtractor;
+    private final RecipeExtractor recipeExtractor;
+    private final CrawlMetrics metrics;
+
+    PageExtractor(TableLinkExtractor tableLinkExtractor, RecipeExtractor recipeExtractor) {
+        this(tableLinkExtractor, recipeExtractor, new CrawlMetrics());
+    }
+
+    /**
+     * @param metrics Receiver of link and recipe extraction latencies.
+     */
+    PageExtractor(TableLinkExtractor tableLinkExtractor, RecipeExtractor recipeExtractor, CrawlMetrics metrics) {
+        this.tableLinkExtractor = tableLinkExtractor;
+        this.recipeExtractor = recipeExtractor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Scans document in a single DOM traversal, returns empty page when document cannot be scanned.
+     *
+     * @param doc Document to scan.
+     * @return Scanned page.
+     */
+    static ScannedPage scan(Document doc) {
+        try {
+            return ScannedPage.scan(doc);
+        } catch (Exception e) {
+            logger.error("Cannot scan document %s, skipping document".formatted(doc.location()), e);
+            return ScannedPage.empty(doc.location());
+        }
+    }
+
+    ExtractedPage extractFromDocument(Document doc) {
+        return extractFromPage(scan(doc));
+    }
+
+    ExtractedPage extractFromPage(ScannedPage page) {
+        // page is either a page with links to sub-pages (links to sub-category pages or recipe pages) or a standalone
+        // recipe page
+        var start = System.nanoTime();
+        var links = tableLinkExtractor.extractFromPage(page);
+        metrics.record(CrawlMetrics.Stage.LINKS, System.nanoTime() - start);
+
+        if (links.isEmpty()) {
+            // no links to sub-pages -> recipe page
+            start = System.nanoTime();
+            var recipes = recipeExtractor.extractFromPage(page);
+            metrics.record(CrawlMetrics.Stage.RECIPES, System.nanoTime() - start);
+            metrics.extracted(recipes.size());
+
+            return new ExtractedPage(List.of(), recipes);
+        } else {
+            return new ExtractedPage(links, List.of());
+        }
+    }
+}
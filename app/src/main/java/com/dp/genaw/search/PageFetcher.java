@@ -0,0 +1,126 @@
+package com.dp.genaw.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Raw page fetching abstraction used by {@link TopRecipeSearch} - returns unparsed page body together with HTTP
+ * status and response headers.
+ */
+interface PageFetcher {
+
+    /**
+     * Reader of a page body streamed by {@link #fetchStreaming(String, BodyReader)}.
+     *
+     * @param <T> Result type.
+     */
+    @FunctionalInterface
+    interface BodyReader<T> {
+
+        /**
+         * @param page Fetched page status and headers, body is empty.
+         * @param body Decompressed page body, reader may stop reading it at any point.
+         * @return Result of reading.
+         * @throws IOException When body cannot be read.
+         */
+        T read(FetchedPage page, InputStream body) throws IOException;
+    }
+
+    /**
+     * Fetches single page.
+     *
+     * @param url            Absolute page URL.
+     * @param requestHeaders Additional request headers, e.g. {@code If-None-Match} for conditional requests.
+     * @return Fetched page, either with {@code 2xx} status and body or {@code 304 Not Modified} status and empty body
+     * for conditional requests.
+     * @throws IOException When page cannot be fetched, including HTTP error statuses.
+     */
+    FetchedPage fetch(String url, Map<String, String> requestHeaders) throws IOException;
+
+    default FetchedPage fetch(String url) throws IOException {
+        return fetch(url, Map.of());
+    }
+
+    /**
+     * Fetches single page without blocking the calling thread. Default implementation fetches the page on the calling
+     * thread and returns completed future, non-blocking fetchers (see {@link HttpClientPageFetcher}) and decorators
+     * override it.
+     *
+     * @param url            Absolute page URL.
+     * @param requestHeaders Additional request headers, e.g. {@code If-None-Match} for conditional requests.
+     * @return Future of the fetched page, see {@link #fetch(String, Map)}, completed exceptionally by
+     * {@link IOException} when page cannot be fetched.
+     */
+    default CompletableFuture<FetchedPage> fetchAsync(String url, Map<String, String> requestHeaders) {
+        try {
+            return CompletableFuture.completedFuture(fetch(url, requestHeaders));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Fetches single page and hands its body over to {@code reader} as a stream while it is being downloaded - once
+     * the reader returns, the rest of the body is not downloaded (connection is closed). Default implementation reads
+     * the body fetched as a whole, i.e. without any savings; streaming fetchers and pass-through decorators override
+     * it.
+     *
+     * @param url    Absolute page URL.
+     * @param reader Reader of the page body.
+     * @param <T>    Result type.
+     * @return Result of the reader.
+     * @throws IOException When page cannot be fetched, including HTTP error statuses, or read by the reader.
+     */
+    default <T> T fetchStreaming(String url, BodyReader<T> reader) throws IOException {
+        var page = fetch(url);
+        return reader.read(
+                new FetchedPage(page.url(), page.statusCode(), page.headers(), new byte[0]),
+                new ByteArrayInputStream(page.body()));
+    }
+
+    /**
+     * Waits for a page fetched by {@link #fetchAsync(String, Map)}.
+     *
+     * @param page Future of the fetched page.
+     * @return Fetched page.
+     * @throws IOException Failure of the fetch.
+     */
+    static FetchedPage await(CompletableFuture<FetchedPage> page) throws IOException {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for page");
+        } catch (ExecutionException e) {
+            var cause = unwrap(e);
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * @return Failure of a future without {@link CompletionException} / {@link ExecutionException} wrappers.
+     */
+    static Throwable unwrap(Throwable failure) {
+        var cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
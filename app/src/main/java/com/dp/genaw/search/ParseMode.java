@@ -0,0 +1,39 @@
+package com.dp.genaw.search;
+
+import java.util.Locale;
+
+/**
+ * Page parsing mode used by {@link TopRecipeSearch}.
+ */
+enum ParseMode {
+
+    /**
+     * Full {@code Jsoup} DOM is built for every page and walked once by a {@code NodeVisitor} into a
+     * {@link ScannedPage}, extractors work with the scanned page.
+     */
+    DOM,
+
+    /**
+     * Pages are read by streaming {@link HtmlScanner}, only elements relevant for extraction are kept. Character
+     * references and body charset (byte order mark, {@code Content-Type} header, {@code <meta>} declaration) are
+     * decoded like in {@link #DOM} mode.
+     */
+    STREAMING,
+
+    /**
+     * Same as {@link #STREAMING}, but pages are scanned directly from the response body stream and recipe pages are
+     * read only until their star rating rules them out, the rest of the body is not downloaded, see
+     * {@link PageFetcher#fetchStreaming} and {@link ScannedPage#scanPartial}. Pages fetched whole (incremental recrawl)
+     * are scanned whole, so that crawl state does not depend on the min star rating; pipelined and asynchronous crawls
+     * always fetch whole bodies and do not support this mode.
+     */
+    PARTIAL;
+
+    /**
+     * @param name Mode name as used on command line, e.g. {@code streaming}.
+     * @return Parse mode.
+     */
+    static ParseMode of(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
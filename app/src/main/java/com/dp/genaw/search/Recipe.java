@@ -9,4 +9,15 @@ record Recipe(
         String variant,
         String nutritionInfo,
         int starRating,
-        double proteinToNetCarb) {};
+        double proteinToNetCarb) {
+
+    /**
+     * Parses {@link #nutritionInfo()} on every call, callers needing nutrients repeatedly should parse once and keep
+     * the result, or read already parsed nutrient columns, see {@link RecipeColumns#nutrition(int)}.
+     *
+     * @return All macro nutrient quantities of this recipe variant.
+     */
+    Nutrition parseNutrition() {
+        return Nutrition.parse(nutritionInfo);
+    }
+}
@@ -0,0 +1,67 @@
+package com.dp.genaw.search;
+
+import java.util.List;
+
+/**
+ * Column-wise read access to a fixed list of recipes, e.g. memory-mapped {@link RecipeIndex} - numeric values and names
+ * are read by row without building {@link Recipe} records, a full record is materialized only by {@link #recipe(int)}.
+ * Rows are positions in the list, {@code 0 <= row < size()}.
+ */
+interface RecipeColumns {
+
+    int size();
+
+    int starRating(int row);
+
+    double proteinToNetCarb(int row);
+
+    /**
+     * @return Parsed nutrients of the recipe in given row.
+     */
+    Nutrition nutrition(int row);
+
+    String name(int row);
+
+    Recipe recipe(int row);
+
+    /**
+     * Columns of a list of recipes, e.g. for tests - nutrition info is parsed on every {@link #nutrition(int)} call.
+     *
+     * @param recipes Recipes, the list must not change afterwards.
+     * @return Columns backed by the list.
+     */
+    static RecipeColumns of(List<Recipe> recipes) {
+        return new RecipeColumns() {
+
+            @Override
+            public int size() {
+                return recipes.size();
+            }
+
+            @Override
+            public int starRating(int row) {
+                return recipes.get(row).starRating();
+            }
+
+            @Override
+            public double proteinToNetCarb(int row) {
+                return recipes.get(row).proteinToNetCarb();
+            }
+
+            @Override
+            public Nutrition nutrition(int row) {
+                return recipes.get(row).parseNutrition();
+            }
+
+            @Override
+            public String name(int row) {
+                return recipes.get(row).name();
+            }
+
+            @Override
+            public Recipe recipe(int row) {
+                return recipes.get(row);
+            }
+        };
+    }
+}
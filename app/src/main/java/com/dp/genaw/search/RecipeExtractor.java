@@ -2,10 +2,7 @@ package com.dp.genaw.search;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.regex.Pattern;
 
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.TextNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,25 +22,10 @@ class RecipeExtractor extends DataExtractor<Recipe> {
 
     private static final String STAR_RATING_IMAGE_SUFFIX = "_star.gif";
 
-    // case-insensitive pattern for Protein ingredient, e.g. "16g Protein", gram unit is optional
-    private static final Pattern PROTEIN_PATTERN =
-            Pattern.compile(".*[\\s;]([\\d.]+)g?\\s+Protein.*", Pattern.CASE_INSENSITIVE);
-    // case-insensitive pattern for Net Carb ingredient, e.g. "1.5g Net Carbs", gram unit and "Net" keyword are optional
-    private static final Pattern NET_CARB_PATTERN =
-            Pattern.compile(".*[\\s;]([\\d.]+)g?\\s+(Net\\s+)?Carb.*", Pattern.CASE_INSENSITIVE);
-
     @Override
-    protected List<Recipe> extract(Document doc) {
-        var recipeName = doc.selectXpath("//b")
-                .get(0)
-                .text();
-        var starRating = doc.selectXpath("//img")
-                .stream()
-                .map(element -> element.attr("src"))
-                .filter(imageUrl -> imageUrl.endsWith(STAR_RATING_IMAGE_SUFFIX))
-                .map(imageUrl -> Integer.valueOf(imageUrl.charAt(0) + ""))
-                .findFirst()
-                .orElse(0);
+    protected List<Recipe> extract(ScannedPage page) {
+        var recipeName = page.bolds().get(0);
+        var starRating = starRating(page.images());
 
         // handle multiple nutrition variants for a single recipe name, e.g. ZESTY CHEDDAR WAFERS:
         //
@@ -52,19 +34,37 @@ class RecipeExtractor extends DataExtractor<Recipe> {
         // Per 8 Wafers: 235 Calories; 20g Fat; 13g Protein; 3g Carbohydrate; 1.5g Dietary Fiber; 1.5g Net Carbs
         //
         // each variant results in a separate recipe since variant can have different Protein to Net Carbs ratios
-        var nutritionInfos = doc.selectXpath("//i")
-                .stream()
-                .flatMap(element -> element.textNodes().stream())
-                .map(TextNode::text)
-                .toList();
-
-        return nutritionInfos.stream()
+        return page.italicTexts().stream()
                 .filter(nutritionInfo -> !nutritionInfo.isBlank())
-                .map(nutritionInfo -> fromNutritionInfo(nutritionInfo, recipeName, doc.location(), starRating))
+                .map(nutritionInfo -> fromNutritionInfo(nutritionInfo, recipeName, page.location(), starRating))
                 .filter(Objects::nonNull)
                 .toList();
     }
 
+    private int starRating(List<String> imageUrls) {
+        return imageUrls.stream()
+                .filter(RecipeExtractor::isStarRating)
+                .map(RecipeExtractor::starRating)
+                .findFirst()
+                .orElse(0);
+    }
+
+    /**
+     * @param imageUrl Image URL.
+     * @return Whether image shows star rating of the recipe, e.g. {@code 4_star.gif}.
+     */
+    static boolean isStarRating(String imageUrl) {
+        return imageUrl.endsWith(STAR_RATING_IMAGE_SUFFIX);
+    }
+
+    /**
+     * @param starRatingImageUrl Star rating image URL, see {@link #isStarRating(String)}.
+     * @return Star rating shown by the image.
+     */
+    static int starRating(String starRatingImageUrl) {
+        return Integer.valueOf(starRatingImageUrl.charAt(0) + "");
+    }
+
     /**
      * Extract recipe variant from a nutrition info string, e.g.:
      * <tt>
@@ -91,14 +91,13 @@ class RecipeExtractor extends DataExtractor<Recipe> {
             nutritionInfo = nutritionInfo.substring(nutritionInfo.indexOf(":") + 1).trim();
         }
 
-        // replace "trace" nutrition info with "0g" - recipes with trace proteins or trace net carb are not evaluated
-        var nutritionInfoNoTrace = nutritionInfo.replaceAll("trace", "0g");
-        var proteinMatcher = PROTEIN_PATTERN.matcher(nutritionInfoNoTrace);
-        var netCarbsMatcher = NET_CARB_PATTERN.matcher(nutritionInfoNoTrace);
+        // Protein and Net Carb quantities, e.g. "16g Protein" and "1.5g Net Carbs" - gram unit and "Net" keyword are
+        // optional, "trace" quantities are parsed as zero
+        var nutrition = Nutrition.parse(nutritionInfo);
 
-        if (proteinMatcher.matches() && netCarbsMatcher.matches()) {
-            var proteins = Double.parseDouble(proteinMatcher.group(1));
-            var netCarbs = Double.parseDouble(netCarbsMatcher.group(1));
+        if (nutrition.hasProteinAndNetCarb()) {
+            var proteins = nutrition.protein();
+            var netCarbs = nutrition.netCarb();
 
             if (proteins == 0 || netCarbs == 0) {
                 logger.debug("Skipping {}: variants with trace protein or trace net carb are not evaluated", url);
@@ -0,0 +1,90 @@
+package com.dp.genaw.search;
+
+import java.util.Locale;
+
+/**
+ * Numeric {@link Recipe recipe} fields available for query predicates and ordering, see {@link RecipeQuery}.
+ * Missing nutrition values are {@link Double#NaN}.
+ */
+enum RecipeField {
+
+    STAR_RATING {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            return starRating;
+        }
+    },
+    CALORIES {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            return nutrition.calories();
+        }
+    },
+    FAT {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            return nutrition.fat();
+        }
+    },
+    PROTEIN {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            return nutrition.protein();
+        }
+    },
+    CARBOHYDRATE {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            return nutrition.carbohydrate();
+        }
+    },
+    FIBER {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            return nutrition.fiber();
+        }
+    },
+    NET_CARB {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            return nutrition.netCarb();
+        }
+    },
+    PROTEIN_TO_NET_CARB {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            return proteinToNetCarb;
+        }
+    },
+    PROTEIN_PER_CALORIE {
+        @Override
+        double value(int starRating, double proteinToNetCarb, Nutrition nutrition) {
+            // NaN when calories are missing, infinite (and so ranked first) for zero calories
+            return nutrition.protein() / nutrition.calories();
+        }
+    };
+
+    /**
+     * @param starRating       Star rating of the recipe.
+     * @param proteinToNetCarb Protein to Net Carb ratio of the recipe.
+     * @param nutrition        Nutrients of the recipe, e.g. {@link RecipeColumns#nutrition(int)}.
+     * @return Field value, {@link Double#NaN} when missing.
+     */
+    abstract double value(int starRating, double proteinToNetCarb, Nutrition nutrition);
+
+    /**
+     * @param recipe    Recipe.
+     * @param nutrition Nutrition parsed from the recipe, see {@link Recipe#parseNutrition()}.
+     * @return Field value, {@link Double#NaN} when missing.
+     */
+    double value(Recipe recipe, Nutrition nutrition) {
+        return value(recipe.starRating(), recipe.proteinToNetCarb(), nutrition);
+    }
+
+    /**
+     * Parses field by its command line name, e.g. {@code protein-per-calorie}.
+     */
+    static RecipeField of(String name) {
+        return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
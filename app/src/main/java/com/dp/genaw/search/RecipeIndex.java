@@ -0,0 +1,273 @@
+package com.dp.genaw.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only binary index of {@link Recipe recipe} variants, opened memory-mapped so that queries are answered without
+ * any crawl and without reading the whole file up-front. Queries run over a {@link RecipeStore} built from the mapped
+ * numeric columns, strings are decoded just for the returned recipes.
+ * <p>
+ * File layout (big-endian):
+ * <ul>
+ *     <li>header - magic number, format version and number of recipes,</li>
+ *     <li>fixed-width numeric columns, one after another in {@link Column} order, one value per recipe,</li>
+ *     <li>string references - for each recipe offsets of name, URL, variant and nutrition info in the string
+ *     table,</li>
+ *     <li>string table - length prefixed UTF-8 strings, each distinct string stored only once (e.g. recipe name and URL
+ *     shared by multiple variants).</li>
+ * </ul>
+ */
+class RecipeIndex implements RecipeColumns {
+
+    private static final int MAGIC = 0x47524958; // "GRIX"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int STRINGS_PER_RECIPE = 4;
+
+    /**
+     * Numeric recipe columns - star rating, Protein to Net Carb ratio and all parsed {@link Nutrition nutrients}.
+     */
+    enum Column {
+        STAR_RATING(Integer.BYTES),
+        PROTEIN_TO_NET_CARB(Double.BYTES),
+        CALORIES(Double.BYTES),
+        FAT(Double.BYTES),
+        PROTEIN(Double.BYTES),
+        CARBOHYDRATE(Double.BYTES),
+        FIBER(Double.BYTES),
+        NET_CARB(Double.BYTES);
+
+        private final int width;
+
+        Column(int width) {
+            this.width = width;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int[] columnOffsets = new int[Column.values().length];
+    private final int stringReferencesOffset;
+
+    private RecipeIndex(ByteBuffer buffer, Path file) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a recipe index file: " + file);
+        }
+
+        this.size = buffer.getInt(8);
+        var offset = HEADER_SIZE;
+        for (var column : Column.values()) {
+            columnOffsets[column.ordinal()] = offset;
+            offset += column.width * size;
+        }
+        this.stringReferencesOffset = offset;
+
+        if (buffer.capacity() < stringReferencesOffset + STRINGS_PER_RECIPE * Integer.BYTES * size) {
+            throw new IOException("Truncated recipe index file: " + file);
+        }
+    }
+
+    /**
+     * Opens index file memory-mapped.
+     *
+     * @param file Index file written by {@link #write(Path, RecipeColumns)}.
+     * @return Opened index.
+     * @throws IOException When file cannot be read or is not a recipe index.
+     */
+    static RecipeIndex open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // mapping stays valid after channel is closed
+            return new RecipeIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    /**
+     * Writes index of given recipes, file is replaced atomically.
+     *
+     * @param file    Index file.
+     * @param recipes Recipes to write.
+     */
+    static void write(Path file, List<Recipe> recipes) throws IOException {
+        write(file, RecipeColumns.of(recipes));
+    }
+
+    /**
+     * Writes index of given recipes, file is replaced atomically.
+     *
+     * @param file    Index file.
+     * @param recipes Recipes to write, e.g. {@link RecipeTable} with already parsed nutrients.
+     */
+    static void write(Path file, RecipeColumns recipes) throws IOException {
+        var size = recipes.size();
+        // string table with each distinct string stored only once
+        var stringOffsets = new HashMap<String, Integer>();
+        var strings = new ArrayList<byte[]>();
+        var stringReferences = new int[size * STRINGS_PER_RECIPE];
+        var stringTableSize = 0;
+        // [column][row]
+        var columns = new double[Column.values().length][size];
+        for (var row = 0; row < size; row++) {
+            var recipe = recipes.recipe(row);
+            var values = new String[] {recipe.name(), recipe.url(), recipe.variant(), recipe.nutritionInfo()};
+            for (var j = 0; j < STRINGS_PER_RECIPE; j++) {
+                var offset = stringOffsets.get(values[j]);
+                if (offset == null) {
+                    var bytes = values[j].getBytes(StandardCharsets.UTF_8);
+                    offset = stringTableSize;
+                    stringOffsets.put(values[j], offset);
+                    strings.add(bytes);
+                    stringTableSize += Integer.BYTES + bytes.length;
+                }
+                stringReferences[row * STRINGS_PER_RECIPE + j] = offset;
+            }
+
+            var nutrition = recipes.nutrition(row);
+            columns[Column.STAR_RATING.ordinal()][row] = recipe.starRating();
+            columns[Column.PROTEIN_TO_NET_CARB.ordinal()][row] = recipe.proteinToNetCarb();
+            columns[Column.CALORIES.ordinal()][row] = nutrition.calories();
+            columns[Column.FAT.ordinal()][row] = nutrition.fat();
+            columns[Column.PROTEIN.ordinal()][row] = nutrition.protein();
+            columns[Column.CARBOHYDRATE.ordinal()][row] = nutrition.carbohydrate();
+            columns[Column.FIBER.ordinal()][row] = nutrition.fiber();
+            columns[Column.NET_CARB.ordinal()][row] = nutrition.netCarb();
+        }
+
+        var directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+
+            for (var column : Column.values()) {
+                for (var value : columns[column.ordinal()]) {
+                    if (column.width == Integer.BYTES) {
+                        out.writeInt((int) value);
+                    } else {
+                        out.writeDouble(value);
+                    }
+                }
+            }
+
+            for (var reference : stringReferences) {
+                out.writeInt(reference);
+            }
+            for (var bytes : strings) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Numeric value of recipe at {@code row}, {@link Double#NaN} for missing nutrition values.
+     */
+    double value(Column column, int row) {
+        var offset = columnOffsets[column.ordinal()] + column.width * row;
+        return column.width == Integer.BYTES ? buffer.getInt(offset) : buffer.getDouble(offset);
+    }
+
+    @Override
+    public int starRating(int row) {
+        return (int) value(Column.STAR_RATING, row);
+    }
+
+    @Override
+    public double proteinToNetCarb(int row) {
+        return value(Column.PROTEIN_TO_NET_CARB, row);
+    }
+
+    /**
+     * @return Nutrients read from numeric columns, nutrition info is not parsed.
+     */
+    @Override
+    public Nutrition nutrition(int row) {
+        return new Nutrition(
+                value(Column.CALORIES, row),
+                value(Column.FAT, row),
+                value(Column.PROTEIN, row),
+                value(Column.CARBOHYDRATE, row),
+                value(Column.FIBER, row),
+                value(Column.NET_CARB, row));
+    }
+
+    /**
+     * Decodes only the name of recipe at {@code row}.
+     */
+    @Override
+    public String name(int row) {
+        return string(stringReference(row, 0));
+    }
+
+    /**
+     * Decodes full recipe at {@code row}.
+     */
+    @Override
+    public Recipe recipe(int row) {
+        return new Recipe(
+                string(stringReference(row, 0)),
+                string(stringReference(row, 1)),
+                string(stringReference(row, 2)),
+                string(stringReference(row, 3)),
+                starRating(row),
+                proteinToNetCarb(row));
+    }
+
+    /**
+     * @return Read-only list of all recipes, each recipe is decoded from the mapped file on access.
+     */
+    List<Recipe> recipes() {
+        return new RecipeList();
+    }
+
+    private int stringReference(int row, int string) {
+        return buffer.getInt(stringReferencesOffset + (row * STRINGS_PER_RECIPE + string) * Integer.BYTES);
+    }
+
+    private String string(int offset) {
+        var position = stringReferencesOffset + STRINGS_PER_RECIPE * Integer.BYTES * size + offset;
+        var bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private class RecipeList extends AbstractList<Recipe> implements RandomAccess {
+
+        @Override
+        public Recipe get(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row %d out of %d recipes".formatted(row, size));
+            }
+
+            return recipe(row);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.dp.genaw.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable multi-criteria recipe query - all predicates must match (logical AND), matching recipes are ordered by
+ * given keys and limited, see {@link RecipeStore#query(RecipeQuery)}. E.g. top 10 recipes with at least 4 stars and
+ * 20g of protein by protein per calorie:
+ * <pre>
+ * RecipeQuery.all()
+ *         .atLeast(RecipeField.STAR_RATING, 4)
+ *         .atLeast(RecipeField.PROTEIN, 20)
+ *         .orderBy(RecipeField.PROTEIN_PER_CALORIE, true)
+ *         .limit(10)
+ * </pre>
+ *
+ * @param ranges       Inclusive numeric ranges, recipes with missing value never match.
+ * @param nameContains Case-insensitive recipe name substring or {@code null}.
+ * @param orderBy      Ordering keys, recipes with missing values are ordered last; insertion order breaks ties.
+ * @param limit        Max number of returned recipes.
+ */
+record RecipeQuery(
+        List<Range> ranges,
+        String nameContains,
+        List<Order> orderBy,
+        int limit) {
+
+    static final int UNLIMITED = Integer.MAX_VALUE;
+
+    // query options of App query mode and RecipeServer query parameters, see README
+    static final String WHERE = "where";
+    static final String NAME = "name";
+    static final String ORDER_BY = "order-by";
+    static final String TOP = "top";
+    static final String MIN_STARS = "min-stars";
+    static final String MIN_PROTEIN = "min-protein";
+    static final String RANK_BY = "rank-by";
+    // full-text keywords, see RecipeSnapshot#query(RecipeQuery, String)
+    static final String KEYWORDS = "keywords";
+
+    /**
+     * @param field Recipe field.
+     * @param min   Min value, inclusive.
+     * @param max   Max value, inclusive.
+     */
+    record Range(RecipeField field, double min, double max) {
+
+        boolean matches(double value) {
+            // NaN (missing value) never matches
+            return value >= min && value <= max;
+        }
+    }
+
+    /**
+     * @param field      Recipe field.
+     * @param descending {@code true} for higher values first.
+     */
+    record Order(RecipeField field, boolean descending) {}
+
+    RecipeQuery {
+        ranges = List.copyOf(ranges);
+        orderBy = List.copyOf(orderBy);
+        if (limit < 0) {
+            throw new IllegalArgumentException("Query limit must not be negative: " + limit);
+        }
+    }
+
+    /**
+     * @return Query matching all recipes in insertion order.
+     */
+    static RecipeQuery all() {
+        return new RecipeQuery(List.of(), null, List.of(), UNLIMITED);
+    }
+
+    /**
+     * Parses query from its command line form, see {@link App}.
+     *
+     * @param where        Comma separated conditions, e.g. {@code star-rating>=4,protein>=20,fat<=10,calories=100},
+     *                     {@code null} for no conditions.
+     * @param nameContains Recipe name substring or {@code null}.
+     * @param orderBy      Comma separated ordering keys with optional direction, e.g.
+     *                     {@code protein-per-calorie:desc,fat:asc}, ascending by default, {@code null} for insertion
+     *                     order.
+     * @param limit        Max number of returned recipes.
+     * @return Parsed query.
+     */
+    static RecipeQuery parse(String where, String nameContains, String orderBy, int limit) {
+        var query = all().nameContains(nameContains).limit(limit);
+
+        if (where != null && !where.isBlank()) {
+            for (var condition : where.split(",")) {
+                query = query.condition(condition.trim());
+            }
+        }
+
+        if (orderBy != null && !orderBy.isBlank()) {
+            for (var key : orderBy.split(",")) {
+                var parts = key.trim().split(":");
+                var descending = parts.length > 1 && parts[1].trim().toLowerCase(Locale.ROOT).equals("desc");
+                query = query.orderBy(RecipeField.of(parts[0]), descending);
+            }
+        }
+
+        return query;
+    }
+
+    /**
+     * Parses query from options - {@code where}, {@code name}, {@code order-by} and {@code top} as in
+     * {@link #parse(String, String, String, int)}, plus {@code min-stars} (5 by default), {@code min-protein} and
+     * {@code rank-by} (descending ordering key used when {@code order-by} is not set, {@code protein-to-net-carb} by
+     * default).
+     *
+     * @param options    App options or server query parameters.
+     * @param defaultTop Max number of returned recipes when {@code top} is not set.
+     * @return Parsed query.
+     */
+    static RecipeQuery parse(AppOptions options, int defaultTop) {
+        var query = parse(
+                options.get(WHERE, null), options.get(NAME, null), options.get(ORDER_BY, null),
+                options.getInt(TOP, defaultTop));
+        query = query.atLeast(RecipeField.STAR_RATING, options.getInt(MIN_STARS, 5));
+        if (options.get(MIN_PROTEIN, null) != null) {
+            query = query.atLeast(RecipeField.PROTEIN, options.getDouble(MIN_PROTEIN, 0));
+        }
+        if (query.orderBy().isEmpty()) {
+            query = query.orderBy(RecipeField.of(options.get(RANK_BY, "protein-to-net-carb")), true);
+        }
+
+        return query;
+    }
+
+    RecipeQuery where(RecipeField field, double min, double max) {
+        var newRanges = new ArrayList<>(ranges);
+        newRanges.add(new Range(field, min, max));
+        return new RecipeQuery(newRanges, nameContains, orderBy, limit);
+    }
+
+    RecipeQuery atLeast(RecipeField field, double min) {
+        return where(field, min, Double.POSITIVE_INFINITY);
+    }
+
+    RecipeQuery atMost(RecipeField field, double max) {
+        return where(field, Double.NEGATIVE_INFINITY, max);
+    }
+
+    RecipeQuery nameContains(String substring) {
+        return new RecipeQuery(ranges, substring, orderBy, limit);
+    }
+
+    /**
+     * Adds ordering key, keys are applied in the order they were added.
+     */
+    RecipeQuery orderBy(RecipeField field, boolean descending) {
+        var newOrderBy = new ArrayList<>(orderBy);
+        newOrderBy.add(new Order(field, descending));
+        return new RecipeQuery(ranges, nameContains, newOrderBy, limit);
+    }
+
+    RecipeQuery limit(int newLimit) {
+        return new RecipeQuery(ranges, nameContains, orderBy, newLimit);
+    }
+
+    private RecipeQuery condition(String condition) {
+        for (var operator : List.of(">=", "<=", "=")) {
+            var position = condition.indexOf(operator);
+            if (position > 0) {
+                var field = RecipeField.of(condition.substring(0, position));
+                var value = Double.parseDouble(condition.substring(position + operator.length()).trim());
+                return switch (operator) {
+                    case ">=" -> atLeast(field, value);
+                    case "<=" -> atMost(field, value);
+                    default -> where(field, value, value);
+                };
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid query condition %s, expected e.g. protein>=20".formatted(condition));
+    }
+}
@@ -0,0 +1,259 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-running HTTP query server on top of JDK built-in {@link HttpServer}, serving recipe queries as JSON from an
+ * in-memory {@link RecipeSnapshot}:
+ * <ul>
+ *     <li>{@code GET /recipes} - recipes matching query parameters, same as {@link App} query mode options, e.g.
+ *     {@code /recipes?min-stars=4&where=protein>=20&order-by=protein-per-calorie:desc&top=10&keywords=soup},</li>
+ *     <li>{@code GET /status} - current snapshot and result cache statistics.</li>
+ * </ul>
+ * Snapshot is immutable and replaced atomically by {@link #swap(RecipeColumns)} - requests in progress finish on the
+ * old snapshot, no request ever sees a partially updated one. Responses are cached in a bounded LRU cache keyed by
+ * snapshot version and normalized query.
+ */
+class RecipeServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipeServer.class);
+
+    // top recipes returned when top query parameter is not set
+    private static final int DEFAULT_TOP = 10;
+
+    /**
+     * Result cache key - queries of different snapshots never share results.
+     *
+     * @param version  Snapshot version.
+     * @param query    Parsed query.
+     * @param keywords Normalized keywords or {@code null}.
+     */
+    private record QueryKey(long version, RecipeQuery query, String keywords) {}
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicReference<RecipeSnapshot> snapshot = new AtomicReference<>();
+    private final ResultCache<QueryKey, byte[]> cache;
+
+    /**
+     * Starts server.
+     *
+     * @param recipes      Initial recipes.
+     * @param port         Server port, {@code 0} for any free port.
+     * @param threads      Number of request handling threads.
+     * @param cacheEntries Max number of cached responses, {@code 0} disables caching.
+     */
+    RecipeServer(RecipeColumns recipes, int port, int threads, int cacheEntries) throws IOException {
+        this.cache = new ResultCache<>(cacheEntries);
+        swap(recipes);
+
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/recipes", exchange -> handle(exchange, this::recipes));
+        server.createContext("/status", exchange -> handle(exchange, this::status));
+        server.setExecutor(executor);
+        server.start();
+
+        logger.info("Recipe server listening on port {}", port());
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    RecipeSnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    ResultCache<?, ?> cache() {
+        return cache;
+    }
+
+    /**
+     * Replaces served recipes, e.g. with results of a new crawl. New snapshot is fully built before it is published,
+     * requests are served by the old snapshot meanwhile.
+     *
+     * @param recipes New recipes, not copied - see {@link RecipeSnapshot#RecipeSnapshot(long, RecipeColumns)}.
+     */
+    void swap(RecipeColumns recipes) {
+        var newSnapshot = new RecipeSnapshot(versions.incrementAndGet(), recipes);
+        snapshot.set(newSnapshot);
+        // results of old snapshots are unreachable (keyed by version), drop them to free memory
+        cache.clear();
+        logger.info("Serving {}", newSnapshot);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private byte[] recipes(AppOptions options) {
+        // read snapshot once - the whole request is served by the same snapshot
+        var current = snapshot.get();
+        var query = RecipeQuery.parse(options, DEFAULT_TOP);
+        var keywords = options.get(RecipeQuery.KEYWORDS, null);
+        var normalizedKeywords = keywords == null ? null : String.join(" ", RecipeTextIndex.tokenize(keywords));
+        var key = new QueryKey(current.version(), query, normalizedKeywords);
+
+        return cache.get(key, queryKey -> recipesJson(current, current.query(queryKey.query(), queryKey.keywords())));
+    }
+
+    private byte[] status(AppOptions options) {
+        var current = snapshot.get();
+        var json = new StringBuilder()
+                .append("{\"version\":").append(current.version())
+                .append(",\"recipes\":").append(current.size())
+                .append(",\"createdAt\":");
+        appendString(json, current.createdAt().toString());
+        json.append(",\"cache\":{\"entries\":").append(cache.size())
+                .append(",\"hits\":").append(cache.hits())
+                .append(",\"misses\":").append(cache.misses())
+                .append("}}");
+
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, error("Method not allowed: " + exchange.getRequestMethod()));
+                return;
+            }
+
+            byte[] body;
+            try {
+                body = handler.handle(parameters(exchange.getRequestURI().getRawQuery()));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Cannot handle request %s".formatted(exchange.getRequestURI()), e);
+                send(exchange, 500, error("Internal server error"));
+                return;
+            }
+            send(exchange, 200, body);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static AppOptions parameters(String rawQuery) {
+        var parameters = new HashMap<String, String>();
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            for (var parameter : rawQuery.split("&")) {
+                var separator = parameter.indexOf('=');
+                var name = separator < 0 ? parameter : parameter.substring(0, separator);
+                var value = separator < 0 ? "" : parameter.substring(separator + 1);
+                parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+
+        return AppOptions.of(parameters);
+    }
+
+    private static byte[] recipesJson(RecipeSnapshot snapshot, List<Recipe> recipes) {
+        var json = new StringBuilder(256 + recipes.size() * 256)
+                .append("{\"version\":").append(snapshot.version())
+                .append(",\"count\":").append(recipes.size())
+                .append(",\"recipes\":[");
+        for (var i = 0; i < recipes.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendRecipe(json, recipes.get(i));
+        }
+        json.append("]}");
+
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] error(String message) {
+        var json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends recipe as a JSON object, same fields as {@link Recipe} components.
+     */
+    static void appendRecipe(StringBuilder json, Recipe recipe) {
+        json.append("{\"name\":");
+        appendString(json, recipe.name());
+        json.append(",\"url\":");
+        appendString(json, recipe.url());
+        json.append(",\"variant\":");
+        appendString(json, recipe.variant());
+        json.append(",\"nutritionInfo\":");
+        appendString(json, recipe.nutritionInfo());
+        json.append(",\"starRating\":").append(recipe.starRating())
+                .append(",\"proteinToNetCarb\":");
+        appendNumber(json, recipe.proteinToNetCarb());
+        json.append('}');
+    }
+
+    // visible for testing
+    static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+
+        json.append('"');
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append("\\u%04x".formatted((int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static void appendNumber(StringBuilder json, double value) {
+        // JSON has no NaN or infinity
+        if (Double.isFinite(value)) {
+            json.append(value);
+        } else {
+            json.append("null");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        byte[] handle(AppOptions parameters);
+    }
+}
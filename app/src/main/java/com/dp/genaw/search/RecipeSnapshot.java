@@ -0,0 +1,81 @@
+package com.dp.genaw.search;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable, indexed set of recipes answering queries - safe to share between threads. A new crawl produces a new
+ * snapshot instead of modifying the current one, see {@link RecipeServer#swap(RecipeColumns)}. The keyword index is
+ * built by the first keyword query, snapshots queried without keywords never build it.
+ */
+class RecipeSnapshot {
+
+    private final long version;
+    private final Instant createdAt;
+    private final RecipeColumns recipes;
+    private final RecipeStore store;
+    private volatile RecipeTextIndex textIndex;
+
+    /**
+     * @param version Snapshot version, increasing with every new snapshot.
+     * @param recipes Recipes, not copied - must not change afterwards. Full recipe records are materialized only for
+     *                query results.
+     */
+    RecipeSnapshot(long version, RecipeColumns recipes) {
+        this.version = version;
+        this.createdAt = Instant.now();
+        this.recipes = recipes;
+        this.store = new RecipeStore(recipes);
+    }
+
+    long version() {
+        return version;
+    }
+
+    Instant createdAt() {
+        return createdAt;
+    }
+
+    int size() {
+        return store.size();
+    }
+
+    /**
+     * Runs query.
+     *
+     * @param query    Query.
+     * @param keywords Keywords or {@code null} - when set, recipes matching query predicates and containing all
+     *                 keywords are ranked by relevance instead of query order, see {@link RecipeTextIndex}.
+     * @return Matching recipes.
+     */
+    List<Recipe> query(RecipeQuery query, String keywords) {
+        if (keywords == null) {
+            return store.query(query);
+        }
+
+        return textIndex().search(keywords, store.filter(query), query.limit()).stream()
+                .map(RecipeTextIndex.Hit::recipe)
+                .toList();
+    }
+
+    private RecipeTextIndex textIndex() {
+        var index = textIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = textIndex;
+                if (index == null) {
+                    // same recipes - rows of the store and the text index match
+                    index = new RecipeTextIndex(recipes);
+                    textIndex = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeSnapshot[version=%d, recipes=%d, createdAt=%s]".formatted(version, size(), createdAt);
+    }
+}
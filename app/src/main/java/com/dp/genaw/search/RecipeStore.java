@@ -0,0 +1,288 @@
+package com.dp.genaw.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory recipe store answering {@link RecipeQuery multi-criteria queries}.
+ * <p>
+ * Every numeric {@link RecipeField field} is kept as a column together with a sorted index - array of row numbers
+ * ordered by the field value (missing values last), sorted when the field is first queried. Queries never scan all
+ * recipes when they do not have to:
+ * <ul>
+ *     <li>range predicates are resolved by binary search in the sorted index, only rows of the most selective range
+ *     are checked against the remaining predicates,</li>
+ *     <li>top-N queries with a non-selective filter walk the sorted index of the first ordering key and stop as soon as
+ *     N matching recipes (plus recipes tied with the last one) are found.</li>
+ * </ul>
+ */
+class RecipeStore {
+
+    // ranges selecting more than 1/4 of the rows are not worth sorting, ordered walk finishes sooner
+    private static final int SELECTIVE_RANGE_DIVISOR = 4;
+
+    private final RecipeColumns recipes;
+    // [field][row]
+    private final double[][] values;
+    // [field] - position of the first row with missing value in sorted rows
+    private final int[] missingFrom;
+    // [field] - rows sorted by field value ascending, rows with missing value at the end, sorted on first use
+    private final AtomicReferenceArray<int[]> sortedRows;
+    // built on first name predicate
+    private volatile String[] lowerCaseNames;
+
+    /**
+     * @param recipes Stored recipes, must not change afterwards. Only numeric columns are copied, recipes are
+     *                materialized just for query results.
+     */
+    RecipeStore(RecipeColumns recipes) {
+        this.recipes = recipes;
+
+        var size = recipes.size();
+        var fields = RecipeField.values();
+        this.values = new double[fields.length][size];
+        for (var row = 0; row < size; row++) {
+            var nutrition = recipes.nutrition(row);
+            var starRating = recipes.starRating(row);
+            var proteinToNetCarb = recipes.proteinToNetCarb(row);
+            for (var field : fields) {
+                values[field.ordinal()][row] = field.value(starRating, proteinToNetCarb, nutrition);
+            }
+        }
+
+        this.missingFrom = new int[fields.length];
+        for (var field : fields) {
+            missingFrom[field.ordinal()] = size - countMissing(values[field.ordinal()]);
+        }
+        this.sortedRows = new AtomicReferenceArray<>(fields.length);
+    }
+
+    int size() {
+        return recipes.size();
+    }
+
+    /**
+     * Runs query.
+     *
+     * @param query Query.
+     * @return Matching recipes in query order.
+     */
+    List<Recipe> query(RecipeQuery query) {
+        if (query.limit() == 0 || recipes.size() == 0) {
+            return List.of();
+        }
+
+        // most selective range - the smallest slice of its field's sorted index
+        RecipeQuery.Range candidateRange = null;
+        var candidatesFrom = 0;
+        var candidatesTo = recipes.size();
+        for (var range : query.ranges()) {
+            var from = lowerBound(range.field(), range.min());
+            var to = upperBound(range.field(), range.max());
+            if (candidateRange == null || to - from < candidatesTo - candidatesFrom) {
+                candidateRange = range;
+                candidatesFrom = from;
+                candidatesTo = Math.max(from, to);
+            }
+        }
+
+        var matches = filter(query);
+        var comparator = comparator(query.orderBy());
+
+        List<Integer> rows;
+        if (candidateRange == null) {
+            rows = query.orderBy().isEmpty()
+                    ? scan(matches, query.limit())
+                    : walkOrdered(query.orderBy().get(0), matches, query.limit());
+        } else if (query.orderBy().isEmpty()
+                || candidatesTo - candidatesFrom <= recipes.size() / SELECTIVE_RANGE_DIVISOR) {
+            rows = new ArrayList<>(candidatesTo - candidatesFrom);
+            var sorted = sortedRows(candidateRange.field());
+            for (var position = candidatesFrom; position < candidatesTo; position++) {
+                if (matches.test(sorted[position])) {
+                    rows.add(sorted[position]);
+                }
+            }
+        } else {
+            rows = walkOrdered(query.orderBy().get(0), matches, query.limit());
+        }
+
+        return rows.stream()
+                .sorted(comparator)
+                .limit(query.limit())
+                .map(recipes::recipe)
+                .toList();
+    }
+
+    /**
+     * Query predicates (ordering and limit ignored) as a filter of rows, e.g. for
+     * {@link RecipeTextIndex#search(String, IntPredicate, int)} over the same recipes.
+     *
+     * @param query Query.
+     * @return Filter accepting rows matching all query predicates.
+     */
+    IntPredicate filter(RecipeQuery query) {
+        var ranges = query.ranges();
+        var nameContains = query.nameContains() == null ? null : query.nameContains().toLowerCase(Locale.ROOT);
+        var names = nameContains == null ? null : lowerCaseNames();
+
+        return row -> {
+            for (var range : ranges) {
+                if (!range.matches(values[range.field().ordinal()][row])) {
+                    return false;
+                }
+            }
+            return nameContains == null || names[row].contains(nameContains);
+        };
+    }
+
+    /**
+     * Rows in insertion order, stops after {@code limit} matching rows.
+     */
+    private List<Integer> scan(IntPredicate matches, int limit) {
+        var rows = new ArrayList<Integer>();
+        for (var row = 0; row < recipes.size() && rows.size() < limit; row++) {
+            if (matches.test(row)) {
+                rows.add(row);
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Walks sorted index of the first ordering key, stops after {@code limit} matching rows and all rows tied with the
+     * last one (they may be ordered before it by the following keys).
+     */
+    private List<Integer> walkOrdered(RecipeQuery.Order order, IntPredicate matches, int limit) {
+        var sorted = sortedRows(order.field());
+        var column = values[order.field().ordinal()];
+        var present = missingFrom[order.field().ordinal()];
+
+        var rows = new ArrayList<Integer>();
+        for (var i = 0; i < sorted.length; i++) {
+            // present values in requested direction first, missing values last
+            var position = i >= present || !order.descending() ? i : present - 1 - i;
+            var row = sorted[position];
+            if (rows.size() >= limit && Double.compare(column[row], column[rows.get(rows.size() - 1)]) != 0) {
+                break;
+            }
+            if (matches.test(row)) {
+                rows.add(row);
+            }
+        }
+
+        return rows;
+    }
+
+    private Comparator<Integer> comparator(List<RecipeQuery.Order> orderBy) {
+        Comparator<Integer> comparator = (row1, row2) -> 0;
+        for (var order : orderBy) {
+            var column = values[order.field().ordinal()];
+            comparator = comparator.thenComparing(
+                    (row1, row2) -> compareMissingLast(column[row1], column[row2], order.descending()));
+        }
+
+        // insertion order breaks ties
+        return comparator.thenComparingInt(row -> row);
+    }
+
+    /**
+     * @return Position of the first row with value {@code >= min}.
+     */
+    private int lowerBound(RecipeField field, double min) {
+        var sorted = sortedRows(field);
+        var column = values[field.ordinal()];
+        int low = 0;
+        int high = missingFrom[field.ordinal()];
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (column[sorted[middle]] < min) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return Position of the first row with value {@code > max}, rows with missing value excluded.
+     */
+    private int upperBound(RecipeField field, double max) {
+        var sorted = sortedRows(field);
+        var column = values[field.ordinal()];
+        int low = 0;
+        int high = missingFrom[field.ordinal()];
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (column[sorted[middle]] <= max) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return Rows sorted by field value ascending, missing values last - sorted once on first use, concurrent first
+     *         uses may sort twice with the same result.
+     */
+    private int[] sortedRows(RecipeField field) {
+        var sorted = sortedRows.get(field.ordinal());
+        if (sorted == null) {
+            var column = values[field.ordinal()];
+            // Double.compare orders NaN (missing value) last
+            sorted = IntStream.range(0, recipes.size())
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(row -> column[row]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            sortedRows.set(field.ordinal(), sorted);
+        }
+
+        return sorted;
+    }
+
+    private String[] lowerCaseNames() {
+        var names = lowerCaseNames;
+        if (names == null) {
+            names = new String[recipes.size()];
+            for (var row = 0; row < names.length; row++) {
+                names[row] = recipes.name(row).toLowerCase(Locale.ROOT);
+            }
+            lowerCaseNames = names;
+        }
+
+        return names;
+    }
+
+    private static int compareMissingLast(double value1, double value2, boolean descending) {
+        var missing1 = Double.isNaN(value1);
+        var missing2 = Double.isNaN(value2);
+        if (missing1 || missing2) {
+            return Boolean.compare(missing1, missing2);
+        }
+
+        return descending ? Double.compare(value2, value1) : Double.compare(value1, value2);
+    }
+
+    private static int countMissing(double[] column) {
+        var missing = 0;
+        for (var value : column) {
+            if (Double.isNaN(value)) {
+                missing++;
+            }
+        }
+
+        return missing;
+    }
+}
@@ -0,0 +1,380 @@
+package com.dp.genaw.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Compact columnar store of crawled {@link Recipe recipes} - a crawl result sink holding neither {@link Recipe}
+ * records nor their strings per recipe:
+ * <ul>
+ *     <li>macro nutrients parsed from nutrition info, star rating and Protein to Net Carb ratio are primitive columns,
+ *     one value per recipe ({@link Double#NaN} for missing nutrients),</li>
+ *     <li>names, URLs and variants are deduplicated into shared string tables (all variants of a recipe share its name
+ *     and URL, most variants are e.g. "Per Serving"), recipes keep just their table indexes,</li>
+ *     <li>raw nutrition info is optional - when kept, it is stored as UTF-8 bytes in a single byte array and decoded
+ *     only when asked for, otherwise it is rendered from the parsed nutrients.</li>
+ * </ul>
+ * Recipes are read through {@link RecipeView flyweight views} with the same accessors as {@link Recipe}, as
+ * {@link #asRecipes() list of recipes} materialized one by one on access, or column-wise as {@link RecipeColumns}
+ * (e.g. by {@link RecipeStore}) without materializing recipes or parsing nutrition info.
+ * <p>
+ * Appending is thread-safe, so the table may be used as a sink of a concurrent crawl. Reading is meant to follow
+ * the crawl (the crawl join orders all appends before reads).
+ */
+class RecipeTable implements Consumer<Recipe>, RecipeColumns {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Parsed nutrient columns.
+     */
+    private enum Nutrient {
+        CALORIES(" Calories"),
+        FAT("g Fat"),
+        PROTEIN("g Protein"),
+        CARBOHYDRATE("g Carbohydrate"),
+        FIBER("g Dietary Fiber"),
+        NET_CARB("g Net Carbs");
+
+        private final String suffix;
+
+        Nutrient(String suffix) {
+            this.suffix = suffix;
+        }
+
+        double value(Nutrition nutrition) {
+            return switch (this) {
+                case CALORIES -> nutrition.calories();
+                case FAT -> nutrition.fat();
+                case PROTEIN -> nutrition.protein();
+                case CARBOHYDRATE -> nutrition.carbohydrate();
+                case FIBER -> nutrition.fiber();
+                case NET_CARB -> nutrition.netCarb();
+            };
+        }
+    }
+
+    private final boolean keepNutritionInfo;
+
+    private final StringTable names = new StringTable();
+    private final StringTable urls = new StringTable();
+    private final StringTable variants = new StringTable();
+
+    private int size;
+    private int[] nameIds = new int[INITIAL_CAPACITY];
+    private int[] urlIds = new int[INITIAL_CAPACITY];
+    private int[] variantIds = new int[INITIAL_CAPACITY];
+    private byte[] starRatings = new byte[INITIAL_CAPACITY];
+    private double[] proteinToNetCarbs = new double[INITIAL_CAPACITY];
+    // [nutrient][row] in Nutrient order
+    private final double[][] nutrients = new double[Nutrient.values().length][INITIAL_CAPACITY];
+
+    // raw nutrition info of row r is nutritionInfo[nutritionInfoOffsets[r] .. nutritionInfoOffsets[r + 1])
+    private byte[] nutritionInfo;
+    private int[] nutritionInfoOffsets;
+
+    RecipeTable() {
+        this(false);
+    }
+
+    /**
+     * @param keepNutritionInfo Whether raw nutrition info is kept, otherwise it is rendered from parsed nutrients.
+     */
+    RecipeTable(boolean keepNutritionInfo) {
+        this.keepNutritionInfo = keepNutritionInfo;
+        if (keepNutritionInfo) {
+            this.nutritionInfo = new byte[INITIAL_CAPACITY * 64];
+            this.nutritionInfoOffsets = new int[INITIAL_CAPACITY + 1];
+        }
+    }
+
+    @Override
+    public synchronized void accept(Recipe recipe) {
+        if (size == nameIds.length) {
+            grow();
+        }
+
+        nameIds[size] = names.id(recipe.name());
+        urlIds[size] = urls.id(recipe.url());
+        variantIds[size] = variants.id(recipe.variant());
+        starRatings[size] = (byte) recipe.starRating();
+        proteinToNetCarbs[size] = recipe.proteinToNetCarb();
+        var nutrition = recipe.parseNutrition();
+        for (var nutrient : Nutrient.values()) {
+            nutrients[nutrient.ordinal()][size] = nutrient.value(nutrition);
+        }
+        if (keepNutritionInfo) {
+            appendNutritionInfo(recipe.nutritionInfo().getBytes(StandardCharsets.UTF_8));
+        }
+
+        size++;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    synchronized int distinctNames() {
+        return names.size();
+    }
+
+    synchronized int distinctUrls() {
+        return urls.size();
+    }
+
+    /**
+     * @param row Row number, {@code 0 <= row < size()}.
+     * @return View of the recipe in given row.
+     */
+    RecipeView get(int row) {
+        if (row < 0 || row >= size()) {
+            throw new IndexOutOfBoundsException("Row %d out of %d recipes".formatted(row, size()));
+        }
+
+        return new RecipeView(row);
+    }
+
+    /**
+     * @return Views of all recipes in insertion order.
+     */
+    List<RecipeView> views() {
+        var views = new ArrayList<RecipeView>(size());
+        for (var row = 0; row < size(); row++) {
+            views.add(new RecipeView(row));
+        }
+
+        return views;
+    }
+
+    /**
+     * @return Read-only list of all recipes in insertion order, each recipe is materialized on access.
+     */
+    List<Recipe> asRecipes() {
+        return new RecipeList();
+    }
+
+    @Override
+    public int starRating(int row) {
+        return starRatings[row];
+    }
+
+    @Override
+    public double proteinToNetCarb(int row) {
+        return proteinToNetCarbs[row];
+    }
+
+    /**
+     * @return Parsed nutrients read from nutrient columns, same as {@link Recipe#parseNutrition()} but without parsing.
+     */
+    @Override
+    public Nutrition nutrition(int row) {
+        return new Nutrition(
+                nutrients[Nutrient.CALORIES.ordinal()][row],
+                nutrients[Nutrient.FAT.ordinal()][row],
+                nutrients[Nutrient.PROTEIN.ordinal()][row],
+                nutrients[Nutrient.CARBOHYDRATE.ordinal()][row],
+                nutrients[Nutrient.FIBER.ordinal()][row],
+                nutrients[Nutrient.NET_CARB.ordinal()][row]);
+    }
+
+    @Override
+    public String name(int row) {
+        return names.get(nameIds[row]);
+    }
+
+    @Override
+    public Recipe recipe(int row) {
+        return get(row).toRecipe();
+    }
+
+    /**
+     * @return Approximate heap size of the table data in bytes (columns, string tables and raw nutrition info).
+     */
+    synchronized long footprint() {
+        // 3 id columns, byte rating, ratio and nutrient double columns
+        long columns = nameIds.length * (3L * Integer.BYTES + 1 + (1L + nutrients.length) * Double.BYTES);
+        long raw = keepNutritionInfo ? nutritionInfo.length + (long) nutritionInfoOffsets.length * Integer.BYTES : 0;
+        return columns + raw + names.footprint() + urls.footprint() + variants.footprint();
+    }
+
+    private void grow() {
+        var capacity = nameIds.length * 2;
+        nameIds = Arrays.copyOf(nameIds, capacity);
+        urlIds = Arrays.copyOf(urlIds, capacity);
+        variantIds = Arrays.copyOf(variantIds, capacity);
+        starRatings = Arrays.copyOf(starRatings, capacity);
+        proteinToNetCarbs = Arrays.copyOf(proteinToNetCarbs, capacity);
+        for (var i = 0; i < nutrients.length; i++) {
+            nutrients[i] = Arrays.copyOf(nutrients[i], capacity);
+        }
+        if (keepNutritionInfo) {
+            nutritionInfoOffsets = Arrays.copyOf(nutritionInfoOffsets, capacity + 1);
+        }
+    }
+
+    private void appendNutritionInfo(byte[] bytes) {
+        var offset = nutritionInfoOffsets[size];
+        if (offset + bytes.length > nutritionInfo.length) {
+            nutritionInfo = Arrays.copyOf(nutritionInfo, Math.max(offset + bytes.length, nutritionInfo.length * 2));
+        }
+        System.arraycopy(bytes, 0, nutritionInfo, offset, bytes.length);
+        nutritionInfoOffsets[size + 1] = offset + bytes.length;
+    }
+
+    private String nutritionInfo(int row) {
+        if (keepNutritionInfo) {
+            var from = nutritionInfoOffsets[row];
+            return new String(nutritionInfo, from, nutritionInfoOffsets[row + 1] - from, StandardCharsets.UTF_8);
+        }
+
+        // e.g. 235 Calories; 20g Fat; 13g Protein; 3g Carbohydrate; 1.5g Dietary Fiber; 1.5g Net Carbs
+        var text = new StringBuilder();
+        for (var nutrient : Nutrient.values()) {
+            var value = nutrients[nutrient.ordinal()][row];
+            if (!Double.isNaN(value)) {
+                if (!text.isEmpty()) {
+                    text.append("; ");
+                }
+                text.append(format(value)).append(nutrient.suffix);
+            }
+        }
+
+        return text.toString();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value)
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    /**
+     * Flyweight view of a single recipe - holds only its row number, all values are read from table columns. Has the
+     * same accessors as {@link Recipe}, {@link #toRecipe()} materializes the recipe.
+     */
+    final class RecipeView {
+
+        private final int row;
+
+        private RecipeView(int row) {
+            this.row = row;
+        }
+
+        int row() {
+            return row;
+        }
+
+        String name() {
+            return RecipeTable.this.name(row);
+        }
+
+        String url() {
+            return urls.get(urlIds[row]);
+        }
+
+        String variant() {
+            return variants.get(variantIds[row]);
+        }
+
+        /**
+         * @return Raw nutrition info when kept by the table, otherwise nutrition info rendered from parsed nutrients.
+         */
+        String nutritionInfo() {
+            return RecipeTable.this.nutritionInfo(row);
+        }
+
+        int starRating() {
+            return RecipeTable.this.starRating(row);
+        }
+
+        double proteinToNetCarb() {
+            return RecipeTable.this.proteinToNetCarb(row);
+        }
+
+        /**
+         * @return Parsed nutrients, same as {@link Recipe#parseNutrition()} but without parsing.
+         */
+        Nutrition nutrition() {
+            return RecipeTable.this.nutrition(row);
+        }
+
+        Recipe toRecipe() {
+            return new Recipe(name(), url(), variant(), nutritionInfo(), starRating(), proteinToNetCarb());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RecipeView view && view.table() == RecipeTable.this && view.row == row;
+        }
+
+        @Override
+        public int hashCode() {
+            return row;
+        }
+
+        @Override
+        public String toString() {
+            return toRecipe().toString();
+        }
+
+        private RecipeTable table() {
+            return RecipeTable.this;
+        }
+    }
+
+    private class RecipeList extends AbstractList<Recipe> implements RandomAccess {
+
+        @Override
+        public Recipe get(int row) {
+            return RecipeTable.this.get(row).toRecipe();
+        }
+
+        @Override
+        public int size() {
+            return RecipeTable.this.size();
+        }
+    }
+
+    /**
+     * Deduplicated strings, each distinct string is stored once and referenced by its index.
+     */
+    private static class StringTable {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private long chars;
+
+        int id(String string) {
+            var id = ids.get(string);
+            if (id == null) {
+                id = strings.size();
+                ids.put(string, id);
+                strings.add(string);
+                chars += string.length();
+            }
+
+            return id;
+        }
+
+        String get(int id) {
+            return strings.get(id);
+        }
+
+        int size() {
+            return strings.size();
+        }
+
+        long footprint() {
+            // string headers and hash map entries roughly 100 bytes per string
+            return chars + strings.size() * 100L;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.dp.genaw.search;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory inverted full-text index over recipe name, variant and nutrition info.
+ * <p>
+ * Every term has a compressed postings list - recipe rows (in ascending order, stored as deltas) and term frequencies
+ * encoded as variable-length integers. Keyword queries match recipes containing all keywords: the shortest postings
+ * list drives the intersection, so only recipes containing the rarest keyword are ever looked at. Matching recipes are
+ * ranked by Okapi BM25.
+ * <p>
+ * Rows are positions in the indexed {@link RecipeColumns} - same as {@link RecipeStore} rows when both are built from
+ * the same recipes, so that {@link RecipeStore#filter(RecipeQuery)} can be intersected with keyword hits.
+ */
+class RecipeTextIndex {
+
+    // standard BM25 parameters - term frequency saturation and document length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * @param recipe Matching recipe.
+     * @param score  BM25 score, higher is better.
+     */
+    record Hit(Recipe recipe, double score) {}
+
+    /**
+     * Hit candidate kept by row - recipes are materialized only for the returned hits.
+     */
+    private record Candidate(int row, double score) {}
+
+    /**
+     * Compressed postings list of a single term.
+     *
+     * @param documentFrequency Number of recipes containing the term.
+     * @param data              Pairs of (row delta, term frequency) as variable-length integers.
+     */
+    private record Postings(int documentFrequency, byte[] data) {}
+
+    private final RecipeColumns recipes;
+    private final Map<String, Postings> postings;
+    private final int[] documentLengths;
+    private final double averageDocumentLength;
+
+    /**
+     * @param recipes Indexed recipes, must not change afterwards - each recipe is materialized once while indexing and
+     *                then only for returned hits.
+     */
+    RecipeTextIndex(RecipeColumns recipes) {
+        this.recipes = recipes;
+        this.documentLengths = new int[this.recipes.size()];
+
+        // term -> (row, frequency) pairs in row order
+        var builders = new HashMap<String, PostingsBuilder>();
+        long totalLength = 0;
+        for (var row = 0; row < this.recipes.size(); row++) {
+            var recipe = this.recipes.recipe(row);
+            var frequencies = new HashMap<String, Integer>();
+            for (var text : List.of(recipe.name(), recipe.variant(), recipe.nutritionInfo())) {
+                for (var term : tokenize(text)) {
+                    frequencies.merge(term, 1, Integer::sum);
+                    documentLengths[row]++;
+                }
+            }
+            totalLength += documentLengths[row];
+
+            for (var entry : frequencies.entrySet()) {
+                builders.computeIfAbsent(entry.getKey(), term -> new PostingsBuilder()).add(row, entry.getValue());
+            }
+        }
+
+        this.postings = new HashMap<>(builders.size() * 2);
+        builders.forEach((term, builder) -> postings.put(term, builder.build()));
+        this.averageDocumentLength = this.recipes.size() == 0 ? 0 : (double) totalLength / this.recipes.size();
+    }
+
+    /**
+     * Keyword search.
+     *
+     * @param keywords Keywords, e.g. {@code cheddar wafers} - recipes must contain all of them (case-insensitive).
+     * @param filter   Additional filter of recipe rows, e.g. {@link RecipeStore#filter(RecipeQuery)}.
+     * @param limit    Max number of returned hits.
+     * @return Best hits first, empty when there are no keywords.
+     */
+    List<Hit> search(String keywords, IntPredicate filter, int limit) {
+        var terms = new LinkedHashSet<>(tokenize(keywords));
+        if (terms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        var lists = new ArrayList<Postings>(terms.size());
+        for (var term : terms) {
+            var termPostings = postings.get(term);
+            if (termPostings == null) {
+                // no recipe contains this keyword
+                return List.of();
+            }
+            lists.add(termPostings);
+        }
+        // rarest term first - it drives the intersection
+        lists.sort(Comparator.comparingInt(Postings::documentFrequency));
+
+        var cursors = lists.stream()
+                .map(Cursor::new)
+                .toList();
+        var idfs = lists.stream()
+                .mapToDouble(list -> idf(list.documentFrequency()))
+                .toArray();
+
+        // min-heap by score - the worst kept hit is on top
+        var top = new PriorityQueue<Candidate>(Comparator.comparingDouble(Candidate::score));
+        var driver = cursors.get(0);
+        candidates:
+        while (driver.next()) {
+            var row = driver.row();
+            for (var i = 1; i < cursors.size(); i++) {
+                if (!cursors.get(i).advanceTo(row)) {
+                    // some keyword has no more recipes, intersection is complete
+                    break candidates;
+                }
+                if (cursors.get(i).row() != row) {
+                    continue candidates;
+                }
+            }
+            if (!filter.test(row)) {
+                continue;
+            }
+
+            var score = 0.0;
+            for (var i = 0; i < cursors.size(); i++) {
+                score += idfs[i] * termScore(cursors.get(i).frequency(), documentLengths[row]);
+            }
+
+            if (top.size() < limit) {
+                top.add(new Candidate(row, score));
+            } else if (score > top.peek().score()) {
+                top.poll();
+                top.add(new Candidate(row, score));
+            }
+        }
+
+        return top.stream()
+                .sorted(Comparator.comparingDouble(Candidate::score).reversed())
+                .map(candidate -> new Hit(recipes.recipe(candidate.row()), candidate.score()))
+                .toList();
+    }
+
+    /**
+     * @return Number of distinct terms.
+     */
+    int terms() {
+        return postings.size();
+    }
+
+    /**
+     * @return Total size of compressed postings lists in bytes.
+     */
+    int postingsBytes() {
+        return postings.values().stream()
+                .mapToInt(list -> list.data().length)
+                .sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeTextIndex[recipes=%d, terms=%d, postingsBytes=%d]".formatted(
+                recipes.size(), postings.size(), postingsBytes());
+    }
+
+    /**
+     * Splits text to lower-case terms of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        var terms = new ArrayList<String>();
+        if (text == null) {
+            return terms;
+        }
+
+        var term = new StringBuilder();
+        for (var i = 0; i <= text.length(); i++) {
+            if (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                term.append(Character.toLowerCase(text.charAt(i)));
+            } else if (!term.isEmpty()) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+
+        return terms;
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (recipes.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private double termScore(int frequency, int documentLength) {
+        var normalization = K1 * (1 - B + B * documentLength / averageDocumentLength);
+        return frequency * (K1 + 1) / (frequency + normalization);
+    }
+
+    private static class PostingsBuilder {
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private int documentFrequency;
+        private int lastRow = -1;
+
+        void add(int row, int frequency) {
+            writeVarInt(row - lastRow);
+            writeVarInt(frequency);
+            lastRow = row;
+            documentFrequency++;
+        }
+
+        Postings build() {
+            return new Postings(documentFrequency, data.toByteArray());
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                data.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data.write(value);
+        }
+    }
+
+    /**
+     * Sequential decoder of a postings list.
+     */
+    private static class Cursor {
+
+        private final byte[] data;
+        private int position;
+        private int row = -1;
+        private int frequency;
+
+        Cursor(Postings postings) {
+            this.data = postings.data();
+        }
+
+        /**
+         * Moves to the next posting.
+         *
+         * @return {@code false} when there are no more postings.
+         */
+        boolean next() {
+            if (position >= data.length) {
+                return false;
+            }
+
+            row += readVarInt();
+            frequency = readVarInt();
+            return true;
+        }
+
+        /**
+         * Moves to the first posting with row {@code >= target}, stays when already there.
+         *
+         * @return {@code false} when there is no such posting.
+         */
+        boolean advanceTo(int target) {
+            while (row < target) {
+                if (!next()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        int row() {
+            return row;
+        }
+
+        int frequency() {
+            return frequency;
+        }
+
+        private int readVarInt() {
+            var value = 0;
+            var shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            return value;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link PageFetcher} decorator recording every fetch - page or failure - to a {@link CrawlArchive}, so that the crawl
+ * can be replayed offline by {@link ReplayPageFetcher}.
+ */
+class RecordingPageFetcher implements PageFetcher {
+
+    private final PageFetcher delegate;
+    private final CrawlArchive.Writer archive;
+
+    RecordingPageFetcher(PageFetcher delegate, CrawlArchive.Writer archive) {
+        this.delegate = delegate;
+        this.archive = archive;
+    }
+
+    @Override
+    public FetchedPage fetch(String url, Map<String, String> requestHeaders) throws IOException {
+        return PageFetcher.await(fetchAsync(url, requestHeaders));
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Map<String, String> requestHeaders) {
+        var start = System.nanoTime();
+        return delegate.fetchAsync(url, requestHeaders)
+                .handle((page, failure) -> {
+                    var duration = Duration.ofNanos(System.nanoTime() - start);
+                    try {
+                        if (failure == null) {
+                            archive.append(page, duration);
+                            return page;
+                        }
+
+                        var cause = PageFetcher.unwrap(failure);
+                        archive.appendFailure(url, String.valueOf(cause.getMessage()), duration);
+                        throw new CompletionException(cause);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,157 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PageFetcher} serving pages recorded in a {@link CrawlArchive} instead of the live site - crawls of the same
+ * archive see the same pages every time. Recorded failures fail the same way, pages not present in the archive fail as
+ * not found.
+ * <p>
+ * Conditional requests are answered by {@code 304 Not Modified} when the recorded {@code ETag} matches, so incremental
+ * recrawls can be replayed too. Optional simulated latency makes replayed crawls behave closer to live ones, e.g. to
+ * tune crawl concurrency.
+ */
+class ReplayPageFetcher implements PageFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayPageFetcher.class);
+
+    /**
+     * Simulated latency of a single fetch.
+     */
+    interface Latency {
+
+        Latency NONE = recorded -> Duration.ZERO;
+
+        /**
+         * Every fetch takes duration of the original fetch.
+         */
+        Latency RECORDED = recorded -> recorded;
+
+        /**
+         * @param recorded Duration of the original fetch.
+         * @return Simulated duration.
+         */
+        Duration of(Duration recorded);
+
+        static Latency fixed(Duration latency) {
+            return recorded -> latency;
+        }
+
+        /**
+         * Parses latency from its command line form.
+         *
+         * @param value Either {@code recorded} or fixed latency in milliseconds, {@code 0} for no latency.
+         */
+        static Latency of(String value) {
+            if (value.equals("recorded")) {
+                return RECORDED;
+            }
+
+            var millis = Long.parseLong(value);
+            return millis == 0 ? NONE : fixed(Duration.ofMillis(millis));
+        }
+    }
+
+    private final CrawlArchive archive;
+    private final Latency latency;
+
+    private final AtomicInteger replayed = new AtomicInteger(0);
+    private final AtomicInteger missing = new AtomicInteger(0);
+
+    ReplayPageFetcher(CrawlArchive archive) {
+        this(archive, Latency.NONE);
+    }
+
+    ReplayPageFetcher(CrawlArchive archive, Latency latency) {
+        this.archive = archive;
+        this.latency = latency;
+    }
+
+    @Override
+    public FetchedPage fetch(String url, Map<String, String> requestHeaders) throws IOException {
+        var entry = entry(url);
+        simulateLatency(url, entry.duration());
+        return replay(entry, requestHeaders);
+    }
+
+    /**
+     * Simulated latency does not block any thread, the page is replayed after the latency by a delayed executor.
+     */
+    @Override
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Map<String, String> requestHeaders) {
+        CrawlArchive.Entry entry;
+        try {
+            entry = entry(url);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        var duration = latency.of(entry.duration());
+        var executor = duration.isZero()
+                ? (Executor) Runnable::run
+                : CompletableFuture.delayedExecutor(duration.toNanos(), TimeUnit.NANOSECONDS);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return replay(entry, requestHeaders);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    void logStats() {
+        logger.info("Replayed {} fetches from {}, not recorded pages: {}", replayed.get(), archive, missing.get());
+    }
+
+    private CrawlArchive.Entry entry(String url) throws IOException {
+        var entry = archive.get(url);
+        if (entry.isEmpty()) {
+            missing.incrementAndGet();
+            throw new IOException("Page not recorded in crawl archive: " + url);
+        }
+
+        return entry.get();
+    }
+
+    private FetchedPage replay(CrawlArchive.Entry entry, Map<String, String> requestHeaders) throws IOException {
+        replayed.incrementAndGet();
+
+        if (entry.failed()) {
+            throw new IOException("Recorded failure: " + entry.failure());
+        }
+
+        var page = entry.page();
+        var etag = page.header(FetchedPage.ETAG);
+        if (etag != null && Objects.equals(etag, requestHeaders.get(FetchedPage.IF_NONE_MATCH))) {
+            return new FetchedPage(page.url(), FetchedPage.NOT_MODIFIED, page.headers(), new byte[0]);
+        }
+
+        return page;
+    }
+
+    private void simulateLatency(String url, Duration recorded) throws IOException {
+        var duration = latency.of(recorded);
+        if (duration.isZero()) {
+            return;
+        }
+
+        try {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while replaying " + url);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PageFetcher} decorator applying fetch policy to each page, so that a single slow or failing page neither
+ * stalls its crawl branch nor silently drops a whole section:
+ * <ul>
+ *     <li>transient failures (timeouts, connection errors, {@code 408}, {@code 429} and {@code 5xx} responses) are
+ *     retried after exponential backoff with full jitter - random delay up to {@code backoff * 2^(attempt - 1)},</li>
+ *     <li>optionally a fetch running longer than p95 of recently observed fetch latencies is hedged by a second
+ *     request, whichever succeeds first wins,</li>
+ *     <li>pages failed after all attempts, or failed by a permanent error (e.g. {@code 404}), are reported as
+ *     lost.</li>
+ * </ul>
+ * Per-request timeout is applied by the delegate fetcher, see {@link JsoupPageFetcher#JsoupPageFetcher(Duration)}.
+ */
+class ResilientPageFetcher implements PageFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilientPageFetcher.class);
+
+    static final int RETRIES = 2;
+    static final Duration BACKOFF = Duration.ofMillis(100);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(5);
+
+    private static final double HEDGE_PERCENTILE = 0.95;
+
+    private final PageFetcher delegate;
+    private final int retries;
+    private final Duration backoff;
+    private final boolean hedge;
+    // runs blocking hedged fetches, null when hedging is disabled
+    private final ExecutorService hedgeExecutor;
+
+    private final LatencyWindow latencies = new LatencyWindow(256, 20);
+    private final Map<String, String> lostPages = new ConcurrentHashMap<>();
+
+    private final AtomicInteger retried = new AtomicInteger(0);
+    private final AtomicInteger hedged = new AtomicInteger(0);
+    private final AtomicInteger hedgeWins = new AtomicInteger(0);
+
+    ResilientPageFetcher(PageFetcher delegate) {
+        this(delegate, RETRIES, BACKOFF, false);
+    }
+
+    /**
+     * @param delegate Fetcher of single attempts.
+     * @param retries  Max number of retries after the first attempt.
+     * @param backoff  Backoff before the first retry, doubled for each next retry.
+     * @param hedge    Whether slow fetches are hedged by a second request.
+     */
+    ResilientPageFetcher(PageFetcher delegate, int retries, Duration backoff, boolean hedge) {
+        this.delegate = delegate;
+        this.retries = retries;
+        this.backoff = backoff;
+        this.hedge = hedge;
+        this.hedgeExecutor = hedge
+                ? ThreadPerFetchCrawlExecutor.newThreadPerTaskExecutor(ResilientPageFetcher::newHedgeThread)
+                : null;
+    }
+
+    @Override
+    public FetchedPage fetch(String url, Map<String, String> requestHeaders) throws IOException {
+        return withRetries(url, () -> hedgeExecutor == null
+                ? timedFetch(url, requestHeaders)
+                : hedgedFetch(url, requestHeaders));
+    }
+
+    /**
+     * Streamed fetches are retried the same way, reader is run again for each attempt. They are never hedged - reader
+     * of a slow body is already running, and do not feed hedging latencies since they include reading time.
+     */
+    @Override
+    public <T> T fetchStreaming(String url, BodyReader<T> reader) throws IOException {
+        return withRetries(url, () -> delegate.fetchStreaming(url, reader));
+    }
+
+    /**
+     * Same policy as {@link #fetch(String, Map)} without blocking - backoff and hedging delays are scheduled on a
+     * delayed executor.
+     */
+    @Override
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Map<String, String> requestHeaders) {
+        return fetchAsync(url, requestHeaders, 0);
+    }
+
+    private CompletableFuture<FetchedPage> fetchAsync(String url, Map<String, String> requestHeaders, int attempt) {
+        var page = hedge ? hedgedFetchAsync(url, requestHeaders) : timedFetchAsync(url, requestHeaders);
+
+        return page.handle((fetchedPage, failure) -> {
+            if (failure == null) {
+                lostPages.remove(url);
+                return CompletableFuture.completedFuture(fetchedPage);
+            }
+
+            var cause = PageFetcher.unwrap(failure);
+            logger.debug("Fetch attempt {} of {} failed: {}", attempt + 1, url, cause.toString());
+            if (attempt < retries && cause instanceof IOException e && isTransient(e)) {
+                retried.incrementAndGet();
+                return CompletableFuture.runAsync(() -> { }, delayed(backoff(attempt + 1).toNanos()))
+                        .thenCompose(ignored -> fetchAsync(url, requestHeaders, attempt + 1));
+            }
+
+            lostPages.put(url, cause.toString());
+            return CompletableFuture.<FetchedPage>failedFuture(cause);
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * @return URLs of pages failed after all attempts, mapped to their last failure, sorted by URL.
+     */
+    Map<String, String> lostPages() {
+        return new TreeMap<>(lostPages);
+    }
+
+    int retried() {
+        return retried.get();
+    }
+
+    int hedged() {
+        return hedged.get();
+    }
+
+    int hedgeWins() {
+        return hedgeWins.get();
+    }
+
+    void logStats() {
+        logger.info("Fetch policy: {} retries, {} hedged fetches ({} won by hedge), p95 latency {} ms",
+                retried.get(), hedged.get(), hedgeWins.get(),
+                TimeUnit.NANOSECONDS.toMillis(Math.max(0, latencies.percentile(HEDGE_PERCENTILE))));
+
+        var lost = lostPages();
+        if (lost.isEmpty()) {
+            logger.info("No pages lost");
+        } else {
+            logger.warn("Permanently lost {} pages:", lost.size());
+            lost.forEach((url, failure) -> logger.warn("  {} - {}", url, failure));
+        }
+    }
+
+    /**
+     * Only known transient causes are retried - timeouts, refused or reset connections and {@code 408}, {@code 429}
+     * and {@code 5xx} responses. Anything else (e.g. invalid URL, unknown host, unsupported content encoding or failed
+     * TLS handshake) fails the same way when repeated.
+     *
+     * @return Whether the failure may go away when the fetch is repeated.
+     */
+    // visible for testing
+    static boolean isTransient(IOException e) {
+        if (e instanceof HttpStatusException statusException) {
+            var status = statusException.getStatusCode();
+            return status == 408 || status == 429 || status >= 500;
+        }
+
+        // HTTP client failures may be wrapped, e.g. by hedged fetch
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException
+                    || cause instanceof HttpTimeoutException
+                    || cause instanceof ConnectException
+                    || cause instanceof IOException && isConnectionReset(cause.getMessage())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isConnectionReset(String message) {
+        return message != null && (message.startsWith("Connection reset") || message.startsWith("Broken pipe"));
+    }
+
+    // visible for testing
+    Duration backoff(int attempt) {
+        var ceiling = Math.min(MAX_BACKOFF.toNanos(), backoff.toNanos() << Math.min(attempt - 1, 30));
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private <T> T withRetries(String url, Attempt<T> fetch) throws IOException {
+        IOException failure = null;
+        for (var attempt = 0; attempt <= retries; attempt++) {
+            if (attempt > 0) {
+                retried.incrementAndGet();
+                sleep(url, backoff(attempt));
+            }
+
+            try {
+                var page = fetch.run();
+                lostPages.remove(url);
+                return page;
+            } catch (InterruptedIOException e) {
+                if (!(e instanceof SocketTimeoutException)) {
+                    // interrupted crawl, not a page failure
+                    throw e;
+                }
+                failure = e;
+            } catch (IOException e) {
+                failure = e;
+                if (!isTransient(e)) {
+                    break;
+                }
+            }
+            logger.debug("Fetch attempt {} of {} failed: {}", attempt + 1, url, failure.toString());
+        }
+
+        lostPages.put(url, failure.toString());
+        throw failure;
+    }
+
+    /**
+     * Single fetch attempt.
+     */
+    @FunctionalInterface
+    private interface Attempt<T> {
+
+        T run() throws IOException;
+    }
+
+    private FetchedPage timedFetch(String url, Map<String, String> requestHeaders) throws IOException {
+        var start = System.nanoTime();
+        var page = delegate.fetch(url, requestHeaders);
+        latencies.record(System.nanoTime() - start);
+        return page;
+    }
+
+    private CompletableFuture<FetchedPage> timedFetchAsync(String url, Map<String, String> requestHeaders) {
+        var start = System.nanoTime();
+        try {
+            return delegate.fetchAsync(url, requestHeaders).whenComplete((page, failure) -> {
+                if (failure == null) {
+                    latencies.record(System.nanoTime() - start);
+                }
+            });
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<FetchedPage> hedgedFetchAsync(String url, Map<String, String> requestHeaders) {
+        var threshold = latencies.percentile(HEDGE_PERCENTILE);
+        var primary = timedFetchAsync(url, requestHeaders);
+        if (threshold < 0) {
+            // not enough samples to know what is slow yet
+            return primary;
+        }
+
+        var hedge = CompletableFuture.runAsync(() -> { }, delayed(threshold))
+                .thenCompose(ignored -> {
+                    if (primary.isDone()) {
+                        return primary;
+                    }
+                    hedged.incrementAndGet();
+                    return timedFetchAsync(url, requestHeaders);
+                });
+
+        return firstSuccessful(primary, hedge).whenComplete((page, failure) -> {
+            if (page != null && (primary.isCompletedExceptionally() || primary.getNow(null) != page)) {
+                hedgeWins.incrementAndGet();
+            }
+        });
+    }
+
+    private FetchedPage hedgedFetch(String url, Map<String, String> requestHeaders) throws IOException {
+        var threshold = latencies.percentile(HEDGE_PERCENTILE);
+        var primary = submit(url, requestHeaders);
+
+        try {
+            if (threshold < 0) {
+                // not enough samples to know what is slow yet
+                return primary.get();
+            }
+
+            try {
+                return primary.get(threshold, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                hedged.incrementAndGet();
+                var hedge = submit(url, requestHeaders);
+                var page = firstSuccessful(primary, hedge).get();
+                if (primary.isCompletedExceptionally() || primary.getNow(null) != page) {
+                    hedgeWins.incrementAndGet();
+                }
+                return page;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + url);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new IOException("Cannot fetch " + url, e.getCause());
+        }
+    }
+
+    private CompletableFuture<FetchedPage> submit(String url, Map<String, String> requestHeaders) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return timedFetch(url, requestHeaders);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, hedgeExecutor);
+    }
+
+    // completes with the first successful fetch, or with the last failure when both fail
+    private static CompletableFuture<FetchedPage> firstSuccessful(
+            CompletableFuture<FetchedPage> primary, CompletableFuture<FetchedPage> hedge) {
+        var result = new CompletableFuture<FetchedPage>();
+        var pending = new AtomicInteger(2);
+        List.of(primary, hedge).forEach(fetch -> fetch.whenComplete((page, failure) -> {
+            if (failure == null) {
+                result.complete(page);
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+            }
+        }));
+
+        return result;
+    }
+
+    private static Executor delayed(long nanos) {
+        return CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void sleep(String url, Duration duration) throws InterruptedIOException {
+        try {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off " + url);
+        }
+    }
+
+    private static Thread newHedgeThread(Runnable task) {
+        var thread = new Thread(task, "hedged-fetch");
+        // abandoned slower fetches must not keep JVM running
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Sliding window of recent fetch latencies.
+     */
+    // visible for testing
+    static class LatencyWindow {
+
+        private final long[] samples;
+        private final int minSamples;
+
+        private int count;
+        private int next;
+
+        LatencyWindow(int size, int minSamples) {
+            this.samples = new long[size];
+            this.minSamples = minSamples;
+        }
+
+        synchronized void record(long latencyNanos) {
+            samples[next] = latencyNanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * @param percentile Percentile between {@code 0} and {@code 1}.
+         * @return Latency percentile in nanos, {@code -1} when there are not enough samples yet.
+         */
+        long percentile(double percentile) {
+            long[] sorted;
+            synchronized (this) {
+                if (count < minSamples) {
+                    return -1;
+                }
+                sorted = Arrays.copyOf(samples, count);
+            }
+
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
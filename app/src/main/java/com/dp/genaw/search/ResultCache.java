@@ -0,0 +1,86 @@
+package com.dp.genaw.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of computed results, least recently used entries are evicted first.
+ * <p>
+ * Results are computed outside the lock - concurrent misses of the same key may compute the result more than once,
+ * which is fine for idempotent computations like queries of an immutable {@link RecipeSnapshot}.
+ *
+ * @param <K> Key type, e.g. query.
+ * @param <V> Result type.
+ */
+class ResultCache<K, V> {
+
+    private final int maxEntries;
+
+    // access-ordered map provides LRU iteration order, guarded by this
+    private final LinkedHashMap<K, V> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries Max number of cached results, {@code 0} disables caching.
+     */
+    ResultCache(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Max entries must not be negative: " + maxEntries);
+        }
+
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > ResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns cached result or computes and caches a new one.
+     *
+     * @param key     Key.
+     * @param compute Computes result of a key, must not return {@code null}.
+     * @return Result.
+     */
+    V get(K key, Function<K, V> compute) {
+        synchronized (this) {
+            var value = entries.get(key);
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+        }
+
+        misses.increment();
+        var value = compute.apply(key);
+        if (maxEntries > 0) {
+            synchronized (this) {
+                entries.put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,227 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+/**
+ * Model class representing data scanned from a single page either by streaming {@link HtmlScanner} or by a single DOM
+ * traversal - contains only elements relevant for data extraction, in document order.
+ *
+ * @param location    Page URL.
+ * @param bolds       Text of all {@code <b>} elements.
+ * @param images      URLs of all {@code <img src>} images.
+ * @param italicTexts Text nodes directly under {@code <i>} elements.
+ * @param tableLinks  Non-blank {@code <a href>} links under {@code <table>} elements.
+ */
+record ScannedPage(
+        String location,
+        List<String> bolds,
+        List<String> images,
+        List<String> italicTexts,
+        List<String> tableLinks) {
+
+    /**
+     * Result of {@link #scanPartial(String, Reader, int) partial scan}.
+     *
+     * @param page      Scanned page.
+     * @param truncated Whether the page was ruled out and the rest of its content was not read.
+     */
+    record Partial(ScannedPage page, boolean truncated) {}
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Scans page content with {@link HtmlScanner}.
+     *
+     * @param location Page URL.
+     * @param reader   Page content.
+     * @return Scanned page.
+     * @throws IOException When page content cannot be read.
+     */
+    static ScannedPage scan(String location, Reader reader) throws IOException {
+        var collector = new Collector();
+        HtmlScanner.scan(reader, collector);
+
+        return collector.toPage(location);
+    }
+
+    /**
+     * Scans recipe page content with {@link HtmlScanner} only until the first star rating rules the page out - all
+     * recipes of a page get the first star rating by {@link RecipeExtractor}, so a page with the first rating lower
+     * than {@code minStarRating} has no needed recipe. Other pages (including category pages) are read whole, so that
+     * no further recipe of a page with several recipes is lost.
+     *
+     * @param location      Page URL.
+     * @param reader        Page content, not read any further once the page is ruled out.
+     * @param minStarRating Recipes with lower star rating are not needed.
+     * @return Scanned page, possibly truncated.
+     * @throws IOException When page content cannot be read.
+     */
+    static Partial scanPartial(String location, Reader reader, int minStarRating) throws IOException {
+        var collector = new PartialCollector(minStarRating);
+        var truncated = HtmlScanner.scan(reader, collector);
+
+        return new Partial(collector.toPage(location), truncated);
+    }
+
+    /**
+     * Scans already parsed DOM in a single traversal, collecting the same elements as {@link HtmlScanner}.
+     *
+     * @param doc Document to scan.
+     * @return Scanned page.
+     */
+    static ScannedPage scan(Document doc) {
+        var visitor = new DocumentVisitor();
+        NodeTraversor.traverse(visitor, doc);
+
+        return visitor.toPage(doc.location());
+    }
+
+    /**
+     * @param location Page URL.
+     * @return Page without any elements, e.g. for pages which cannot be scanned.
+     */
+    static ScannedPage empty(String location) {
+        return new ScannedPage(location, List.of(), List.of(), List.of(), List.of());
+    }
+
+    /**
+     * Content fingerprint - 64-bit FNV-1a hash of all scanned elements (location excluded), so that markup changes
+     * irrelevant for data extraction (ads, scripts, styling) do not change the fingerprint.
+     *
+     * @return Page content fingerprint.
+     */
+    long fingerprint() {
+        var hash = FNV_OFFSET_BASIS;
+        for (var elements : List.of(bolds, images, italicTexts, tableLinks)) {
+            for (var element : elements) {
+                for (var i = 0; i < element.length(); i++) {
+                    hash = (hash ^ element.charAt(i)) * FNV_PRIME;
+                }
+                // element separator, so that e.g. ["ab"] and ["a", "b"] differ
+                hash = (hash ^ 0xFFFF) * FNV_PRIME;
+            }
+            // list separator
+            hash = (hash ^ 0xFFFE) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    private static class Collector implements HtmlScanner.Handler {
+
+        final List<String> bolds = new ArrayList<>();
+        final List<String> images = new ArrayList<>();
+        final List<String> italicTexts = new ArrayList<>();
+        final List<String> tableLinks = new ArrayList<>();
+
+        @Override
+        public void bold(String text) {
+            bolds.add(text);
+        }
+
+        @Override
+        public void image(String src) {
+            images.add(src);
+        }
+
+        @Override
+        public void italicText(String text) {
+            italicTexts.add(text);
+        }
+
+        @Override
+        public void tableLink(String href) {
+            tableLinks.add(href);
+        }
+
+        ScannedPage toPage(String location) {
+            return new ScannedPage(location, bolds, images, italicTexts, tableLinks);
+        }
+    }
+
+    /**
+     * Collector done as soon as the page is ruled out by its star rating, see
+     * {@link #scanPartial(String, Reader, int)}.
+     */
+    private static class PartialCollector extends Collector {
+
+        private final int minStarRating;
+
+        // first star rating, -1 until found
+        private int starRating = -1;
+
+        PartialCollector(int minStarRating) {
+            this.minStarRating = minStarRating;
+        }
+
+        @Override
+        public void image(String src) {
+            super.image(src);
+            if (starRating < 0 && RecipeExtractor.isStarRating(src) && Character.isDigit(src.charAt(0))) {
+                starRating = RecipeExtractor.starRating(src);
+            }
+        }
+
+        @Override
+        public boolean done() {
+            return starRating >= 0
+                    && starRating < minStarRating
+                    && tableLinks.isEmpty()
+                    && !bolds.isEmpty();
+        }
+    }
+
+    /**
+     * DOM counterpart of {@link HtmlScanner} - visits every node exactly once.
+     */
+    private static class DocumentVisitor extends Collector implements NodeVisitor {
+
+        private int tableDepth;
+
+        @Override
+        public void head(Node node, int depth) {
+            if (node instanceof Element element) {
+                switch (element.normalName()) {
+                    case "b" -> bold(element.text());
+                    case "img" -> {
+                        if (element.hasAttr("src")) {
+                            image(element.attr("src"));
+                        }
+                    }
+                    case "a" -> {
+                        var href = element.attr("href");
+                        if (tableDepth > 0 && !href.isBlank()) {
+                            tableLink(href);
+                        }
+                    }
+                    case "table" -> tableDepth++;
+                    default -> {
+                        // not relevant for extraction
+                    }
+                }
+            } else if (node instanceof TextNode textNode
+                    && node.parentNode() instanceof Element parent
+                    && parent.normalName().equals("i")) {
+                italicText(textNode.text());
+            }
+        }
+
+        @Override
+        public void tail(Node node, int depth) {
+            if (node instanceof Element element && element.normalName().equals("table")) {
+                tableDepth--;
+            }
+        }
+    }
+}
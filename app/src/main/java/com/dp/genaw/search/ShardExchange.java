@@ -0,0 +1,293 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File based URL exchange of a sharded crawl - crawl is run by N cooperating processes (shards), each URL is owned by
+ * a single shard chosen by a stable hash of the URL (see {@link #shardOf(String, int)}), so every page is fetched by
+ * exactly one shard. Links owned by other shards are handed over to them through files in a shared exchange directory
+ * (local or network file system), so shards may run on one machine or on several.
+ * <p>
+ * Exchange directory layout:
+ * <ul>
+ *     <li>{@code shard-<j>/from-<i>.links} - URLs sent by shard {@code i} to shard {@code j}, one per line, appended by
+ *     the sender only and read incrementally by the receiver (incomplete last line is left for the next read),</li>
+ *     <li>{@code status-<i>} - whether shard {@code i} is idle and its counters of sent and received URLs, replaced
+ *     atomically,</li>
+ *     <li>{@code result-<i>.idx} - partial result of shard {@code i}, see {@link #merge(Path, int, TopRecipes)}.</li>
+ * </ul>
+ * Crawl is finished when all shards are idle, every sent URL was received and two consecutive status reads are
+ * identical (counters only grow, so nothing was in flight between the reads). Each crawl needs an empty exchange
+ * directory.
+ */
+class ShardExchange {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardExchange.class);
+
+    private static final String LINKS_SUFFIX = ".links";
+
+    private final Path directory;
+    private final int shard;
+    private final int shards;
+
+    // URLs already sent, receiving shard deduplicates too but there is no point in sending them again
+    private final Set<String> sentUrls = new HashSet<>();
+    // [shard] - URLs waiting for the next flush
+    private final StringBuilder[] outboxes;
+    // [shard] - URLs sent to and received from each shard
+    private final long[] sent;
+    private final long[] received;
+    // read offset of each inbox file
+    private final Map<Path, Long> readOffsets = new HashMap<>();
+
+    private String lastStatuses;
+
+    /**
+     * @param directory Exchange directory shared by all shards, created when it does not exist.
+     * @param shard     This shard, {@code 0 <= shard < shards}.
+     * @param shards    Number of shards.
+     */
+    ShardExchange(Path directory, int shard, int shards) throws IOException {
+        if (shards < 1 || shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("Invalid shard %d of %d shards".formatted(shard, shards));
+        }
+
+        this.directory = directory;
+        this.shard = shard;
+        this.shards = shards;
+        this.outboxes = new StringBuilder[shards];
+        for (var i = 0; i < shards; i++) {
+            outboxes[i] = new StringBuilder();
+        }
+        this.sent = new long[shards];
+        this.received = new long[shards];
+
+        Files.createDirectories(inbox(shard));
+    }
+
+    /**
+     * Stable URL to shard assignment - the same in every process and on every machine.
+     *
+     * @param url    Normalized absolute URL, compared case-insensitively same as by {@link VisitedUrls}.
+     * @param shards Number of shards.
+     * @return Shard owning the URL.
+     */
+    static int shardOf(String url, int shards) {
+        var crc = new CRC32();
+        crc.update(url.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shards);
+    }
+
+    /**
+     * @param directory Exchange directory.
+     * @param shard     Shard.
+     * @return Partial result file of given shard.
+     */
+    static Path resultFile(Path directory, int shard) {
+        return directory.resolve("result-%d.idx".formatted(shard));
+    }
+
+    /**
+     * Merges partial top recipes of all shards - top K of all recipes equals top K of partial top K lists, so the
+     * result is the same as of a single process crawl.
+     *
+     * @param directory  Exchange directory.
+     * @param shards     Number of shards.
+     * @param topRecipes Aggregator with the same filter and order as used by shards.
+     * @return Merged top recipes, the best recipe first.
+     * @throws IOException When result of any shard is missing.
+     */
+    static List<Recipe> merge(Path directory, int shards, TopRecipes topRecipes) throws IOException {
+        for (var i = 0; i < shards; i++) {
+            var file = resultFile(directory, i);
+            if (!Files.exists(file)) {
+                throw new IOException("Missing result of shard %d: %s".formatted(i, file));
+            }
+            RecipeIndex.open(file).recipes().forEach(topRecipes);
+        }
+
+        return topRecipes.result();
+    }
+
+    int shard() {
+        return shard;
+    }
+
+    int shards() {
+        return shards;
+    }
+
+    boolean owns(String url) {
+        return shardOf(url, shards) == shard;
+    }
+
+    /**
+     * Queues URL for its owner shard, URLs are written by the next {@link #flush()}.
+     *
+     * @param url Normalized absolute URL owned by another shard.
+     */
+    synchronized void send(String url) {
+        if (sentUrls.add(url.toLowerCase(Locale.ROOT))) {
+            outboxes[shardOf(url, shards)].append(url).append('\n');
+        }
+    }
+
+    /**
+     * Writes all queued URLs to their owner shards.
+     */
+    synchronized void flush() throws IOException {
+        for (var i = 0; i < shards; i++) {
+            var outbox = outboxes[i];
+            if (outbox.isEmpty()) {
+                continue;
+            }
+
+            Files.writeString(inbox(i).resolve("from-%d%s".formatted(shard, LINKS_SUFFIX)), outbox,
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            sent[i] += outbox.chars().filter(c -> c == '\n').count();
+            outbox.setLength(0);
+        }
+    }
+
+    /**
+     * Reads URLs sent by other shards since the last call.
+     *
+     * @return Received URLs.
+     */
+    synchronized List<String> receive() throws IOException {
+        var urls = new ArrayList<String>();
+        try (var files = Files.newDirectoryStream(inbox(shard), "from-*" + LINKS_SUFFIX)) {
+            for (var file : files) {
+                var name = file.getFileName().toString();
+                var sender = Integer.parseInt(name.substring("from-".length(), name.length() - LINKS_SUFFIX.length()));
+                var lines = readLines(file);
+                received[sender] += lines.size();
+                urls.addAll(lines);
+            }
+        }
+
+        return urls;
+    }
+
+    /**
+     * Publishes status of this shard, sent URLs must be {@link #flush() flushed} first.
+     *
+     * @param idle Whether this shard has no more work.
+     */
+    synchronized void publishStatus(boolean idle) throws IOException {
+        var status = "%b%n%s%n%s%n".formatted(idle, join(sent), join(received));
+        var file = statusFile(shard);
+        var tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tempFile, status, StandardCharsets.UTF_8);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return {@code true} when all shards are idle, all sent URLs were received and nothing changed since the
+     * previous call.
+     */
+    synchronized boolean terminated() throws IOException {
+        var statuses = new StringBuilder();
+        var sentTo = new long[shards][];
+        var receivedFrom = new long[shards][];
+        for (var i = 0; i < shards; i++) {
+            var file = statusFile(i);
+            if (!Files.exists(file)) {
+                lastStatuses = null;
+                return false;
+            }
+
+            var status = Files.readString(file, StandardCharsets.UTF_8);
+            statuses.append(status);
+            var lines = status.split("\n");
+            if (!Boolean.parseBoolean(lines[0].trim())) {
+                lastStatuses = null;
+                return false;
+            }
+            sentTo[i] = parse(lines[1]);
+            receivedFrom[i] = parse(lines[2]);
+        }
+
+        for (var i = 0; i < shards; i++) {
+            for (var j = 0; j < shards; j++) {
+                if (sentTo[i][j] != receivedFrom[j][i]) {
+                    lastStatuses = null;
+                    return false;
+                }
+            }
+        }
+
+        var stable = statuses.toString().equals(lastStatuses);
+        lastStatuses = statuses.toString();
+        if (stable) {
+            logger.info("All {} shards finished", shards);
+        }
+        return stable;
+    }
+
+    private Path inbox(int shard) {
+        return directory.resolve("shard-%d".formatted(shard));
+    }
+
+    private Path statusFile(int shard) {
+        return directory.resolve("status-%d".formatted(shard));
+    }
+
+    /**
+     * Reads complete lines appended to the file since the last read.
+     */
+    private List<String> readLines(Path file) throws IOException {
+        var offset = readOffsets.getOrDefault(file, 0L);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size <= offset) {
+                return List.of();
+            }
+
+            var buffer = ByteBuffer.allocate(Math.toIntExact(size - offset));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+
+            var bytes = buffer.array();
+            var end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;
+            }
+            readOffsets.put(file, offset + end);
+
+            return end == 0
+                    ? List.of()
+                    : List.of(new String(bytes, 0, end - 1, StandardCharsets.UTF_8).split("\n"));
+        }
+    }
+
+    private static String join(long[] counters) {
+        return String.join(",", Arrays.stream(counters).mapToObj(Long::toString).toList());
+    }
+
+    private static long[] parse(String counters) {
+        return Arrays.stream(counters.trim().split(",")).mapToLong(Long::parseLong).toArray();
+    }
+}
@@ -0,0 +1,75 @@
+package com.dp.genaw.search;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CrawlExecutor} running every branch (and so every page fetch) on its own thread.
+ * <p>
+ * Virtual threads are used when the running JVM supports them (Java 21+), otherwise a cached pool of platform threads
+ * is used. Either way a blocked fetch does not take capacity from other branches, so crawl throughput is driven by
+ * network latency and {@code maxInFlight} limit rather than by the number of CPU cores.
+ */
+class ThreadPerFetchCrawlExecutor extends CrawlExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadPerFetchCrawlExecutor.class);
+
+    static final String NAME = "thread-per-fetch";
+
+    private final ExecutorService executor;
+
+    ThreadPerFetchCrawlExecutor(int maxInFlight) {
+        super(maxInFlight);
+        this.executor = newThreadPerTaskExecutor(Executors.defaultThreadFactory());
+    }
+
+    @Override
+    void forkAll(List<String> links, Consumer<String> branch) {
+        var branches = links.stream()
+                .map(link -> executor.submit(() -> branch.accept(link)))
+                .toList();
+
+        branches.forEach(ThreadPerFetchCrawlExecutor::join);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static void join(Future<?> branch) {
+        try {
+            branch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Crawl interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Crawl branch failed", e.getCause());
+        }
+    }
+
+    /**
+     * Creates executor running each task on a new virtual thread, or on a cached platform thread when virtual threads
+     * are not available.
+     *
+     * @param platformThreadFactory Factory of platform threads for JVMs without virtual threads.
+     */
+    static ExecutorService newThreadPerTaskExecutor(ThreadFactory platformThreadFactory) {
+        // looked up reflectively - project is compiled for Java 17 where virtual threads do not exist
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not available, falling back to platform thread per fetch");
+            return Executors.newCachedThreadPool(platformThreadFactory);
+        }
+    }
+}
@@ -1,13 +1,24 @@
 package com.dp.genaw.search;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.util.Comparator;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,22 +26,113 @@ import org.slf4j.LoggerFactory;
  * Main {@link Recipe recipe} search class implementing traversal of all Genaw Low-Carb sections and sub-sections to
  * detect all recipes.
  * <p>
- * Traversal runs in parallel and is using standard {@code ForkJoinPool.common} thread pool which by default has one
- * thread less than machine's vCPU cores. Parallelism can be overridden by adjusting system property {@code java.util
- * .concurrent.ForkJoinPool.common.parallelism}.
+ * Traversal runs in parallel, sub-page branches and page fetches are scheduled by a {@link CrawlExecutor}. By default
+ * standard {@code ForkJoinPool.common} thread pool is used which by default has one thread less than machine's vCPU
+ * cores. Parallelism can be overridden by adjusting system property {@code java.util
+ * .concurrent.ForkJoinPool.common.parallelism} or by using {@link ThreadPerFetchCrawlExecutor} instead.
  */
 public class TopRecipeSearch {
 
     private static final Logger logger = LoggerFactory.getLogger(TopRecipeSearch.class);
 
-    private final TableLinkExtractor tableLinkExtractor;
-    private final RecipeExtractor recipeExtractor;
+    private final PageExtractor pageExtractor;
+    private final CrawlExecutor crawlExecutor;
+    private final PageFetcher pageFetcher;
+    private final ParseMode parseMode;
+    private final int minStarRating;
+    private final CrawlMetrics metrics;
 
     private final AtomicInteger loadedPages = new AtomicInteger(0);
 
+    /**
+     * Page handed over from fetch to parse stage of a pipelined crawl.
+     */
+    private record PipelinedPage(FetchedPage page, PageCrawlEvent event) {}
+
+    /**
+     * Page fetched and scanned at once in {@link ParseMode#PARTIAL partial} parse mode.
+     *
+     * @param page       Scanned page.
+     * @param statusCode HTTP status code.
+     * @param bytes      Number of body bytes read.
+     * @param truncated  Whether the rest of the body was not read.
+     */
+    private record PartialPage(ScannedPage page, int statusCode, long bytes, boolean truncated) {}
+
+    /**
+     * Single crawl of {@link #extractRecipes(Traversal, String)}.
+     *
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param visitedUrls Pages already visited by this crawl.
+     * @param sink        Receiver of found recipes, called concurrently.
+     * @param checkpoint  Receiver of crawl progress, {@code null} when crawl is not resumable.
+     * @param exchange    URL exchange with other shards, {@code null} when crawl is not sharded.
+     * @param graph       Site link graph of previous crawls, {@code null} when not used.
+     */
+    private record Traversal(
+            String rootUrl,
+            VisitedUrls visitedUrls,
+            Consumer<Recipe> sink,
+            CrawlCheckpoint checkpoint,
+            ShardExchange exchange,
+            LinkGraph graph) {}
+
     TopRecipeSearch(TableLinkExtractor tableLinkExtractor, RecipeExtractor recipeExtractor) {
-        this.tableLinkExtractor = tableLinkExtractor;
-        this.recipeExtractor = recipeExtractor;
+        this(tableLinkExtractor, recipeExtractor, new CommonPoolCrawlExecutor());
+    }
+
+    TopRecipeSearch(
+            TableLinkExtractor tableLinkExtractor,
+            RecipeExtractor recipeExtractor,
+            CrawlExecutor crawlExecutor) {
+        this(tableLinkExtractor, recipeExtractor, crawlExecutor, new JsoupPageFetcher());
+    }
+
+    TopRecipeSearch(
+            TableLinkExtractor tableLinkExtractor,
+            RecipeExtractor recipeExtractor,
+            CrawlExecutor crawlExecutor,
+            PageFetcher pageFetcher) {
+        this(tableLinkExtractor, recipeExtractor, crawlExecutor, pageFetcher, ParseMode.DOM);
+    }
+
+    TopRecipeSearch(
+            TableLinkExtractor tableLinkExtractor,
+            RecipeExtractor recipeExtractor,
+            CrawlExecutor crawlExecutor,
+            PageFetcher pageFetcher,
+            ParseMode parseMode) {
+        this(tableLinkExtractor, recipeExtractor, crawlExecutor, pageFetcher, parseMode, new CrawlMetrics());
+    }
+
+    TopRecipeSearch(
+            TableLinkExtractor tableLinkExtractor,
+            RecipeExtractor recipeExtractor,
+            CrawlExecutor crawlExecutor,
+            PageFetcher pageFetcher,
+            ParseMode parseMode,
+            CrawlMetrics metrics) {
+        this(tableLinkExtractor, recipeExtractor, crawlExecutor, pageFetcher, parseMode, 0, metrics);
+    }
+
+    /**
+     * @param minStarRating Recipes with lower star rating are not needed, their pages are not read any further in
+     *                      {@link ParseMode#PARTIAL partial} parse mode.
+     */
+    TopRecipeSearch(
+            TableLinkExtractor tableLinkExtractor,
+            RecipeExtractor recipeExtractor,
+            CrawlExecutor crawlExecutor,
+            PageFetcher pageFetcher,
+            ParseMode parseMode,
+            int minStarRating,
+            CrawlMetrics metrics) {
+        this.pageExtractor = new PageExtractor(tableLinkExtractor, recipeExtractor, metrics);
+        this.crawlExecutor = crawlExecutor;
+        this.pageFetcher = pageFetcher;
+        this.parseMode = parseMode;
+        this.minStarRating = minStarRating;
+        this.metrics = metrics;
     }
 
     /**
@@ -41,59 +143,630 @@ public class TopRecipeSearch {
      * @return Optional top recipe by given criteria, {@code Optional.empty} when no recipe is found.
      */
     public Optional<Recipe> findTopRecipe(String rootUrl, String rootSection) {
+        return findTopRecipes(rootUrl, rootSection, new TopRecipes(1)).stream()
+                .findFirst();
+    }
+
+    /**
+     * Genaw top recipes search method, recipes are streamed into {@code topRecipes} aggregator while traversing - no
+     * list of all site recipes is ever built.
+     *
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}).
+     * @param topRecipes  Aggregator defining recipe filter, order and number of top recipes.
+     * @return Top recipes by given criteria, the best recipe first.
+     */
+    List<Recipe> findTopRecipes(String rootUrl, String rootSection, TopRecipes topRecipes) {
+        crawl(rootUrl, rootSection, topRecipes);
+        return topRecipes.result();
+    }
+
+    /**
+     * Traverses whole site and passes every found recipe to {@code sink}.
+     *
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}).
+     * @param sink        Receiver of found recipes, called concurrently.
+     */
+    void crawl(String rootUrl, String rootSection, Consumer<Recipe> sink) {
         logger.info("Starting top recipe search");
 
-        var topRecipe = extractRecipes(rootUrl, rootSection).stream()
-                .filter(recipe -> recipe.starRating() == 5)
-                .max(Comparator.comparing(Recipe::proteinToNetCarb));
+        var visitedUrls = new VisitedUrls();
+        extractRecipes(new Traversal(rootUrl, visitedUrls, sink, null, null, null), rootSection);
 
-        logger.info("Finished, number of loaded pages: {}", loadedPages.get());
+        logger.info("Finished, number of loaded pages: {}, deduplicated fetches: {}",
+                loadedPages.get(), visitedUrls.deduplicated());
+    }
 
-        return topRecipe;
+    /**
+     * Resumable variant of {@link #crawl(String, String, Consumer)} - discovered and completed pages and extracted
+     * recipes are recorded to {@code checkpoint}. When the checkpoint holds progress of an interrupted crawl, its
+     * recipes are passed to {@code sink} and the crawl continues from its pending pages, completed pages are not
+     * fetched again.
+     *
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}), used when there is nothing to resume.
+     * @param sink        Receiver of found recipes, called concurrently.
+     * @param checkpoint  Crawl progress of this and previous crawls.
+     */
+    void crawl(String rootUrl, String rootSection, Consumer<Recipe> sink, CrawlCheckpoint checkpoint) {
+        var visitedUrls = new VisitedUrls();
+        List<String> pending;
+        if (checkpoint.resumed()) {
+            logger.info("Resuming top recipe search, {} pages completed, {} pages pending",
+                    checkpoint.completed().size(), checkpoint.pending().size());
+            checkpoint.recipes().forEach(sink);
+            checkpoint.completed().forEach(visitedUrls::markVisited);
+            pending = checkpoint.pending();
+        } else {
+            logger.info("Starting top recipe search");
+            pending = List.of(rootSection);
+        }
+
+        var traversal = new Traversal(rootUrl, visitedUrls, sink, checkpoint, null, null);
+        crawlExecutor.forkAll(pending, link -> extractRecipes(traversal, link));
+
+        logger.info("Finished, number of loaded pages: {}, deduplicated fetches: {}",
+                loadedPages.get(), visitedUrls.deduplicated());
     }
 
     /**
-     * Provides recursive traversal from given URL and returns all {@link Recipe recipes} under this root.
+     * Variant of {@link #crawl(String, String, Consumer)} guided by site link graph of previous crawls - links of
+     * categories checked within recheck interval of the graph are taken from the graph without fetching the category
+     * page, so only recipe pages are fetched and all of them in parallel, crawl latency does not depend on category
+     * depth. Other categories are loaded (and updated in the graph) as by a regular crawl, so the first crawl with an
+     * empty graph is a full crawl. Pages not reachable anymore are removed from the graph.
      *
-     * @param rootUrl  Root URL for all relative links/pages to traverse.
-     * @param rootLink Root link for traversal, relative to {@code rootUrl}.
-     * @return List or recipes under given root URL.
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}).
+     * @param sink        Receiver of found recipes, called concurrently.
+     * @param graph       Site link graph, updated by this crawl.
      */
-    private List<Recipe> extractRecipes(String rootUrl, String rootLink) {
+    void crawlGraph(String rootUrl, String rootSection, Consumer<Recipe> sink, LinkGraph graph) {
+        logger.info("Starting top recipe search with link graph of {} pages", graph.size());
+
+        var visitedUrls = new VisitedUrls();
+        extractRecipes(new Traversal(rootUrl, visitedUrls, sink, null, null, graph), rootSection);
+        graph.retain(visitedUrls::isVisited);
+
+        logger.info("Finished, number of loaded pages: {}, link graph pages: {}", loadedPages.get(), graph.size());
+    }
+
+    /**
+     * Sharded variant of {@link #crawl(String, String, Consumer)} - crawl is run by several cooperating processes, this
+     * process crawls only pages owned by its shard and hands links owned by other shards over to them through given
+     * {@link ShardExchange}. Returns when all shards are finished, {@code sink} receives recipes of this shard only.
+     *
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}), crawled by the shard owning it.
+     * @param sink        Receiver of found recipes, called concurrently.
+     * @param exchange    URL exchange of this shard.
+     * @param pollPeriod  Period of checking for URLs from other shards when this shard is idle.
+     */
+    void crawlSharded(
+            String rootUrl, String rootSection, Consumer<Recipe> sink, ShardExchange exchange, Duration pollPeriod)
+            throws IOException {
+        logger.info("Starting top recipe search as shard {} of {}", exchange.shard(), exchange.shards());
+
+        var visitedUrls = new VisitedUrls();
+        var traversal = new Traversal(rootUrl, visitedUrls, sink, null, exchange, null);
+        var batch = VisitedUrls.normalize(rootUrl, rootSection)
+                .filter(exchange::owns)
+                .map(List::of)
+                .orElse(List.of());
+        try {
+            while (true) {
+                crawlExecutor.forkAll(batch, link -> extractRecipes(traversal, link));
+                exchange.flush();
+
+                batch = exchange.receive();
+                if (batch.isEmpty()) {
+                    exchange.publishStatus(true);
+                    if (exchange.terminated()) {
+                        break;
+                    }
+                    Thread.sleep(pollPeriod.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Sharded crawl interrupted");
+        }
+
+        logger.info("Finished shard {}, number of loaded pages: {}, deduplicated fetches: {}",
+                exchange.shard(), loadedPages.get(), visitedUrls.deduplicated());
+    }
+
+    /**
+     * Asynchronous variant of {@link #crawl(String, String, Consumer)} - no thread waits for a page fetch or for
+     * sub-page branches, each page is a chain of futures: {@link PageFetcher#fetchAsync(String, Map) fetch}, then
+     * parse and extraction on {@code ForkJoinPool.common}, then all sub-pages. With a non-blocking fetcher (see
+     * {@link HttpClientPageFetcher}) thousands of fetches may be in-flight on a handful of threads, in-flight fetches
+     * are not limited by the {@link CrawlExecutor}.
+     *
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}).
+     * @param sink        Receiver of found recipes, called concurrently.
+     */
+    void crawlAsync(String rootUrl, String rootSection, Consumer<Recipe> sink) {
+        logger.info("Starting asynchronous top recipe search");
+
+        var visitedUrls = new VisitedUrls();
+        extractRecipesAsync(rootUrl, rootSection, visitedUrls, sink).join();
+
+        logger.info("Finished, number of loaded pages: {}, deduplicated fetches: {}",
+                loadedPages.get(), visitedUrls.deduplicated());
+    }
+
+    /**
+     * Staged variant of {@link #crawl(String, String, Consumer)} - pages are fetched by fetch workers and scanned and
+     * extracted by parse workers of given {@link CrawlPipeline}, the {@link CrawlExecutor} is not used.
+     *
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}).
+     * @param sink        Receiver of found recipes, called concurrently.
+     * @param pipeline    Pipeline running the crawl.
+     * @throws InterruptedIOException When the crawl is interrupted before all pages are processed.
+     */
+    void crawlPipelined(String rootUrl, String rootSection, Consumer<Recipe> sink, CrawlPipeline pipeline)
+            throws InterruptedIOException {
+        logger.info("Starting pipelined top recipe search");
+
+        var visitedUrls = new VisitedUrls();
+        var seedUrl = VisitedUrls.normalize(rootUrl, rootSection).filter(visitedUrls::markVisited);
+        if (seedUrl.isPresent()) {
+            pipeline.run(seedUrl.get(), this::fetchPage, page -> parsePage(page, rootUrl, visitedUrls, sink));
+        }
+
+        logger.info("Finished, number of loaded pages: {}, deduplicated fetches: {}",
+                loadedPages.get(), visitedUrls.deduplicated());
+    }
+
+    /**
+     * Provides recursive traversal from given URL and passes all {@link Recipe recipes} under this root to
+     * {@code sink} of the traversal. Each page is visited at most once per crawl, pages already present in visited URLs
+     * of the traversal are skipped.
+     *
+     * @param traversal Crawl being run.
+     * @param rootLink  Root link for traversal, relative to root URL of the traversal.
+     */
+    private void extractRecipes(Traversal traversal, String rootLink) {
         // traverse multiple level category pages with recipe pages as leaf nodes
-        return loadDocument(rootUrl + rootLink)
-                .map(document -> {
-                    if (loadedPages.get() % 50 == 0) {
-                        logger.info("Already visited {} pages and running", loadedPages.get());
+        VisitedUrls.normalize(traversal.rootUrl(), rootLink)
+                // skip pages linked from multiple categories and break link cycles
+                .filter(traversal.visitedUrls()::markVisited)
+                .ifPresent(url -> {
+                    var graph = traversal.graph();
+                    var freshLinks = graph == null ? Optional.<List<String>>empty() : graph.freshLinks(url);
+                    if (freshLinks.isPresent()) {
+                        // category checked recently - links are taken from the graph, page is not fetched
+                        crawlExecutor.forkAll(freshLinks.get(), link -> extractRecipes(traversal, link));
+                        return;
                     }
 
-                    // document is either a page with links to sub-pages (links to sub-category pages or recipe pages)
-                    // or a standalone recipe page
-                    var links = tableLinkExtractor.extractFromDocument(document);
+                    crawlExecutor.fetch(() -> loadPage(url)).ifPresentOrElse(
+                            page -> extractRecipes(traversal, url, page),
+                            // no data to process when page cannot be loaded, known category links are still followed
+                            () -> Optional.ofNullable(graph)
+                                    .flatMap(knownGraph -> knownGraph.links(url))
+                                    .ifPresent(links -> crawlExecutor.forkAll(
+                                            links, link -> extractRecipes(traversal, link))));
+                });
+    }
 
-                    if (links.isEmpty()) {
-                        // no links to sub-pages -> recipe page
-                        return recipeExtractor.extractFromDocument(document);
+    private void extractRecipes(Traversal traversal, String url, ScannedPage page) {
+        if (loadedPages.get() % 50 == 0) {
+            logger.info("Already visited {} pages and running", loadedPages.get());
+        }
+
+        // single page scan decides whether page is a category or a recipe page
+        var content = pageExtractor.extractFromPage(page);
+        var checkpoint = traversal.checkpoint();
+        var exchange = traversal.exchange();
+        var graph = traversal.graph();
+
+        if (content.isCategory()) {
+            var links = content.links();
+            if (checkpoint != null || exchange != null || graph != null) {
+                links = links.stream()
+                        .flatMap(link -> VisitedUrls.normalize(traversal.rootUrl(), link).stream())
+                        .toList();
+            }
+            if (graph != null) {
+                graph.category(url, links);
+            }
+            if (exchange != null) {
+                // links owned by other shards are handed over to them
+                var ownLinks = new ArrayList<String>(links.size());
+                for (var link : links) {
+                    if (exchange.owns(link)) {
+                        ownLinks.add(link);
                     } else {
-                        // process links to sub-pages
-                        return links.stream()
-                                .parallel()
-                                .flatMap(link -> extractRecipes(rootUrl, link).stream())
-                                .toList();
+                        exchange.send(link);
                     }
-                })
-                // no data to process when document cannot be loaded
-                .orElse(List.of());
+                }
+                links = ownLinks;
+            }
+            if (checkpoint != null) {
+                // links are recorded before the page, so that completed page is never missing its sub-pages on resume
+                checkpoint.pending(links);
+                checkpoint.completed(url, List.of());
+            }
+
+            // process links to sub-pages
+            crawlExecutor.forkAll(links, link -> extractRecipes(traversal, link));
+        } else {
+            content.recipes().forEach(traversal.sink());
+            if (checkpoint != null) {
+                checkpoint.completed(url, content.recipes());
+            }
+            if (graph != null) {
+                graph.recipe(url);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> extractRecipesAsync(
+            String rootUrl, String rootLink, VisitedUrls visitedUrls, Consumer<Recipe> sink) {
+        var url = VisitedUrls.normalize(rootUrl, rootLink)
+                .filter(visitedUrls::markVisited);
+        if (url.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return loadPageAsync(url.get()).thenCompose(page -> {
+            if (page.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (loadedPages.get() % 50 == 0) {
+                logger.info("Already visited {} pages and running", loadedPages.get());
+            }
+
+            var content = pageExtractor.extractFromPage(page.get());
+            if (content.isCategory()) {
+                return CompletableFuture.allOf(content.links().stream()
+                        .map(link -> extractRecipesAsync(rootUrl, link, visitedUrls, sink))
+                        .toArray(CompletableFuture[]::new));
+            }
+
+            content.recipes().forEach(sink);
+            return CompletableFuture.completedFuture(null);
+        });
     }
 
-    // visible for testing
-    Optional<Document> loadDocument(String url) {
+    /**
+     * Incremental recrawl - traverses the site again starting from {@code previous} crawl state and returns changed
+     * pages only. Category pages are visited first (a page's links are known only after the page is loaded) to find
+     * added and removed links, every known page is re-fetched by a conditional request so that unchanged pages are
+     * answered by {@code 304 Not Modified} without any body. Page is reported as changed only when its content
+     * fingerprint differs, so e.g. changed ads or styling do not produce updates.
+     * <p>
+     * Pages which cannot be loaded keep their previous state (temporary errors do not produce tombstones), known pages
+     * not reachable anymore are tombstoned.
+     *
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}).
+     * @param previous    State of the previous crawl, not modified by this method, see
+     *                    {@link CrawlState#apply(List)}.
+     * @return Inserted, updated and tombstoned pages.
+     */
+    List<CrawlState.Delta> recrawl(String rootUrl, String rootSection, CrawlState previous) {
+        logger.info("Starting incremental recrawl of {} known pages", previous.size());
+
+        var visitedUrls = new VisitedUrls();
+        var deltas = new ConcurrentLinkedQueue<CrawlState.Delta>();
+        recrawlPages(rootUrl, rootSection, previous, visitedUrls, deltas::add);
+
+        previous.pages().stream()
+                .filter(page -> !visitedUrls.isVisited(page.url()))
+                .forEach(page -> deltas.add(new CrawlState.Delta(CrawlState.Delta.Type.TOMBSTONE, page)));
+
+        logger.info("Finished recrawl, number of loaded pages: {}, changed pages: {}",
+                loadedPages.get(), deltas.size());
+
+        return List.copyOf(deltas);
+    }
+
+    private void recrawlPages(
+            String rootUrl,
+            String rootLink,
+            CrawlState previous,
+            VisitedUrls visitedUrls,
+            Consumer<CrawlState.Delta> deltas) {
+
+        VisitedUrls.normalize(rootUrl, rootLink)
+                .filter(visitedUrls::markVisited)
+                .ifPresent(url -> {
+                    var known = previous.page(url);
+                    var current = crawlExecutor.fetch(() -> reloadPage(url, known.orElse(null)))
+                            // page cannot be loaded now - keep its previous state
+                            .or(() -> known);
+
+                    current.ifPresent(page -> {
+                        if (known.isEmpty()) {
+                            deltas.accept(new CrawlState.Delta(CrawlState.Delta.Type.INSERT, page));
+                        } else if (page.category() != known.get().category()
+                                || page.fingerprint() != known.get().fingerprint()) {
+                            deltas.accept(new CrawlState.Delta(CrawlState.Delta.Type.UPDATE, page));
+                        }
+
+                        if (page.category()) {
+                            crawlExecutor.forkAll(
+                                    page.links(), link -> recrawlPages(rootUrl, link, previous, visitedUrls, deltas));
+                        }
+                    });
+                });
+    }
+
+    /**
+     * @return Telemetry of crawls run by this search.
+     */
+    CrawlMetrics metrics() {
+        return metrics;
+    }
+
+    // visible for testing - fetches and scans a single page in configured parse mode
+    Optional<ScannedPage> loadPage(String url) {
+        var event = newPageCrawlEvent(url);
         try {
             loadedPages.incrementAndGet();
-            return Optional.of(Jsoup.connect(url).get());
+            return Optional.of(parseMode == ParseMode.PARTIAL
+                    ? fetchPartially(url, event)
+                    : scan(fetch(url, Map.of(), event), event));
         } catch (IOException e) {
             logger.error("Cannot load %s, skipping document".formatted(url), e);
+            event.failure = e.toString();
             return Optional.empty();
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Fetch stage of a pipelined crawl, page crawl event is committed by the parse stage.
+     */
+    private Optional<PipelinedPage> fetchPage(String url) {
+        var event = newPageCrawlEvent(url);
+        try {
+            loadedPages.incrementAndGet();
+            return Optional.of(new PipelinedPage(fetch(url, Map.of(), event), event));
+        } catch (IOException e) {
+            logger.error("Cannot load %s, skipping document".formatted(url), e);
+            event.failure = e.toString();
+            event.commit();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Parse stage of a pipelined crawl - scans and extracts the page, passes recipes to {@code sink}.
+     *
+     * @return Not yet visited links of a category page.
+     */
+    private List<String> parsePage(
+            PipelinedPage page, String rootUrl, VisitedUrls visitedUrls, Consumer<Recipe> sink) {
+        try {
+            if (loadedPages.get() % 50 == 0) {
+                logger.info("Already visited {} pages and running", loadedPages.get());
+            }
+
+            var content = pageExtractor.extractFromPage(scan(page.page(), page.event()));
+            if (content.isCategory()) {
+                return content.links().stream()
+                        .flatMap(link -> VisitedUrls.normalize(rootUrl, link).stream())
+                        .filter(visitedUrls::markVisited)
+                        .toList();
+            }
+
+            content.recipes().forEach(sink);
+            return List.of();
+        } catch (IOException e) {
+            logger.error("Cannot load %s, skipping document".formatted(page.page().url()), e);
+            page.event().failure = e.toString();
+            return List.of();
+        } finally {
+            page.event().commit();
+        }
+    }
+
+    /**
+     * Fetches a page asynchronously and scans it on {@code ForkJoinPool.common}.
+     *
+     * @return Future of the scanned page, {@code Optional.empty} when page cannot be loaded - the future never fails.
+     */
+    private CompletableFuture<Optional<ScannedPage>> loadPageAsync(String url) {
+        var event = newPageCrawlEvent(url);
+        loadedPages.incrementAndGet();
+        metrics.fetching();
+        var start = System.nanoTime();
+
+        CompletableFuture<FetchedPage> page;
+        try {
+            page = pageFetcher.fetchAsync(url, Map.of());
+        } catch (RuntimeException e) {
+            page = CompletableFuture.failedFuture(e);
+        }
+
+        return page
+                .whenComplete((fetchedPage, failure) -> {
+                    if (failure == null) {
+                        fetched(fetchedPage, System.nanoTime() - start, event);
+                    } else {
+                        metrics.failed(PageFetcher.unwrap(failure));
+                    }
+                })
+                .thenApplyAsync(fetchedPage -> {
+                    try {
+                        return Optional.of(scan(fetchedPage, event));
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .exceptionally(failure -> {
+                    var cause = PageFetcher.unwrap(failure);
+                    logger.error("Cannot load %s, skipping document".formatted(url), cause);
+                    event.failure = cause.toString();
+                    return Optional.empty();
+                })
+                .whenComplete((scannedPage, failure) -> event.commit());
+    }
+
+    /**
+     * Re-fetches a page, conditionally when the page is already known.
+     *
+     * @param url   Page URL.
+     * @param known Previous page state or {@code null} for new pages.
+     * @return Current page state ({@code known} when page was not modified), {@code Optional.empty} when page cannot
+     * be loaded.
+     */
+    private Optional<CrawlState.PageState> reloadPage(String url, CrawlState.PageState known) {
+        var event = newPageCrawlEvent(url);
+        try {
+            loadedPages.incrementAndGet();
+            var requestHeaders = known == null
+                    ? Map.<String, String>of()
+                    : FetchedPage.conditionalHeaders(known.etag(), known.lastModified());
+            var page = fetch(url, requestHeaders, event);
+            if (page.notModified() && known != null) {
+                return Optional.of(known);
+            }
+
+            var scannedPage = scan(page, event);
+            var content = pageExtractor.extractFromPage(scannedPage);
+            return Optional.of(new CrawlState.PageState(
+                    url,
+                    content.isCategory(),
+                    scannedPage.fingerprint(),
+                    page.header(FetchedPage.ETAG),
+                    page.header(FetchedPage.LAST_MODIFIED),
+                    content.links(),
+                    content.recipes()));
+        } catch (IOException e) {
+            logger.error("Cannot load %s, keeping previous state".formatted(url), e);
+            event.failure = e.toString();
+            return Optional.empty();
+        } finally {
+            event.commit();
+        }
+    }
+
+    private FetchedPage fetch(String url, Map<String, String> requestHeaders, PageCrawlEvent event)
+            throws IOException {
+        metrics.fetching();
+        var start = System.nanoTime();
+        FetchedPage page;
+        try {
+            page = pageFetcher.fetch(url, requestHeaders);
+        } catch (IOException | RuntimeException e) {
+            metrics.failed(e);
+            throw e;
+        }
+
+        fetched(page, System.nanoTime() - start, event);
+        return page;
+    }
+
+    /**
+     * Fetches and scans page at once, the body is read only until the scan has found what it needs. Parse time is part
+     * of the fetch time.
+     */
+    private ScannedPage fetchPartially(String url, PageCrawlEvent event) throws IOException {
+        metrics.fetching();
+        var start = System.nanoTime();
+        PartialPage page;
+        try {
+            page = pageFetcher.fetchStreaming(url, (fetchedPage, body) -> {
+                var countingBody = new CountingInputStream(body);
+                var bufferedBody = new BufferedInputStream(countingBody);
+                var charset = FetchedPage.detectCharset(fetchedPage.charset(), bufferedBody);
+                var partial = ScannedPage.scanPartial(
+                        url, new InputStreamReader(bufferedBody, charset), minStarRating);
+                // reader buffers ahead, the scan result tells whether the rest of the page was skipped
+                return new PartialPage(
+                        partial.page(), fetchedPage.statusCode(), countingBody.count(), partial.truncated());
+            });
+        } catch (IOException | RuntimeException e) {
+            metrics.failed(e);
+            throw e;
+        }
+
+        var nanos = System.nanoTime() - start;
+        metrics.fetched(nanos, (int) page.bytes());
+        if (page.truncated()) {
+            metrics.truncated();
+        }
+        event.fetchTime = nanos;
+        event.statusCode = page.statusCode();
+        event.bytes = page.bytes();
+        return page.page();
+    }
+
+    private void fetched(FetchedPage page, long nanos, PageCrawlEvent event) {
+        metrics.fetched(nanos, page.body().length);
+        event.fetchTime = nanos;
+        event.statusCode = page.statusCode();
+        event.bytes = page.body().length;
+    }
+
+    private ScannedPage scan(FetchedPage page, PageCrawlEvent event) throws IOException {
+        var start = System.nanoTime();
+        var scannedPage = scan(page);
+        var nanos = System.nanoTime() - start;
+        metrics.record(CrawlMetrics.Stage.PARSE, nanos);
+        event.parseTime = nanos;
+        return scannedPage;
+    }
+
+    private static PageCrawlEvent newPageCrawlEvent(String url) {
+        var event = new PageCrawlEvent();
+        event.url = url;
+        event.begin();
+        return event;
+    }
+
+    private ScannedPage scan(FetchedPage page) throws IOException {
+        var body = new ByteArrayInputStream(page.body());
+
+        return switch (parseMode) {
+            case DOM -> PageExtractor.scan(Jsoup.parse(body, page.charset(), page.url()));
+            // body is already fetched whole (e.g. by recrawl), partial mode scans it whole too - extracted recipes and
+            // fingerprint kept in crawl state must not depend on min star rating of the crawl
+            case STREAMING, PARTIAL -> ScannedPage.scan(
+                    page.url(), new InputStreamReader(body, page.detectCharset()));
+        };
+    }
+
+    /**
+     * Counts bytes read from the stream.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            var c = super.read();
+            if (c >= 0) {
+                count++;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        long count() {
+            return count;
         }
     }
 }
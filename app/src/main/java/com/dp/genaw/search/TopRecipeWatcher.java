@@ -0,0 +1,183 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Continuously refreshed top recipes - each {@link #cycle()} incrementally recrawls the site (see
+ * {@link TopRecipeSearch#recrawl(String, String, CrawlState)}) and compares new top recipes with the previous ones.
+ * Differences are written as change events, one JSON object per line:
+ * <ul>
+ *     <li>{@code enter} - recipe got into top recipes at {@code rank} (all recipes of the first cycle),</li>
+ *     <li>{@code leave} - recipe at {@code previousRank} is not in top recipes anymore,</li>
+ *     <li>{@code move} - recipe moved from {@code previousRank} to {@code rank},</li>
+ *     <li>{@code nutrition} - nutrition info or rating of a recipe at {@code rank} changed, previous values are in
+ *     {@code previousNutritionInfo} and {@code previousStarRating}.</li>
+ * </ul>
+ * Every event has {@code cycle} number, {@code time} and {@code recipe} (current recipe, previous one for
+ * {@code leave}) with the same fields as {@link RecipeServer} responses. Nothing is written when top recipes did not
+ * change.
+ * <p>
+ * Crawl state is kept in memory between cycles, so a steady-state cycle only revalidates known pages by conditional
+ * requests (over connections kept alive by the page fetcher) and parses changed pages only, top recipes are recomputed
+ * only when some page changed.
+ */
+class TopRecipeWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopRecipeWatcher.class);
+
+    /**
+     * Recipe identity - the same recipe variant of the same page across cycles.
+     */
+    private record RecipeKey(String name, String url, String variant) {
+
+        static RecipeKey of(Recipe recipe) {
+            return new RecipeKey(recipe.name(), recipe.url(), recipe.variant());
+        }
+    }
+
+    private final TopRecipeSearch search;
+    private final String rootUrl;
+    private final String rootSection;
+    private final CrawlState state;
+    private final int top;
+    private final Writer events;
+    private final Clock clock;
+
+    private int cycles;
+    private List<Recipe> topRecipes = List.of();
+
+    /**
+     * @param search      Search used for recrawls, keeps its page fetcher (and its connections) between cycles.
+     * @param rootUrl     Root URL for all relative links/pages to traverse.
+     * @param rootSection Search starting point (relative to {@code rootUrl}).
+     * @param state       Crawl state of a previous crawl, empty state for a full first crawl, updated by every cycle.
+     * @param top         Number of top recipes to watch.
+     * @param events      Output of change events, flushed after every cycle.
+     */
+    TopRecipeWatcher(
+            TopRecipeSearch search,
+            String rootUrl,
+            String rootSection,
+            CrawlState state,
+            int top,
+            Writer events) {
+
+        this(search, rootUrl, rootSection, state, top, events, Clock.systemUTC());
+    }
+
+    TopRecipeWatcher(
+            TopRecipeSearch search,
+            String rootUrl,
+            String rootSection,
+            CrawlState state,
+            int top,
+            Writer events,
+            Clock clock) {
+
+        this.search = search;
+        this.rootUrl = rootUrl;
+        this.rootSection = rootSection;
+        this.state = state;
+        this.top = top;
+        this.events = events;
+        this.clock = clock;
+    }
+
+    /**
+     * Recrawls the site and writes change events of top recipes.
+     *
+     * @return Number of written events.
+     */
+    int cycle() throws IOException {
+        cycles++;
+        var deltas = search.recrawl(rootUrl, rootSection, state);
+        state.apply(deltas);
+        if (deltas.isEmpty() && cycles > 1) {
+            logger.info("Watch cycle {}: no page changed", cycles);
+            return 0;
+        }
+
+        var topRecipes = new TopRecipes(top);
+        state.recipes().forEach(topRecipes);
+        var lines = changes(this.topRecipes, topRecipes.result());
+        this.topRecipes = topRecipes.result();
+
+        for (var line : lines) {
+            events.write(line);
+            events.write('\n');
+        }
+        events.flush();
+
+        logger.info("Watch cycle {}: {} changed pages, {} change events", cycles, deltas.size(), lines.size());
+        return lines.size();
+    }
+
+    /**
+     * @return Top recipes of the last cycle, the best recipe first.
+     */
+    List<Recipe> topRecipes() {
+        return topRecipes;
+    }
+
+    private List<String> changes(List<Recipe> previous, List<Recipe> current) {
+        var previousRanks = new HashMap<RecipeKey, Integer>();
+        for (var i = 0; i < previous.size(); i++) {
+            previousRanks.put(RecipeKey.of(previous.get(i)), i);
+        }
+        var currentKeys = current.stream().map(RecipeKey::of).toList();
+
+        var lines = new ArrayList<String>();
+        for (var i = 0; i < previous.size(); i++) {
+            if (!currentKeys.contains(RecipeKey.of(previous.get(i)))) {
+                lines.add(event("leave").append(",\"previousRank\":").append(i + 1)
+                        .append(recipe(previous.get(i))).toString());
+            }
+        }
+        for (var i = 0; i < current.size(); i++) {
+            var recipe = current.get(i);
+            var previousRank = previousRanks.get(currentKeys.get(i));
+            if (previousRank == null) {
+                lines.add(event("enter").append(",\"rank\":").append(i + 1).append(recipe(recipe)).toString());
+                continue;
+            }
+
+            if (previousRank != i) {
+                lines.add(event("move").append(",\"rank\":").append(i + 1)
+                        .append(",\"previousRank\":").append(previousRank + 1)
+                        .append(recipe(recipe)).toString());
+            }
+            var previousRecipe = previous.get(previousRank);
+            if (!previousRecipe.equals(recipe)) {
+                var json = event("nutrition").append(",\"rank\":").append(i + 1)
+                        .append(",\"previousNutritionInfo\":");
+                RecipeServer.appendString(json, previousRecipe.nutritionInfo());
+                json.append(",\"previousStarRating\":").append(previousRecipe.starRating());
+                lines.add(json.append(recipe(recipe)).toString());
+            }
+        }
+
+        return lines;
+    }
+
+    private StringBuilder event(String type) {
+        var json = new StringBuilder(512).append("{\"type\":\"").append(type)
+                .append("\",\"cycle\":").append(cycles)
+                .append(",\"time\":");
+        RecipeServer.appendString(json, clock.instant().toString());
+        return json;
+    }
+
+    private static String recipe(Recipe recipe) {
+        var json = new StringBuilder(",\"recipe\":");
+        RecipeServer.appendRecipe(json, recipe);
+        return json.append('}').toString();
+    }
+}
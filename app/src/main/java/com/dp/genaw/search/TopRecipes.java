@@ -0,0 +1,99 @@
+package com.dp.genaw.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent bounded top-K {@link Recipe recipe} aggregator - recipes are accepted one by one while the site is being
+ * traversed and only the best {@code limit} recipes are kept, so memory stays O(K) regardless of the site size.
+ * <p>
+ * Recipes are spread over several heaps (stripes) by the accepting thread, so concurrent crawl threads rarely contend
+ * for the same lock. Stripes are merged by {@link #result()} once traversal is finished.
+ */
+class TopRecipes implements Consumer<Recipe> {
+
+    /**
+     * Default recipe filter - 5-star recipes only.
+     */
+    static final Predicate<Recipe> FIVE_STAR = recipe -> recipe.starRating() == 5;
+    /**
+     * Default recipe order - higher Protein to Net Carb ratio is better.
+     */
+    static final Comparator<Recipe> BY_PROTEIN_TO_NET_CARB = Comparator.comparingDouble(Recipe::proteinToNetCarb);
+
+    private final int limit;
+    private final Predicate<Recipe> filter;
+    private final Comparator<Recipe> comparator;
+    // min-heaps by comparator - the worst kept recipe is on top, each stripe guarded by itself
+    private final List<PriorityQueue<Recipe>> stripes;
+
+    /**
+     * Top 5-star recipes by Protein to Net Carb ratio.
+     *
+     * @param limit Max number of recipes to keep.
+     */
+    TopRecipes(int limit) {
+        this(limit, FIVE_STAR, BY_PROTEIN_TO_NET_CARB);
+    }
+
+    /**
+     * @param limit      Max number of recipes to keep.
+     * @param filter     Recipes not matching the filter are ignored.
+     * @param comparator Recipe order, greater recipes are better.
+     */
+    TopRecipes(int limit, Predicate<Recipe> filter, Comparator<Recipe> comparator) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Top recipes limit must be positive: " + limit);
+        }
+
+        this.limit = limit;
+        this.filter = filter;
+        this.comparator = comparator;
+
+        var stripeCount = Runtime.getRuntime().availableProcessors();
+        this.stripes = new ArrayList<>(stripeCount);
+        for (var i = 0; i < stripeCount; i++) {
+            stripes.add(new PriorityQueue<>(limit + 1, comparator));
+        }
+    }
+
+    @Override
+    public void accept(Recipe recipe) {
+        if (!filter.test(recipe)) {
+            return;
+        }
+
+        var heap = stripes.get((int) Math.floorMod(Thread.currentThread().getId(), (long) stripes.size()));
+        synchronized (heap) {
+            if (heap.size() < limit) {
+                heap.add(recipe);
+            } else if (comparator.compare(recipe, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(recipe);
+            }
+        }
+    }
+
+    /**
+     * Merges all stripes.
+     *
+     * @return Top recipes, the best recipe first.
+     */
+    List<Recipe> result() {
+        var merged = new ArrayList<Recipe>(limit * stripes.size());
+        for (var heap : stripes) {
+            synchronized (heap) {
+                merged.addAll(heap);
+            }
+        }
+
+        return merged.stream()
+                .sorted(comparator.reversed())
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.dp.genaw.search;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread-safe set of URLs already visited by a single crawl.
+ * <p>
+ * URLs are compared by their normalized absolute form (see {@link #normalize(String, String)}) case-insensitively, so
+ * e.g. {@code recipe.html}, {@code ./recipe.html#top} and {@code RECIPE.html} relative to the same base URL are all
+ * considered to be a single page. This both avoids re-fetching pages linked from multiple categories and breaks
+ * link cycles.
+ */
+class VisitedUrls {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitedUrls.class);
+
+    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger deduplicated = new AtomicInteger(0);
+
+    /**
+     * Resolves {@code href} against {@code baseUrl} and normalizes the result - {@code ./} and {@code ../} segments
+     * are resolved, fragment is dropped, scheme and host are lower-cased and default port is removed.
+     *
+     * @param baseUrl Base URL for relative links.
+     * @param href    Absolute or relative link.
+     * @return Normalized absolute URL, {@code Optional.empty} when link is not a valid HTTP(S) URL.
+     */
+    static Optional<String> normalize(String baseUrl, String href) {
+        try {
+            var resolved = new URI(baseUrl).resolve(new URI(href.trim())).normalize();
+            var scheme = resolved.getScheme() == null ? "" : resolved.getScheme().toLowerCase(Locale.ROOT);
+            if (!scheme.equals("http") && !scheme.equals("https")) {
+                logger.debug("Skipping non-HTTP link {} on {}", href, baseUrl);
+                return Optional.empty();
+            }
+
+            var host = resolved.getHost() == null ? null : resolved.getHost().toLowerCase(Locale.ROOT);
+            var port = isDefaultPort(scheme, resolved.getPort()) ? -1 : resolved.getPort();
+            var path = resolved.getRawPath() == null || resolved.getRawPath().isEmpty() ? "/" : resolved.getRawPath();
+            var query = resolved.getRawQuery() == null ? "" : "?" + resolved.getRawQuery();
+
+            return Optional.of(
+                    new URI(scheme, null, host, port, null, null, null) + path + query);
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            logger.warn("Invalid link {} on {}, skipping", href, baseUrl);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Marks URL as visited.
+     *
+     * @param normalizedUrl URL in normalized form, see {@link #normalize(String, String)}.
+     * @return {@code true} when URL was not visited before by this crawl and should be fetched.
+     */
+    boolean markVisited(String normalizedUrl) {
+        var firstVisit = visited.add(normalizedUrl.toLowerCase(Locale.ROOT));
+        if (!firstVisit) {
+            deduplicated.incrementAndGet();
+        }
+
+        return firstVisit;
+    }
+
+    /**
+     * @param normalizedUrl URL in normalized form, see {@link #normalize(String, String)}.
+     * @return {@code true} when URL was already visited by this crawl.
+     */
+    boolean isVisited(String normalizedUrl) {
+        return visited.contains(normalizedUrl.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return Number of fetches skipped since URL was already visited.
+     */
+    int deduplicated() {
+        return deduplicated.get();
+    }
+
+    private static boolean isDefaultPort(String scheme, int port) {
+        return port == -1
+                || ("http".equals(scheme) && port == 80)
+                || ("https".equals(scheme) && port == 443);
+    }
+}
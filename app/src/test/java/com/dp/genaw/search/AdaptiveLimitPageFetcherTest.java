@@ -0,0 +1,167 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveLimitPageFetcherTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    void limitGrowsWhileLatencyIsFlat() throws InterruptedException {
+        var fixture = new AdaptiveLimitPageFetcher.HostLimit(4, 6, 2.0, 0.5);
+
+        for (var i = 0; i < 100; i++) {
+            fetchAll(fixture, fixture.limit(), MILLI);
+        }
+
+        // capped by max limit
+        assertThat(fixture.limit())
+                .isEqualTo(6);
+        assertThat(fixture.inFlight())
+                .isZero();
+    }
+
+    @Test
+    void limitHoldsWhenLatencyRises() throws InterruptedException {
+        var fixture = new AdaptiveLimitPageFetcher.HostLimit(4, 64, 2.0, 0.5);
+        fetchAll(fixture, 4, MILLI);
+        // smoothed latency catches up with the rise
+        fetchAll(fixture, fixture.limit(), 5 * MILLI);
+        var limit = fixture.limit();
+
+        for (var i = 0; i < 20; i++) {
+            fetchAll(fixture, fixture.limit(), 5 * MILLI);
+        }
+
+        assertThat(fixture.limit())
+                .isEqualTo(limit);
+    }
+
+    @Test
+    void limitDoesNotGrowWhenIdle() throws InterruptedException {
+        var fixture = new AdaptiveLimitPageFetcher.HostLimit(4, 64, 2.0, 0.5);
+
+        // single fetch at a time never uses the limit
+        for (var i = 0; i < 100; i++) {
+            fetchAll(fixture, 1, MILLI);
+        }
+
+        assertThat(fixture.limit())
+                .isEqualTo(4);
+    }
+
+    @Test
+    void limitIsCutOncePerRound() throws InterruptedException {
+        var fixture = new AdaptiveLimitPageFetcher.HostLimit(8, 64, 2.0, 0.5);
+
+        var rounds = new ArrayList<Long>();
+        for (var i = 0; i < 8; i++) {
+            rounds.add(fixture.acquire());
+        }
+        // all in-flight fetches time out, the limit is cut only by the first one
+        rounds.forEach(fixture::overloaded);
+
+        assertThat(fixture.limit())
+                .isEqualTo(4);
+        assertThat(fixture.stats("host").backoffs())
+                .isEqualTo(1);
+
+        // fetch acquired after the cut cuts again, but never below one
+        for (var i = 0; i < 5; i++) {
+            fixture.overloaded(fixture.acquire());
+        }
+        assertThat(fixture.limit())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void fetchWaitsForFreeSlot() throws InterruptedException {
+        var fixture = new AdaptiveLimitPageFetcher.HostLimit(1, 1, 2.0, 0.5);
+        fixture.acquire();
+
+        var acquired = new CountDownLatch(1);
+        var waiting = new Thread(() -> {
+            try {
+                fixture.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS))
+                .isFalse();
+        assertThat(fixture.queued())
+                .isEqualTo(1);
+
+        fixture.failed();
+
+        assertThat(acquired.await(5, TimeUnit.SECONDS))
+                .isTrue();
+        assertThat(fixture.queued())
+                .isZero();
+        waiting.join();
+    }
+
+    @Test
+    void separateLimitPerHost() throws IOException {
+        PageFetcher delegate = (url, requestHeaders) -> {
+            if (url.contains("throttled")) {
+                throw new HttpStatusException("HTTP error fetching URL", 429, url);
+            }
+            if (url.contains("missing")) {
+                throw new HttpStatusException("HTTP error fetching URL", 404, url);
+            }
+            return new FetchedPage(url, 200, Map.of(), new byte[0]);
+        };
+        var fixture = new AdaptiveLimitPageFetcher(delegate, 8, 64);
+
+        fixture.fetch("http://a.com/page.html");
+        assertThatThrownBy(() -> fixture.fetch("http://a.com/missing.html"))
+                .isInstanceOf(HttpStatusException.class);
+        assertThatThrownBy(() -> fixture.fetch("http://B.com/throttled.html"))
+                .isInstanceOf(HttpStatusException.class);
+
+        assertThat(fixture.stats())
+                .containsExactly(
+                        new AdaptiveLimitPageFetcher.HostStats("a.com", 8, 0, 0, 0),
+                        new AdaptiveLimitPageFetcher.HostStats("b.com", 4, 0, 0, 1));
+    }
+
+    @Test
+    void overloaded() {
+        assertThat(AdaptiveLimitPageFetcher.overloaded(new SocketTimeoutException("Read timed out")))
+                .isTrue();
+        assertThat(AdaptiveLimitPageFetcher.overloaded(new HttpStatusException("", 503, "http://a.com")))
+                .isTrue();
+        assertThat(AdaptiveLimitPageFetcher.overloaded(new HttpStatusException("", 429, "http://a.com")))
+                .isTrue();
+        assertThat(AdaptiveLimitPageFetcher.overloaded(new HttpStatusException("", 404, "http://a.com")))
+                .isFalse();
+        assertThat(AdaptiveLimitPageFetcher.overloaded(new IOException("Connection refused")))
+                .isFalse();
+    }
+
+    // acquires given number of slots and releases them as successful fetches of given latency
+    private static void fetchAll(AdaptiveLimitPageFetcher.HostLimit hostLimit, int fetches, long latencyNanos)
+            throws InterruptedException {
+        for (var i = 0; i < fetches; i++) {
+            hostLimit.acquire();
+        }
+        for (var i = 0; i < fetches; i++) {
+            hostLimit.succeeded(latencyNanos);
+        }
+    }
+}
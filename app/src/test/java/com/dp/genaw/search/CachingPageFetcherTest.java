@@ -0,0 +1,190 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link CachingPageFetcher} and {@link PageCache} tests running against local {@link TestHttpServer}.
+ */
+class CachingPageFetcherTest {
+
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path cacheDir;
+
+    @RegisterExtension
+    final TestHttpServer server = new TestHttpServer();
+
+    @Test
+    void freshPageServedWithoutNetwork() throws IOException {
+        server.page("recipe.html", "<b>RECIPE</b>");
+
+        try (var cache = new PageCache(cacheDir, MAX_BYTES)) {
+            var fixture = new CachingPageFetcher(new JsoupPageFetcher(), cache, Duration.ofHours(1));
+
+            fixture.fetch(server.url("recipe.html"));
+            var page = fixture.fetch(server.url("recipe.html"));
+
+            assertThat(new String(page.body(), StandardCharsets.UTF_8))
+                    .isEqualTo("<b>RECIPE</b>");
+            // cached page is decoded the same as the fetched one
+            assertThat(page.header(FetchedPage.CONTENT_TYPE))
+                    .isEqualTo("text/html; charset=UTF-8");
+            assertThat(server.requests())
+                    .isEqualTo(1);
+            assertThat(fixture.freshHits())
+                    .isEqualTo(1);
+        }
+    }
+
+    @Test
+    void expiredPageRevalidated() throws IOException {
+        server.page("recipe.html", "<b>RECIPE</b>");
+
+        try (var cache = new PageCache(cacheDir, MAX_BYTES)) {
+            var fixture = new CachingPageFetcher(new JsoupPageFetcher(), cache, Duration.ZERO);
+
+            fixture.fetch(server.url("recipe.html"));
+            var page = fixture.fetch(server.url("recipe.html"));
+
+            assertThat(new String(page.body(), StandardCharsets.UTF_8))
+                    .isEqualTo("<b>RECIPE</b>");
+            assertThat(server.notModified())
+                    .isEqualTo(1);
+            assertThat(fixture.revalidatedHits())
+                    .isEqualTo(1);
+        }
+    }
+
+    @Test
+    void changedPageFetchedAgain() throws IOException {
+        server.page("recipe.html", "<b>RECIPE</b>");
+
+        try (var cache = new PageCache(cacheDir, MAX_BYTES)) {
+            var fixture = new CachingPageFetcher(new JsoupPageFetcher(), cache, Duration.ZERO);
+
+            fixture.fetch(server.url("recipe.html"));
+            server.page("recipe.html", "<b>UPDATED RECIPE</b>");
+            var page = fixture.fetch(server.url("recipe.html"));
+
+            assertThat(new String(page.body(), StandardCharsets.UTF_8))
+                    .isEqualTo("<b>UPDATED RECIPE</b>");
+            assertThat(server.notModified())
+                    .isEqualTo(0);
+            assertThat(fixture.misses())
+                    .isEqualTo(2);
+        }
+    }
+
+    @Test
+    void notModifiedAnswerToCallerRequestNotCached() throws IOException {
+        server.page("recipe.html", "<b>RECIPE</b>");
+        var etag = new JsoupPageFetcher().fetch(server.url("recipe.html")).header(FetchedPage.ETAG);
+
+        try (var cache = new PageCache(cacheDir, MAX_BYTES)) {
+            var fixture = new CachingPageFetcher(new JsoupPageFetcher(), cache, Duration.ofHours(1));
+
+            var page = fixture.fetch(server.url("recipe.html"), FetchedPage.conditionalHeaders(etag, null));
+
+            assertThat(page.notModified())
+                    .isEqualTo(true);
+            assertThat(cache.get(server.url("recipe.html")))
+                    .isEmpty();
+        }
+    }
+
+    @Test
+    void cacheSurvivesRestart() throws IOException {
+        server.page("recipe.html", "<b>RECIPE</b>");
+
+        try (var cache = new PageCache(cacheDir, MAX_BYTES)) {
+            new CachingPageFetcher(new JsoupPageFetcher(), cache, Duration.ofHours(1))
+                    .fetch(server.url("recipe.html"));
+        }
+
+        try (var cache = new PageCache(cacheDir, MAX_BYTES)) {
+            var page = new CachingPageFetcher(new JsoupPageFetcher(), cache, Duration.ofHours(1))
+                    .fetch(server.url("recipe.html"));
+
+            assertThat(new String(page.body(), StandardCharsets.UTF_8))
+                    .isEqualTo("<b>RECIPE</b>");
+            // cached page is decoded the same as the fetched one
+            assertThat(page.header(FetchedPage.CONTENT_TYPE))
+                    .isEqualTo("text/html; charset=UTF-8");
+            assertThat(server.requests())
+                    .isEqualTo(1);
+        }
+    }
+
+    @Test
+    void cacheSurvivesCrash() throws IOException {
+        var body = "<b>RECIPE</b>".getBytes(StandardCharsets.UTF_8);
+        var crashed = new PageCache(cacheDir, MAX_BYTES);
+        crashed.put("a", "\"1\"", null, "text/html; charset=ISO-8859-1", Instant.now(), body);
+        var bodies = bodyFiles();
+        crashed.put("b", null, null, null, Instant.now(), body);
+        // lost body of b is found on read and its entry is dropped
+        Files.delete(bodyFiles().stream().filter(file -> !bodies.contains(file)).findFirst().orElseThrow());
+        crashed.readBody(crashed.get("b").orElseThrow());
+        // process killed while writing index line of c
+        Files.writeString(cacheDir.resolve("index"), "c\t-", StandardOpenOption.APPEND);
+
+        // crashed cache is never closed
+        try (var cache = new PageCache(cacheDir, MAX_BYTES)) {
+            assertThat(cache.get("a").orElseThrow().contentType())
+                    .isEqualTo("text/html; charset=ISO-8859-1");
+            assertThat(new String(cache.readBody(cache.get("a").orElseThrow()).orElseThrow(), StandardCharsets.UTF_8))
+                    .isEqualTo("<b>RECIPE</b>");
+            assertThat(cache.get("b"))
+                    .isEmpty();
+            assertThat(cache.get("c"))
+                    .isEmpty();
+            assertThat(bodyFiles())
+                    .isEqualTo(bodies);
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedPageEvicted() throws IOException {
+        var body = "<i>nutrition</i>".repeat(100).getBytes(StandardCharsets.UTF_8);
+        long entrySize;
+        try (var cache = new PageCache(cacheDir.resolve("probe"), MAX_BYTES)) {
+            cache.put("probe", null, null, null, Instant.now(), body);
+            entrySize = cache.totalBytes();
+        }
+
+        try (var cache = new PageCache(cacheDir, 2 * entrySize)) {
+            cache.put("a", null, null, null, Instant.now(), body);
+            cache.put("b", null, null, null, Instant.now(), body);
+            cache.get("a");
+            cache.put("c", null, null, null, Instant.now(), body);
+
+            assertThat(cache.get("a"))
+                    .isPresent();
+            assertThat(cache.get("b"))
+                    .isEmpty();
+            assertThat(cache.get("c"))
+                    .isPresent();
+        }
+    }
+
+    private Set<Path> bodyFiles() throws IOException {
+        try (var files = Files.list(cacheDir)) {
+            return files.filter(file -> file.toString().endsWith(".gz")).collect(Collectors.toSet());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link CrawlArchive} tests - crawls recorded by {@link RecordingPageFetcher} against local {@link TestHttpServer} and
+ * replayed offline by {@link ReplayPageFetcher}.
+ */
+class CrawlArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @RegisterExtension
+    final TestHttpServer server = new TestHttpServer();
+
+    @Test
+    void replayedCrawlMatchesRecordedCrawl() throws IOException {
+        server.category("recipes.html", "recipe1.html", "recipe2.html", "missing.html");
+        server.recipes("recipe_single_variant.html", "recipe_multiple_variants.html");
+        var file = directory.resolve("crawl.gcar");
+
+        List<Recipe> recorded;
+        try (var writer = CrawlArchive.writer(file)) {
+            recorded = search(new RecordingPageFetcher(new JsoupPageFetcher(), writer));
+            assertThat(writer.records())
+                    .isEqualTo(4);
+        }
+        server.close();
+
+        for (var mmap : List.of(true, false)) {
+            try (var archive = CrawlArchive.open(file, mmap)) {
+                assertThat(archive.size())
+                        .isEqualTo(4);
+                assertThat(search(new ReplayPageFetcher(archive)))
+                        .containsExactlyElementsOf(recorded)
+                        .isNotEmpty();
+            }
+        }
+    }
+
+    @Test
+    void replayedPagesAndFailures() throws IOException {
+        server.category("recipes.html", "recipe1.html", "recipe2.html", "missing.html");
+        server.recipes("recipe_single_variant.html", "recipe_multiple_variants.html");
+        var file = directory.resolve("crawl.gcar");
+        try (var writer = CrawlArchive.writer(file)) {
+            search(new RecordingPageFetcher(new JsoupPageFetcher(), writer));
+        }
+
+        try (var archive = CrawlArchive.open(file, true)) {
+            var fetcher = new ReplayPageFetcher(archive);
+            var page = fetcher.fetch(server.url("recipe1.html"));
+
+            assertThat(page.statusCode())
+                    .isEqualTo(200);
+            assertThat(page.header(FetchedPage.ETAG))
+                    .isNotNull();
+            assertThat(new String(page.body(), StandardCharsets.UTF_8))
+                    .contains("BEEFY-MUSHROOM SOUP");
+            // conditional request with the recorded ETag
+            assertThat(fetcher.fetch(server.url("recipe1.html"),
+                    FetchedPage.conditionalHeaders(page.header(FetchedPage.ETAG), null)).notModified())
+                    .isTrue();
+
+            assertThatThrownBy(() -> fetcher.fetch(server.url("missing.html")))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageStartingWith("Recorded failure");
+            assertThatThrownBy(() -> fetcher.fetch(server.url("unknown.html")))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageStartingWith("Page not recorded");
+        }
+    }
+
+    @Test
+    void notModifiedDoesNotReplaceRecordedPage() throws IOException {
+        var file = directory.resolve("crawl.gcar");
+        var page = new FetchedPage("http://host/page.html", 200, Map.of(FetchedPage.ETAG, "\"1\""), new byte[] {1, 2});
+
+        try (var writer = CrawlArchive.writer(file)) {
+            writer.append(page, Duration.ofMillis(5));
+            writer.append(new FetchedPage(page.url(), FetchedPage.NOT_MODIFIED, Map.of(), new byte[0]), Duration.ZERO);
+        }
+
+        try (var archive = CrawlArchive.open(file, false)) {
+            var entry = archive.get(page.url()).orElseThrow();
+
+            assertThat(entry.page().body())
+                    .containsExactly(1, 2);
+            assertThat(entry.duration())
+                    .isEqualTo(Duration.ofMillis(5));
+        }
+    }
+
+    @Test
+    void interruptedRecordingIsScannedAndAppended() throws IOException {
+        var file = directory.resolve("crawl.gcar");
+        try (var writer = CrawlArchive.writer(file)) {
+            writer.append(new FetchedPage("http://host/1.html", 200, Map.of(), new byte[] {1}), Duration.ZERO);
+            writer.appendFailure("http://host/2.html", "Read timed out", Duration.ZERO);
+        }
+        // index lost and half-written record at the end
+        Files.delete(directory.resolve("crawl.gcar.idx"));
+        Files.write(file, new byte[] {0, 0, 0, 100, 0}, StandardOpenOption.APPEND);
+
+        try (var archive = CrawlArchive.open(file, true)) {
+            assertThat(archive.size())
+                    .isEqualTo(2);
+            assertThat(archive.get("http://host/2.html").orElseThrow().failure())
+                    .isEqualTo("Read timed out");
+        }
+
+        try (var writer = CrawlArchive.writer(file)) {
+            writer.append(new FetchedPage("http://host/2.html", 200, Map.of(), new byte[] {2}), Duration.ZERO);
+        }
+        try (var archive = CrawlArchive.open(file, true)) {
+            assertThat(archive.size())
+                    .isEqualTo(2);
+            assertThat(archive.get("http://host/2.html").orElseThrow().page().body())
+                    .containsExactly(2);
+        }
+    }
+
+    @Test
+    void notAnArchive() throws IOException {
+        var file = Files.write(directory.resolve("crawl.gcar"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThatThrownBy(() -> CrawlArchive.open(file, true))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Not a crawl archive file");
+    }
+
+    @Test
+    void latency() {
+        var recorded = Duration.ofMillis(42);
+
+        assertThat(ReplayPageFetcher.Latency.of("0").of(recorded))
+                .isEqualTo(Duration.ZERO);
+        assertThat(ReplayPageFetcher.Latency.of("recorded").of(recorded))
+                .isEqualTo(recorded);
+        assertThat(ReplayPageFetcher.Latency.of("7").of(recorded))
+                .isEqualTo(Duration.ofMillis(7));
+    }
+
+    private List<Recipe> search(PageFetcher pageFetcher) {
+        return new TopRecipeSearch(
+                new TableLinkExtractor(), new RecipeExtractor(), new CommonPoolCrawlExecutor(), pageFetcher)
+                .findTopRecipes(server.rootUrl(), "recipes.html", new TopRecipes(10));
+    }
+}
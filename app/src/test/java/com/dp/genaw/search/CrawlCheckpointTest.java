@@ -0,0 +1,143 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.dp.genaw.search.TestUtils.search;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Resumable crawl ({@link TopRecipeSearch#crawl(String, String, java.util.function.Consumer, CrawlCheckpoint)}) and
+ * {@link CrawlCheckpoint} tests running against local {@link TestHttpServer}.
+ */
+class CrawlCheckpointTest {
+
+    private static final Recipe RECIPE = new Recipe("SOUP", "http://localhost/soup.html", "Per Cup",
+            "302 Calories; 19g Fat; 23g Protein; 4g Net Carbs", 5, 5.75);
+
+    @TempDir
+    Path directory;
+
+    @RegisterExtension
+    final TestHttpServer server = new TestHttpServer();
+
+    @Test
+    void completedCrawlRecorded() throws IOException {
+        server.recipeSite("recipe_single_variant.html", "recipe_multiple_variants.html", "recipe_optional_net.html");
+        var file = directory.resolve("crawl.checkpoint");
+        var recipes = new ConcurrentLinkedQueue<Recipe>();
+
+        try (var checkpoint = CrawlCheckpoint.open(file, CrawlCheckpoint.INTERVAL)) {
+            assertThat(checkpoint.resumed())
+                    .isFalse();
+            search().crawl(server.rootUrl(), "recipes.html", recipes::add, checkpoint);
+        }
+
+        try (var checkpoint = CrawlCheckpoint.open(file, CrawlCheckpoint.INTERVAL)) {
+            assertThat(checkpoint.completed())
+                    .hasSize(4);
+            assertThat(checkpoint.pending())
+                    .isEmpty();
+            assertThat(checkpoint.recipes())
+                    .containsExactlyInAnyOrderElementsOf(recipes);
+        }
+    }
+
+    @Test
+    void resumeSkipsCompletedPages() throws IOException {
+        server.recipeSite("recipe_single_variant.html", "recipe_multiple_variants.html", "recipe_optional_net.html");
+        var expected = new ConcurrentLinkedQueue<Recipe>();
+        search().crawl(server.rootUrl(), "recipes.html", expected::add);
+        var file = directory.resolve("crawl.checkpoint");
+
+        // crawl interrupted after the category page and the first recipe page
+        var firstRecipes = new ConcurrentLinkedQueue<Recipe>();
+        search().crawl(server.rootUrl(), "recipe1.html", firstRecipes::add);
+        try (var checkpoint = CrawlCheckpoint.open(file, CrawlCheckpoint.INTERVAL)) {
+            checkpoint.pending(List.of(
+                    server.url("recipes.html"), server.url("recipe1.html"), server.url("recipe2.html"),
+                    server.url("recipe3.html")));
+            checkpoint.completed(server.url("recipes.html"), List.of());
+            checkpoint.completed(server.url("recipe1.html"), List.copyOf(firstRecipes));
+        }
+        var requests = server.requests();
+
+        var recipes = new ConcurrentLinkedQueue<Recipe>();
+        try (var checkpoint = CrawlCheckpoint.open(file, CrawlCheckpoint.INTERVAL)) {
+            assertThat(checkpoint.resumed())
+                    .isTrue();
+            assertThat(checkpoint.pending())
+                    .containsExactly(server.url("recipe2.html"), server.url("recipe3.html"));
+
+            search().crawl(server.rootUrl(), "recipes.html", recipes::add, checkpoint);
+        }
+
+        assertThat(recipes)
+                .containsExactlyInAnyOrderElementsOf(expected);
+        // only pending pages fetched
+        assertThat(server.requests() - requests)
+                .isEqualTo(2);
+    }
+
+    @Test
+    void checkpointWrittenPeriodically() throws IOException {
+        var file = directory.resolve("crawl.checkpoint");
+
+        var checkpoint = CrawlCheckpoint.open(file, Duration.ZERO);
+        checkpoint.pending(List.of("http://localhost/soup.html"));
+        checkpoint.completed("http://localhost/soup.html", List.of(RECIPE));
+
+        // process killed - checkpoint not closed
+        try (var resumed = CrawlCheckpoint.open(file, Duration.ZERO)) {
+            assertThat(resumed.completed())
+                    .containsExactly("http://localhost/soup.html");
+            assertThat(resumed.recipes())
+                    .containsExactly(RECIPE);
+        }
+        checkpoint.finish();
+
+        assertThat(Files.exists(file))
+                .isFalse();
+    }
+
+    @Test
+    void incompleteBlockIgnored() throws IOException {
+        var file = directory.resolve("crawl.checkpoint");
+        try (var checkpoint = CrawlCheckpoint.open(file, Duration.ZERO)) {
+            checkpoint.completed("http://localhost/soup.html", List.of(RECIPE));
+        }
+        // block header of a block never written completely
+        Files.write(file, new byte[] {0, 0, 1, 0, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        try (var checkpoint = CrawlCheckpoint.open(file, Duration.ZERO)) {
+            assertThat(checkpoint.recipes())
+                    .containsExactly(RECIPE);
+            checkpoint.completed("http://localhost/stew.html", List.of());
+        }
+
+        try (var checkpoint = CrawlCheckpoint.open(file, Duration.ZERO)) {
+            assertThat(checkpoint.completed())
+                    .containsExactlyInAnyOrder("http://localhost/soup.html", "http://localhost/stew.html");
+        }
+    }
+
+    @Test
+    void notACheckpoint() throws IOException {
+        var file = directory.resolve("crawl.checkpoint");
+        Files.writeString(file, "not a checkpoint");
+
+        assertThatThrownBy(() -> CrawlCheckpoint.open(file, CrawlCheckpoint.INTERVAL))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Not a crawl checkpoint file");
+    }
+}
@@ -0,0 +1,59 @@
+package com.dp.genaw.search;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrawlExecutorTest {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    void threadPerFetchRespectsInFlightLimit() {
+        var links = IntStream.range(0, 20)
+                .mapToObj(i -> "link" + i)
+                .toList();
+
+        var result = new ConcurrentLinkedQueue<String>();
+        try (var fixture = new ThreadPerFetchCrawlExecutor(3)) {
+            fixture.forkAll(links, link -> result.addAll(fixture.fetch(() -> slowFetch(link))));
+        }
+
+        // all branches are finished when forkAll returns
+        assertThat(result)
+                .containsExactlyInAnyOrderElementsOf(links);
+
+        assertThat(maxInFlight.get())
+                .isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void commonPoolUnlimited() {
+        var fixture = new CommonPoolCrawlExecutor();
+        var result = new ConcurrentLinkedQueue<String>();
+        fixture.forkAll(List.of("a", "b"), link -> result.addAll(fixture.fetch(() -> List.of(link, link))));
+
+        assertThat(result)
+                .containsExactlyInAnyOrder("a", "a", "b", "b");
+    }
+
+    private List<String> slowFetch(String link) {
+        var current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        return List.of(link);
+    }
+}
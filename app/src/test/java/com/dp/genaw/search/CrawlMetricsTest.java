@@ -0,0 +1,63 @@
+package com.dp.genaw.search;
+
+import java.net.SocketTimeoutException;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrawlMetricsTest {
+
+    @RegisterExtension
+    final TestHttpServer server = new TestHttpServer();
+
+    @Test
+    void crawlIsMeasured() {
+        server.category("recipes.html", "recipe1.html", "recipe2.html", "missing.html");
+        server.recipes("recipe_single_variant.html", "recipe_multiple_variants.html");
+
+        var metrics = new CrawlMetrics();
+        var recipes = new TopRecipeSearch(
+                new TableLinkExtractor(), new RecipeExtractor(), new CommonPoolCrawlExecutor(), new JsoupPageFetcher(),
+                ParseMode.DOM, metrics)
+                .findTopRecipes(server.rootUrl(), "recipes.html", new TopRecipes(100));
+
+        assertThat(metrics.pages())
+                .isEqualTo(3);
+        assertThat(metrics.bytes())
+                .isPositive();
+        assertThat(metrics.failures())
+                .containsEntry("HTTP 404", 1L);
+        assertThat(metrics.stage(CrawlMetrics.Stage.FETCH).count())
+                .isEqualTo(3);
+        assertThat(metrics.stage(CrawlMetrics.Stage.PARSE).count())
+                .isEqualTo(3);
+        assertThat(metrics.stage(CrawlMetrics.Stage.LINKS).count())
+                .isEqualTo(3);
+        assertThat(metrics.stage(CrawlMetrics.Stage.RECIPES).count())
+                .isEqualTo(2);
+        assertThat(metrics.recipes())
+                .isGreaterThanOrEqualTo(recipes.size());
+        assertThat(metrics.inFlight())
+                .isZero();
+        assertThat(metrics.maxInFlight())
+                .isPositive();
+
+        assertThat(metrics.summary())
+                .contains("fetch", "parse", "links", "recipes", "HTTP 404=1");
+        assertThat(metrics.toJson())
+                .startsWith("{\"stages\":{\"fetch\":{\"count\":3,")
+                .contains("\"pages\":3,")
+                .endsWith("\"failures\":{\"HTTP 404\":1}}");
+    }
+
+    @Test
+    void failureCause() {
+        assertThat(CrawlMetrics.cause(new HttpStatusException("", 503, "")))
+                .isEqualTo("HTTP 503");
+        assertThat(CrawlMetrics.cause(new SocketTimeoutException()))
+                .isEqualTo("SocketTimeoutException");
+    }
+}
@@ -0,0 +1,187 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static com.dp.genaw.search.TestUtils.category;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link CrawlPipeline} tests on a synthetic site (page {@code n} links to pages {@code 2n+1} and {@code 2n+2}) and
+ * pipelined crawl ({@link TopRecipeSearch#crawlPipelined}) running against local {@link TestHttpServer}.
+ */
+class CrawlPipelineTest {
+
+    private static final int PAGES = 200;
+
+    @Test
+    void allPagesProcessedOnce() throws IOException {
+        var fixture = new CrawlPipeline(8, 2, 4);
+        var fetches = new AtomicInteger();
+        var parsed = ConcurrentHashMap.<String>newKeySet();
+
+        fixture.run("0", url -> {
+            fetches.incrementAndGet();
+            return Optional.of(url);
+        }, page -> {
+            parsed.add(page);
+            return children(page);
+        });
+
+        assertThat(parsed)
+                .hasSize(PAGES);
+        assertThat(fetches.get())
+                .isEqualTo(PAGES);
+        assertThat(fixture.stats().stream().map(CrawlPipeline.StageStats::processed).toList())
+                .containsExactly((long) PAGES, (long) PAGES);
+    }
+
+    @Test
+    void slowParseBlocksFetch() throws IOException {
+        var fetchThreads = 8;
+        var queueCapacity = 4;
+        var fixture = new CrawlPipeline(fetchThreads, 1, queueCapacity);
+        var waiting = new AtomicInteger();
+        var maxWaiting = new LongAccumulator(Math::max, 0);
+
+        fixture.run("0", url -> {
+            maxWaiting.accumulate(waiting.incrementAndGet());
+            return Optional.of(url);
+        }, page -> {
+            waiting.decrementAndGet();
+            sleep(1);
+            return children(page);
+        });
+
+        // fetched pages waiting for parsing are bounded by queue capacity, fetch workers blocked on the full queue and
+        // the page being taken by the parse worker
+        assertThat(maxWaiting.get())
+                .isLessThanOrEqualTo(fetchThreads + queueCapacity + 1);
+        var fetchStats = fixture.stats().get(0);
+        var parseStats = fixture.stats().get(1);
+        assertThat(parseStats.maxQueued())
+                .isLessThanOrEqualTo(queueCapacity);
+        assertThat(parseStats.utilization())
+                .isGreaterThan(fetchStats.utilization());
+        assertThat(fetchStats.blocked())
+                .isGreaterThan(0);
+    }
+
+    @Test
+    void failedPagesSkipped() throws IOException {
+        var fixture = new CrawlPipeline(4, 2, 2);
+        var parsed = new ConcurrentLinkedQueue<String>();
+
+        fixture.run("0", url -> {
+            if (url.equals("1")) {
+                return Optional.empty();
+            }
+            if (url.equals("2")) {
+                throw new IllegalStateException("fetch failure");
+            }
+            return Optional.of(url);
+        }, page -> {
+            if (page.equals("3")) {
+                throw new IllegalStateException("parse failure");
+            }
+            parsed.add(page);
+            return children(page);
+        });
+
+        // sub-trees of failed pages are not reachable
+        assertThat(parsed)
+                .containsExactly("0");
+    }
+
+    @Test
+    void errorStopsPipeline() {
+        var fixture = new CrawlPipeline(4, 2, 2);
+
+        assertThatThrownBy(() -> fixture.run("0", url -> {
+            if (url.equals("5")) {
+                throw new StackOverflowError("fetch");
+            }
+            return Optional.of(url);
+        }, CrawlPipelineTest::children))
+                .isInstanceOf(StackOverflowError.class)
+                .hasMessage("fetch");
+        assertThatThrownBy(() -> fixture.run("0", Optional::of, page -> {
+            if (page.equals("6")) {
+                throw new StackOverflowError("parse");
+            }
+            return children(page);
+        }))
+                .isInstanceOf(StackOverflowError.class)
+                .hasMessage("parse");
+    }
+
+    @Test
+    void interruptedRunThrows() {
+        var fixture = new CrawlPipeline(4, 2, 2);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> fixture.run("0", Optional::of, CrawlPipelineTest::children))
+                    .isInstanceOf(InterruptedIOException.class);
+            assertThat(Thread.currentThread().isInterrupted())
+                    .isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void pipelinedCrawlMatchesRecursiveCrawl() throws IOException {
+        try (var server = new TestHttpServer()) {
+            var links = IntStream.range(0, 20).mapToObj("recipe%d.html"::formatted).toArray(String[]::new);
+            server.page("recipes.html", category(links));
+            for (var i = 0; i < links.length; i++) {
+                server.resource(links[i], i % 2 == 0 ? "recipe_single_variant.html" : "recipe_multiple_variants.html");
+            }
+
+            var recursive = new ConcurrentLinkedQueue<Recipe>();
+            new TopRecipeSearch(new TableLinkExtractor(), new RecipeExtractor())
+                    .crawl(server.rootUrl(), "recipes.html", recursive::add);
+            var pipelined = new ConcurrentLinkedQueue<Recipe>();
+            var metrics = new CrawlMetrics();
+            new TopRecipeSearch(new TableLinkExtractor(), new RecipeExtractor(), new CommonPoolCrawlExecutor(),
+                    new JsoupPageFetcher(), ParseMode.DOM, metrics)
+                    .crawlPipelined(server.rootUrl(), "recipes.html", pipelined::add, new CrawlPipeline(4, 2, 2));
+
+            assertThat(pipelined)
+                    .isNotEmpty()
+                    .containsExactlyInAnyOrderElementsOf(recursive);
+            assertThat(metrics.pages())
+                    .isEqualTo(21);
+            assertThat(server.requests())
+                    .isEqualTo(42);
+        }
+    }
+
+    private static List<String> children(String page) {
+        var n = Integer.parseInt(page);
+        return Stream.of(2 * n + 1, 2 * n + 2)
+                .filter(child -> child < PAGES)
+                .map(String::valueOf)
+                .toList();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
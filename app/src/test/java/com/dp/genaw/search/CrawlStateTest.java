@@ -0,0 +1,124 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.dp.genaw.search.TestUtils.category;
+import static com.dp.genaw.search.TestUtils.search;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Incremental recrawl ({@link TopRecipeSearch#recrawl(String, String, CrawlState)}) and {@link CrawlState} tests
+ * running against local {@link TestHttpServer}.
+ */
+class CrawlStateTest {
+
+    @TempDir
+    Path directory;
+
+    @RegisterExtension
+    final TestHttpServer server = new TestHttpServer();
+
+    @Test
+    void firstRecrawlInsertsAllPages() {
+        server.recipeSite("recipe_single_variant.html", "recipe_multiple_variants.html");
+
+        var deltas = recrawl(CrawlState.empty());
+
+        assertThat(deltas.stream().map(CrawlState.Delta::type).toList())
+                .containsOnly(CrawlState.Delta.Type.INSERT)
+                .hasSize(3);
+    }
+
+    @Test
+    void unchangedSiteHasNoDeltas() {
+        server.recipeSite("recipe_single_variant.html", "recipe_multiple_variants.html");
+        var state = CrawlState.empty();
+        state.apply(recrawl(state));
+        var requests = server.requests();
+
+        assertThat(recrawl(state))
+                .isEmpty();
+        // all known pages revalidated without body
+        assertThat(server.notModified())
+                .isEqualTo(3);
+        assertThat(server.requests() - requests)
+                .isEqualTo(3);
+    }
+
+    @Test
+    void changedAndRemovedPages() {
+        server.recipeSite("recipe_single_variant.html", "recipe_multiple_variants.html");
+        var state = CrawlState.empty();
+        state.apply(recrawl(state));
+
+        // recipe2 replaced by recipe3, recipe1 content changed
+        server.page("recipes.html", category("recipe1.html", "recipe3.html"));
+        server.resource("recipe1.html", "recipe_optional_net.html");
+        server.resource("recipe3.html", "recipe_multiple.html");
+        var deltas = recrawl(state);
+
+        assertThat(deltas.stream().map(delta -> delta.type() + " " + delta.page().url()).toList())
+                .containsExactlyInAnyOrder(
+                        "UPDATE " + server.url("recipes.html"),
+                        "UPDATE " + server.url("recipe1.html"),
+                        "INSERT " + server.url("recipe3.html"),
+                        "TOMBSTONE " + server.url("recipe2.html"));
+
+        state.apply(deltas);
+        assertThat(state.size())
+                .isEqualTo(3);
+        assertThat(state.recipes())
+                .containsExactlyInAnyOrderElementsOf(search()
+                        .recrawl(server.rootUrl(), "recipes.html", CrawlState.empty())
+                        .stream()
+                        .flatMap(delta -> delta.page().recipes().stream())
+                        .toList());
+    }
+
+    @Test
+    void pageLoadErrorKeepsPreviousState() {
+        server.recipeSite("recipe_single_variant.html", "recipe_multiple_variants.html");
+        var state = CrawlState.empty();
+        state.apply(recrawl(state));
+
+        // known recipe page temporarily not available, new page not available at all
+        server.page("recipes.html", category("recipe1.html", "recipe2.html", "missing.html"));
+        server.remove("recipe2.html");
+        var deltas = recrawl(state);
+
+        assertThat(deltas.stream().map(delta -> delta.type() + " " + delta.page().url()).toList())
+                .containsExactly("UPDATE " + server.url("recipes.html"));
+    }
+
+    @Test
+    void saveAndLoad() throws IOException {
+        server.recipeSite("recipe_single_variant.html", "recipe_multiple_variants.html");
+        var state = CrawlState.empty();
+        state.apply(recrawl(state));
+        var file = directory.resolve("crawl.state");
+
+        state.save(file);
+        var loaded = CrawlState.load(file);
+
+        assertThat(loaded.pages())
+                .containsExactlyInAnyOrderElementsOf(state.pages());
+        assertThat(recrawl(loaded))
+                .isEmpty();
+    }
+
+    @Test
+    void loadMissingFile() throws IOException {
+        assertThat(CrawlState.load(directory.resolve("missing.state")).size())
+                .isEqualTo(0);
+    }
+
+    private List<CrawlState.Delta> recrawl(CrawlState state) {
+        return search().recrawl(server.rootUrl(), "recipes.html", state);
+    }
+}
@@ -0,0 +1,136 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static com.dp.genaw.search.TestUtils.category;
+import static com.dp.genaw.search.TestUtils.search;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link HttpClientPageFetcher} and asynchronous crawl ({@link TopRecipeSearch#crawlAsync}) tests running against
+ * local {@link TestHttpServer}.
+ */
+class HttpClientPageFetcherTest {
+
+    @RegisterExtension
+    final TestHttpServer server = new TestHttpServer();
+    private final HttpClientPageFetcher fixture = new HttpClientPageFetcher(Duration.ofSeconds(5));
+
+    @Test
+    void fetchPage() throws IOException {
+        server.page("recipe.html", "<b>RECIPE</b>");
+
+        var page = fixture.fetch(server.url("recipe.html"));
+
+        assertThat(page.statusCode())
+                .isEqualTo(200);
+        assertThat(new String(page.body(), StandardCharsets.UTF_8))
+                .isEqualTo("<b>RECIPE</b>");
+        assertThat(page.header(FetchedPage.ETAG))
+                .isNotNull();
+        assertThat(page.charset())
+                .isEqualTo("UTF-8");
+    }
+
+    @Test
+    void fetchGzipPage() throws IOException {
+        var body = "<b>RECIPE</b>".repeat(20_000);
+        server.page("recipe.html", body);
+        server.gzip(true);
+
+        var page = fixture.fetch(server.url("recipe.html"));
+
+        // decompressed body larger than pooled buffer
+        assertThat(new String(page.body(), StandardCharsets.UTF_8))
+                .isEqualTo(body);
+        assertThat(page.header("Content-Encoding"))
+                .isNull();
+    }
+
+    @Test
+    void buffersReused() throws IOException {
+        server.page("recipe.html", "<b>RECIPE</b>");
+
+        for (var i = 0; i < 10; i++) {
+            fixture.fetch(server.url("recipe.html"));
+        }
+
+        assertThat(fixture.bufferPool().allocated())
+                .isEqualTo(1);
+        assertThat(fixture.bufferPool().reused())
+                .isEqualTo(9);
+    }
+
+    @Test
+    void missingPageFails() {
+        assertThatThrownBy(() -> fixture.fetch(server.url("missing.html")))
+                .isInstanceOf(HttpStatusException.class);
+    }
+
+    @Test
+    void conditionalFetchNotModified() throws IOException {
+        server.page("recipe.html", "<b>RECIPE</b>");
+        var page = fixture.fetch(server.url("recipe.html"));
+
+        var revalidated = fixture.fetch(
+                server.url("recipe.html"), FetchedPage.conditionalHeaders(page.header(FetchedPage.ETAG), null));
+
+        assertThat(revalidated.notModified())
+                .isTrue();
+        assertThat(server.notModified())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void asyncCrawlMatchesBlockingCrawl() {
+        var links = IntStream.range(0, 20).mapToObj("recipe%d.html"::formatted).toArray(String[]::new);
+        server.page("recipes.html", category(links));
+        for (var i = 0; i < links.length; i++) {
+            server.resource(links[i], i % 2 == 0 ? "recipe_single_variant.html" : "recipe_multiple_variants.html");
+        }
+        server.gzip(true);
+
+        var blocking = new ConcurrentLinkedQueue<Recipe>();
+        search().crawl(server.rootUrl(), "recipes.html", blocking::add);
+        var async = new ConcurrentLinkedQueue<Recipe>();
+        var metrics = new CrawlMetrics();
+        new TopRecipeSearch(new TableLinkExtractor(), new RecipeExtractor(), new CommonPoolCrawlExecutor(), fixture,
+                ParseMode.DOM, metrics)
+                .crawlAsync(server.rootUrl(), "recipes.html", async::add);
+
+        assertThat(async)
+                .isNotEmpty()
+                .containsExactlyInAnyOrderElementsOf(blocking);
+        assertThat(metrics.pages())
+                .isEqualTo(21);
+        assertThat(metrics.inFlight())
+                .isEqualTo(0);
+    }
+
+    @Test
+    void asyncCrawlSkipsFailedPages() {
+        server.page("recipes.html", category("recipe1.html", "missing.html"));
+        server.resource("recipe1.html", "recipe_single_variant.html");
+
+        var recipes = new ConcurrentLinkedQueue<Recipe>();
+        var metrics = new CrawlMetrics();
+        new TopRecipeSearch(new TableLinkExtractor(), new RecipeExtractor(), new CommonPoolCrawlExecutor(), fixture,
+                ParseMode.DOM, metrics)
+                .crawlAsync(server.rootUrl(), "recipes.html", recipes::add);
+
+        assertThat(recipes)
+                .isNotEmpty();
+        assertThat(metrics.failures())
+                .isEqualTo(Map.of("HTTP 404", 1L));
+    }
+}
@@ -0,0 +1,80 @@
+package com.dp.genaw.search;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverAllValues() {
+        var previous = -1L;
+        for (var bucket = 0; bucket < LatencyHistogram.bucket(Long.MAX_VALUE); bucket++) {
+            var upperBound = LatencyHistogram.upperBound(bucket);
+
+            // buckets are contiguous
+            assertThat(LatencyHistogram.bucket(previous + 1))
+                    .isEqualTo(bucket);
+            assertThat(LatencyHistogram.bucket(upperBound))
+                    .isEqualTo(bucket);
+            previous = upperBound;
+        }
+    }
+
+    @Test
+    void percentilesWithinBucketPrecision() {
+        var fixture = new LatencyHistogram();
+        var random = new Random(42);
+        var values = new long[10_000];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = 1_000 + (long) (random.nextDouble() * random.nextDouble() * 50_000_000);
+            fixture.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        var snapshot = fixture.snapshot();
+        assertThat(snapshot.count())
+                .isEqualTo(10_000);
+        assertThat(snapshot.max())
+                .isEqualTo(values[values.length - 1]);
+        assertWithinPrecision(snapshot.p50(), values[4_999]);
+        assertWithinPrecision(snapshot.p90(), values[8_999]);
+        assertWithinPrecision(snapshot.p99(), values[9_899]);
+    }
+
+    @Test
+    void concurrentRecording() {
+        var fixture = new LatencyHistogram();
+
+        IntStream.range(0, 100_000)
+                .parallel()
+                .forEach(fixture::record);
+
+        assertThat(fixture.count())
+                .isEqualTo(100_000);
+        assertThat(fixture.snapshot().total())
+                .isEqualTo(100_000L * 99_999 / 2);
+    }
+
+    @Test
+    void empty() {
+        var snapshot = new LatencyHistogram().snapshot();
+
+        assertThat(snapshot.count())
+                .isZero();
+        assertThat(snapshot.p99())
+                .isZero();
+        assertThat(snapshot.mean())
+                .isZero();
+    }
+
+    private static void assertWithinPrecision(long actual, long expected) {
+        // bucket upper bound is reported, never below the exact value
+        assertThat(actual)
+                .isBetween(expected, expected + expected / 8);
+    }
+}
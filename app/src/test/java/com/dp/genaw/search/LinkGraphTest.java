@@ -0,0 +1,149 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.dp.genaw.search.TestUtils.category;
+import static com.dp.genaw.search.TestUtils.search;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Link graph guided crawl ({@link TopRecipeSearch#crawlGraph}) and {@link LinkGraph} tests running against local
+ * {@link TestHttpServer}.
+ */
+class LinkGraphTest {
+
+    @TempDir
+    Path directory;
+
+    @RegisterExtension
+    final TestHttpServer server = new TestHttpServer();
+
+    @BeforeEach
+    void serveSite() {
+        server.category("recipes.html", "recipe1.html", "recipe2.html", "desserts.html");
+        server.category("desserts.html", "recipe3.html");
+        server.recipes(
+                "recipe_single_variant.html", "recipe_multiple_variants.html", "recipe_trace_protein_single.html");
+    }
+
+    @Test
+    void freshGraphFetchesRecipePagesOnly() {
+        var expected = new ConcurrentLinkedQueue<Recipe>();
+        search().crawl(server.rootUrl(), "recipes.html", expected::add);
+        var graph = new LinkGraph(LinkGraph.RECHECK_INTERVAL);
+
+        var first = new ConcurrentLinkedQueue<Recipe>();
+        search().crawlGraph(server.rootUrl(), "recipes.html", first::add, graph);
+        var requests = server.requests();
+        var second = new ConcurrentLinkedQueue<Recipe>();
+        search().crawlGraph(server.rootUrl(), "recipes.html", second::add, graph);
+
+        assertThat(first)
+                .containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(second)
+                .containsExactlyInAnyOrderElementsOf(expected);
+        // 3 recipe pages, no category page
+        assertThat(server.requests() - requests)
+                .isEqualTo(3);
+        assertThat(graph.categories())
+                .isEqualTo(2);
+        assertThat(graph.recipes())
+                .hasSize(3);
+    }
+
+    @Test
+    void expiredCategoriesRechecked() {
+        var graph = new LinkGraph(Duration.ZERO);
+        search().crawlGraph(server.rootUrl(), "recipes.html", recipe -> { }, graph);
+
+        server.page("desserts.html", category("recipe3.html", "recipe4.html"));
+        server.resource("recipe4.html", "recipe_optional_grams.html");
+        var requests = server.requests();
+        search().crawlGraph(server.rootUrl(), "recipes.html", recipe -> { }, graph);
+
+        // 2 categories and 4 recipe pages
+        assertThat(server.requests() - requests)
+                .isEqualTo(6);
+        assertThat(graph.recipes())
+                .hasSize(4)
+                .contains(server.url("recipe4.html"));
+    }
+
+    @Test
+    void unreachablePagesRemoved() {
+        var graph = new LinkGraph(Duration.ZERO);
+        search().crawlGraph(server.rootUrl(), "recipes.html", recipe -> { }, graph);
+
+        server.page("recipes.html", category("recipe1.html", "recipe2.html"));
+        search().crawlGraph(server.rootUrl(), "recipes.html", recipe -> { }, graph);
+
+        assertThat(graph.size())
+                .isEqualTo(3);
+        assertThat(graph.categories())
+                .isEqualTo(1);
+        assertThat(graph.links(server.url("recipes.html")).orElseThrow())
+                .containsExactly(server.url("recipe1.html"), server.url("recipe2.html"));
+    }
+
+    @Test
+    void unloadableCategoryKeepsKnownLinks() {
+        var graph = new LinkGraph(Duration.ZERO);
+        var expected = new ConcurrentLinkedQueue<Recipe>();
+        search().crawlGraph(server.rootUrl(), "recipes.html", expected::add, graph);
+
+        server.remove("desserts.html");
+        var recipes = new ConcurrentLinkedQueue<Recipe>();
+        search().crawlGraph(server.rootUrl(), "recipes.html", recipes::add, graph);
+
+        assertThat(recipes)
+                .containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(graph.recipes())
+                .hasSize(3);
+    }
+
+    @Test
+    void saveAndLoad() throws IOException {
+        var file = directory.resolve("links.graph");
+        var graph = new LinkGraph(LinkGraph.RECHECK_INTERVAL);
+        graph.category("http://localhost/recipes.html", List.of("http://localhost/a.html", "http://localhost/b.html"));
+        graph.category("http://localhost/b.html", List.of("http://localhost/c.html", "http://localhost/a.html"));
+        graph.recipe("http://localhost/a.html");
+        graph.recipe("http://localhost/c.html");
+        graph.save(file);
+
+        var loaded = LinkGraph.load(file, LinkGraph.RECHECK_INTERVAL);
+
+        assertThat(loaded.size())
+                .isEqualTo(4);
+        assertThat(loaded.recipes())
+                .containsExactlyInAnyOrder("http://localhost/a.html", "http://localhost/c.html");
+        assertThat(loaded.freshLinks("http://localhost/b.html").orElseThrow())
+                .containsExactly("http://localhost/c.html", "http://localhost/a.html");
+        assertThat(loaded.freshLinks("http://localhost/a.html"))
+                .isEmpty();
+        assertThat(LinkGraph.load(file, Duration.ZERO).freshLinks("http://localhost/b.html"))
+                .isEmpty();
+    }
+
+    @Test
+    void notALinkGraph() throws IOException {
+        var file = directory.resolve("links.graph");
+        Files.writeString(file, "not a link graph");
+
+        assertThatThrownBy(() -> LinkGraph.load(file, LinkGraph.RECHECK_INTERVAL))
+                .isInstanceOf(IOException.class);
+        assertThat(LinkGraph.load(directory.resolve("missing.graph"), LinkGraph.RECHECK_INTERVAL).size())
+                .isEqualTo(0);
+    }
+}
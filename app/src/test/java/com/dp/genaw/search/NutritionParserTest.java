@@ -0,0 +1,106 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static com.dp.genaw.search.TestUtils.scanPage;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link NutritionParser} tests - conformance with original regular expression based parsing for all nutrition info
+ * strings found in recipe HTML test resource files, plus edge cases.
+ */
+class NutritionParserTest {
+
+    private static final List<String> RECIPE_PAGES = List.of(
+            "recipe_case_insensitive_nutrition.html",
+            "recipe_invalid.html",
+            "recipe_missing_space_before_nutrition.html",
+            "recipe_multiple.html",
+            "recipe_multiple_ingredient_variants.html",
+            "recipe_multiple_methods.html",
+            "recipe_multiple_variants.html",
+            "recipe_optional_grams.html",
+            "recipe_optional_net.html",
+            "recipe_single_variant.html",
+            "recipe_trace_protein_multiple.html",
+            "recipe_trace_protein_single.html");
+
+    // original patterns replaced by NutritionParser, used as a reference
+    private static final Pattern PROTEIN_PATTERN =
+            Pattern.compile(".*[\\s;]([\\d.]+)g?\\s+Protein.*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NET_CARB_PATTERN =
+            Pattern.compile(".*[\\s;]([\\d.]+)g?\\s+(Net\\s+)?Carb.*", Pattern.CASE_INSENSITIVE);
+
+    @Test
+    void sameAsRegexForAllRecipePages() throws IOException {
+        var checked = 0;
+        for (var page : RECIPE_PAGES) {
+            for (var text : scanPage(page).italicTexts()) {
+                var nutritionInfo = text.contains(":") ? text.substring(text.indexOf(":") + 1).trim() : text;
+                var nutrition = Nutrition.parse(nutritionInfo);
+
+                assertThat(nutrition.protein())
+                        .as(page + ": " + nutritionInfo)
+                        .isEqualTo(regexQuantity(PROTEIN_PATTERN, nutritionInfo));
+                assertThat(nutrition.netCarb())
+                        .as(page + ": " + nutritionInfo)
+                        .isEqualTo(regexQuantity(NET_CARB_PATTERN, nutritionInfo));
+                checked++;
+            }
+        }
+
+        assertThat(checked)
+                .isGreaterThan(RECIPE_PAGES.size());
+    }
+
+    @Test
+    void parseAllQuantities() {
+        var nutrition = Nutrition.parse(
+                "235 Calories; 20g Fat; 13g Protein; 3g Carbohydrate; 1.5g Dietary Fiber; 1.5g Net Carbs");
+
+        assertThat(nutrition)
+                .isEqualTo(new Nutrition(235, 20, 13, 3, 1.5, 1.5));
+    }
+
+    @Test
+    void parseOptionalGramsNetAndCase() {
+        var nutrition = Nutrition.parse("117 calories; 10 FAT; 6G protein; 2.5g carbohydrates");
+
+        assertThat(nutrition.protein())
+                .isEqualTo(6D);
+        // Carbohydrate is used as Net Carb when Net Carb is missing
+        assertThat(nutrition.netCarb())
+                .isEqualTo(2.5D);
+        assertThat(nutrition.fiber())
+                .isNaN();
+    }
+
+    @Test
+    void parseTrace() {
+        var nutrition = Nutrition.parse("57 Calories; 5g Fat; Trace Protein; 1g Carbohydrate; trace Net Carb");
+
+        assertThat(nutrition.protein())
+                .isEqualTo(0D);
+        assertThat(nutrition.netCarb())
+                .isEqualTo(0D);
+    }
+
+    @Test
+    void parseInvalid() {
+        var nutrition = Nutrition.parse("This recipe is featured in Low-Carbing Among Friends on page 281. 1.2.3 Protein");
+
+        assertThat(nutrition.hasProteinAndNetCarb())
+                .isEqualTo(false);
+        assertThat(nutrition.protein())
+                .isNaN();
+    }
+
+    private static double regexQuantity(Pattern pattern, String nutritionInfo) {
+        var matcher = pattern.matcher(nutritionInfo.replaceAll("trace", "0g"));
+        return matcher.matches() ? Double.parseDouble(matcher.group(1)) : Double.NaN;
+    }
+}
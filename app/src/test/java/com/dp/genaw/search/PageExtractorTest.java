@@ -0,0 +1,40 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import static com.dp.genaw.search.TestUtils.loadDocument;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link PageExtractor} tests using HTML test resource files in {@code src/main/resources} as test-cases.
+ */
+class PageExtractorTest {
+
+    private final PageExtractor fixture = new PageExtractor(new TableLinkExtractor(), new RecipeExtractor());
+
+    @Test
+    void extractCategoryPage() throws IOException {
+        var result = fixture.extractFromDocument(loadDocument("links.html"));
+
+        assertThat(result.isCategory())
+                .isEqualTo(true);
+        assertThat(result.links())
+                .hasSize(4);
+        assertThat(result.recipes())
+                .isEmpty();
+    }
+
+    @Test
+    void extractRecipePage() throws IOException {
+        var result = fixture.extractFromDocument(loadDocument("recipe_single_variant.html"));
+
+        assertThat(result.isCategory())
+                .isEqualTo(false);
+        assertThat(result.links())
+                .isEmpty();
+        assertThat(result.recipes())
+                .hasSize(1);
+    }
+}
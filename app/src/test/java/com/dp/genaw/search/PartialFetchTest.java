@@ -0,0 +1,158 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+
+import static com.dp.genaw.search.TestUtils.BASE_URL;
+import static com.dp.genaw.search.TestUtils.category;
+import static com.dp.genaw.search.TestUtils.resource;
+import static com.dp.genaw.search.TestUtils.scanPage;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Partial page scan ({@link ScannedPage#scanPartial}) tests and {@link ParseMode#PARTIAL partial} crawl running
+ * against local {@link TestHttpServer}.
+ */
+class PartialFetchTest {
+
+    private static final List<String> PAGES = List.of(
+            "links.html",
+            "links_invalid.html",
+            "recipe_case_insensitive_nutrition.html",
+            "recipe_invalid.html",
+            "recipe_missing_space_before_nutrition.html",
+            "recipe_multiple.html",
+            "recipe_multiple_ingredient_variants.html",
+            "recipe_multiple_methods.html",
+            "recipe_multiple_variants.html",
+            "recipe_optional_grams.html",
+            "recipe_optional_net.html",
+            "recipe_single_variant.html",
+            "recipe_trace_protein_multiple.html",
+            "recipe_trace_protein_single.html");
+
+    // text following recipe data, not needed by extraction of ruled out pages
+    private static final String PADDING = "<p>Comment on the recipe.</p>\n".repeat(10_000);
+
+    private final RecipeExtractor recipeExtractor = new RecipeExtractor();
+    private final TableLinkExtractor tableLinkExtractor = new TableLinkExtractor();
+
+    @Test
+    void partialScanExtractsSameData() throws IOException {
+        for (var page : PAGES) {
+            var partialPage = scanPartial(page, 0);
+            assertThat(recipeExtractor.extractFromPage(partialPage))
+                    .as(page)
+                    .isEqualTo(recipeExtractor.extractFromPage(scanPage(page)));
+            assertThat(tableLinkExtractor.extractFromPage(partialPage))
+                    .as(page)
+                    .isEqualTo(tableLinkExtractor.extractFromPage(scanPage(page)));
+        }
+    }
+
+    @Test
+    void partialScanStopsAtFirstLowStarRating() throws IOException {
+        // 4-star recipe
+        assertThat(scanPartial("recipe_multiple_variants.html", 5).bolds())
+                .containsExactly("ZESTY CHEDDAR WAFERS");
+        assertThat(scanPartial("recipe_multiple_variants.html", 4))
+                .isEqualTo(scanPage("recipe_multiple_variants.html"));
+        // second recipe is read when the first one is not ruled out
+        assertThat(recipeExtractor.extractFromPage(scanPartial("recipe_multiple.html", 2)))
+                .isEqualTo(recipeExtractor.extractFromPage(scanPage("recipe_multiple.html")));
+    }
+
+    @Test
+    void partialScanStopsOnLowStarRating() throws IOException {
+        var html = "<b>SOUP</b><img src=\"3_star.gif\"><i>Per Cup: 23g Protein; 4g Net Carbs</i>";
+
+        var ruledOut = ScannedPage.scanPartial(BASE_URL, new StringReader(html), 5);
+        assertThat(ruledOut.page().italicTexts())
+                .isEmpty();
+        assertThat(ruledOut.truncated())
+                .isTrue();
+        var whole = ScannedPage.scanPartial(BASE_URL, new StringReader(html), 3);
+        assertThat(whole.page().italicTexts())
+                .containsExactly("Per Cup: 23g Protein; 4g Net Carbs");
+        assertThat(whole.truncated())
+                .isFalse();
+    }
+
+    @Test
+    void partialRecrawlKeepsWholePages() throws IOException {
+        try (var server = new TestHttpServer()) {
+            server.page("recipes.html", category("recipe.html"));
+            server.resource("recipe.html", "recipe_multiple_variants.html");
+
+            // 4-star recipe fetched whole by recrawl is not cut short by min star rating 5
+            var state = CrawlState.empty();
+            state.apply(search(new JsoupPageFetcher(), ParseMode.PARTIAL, new CrawlMetrics())
+                    .recrawl(server.rootUrl(), "recipes.html", state));
+
+            var wholePage = recipeExtractor.extractFromPage(scanPage("recipe_multiple_variants.html"));
+            assertThat(state.recipes())
+                    .isNotEmpty()
+                    .containsExactlyElementsOf(wholePage.stream()
+                            .map(recipe -> new Recipe(recipe.name(), server.url("recipe.html"), recipe.variant(),
+                                    recipe.nutritionInfo(), recipe.starRating(), recipe.proteinToNetCarb()))
+                            .toList());
+        }
+    }
+
+    @Test
+    void partialCrawlReadsLessWithJsoup() throws IOException {
+        partialCrawlReadsLess(new JsoupPageFetcher(), false);
+    }
+
+    @Test
+    void partialCrawlReadsLessWithHttpClient() throws IOException {
+        partialCrawlReadsLess(new ResilientPageFetcher(new HttpClientPageFetcher()), true);
+    }
+
+    private void partialCrawlReadsLess(PageFetcher pageFetcher, boolean gzip) throws IOException {
+        try (var server = new TestHttpServer()) {
+            server.gzip(gzip);
+            server.page("recipes.html", category("recipe1.html", "recipe2.html", "recipe3.html"));
+            server.page("recipe1.html", resource("recipe_single_variant.html") + PADDING);
+            server.page("recipe2.html", resource("recipe_multiple_variants.html") + PADDING);
+            server.page("recipe3.html", resource("recipe_optional_grams.html") + PADDING);
+
+            var fullMetrics = new CrawlMetrics();
+            var full = new ConcurrentLinkedQueue<Recipe>();
+            search(pageFetcher, ParseMode.STREAMING, fullMetrics).crawl(server.rootUrl(), "recipes.html", full::add);
+            var partialMetrics = new CrawlMetrics();
+            var partial = new ConcurrentLinkedQueue<Recipe>();
+            search(pageFetcher, ParseMode.PARTIAL, partialMetrics)
+                    .crawl(server.rootUrl(), "recipes.html", partial::add);
+
+            // 5-star recipes are the same, pages of 4-star and 2-star recipes are not read whole
+            assertThat(partial.stream().filter(TopRecipes.FIVE_STAR).toList())
+                    .isNotEmpty()
+                    .containsExactlyInAnyOrderElementsOf(full.stream().filter(TopRecipes.FIVE_STAR).toList());
+            assertThat(partialMetrics.pages())
+                    .isEqualTo(4);
+            assertThat(partialMetrics.truncatedPages())
+                    .isEqualTo(2);
+            assertThat(partialMetrics.bytes())
+                    .isLessThan(fullMetrics.bytes() / 2);
+        }
+    }
+
+    private static TopRecipeSearch search(PageFetcher pageFetcher, ParseMode parseMode, CrawlMetrics metrics) {
+        return new TopRecipeSearch(new TableLinkExtractor(), new RecipeExtractor(), new CommonPoolCrawlExecutor(),
+                pageFetcher, parseMode, 5, metrics);
+    }
+
+    private static ScannedPage scanPartial(String resourceFileName, int minStarRating) throws IOException {
+        try (var reader = new InputStreamReader(
+                PartialFetchTest.class.getResourceAsStream(resourceFileName), StandardCharsets.UTF_8)) {
+            return ScannedPage.scanPartial(BASE_URL, reader, minStarRating).page();
+        }
+    }
+}
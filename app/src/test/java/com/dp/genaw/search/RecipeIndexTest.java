@@ -0,0 +1,92 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecipeIndexTest {
+
+    private static final Recipe SOUP_CUP = new Recipe(
+            "SOUP", "http://recipe-url/soup.html", "Per Cup",
+            "302 Calories; 19g Fat; 23g Protein; 7g Carbohydrate; 3g Dietary Fiber; 4g Net Carbs", 5, 5.75);
+    private static final Recipe SOUP_BOWL = new Recipe(
+            "SOUP", "http://recipe-url/soup.html", "Per Bowl",
+            "604 Calories; 38g Fat; 46g Protein; 14g Carbohydrate; 6g Dietary Fiber; 8g Net Carbs", 5, 5.75);
+    private static final Recipe CHICKEN = new Recipe(
+            "CHICKEN \u00e0 la mode", "http://recipe-url/chicken.html", "",
+            "193 Calories; 2g Fat; 40g Protein; 1g Carbohydrate; 1g Net Carb", 4, 40);
+    private static final Recipe QUICHE = new Recipe(
+            "QUICHE", "http://recipe-url/quiche.html", "Per Serving",
+            "250 Calories; 20g Fat; 12g Protein; 3g Carbohydrate; 3g Net Carbs", 5, 4);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndRead() throws IOException {
+        var file = directory.resolve("recipes.idx");
+        RecipeIndex.write(file, List.of(SOUP_CUP, SOUP_BOWL, CHICKEN, QUICHE));
+
+        var fixture = RecipeIndex.open(file);
+
+        assertThat(fixture.size())
+                .isEqualTo(4);
+        assertThat(fixture.recipe(2))
+                .isEqualTo(CHICKEN);
+        assertThat(fixture.value(RecipeIndex.Column.PROTEIN, 1))
+                .isEqualTo(46D);
+        assertThat(fixture.value(RecipeIndex.Column.NET_CARB, 3))
+                .isEqualTo(3D);
+        assertThat(fixture.value(RecipeIndex.Column.STAR_RATING, 0))
+                .isEqualTo(5D);
+        assertThat(fixture.nutrition(1))
+                .isEqualTo(SOUP_BOWL.parseNutrition());
+        assertThat(fixture.name(2))
+                .isEqualTo(CHICKEN.name());
+    }
+
+    @Test
+    void queryMappedColumns() throws IOException {
+        var file = directory.resolve("recipes.idx");
+        var recipes = List.of(SOUP_CUP, SOUP_BOWL, CHICKEN, QUICHE);
+        RecipeIndex.write(file, recipes);
+        var query = RecipeQuery.all()
+                .atLeast(RecipeField.STAR_RATING, 5)
+                .atLeast(RecipeField.FAT, 15)
+                .orderBy(RecipeField.PROTEIN_PER_CALORIE, true)
+                .limit(2);
+
+        assertThat(new RecipeStore(RecipeIndex.open(file)).query(query))
+                .containsExactly(SOUP_CUP, SOUP_BOWL)
+                .isEqualTo(new RecipeStore(RecipeColumns.of(recipes)).query(query));
+    }
+
+    @Test
+    void emptyIndex() throws IOException {
+        var file = directory.resolve("recipes.idx");
+        RecipeIndex.write(file, List.of());
+
+        var fixture = RecipeIndex.open(file);
+
+        assertThat(fixture.size())
+                .isEqualTo(0);
+        assertThat(fixture.recipes())
+                .isEmpty();
+    }
+
+    @Test
+    void notAnIndex() throws IOException {
+        var file = directory.resolve("recipes.idx");
+        Files.writeString(file, "not an index");
+
+        assertThatThrownBy(() -> RecipeIndex.open(file))
+                .isInstanceOf(IOException.class);
+    }
+}
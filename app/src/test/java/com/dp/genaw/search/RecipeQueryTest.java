@@ -0,0 +1,59 @@
+package com.dp.genaw.search;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecipeQueryTest {
+
+    @Test
+    void parse() {
+        var query = RecipeQuery.parse(
+                "star-rating>=4, protein<=20,calories=100", "soup", "protein-per-calorie:desc,fat", 10);
+
+        assertThat(query)
+                .isEqualTo(RecipeQuery.all()
+                        .nameContains("soup")
+                        .limit(10)
+                        .atLeast(RecipeField.STAR_RATING, 4)
+                        .atMost(RecipeField.PROTEIN, 20)
+                        .where(RecipeField.CALORIES, 100, 100)
+                        .orderBy(RecipeField.PROTEIN_PER_CALORIE, true)
+                        .orderBy(RecipeField.FAT, false));
+    }
+
+    @Test
+    void parseEmpty() {
+        assertThat(RecipeQuery.parse(null, null, "", RecipeQuery.UNLIMITED))
+                .isEqualTo(RecipeQuery.all());
+    }
+
+    @Test
+    void parseInvalid() {
+        assertThatThrownBy(() -> RecipeQuery.parse("protein>20", null, null, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecipeQuery.parse("sugar>=20", null, null, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void parseOptions() {
+        var options = AppOptions.of(Map.of("min-protein", "20", "where", "fat<=10", "top", "3"));
+
+        assertThat(RecipeQuery.parse(options, 1))
+                .isEqualTo(RecipeQuery.all()
+                        .limit(3)
+                        .atMost(RecipeField.FAT, 10)
+                        .atLeast(RecipeField.STAR_RATING, 5)
+                        .atLeast(RecipeField.PROTEIN, 20)
+                        .orderBy(RecipeField.PROTEIN_TO_NET_CARB, true));
+        assertThat(RecipeQuery.parse(AppOptions.of(Map.of("order-by", "fat", "min-stars", "1")), 7))
+                .isEqualTo(RecipeQuery.all()
+                        .limit(7)
+                        .atLeast(RecipeField.STAR_RATING, 1)
+                        .orderBy(RecipeField.FAT, false));
+    }
+}
@@ -0,0 +1,146 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeServerTest {
+
+    private static final Recipe SOUP = new Recipe(
+            "Beefy Soup", "soup.html", "Per Cup", "302 Calories; 23g Protein; 4g Net Carbs", 5, 5.75);
+    private static final Recipe CHICKEN = new Recipe(
+            "Steakhouse Chicken", "chicken.html", "Per serving", "193 Calories; 40g Protein; 1g Net Carbs", 5, 40);
+    private static final Recipe QUICHE = new Recipe(
+            "Leek \"Quiche\"", "quiche.html", "", "250 Calories; 12g Protein; 3g Net Carbs", 4, 4);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private RecipeServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new RecipeServer(RecipeColumns.of(List.of(SOUP, CHICKEN, QUICHE)), 0, 2, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void topRecipes() throws Exception {
+        var response = get("/recipes");
+
+        assertThat(response.statusCode())
+                .isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type"))
+                .hasValue("application/json; charset=utf-8");
+        assertThat(response.body())
+                .isEqualTo("{\"version\":1,\"count\":2,\"recipes\":["
+                        + "{\"name\":\"Steakhouse Chicken\",\"url\":\"chicken.html\",\"variant\":\"Per serving\","
+                        + "\"nutritionInfo\":\"193 Calories; 40g Protein; 1g Net Carbs\",\"starRating\":5,"
+                        + "\"proteinToNetCarb\":40.0},"
+                        + "{\"name\":\"Beefy Soup\",\"url\":\"soup.html\",\"variant\":\"Per Cup\","
+                        + "\"nutritionInfo\":\"302 Calories; 23g Protein; 4g Net Carbs\",\"starRating\":5,"
+                        + "\"proteinToNetCarb\":5.75}]}");
+    }
+
+    @Test
+    void filterQueries() throws Exception {
+        assertThat(get("/recipes?min-stars=4&where=protein%3C%3D20").body())
+                .contains("\"count\":1", "\"name\":\"Leek \\\"Quiche\\\"\"");
+        assertThat(get("/recipes?min-stars=1&order-by=calories&top=1").body())
+                .contains("\"count\":1", "Steakhouse Chicken");
+        assertThat(get("/recipes?keywords=BEEFY+soup").body())
+                .contains("\"count\":1", "Beefy Soup");
+    }
+
+    @Test
+    void invalidRequests() throws Exception {
+        assertThat(get("/recipes?where=sugar%3E%3D1").statusCode())
+                .isEqualTo(400);
+        assertThat(get("/recipes?where=protein%3E20").body())
+                .startsWith("{\"error\":");
+
+        var post = HttpRequest.newBuilder(uri("/recipes"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        assertThat(client.send(post, HttpResponse.BodyHandlers.ofString()).statusCode())
+                .isEqualTo(405);
+    }
+
+    @Test
+    void cachedResults() throws Exception {
+        var first = get("/recipes?min-stars=4&top=2").body();
+        // same query, different parameter order and keyword spelling
+        get("/recipes?keywords=Soup");
+        var second = get("/recipes?top=2&min-stars=4").body();
+        get("/recipes?keywords=soup!");
+
+        assertThat(second)
+                .isEqualTo(first);
+        assertThat(server.cache().misses())
+                .isEqualTo(2);
+        assertThat(server.cache().hits())
+                .isEqualTo(2);
+        assertThat(get("/status").body())
+                .contains("\"version\":1", "\"recipes\":3", "\"cache\":{\"entries\":2,\"hits\":2,\"misses\":2}");
+    }
+
+    @Test
+    void swapSnapshot() throws Exception {
+        assertThat(get("/recipes").body())
+                .contains("Beefy Soup");
+
+        server.swap(RecipeColumns.of(List.of(CHICKEN)));
+
+        assertThat(server.snapshot().version())
+                .isEqualTo(2);
+        assertThat(get("/recipes").body())
+                .startsWith("{\"version\":2,\"count\":1,")
+                .doesNotContain("Beefy Soup");
+        assertThat(server.cache().size())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void loadGenerator() throws Exception {
+        var report = new LoadGenerator(4).run(List.of(uri("/recipes"), uri("/recipes?keywords=soup")), 20, 200);
+
+        assertThat(report.requests())
+                .isEqualTo(200);
+        assertThat(report.errors())
+                .isEqualTo(0);
+        assertThat(report.throughput())
+                .isGreaterThan(0);
+        assertThat(report.p50Micros())
+                .isLessThanOrEqualTo(report.p99Micros());
+        assertThat(report.p99Micros())
+                .isLessThanOrEqualTo(report.maxMicros());
+    }
+
+    @Test
+    void jsonString() {
+        var json = new StringBuilder();
+        RecipeServer.appendString(json, "a\"b\\c\nd\u0001");
+
+        assertThat(json.toString())
+                .isEqualTo("\"a\\\"b\\\\c\\nd\\u0001\"");
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:%d%s".formatted(server.port(), path));
+    }
+}
@@ -0,0 +1,122 @@
+package com.dp.genaw.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeStoreTest {
+
+    private static final Recipe SOUP = recipe("Beefy Soup", 5, 302, 23, 4);
+    private static final Recipe CHICKEN = recipe("Steakhouse Chicken", 5, 193, 40, 1);
+    private static final Recipe QUICHE = recipe("Leek Quiche", 4, 250, 12, 3);
+    private static final Recipe WAFERS = recipe("Cheddar Wafers", 3, 117, 6, 1);
+    private static final Recipe MOUSSE = new Recipe("Mousse", "url", "", "12g Fat; 2g Protein; 2g Net Carbs", 5, 1);
+
+    private final RecipeStore fixture = new RecipeStore(
+            RecipeColumns.of(List.of(SOUP, CHICKEN, QUICHE, WAFERS, MOUSSE)));
+
+    @Test
+    void queryAllInInsertionOrder() {
+        assertThat(fixture.query(RecipeQuery.all()))
+                .containsExactly(SOUP, CHICKEN, QUICHE, WAFERS, MOUSSE);
+    }
+
+    @Test
+    void queryRangesAndName() {
+        var query = RecipeQuery.all()
+                .atLeast(RecipeField.STAR_RATING, 4)
+                .where(RecipeField.PROTEIN, 10, 30)
+                .nameContains("QUICHE");
+
+        assertThat(fixture.query(query))
+                .containsExactly(QUICHE);
+    }
+
+    @Test
+    void queryTopByProteinPerCalorie() {
+        var query = RecipeQuery.all()
+                .orderBy(RecipeField.PROTEIN_PER_CALORIE, true)
+                .limit(3);
+
+        assertThat(fixture.query(query))
+                .containsExactly(CHICKEN, SOUP, WAFERS);
+    }
+
+    @Test
+    void queryMultiKeyOrderMissingValuesLast() {
+        var query = RecipeQuery.all()
+                .orderBy(RecipeField.STAR_RATING, true)
+                .orderBy(RecipeField.CALORIES, false);
+
+        assertThat(fixture.query(query))
+                .containsExactly(CHICKEN, SOUP, MOUSSE, QUICHE, WAFERS);
+    }
+
+    @Test
+    void queryEmptyRange() {
+        assertThat(fixture.query(RecipeQuery.all().where(RecipeField.PROTEIN, 30, 20)))
+                .isEmpty();
+        assertThat(new RecipeStore(RecipeColumns.of(List.of())).query(RecipeQuery.all()))
+                .isEmpty();
+    }
+
+    @Test
+    void sameAsFullScan() {
+        var random = new Random(42);
+        var recipes = new ArrayList<Recipe>();
+        for (var i = 0; i < 2_000; i++) {
+            recipes.add(recipe("recipe" + i, 1 + random.nextInt(5), random.nextInt(500), random.nextInt(50),
+                    random.nextInt(10)));
+        }
+        var store = new RecipeStore(RecipeColumns.of(recipes));
+        var fields = RecipeField.values();
+
+        for (var i = 0; i < 500; i++) {
+            var query = RecipeQuery.all().limit(1 + random.nextInt(50));
+            for (int j = 0, ranges = random.nextInt(3); j < ranges; j++) {
+                var min = random.nextInt(300);
+                query = query.where(fields[random.nextInt(fields.length)], min, min + random.nextInt(300));
+            }
+            for (int j = 0, keys = random.nextInt(3); j < keys; j++) {
+                query = query.orderBy(fields[random.nextInt(fields.length)], random.nextBoolean());
+            }
+            if (random.nextInt(5) == 0) {
+                query = query.nameContains("1");
+            }
+
+            assertThat(store.query(query))
+                    .as(query.toString())
+                    .containsExactlyElementsOf(fullScan(recipes, query));
+        }
+    }
+
+    private static List<Recipe> fullScan(List<Recipe> recipes, RecipeQuery query) {
+        Comparator<Recipe> comparator = (recipe1, recipe2) -> 0;
+        for (var order : query.orderBy()) {
+            Comparator<Recipe> key = Comparator.comparingDouble(recipe -> {
+                var value = order.field().value(recipe, recipe.parseNutrition());
+                return Double.isNaN(value) ? Double.NaN : order.descending() ? -value : value;
+            });
+            comparator = comparator.thenComparing(key);
+        }
+        comparator = comparator.thenComparingInt(recipes::indexOf);
+
+        return recipes.stream()
+                .filter(recipe -> query.ranges().stream()
+                        .allMatch(range -> range.matches(range.field().value(recipe, recipe.parseNutrition()))))
+                .filter(recipe -> query.nameContains() == null || recipe.name().contains(query.nameContains()))
+                .sorted(comparator)
+                .limit(query.limit())
+                .toList();
+    }
+
+    private static Recipe recipe(String name, int starRating, double calories, double protein, double netCarb) {
+        var nutritionInfo = "%s Calories; %sg Protein; %sg Net Carbs".formatted(calories, protein, netCarb);
+        return new Recipe(name, "url", "", nutritionInfo, starRating, protein / netCarb);
+    }
+}
@@ -0,0 +1,113 @@
+package com.dp.genaw.search;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecipeTableTest {
+
+    private static final Recipe WAFERS_4 = new Recipe("ZESTY CHEDDAR WAFERS", "https://www.genaw.com/wafers.html",
+            "Per 4 Wafers", "117 Calories; 10g Fat; 6g Protein; 2g Carbohydrate; 1g Dietary Fiber; 1g Net Carb", 4, 6);
+    private static final Recipe WAFERS_8 = new Recipe("ZESTY CHEDDAR WAFERS", "https://www.genaw.com/wafers.html",
+            "Per 8 Wafers", "235 Calories; 20g Fat; 13g Protein; 3g Carbohydrate; 1.5g Dietary Fiber; 1.5g Net Carbs",
+            4, 8.666);
+    private static final Recipe MOUSSE = new Recipe("MOUSSE", "https://www.genaw.com/mousse.html",
+            "", "12g Fat; 2g Protein; trace Net Carbs", 5, 1);
+
+    @Test
+    void viewsLookLikeRecipes() {
+        var fixture = table(true, WAFERS_4, WAFERS_8, MOUSSE);
+
+        assertThat(fixture.size())
+                .isEqualTo(3);
+        assertThat(fixture.views().stream().map(RecipeTable.RecipeView::toRecipe).toList())
+                .containsExactly(WAFERS_4, WAFERS_8, MOUSSE);
+        assertThat(fixture.asRecipes())
+                .containsExactly(WAFERS_4, WAFERS_8, MOUSSE);
+
+        var view = fixture.get(1);
+        assertThat(view.name())
+                .isEqualTo(WAFERS_8.name());
+        assertThat(view.variant())
+                .isEqualTo("Per 8 Wafers");
+        assertThat(view.starRating())
+                .isEqualTo(4);
+        assertThat(view.nutrition())
+                .isEqualTo(WAFERS_8.parseNutrition());
+    }
+
+    @Test
+    void namesAndUrlsDeduplicated() {
+        var fixture = table(false, WAFERS_4, WAFERS_8, MOUSSE);
+
+        assertThat(fixture.distinctNames())
+                .isEqualTo(2);
+        assertThat(fixture.distinctUrls())
+                .isEqualTo(2);
+        // same string instance shared by both variants
+        assertThat(fixture.get(0).url() == fixture.get(1).url())
+                .isTrue();
+    }
+
+    @Test
+    void nutritionInfoRenderedWhenNotKept() {
+        var fixture = table(false, WAFERS_8, MOUSSE);
+
+        assertThat(fixture.get(0).nutritionInfo())
+                .isEqualTo("235 Calories; 20g Fat; 13g Protein; 3g Carbohydrate; 1.5g Dietary Fiber; 1.5g Net Carbs");
+        // trace quantity parsed as zero, missing quantities omitted
+        assertThat(fixture.get(1).nutritionInfo())
+                .isEqualTo("12g Fat; 2g Protein; 0g Net Carbs");
+        assertThat(fixture.get(1).toRecipe().parseNutrition())
+                .isEqualTo(MOUSSE.parseNutrition());
+    }
+
+    @Test
+    void concurrentAppends() {
+        var fixture = new RecipeTable();
+
+        IntStream.range(0, 10_000).parallel()
+                .mapToObj(i -> new Recipe(
+                        "name" + i % 100, "url" + i % 100, "", "%dg Protein; 1g Net Carb".formatted(i), 5, i))
+                .forEach(fixture);
+
+        assertThat(fixture.size())
+                .isEqualTo(10_000);
+        assertThat(fixture.distinctNames())
+                .isEqualTo(100);
+        assertThat(fixture.views().stream().mapToDouble(view -> view.nutrition().protein()).sum())
+                .isEqualTo((double) IntStream.range(0, 10_000).sum());
+    }
+
+    @Test
+    void queryTableColumns() {
+        var fixture = table(false, WAFERS_4, WAFERS_8, MOUSSE);
+        var query = RecipeQuery.all()
+                .atLeast(RecipeField.FAT, 10)
+                .orderBy(RecipeField.PROTEIN, true)
+                .limit(2);
+
+        assertThat(fixture.nutrition(2))
+                .isEqualTo(MOUSSE.parseNutrition());
+        assertThat(new RecipeStore(fixture).query(query))
+                .containsExactly(fixture.recipe(1), fixture.recipe(0));
+    }
+
+    @Test
+    void rowOutOfRange() {
+        var fixture = table(false, MOUSSE);
+
+        assertThatThrownBy(() -> fixture.get(1))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    private static RecipeTable table(boolean keepNutritionInfo, Recipe... recipes) {
+        var table = new RecipeTable(keepNutritionInfo);
+        List.of(recipes).forEach(table);
+        return table;
+    }
+}
@@ -0,0 +1,124 @@
+package com.dp.genaw.search;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeTextIndexTest {
+
+    private static final Recipe SOUP = recipe("Beefy Cheese Soup", "Per serving", 5, 23, 4);
+    private static final Recipe WAFERS = recipe("Cheddar Wafers", "Per 8 wafers", 3, 6, 1);
+    private static final Recipe CHEDDAR_SOUP = recipe("Cheddar Cheese Soup", "Per serving", 5, 12, 3);
+    private static final Recipe CHICKEN = recipe(
+            "Steakhouse Chicken", "Made with cheddar, serve with more cheddar", 5, 40, 1);
+
+    private final List<Recipe> recipes = List.of(SOUP, WAFERS, CHEDDAR_SOUP, CHICKEN);
+    private final RecipeTextIndex fixture = new RecipeTextIndex(RecipeColumns.of(recipes));
+
+    @Test
+    void tokenize() {
+        assertThat(RecipeTextIndex.tokenize("Cheddar-Wafers; 23g Protein, Caf\u00e9!"))
+                .containsExactly("cheddar", "wafers", "23g", "protein", "caf\u00e9");
+        assertThat(RecipeTextIndex.tokenize(" ;; "))
+                .isEmpty();
+        assertThat(RecipeTextIndex.tokenize(null))
+                .isEmpty();
+    }
+
+    @Test
+    void searchAllKeywordsCaseInsensitive() {
+        assertThat(recipes(fixture.search("CHEESE soup", row -> true, 10)))
+                .containsExactlyInAnyOrder(SOUP, CHEDDAR_SOUP);
+        assertThat(recipes(fixture.search("cheddar soup", row -> true, 10)))
+                .containsExactly(CHEDDAR_SOUP);
+    }
+
+    @Test
+    void searchRanksByRelevance() {
+        // chicken mentions cheddar twice
+        var hits = fixture.search("cheddar", row -> true, 10);
+        assertThat(recipes(hits))
+                .containsExactlyInAnyOrder(WAFERS, CHEDDAR_SOUP, CHICKEN);
+        assertThat(hits.get(0).recipe())
+                .isEqualTo(CHICKEN);
+        for (var i = 1; i < hits.size(); i++) {
+            assertThat(hits.get(i - 1).score())
+                    .isGreaterThanOrEqualTo(hits.get(i).score());
+        }
+        assertThat(recipes(fixture.search("cheddar", row -> true, 1)))
+                .containsExactly(CHICKEN);
+    }
+
+    @Test
+    void searchWithStoreFilter() {
+        var store = new RecipeStore(RecipeColumns.of(recipes));
+        var query = RecipeQuery.all()
+                .atLeast(RecipeField.STAR_RATING, 5)
+                .atLeast(RecipeField.PROTEIN_TO_NET_CARB, 5);
+
+        assertThat(recipes(fixture.search("cheddar", store.filter(query), 10)))
+                .containsExactly(CHICKEN);
+    }
+
+    @Test
+    void searchNoMatch() {
+        assertThat(fixture.search("cheddar pizza", row -> true, 10))
+                .isEmpty();
+        assertThat(fixture.search("", row -> true, 10))
+                .isEmpty();
+        assertThat(fixture.search("cheddar", row -> true, 0))
+                .isEmpty();
+        assertThat(new RecipeTextIndex(RecipeColumns.of(List.of())).search("cheddar", row -> true, 10))
+                .isEmpty();
+    }
+
+    @Test
+    void sameAsFullScan() {
+        var random = new Random(42);
+        var words = List.of("beef", "cheese", "soup", "wafers", "chicken", "salad", "cake", "pie", "bread", "egg");
+        var recipes = new ArrayList<Recipe>();
+        for (var i = 0; i < 5_000; i++) {
+            var name = new StringBuilder();
+            for (int j = 0, length = 1 + random.nextInt(4); j < length; j++) {
+                name.append(words.get(random.nextInt(words.size()))).append(' ');
+            }
+            recipes.add(recipe(name.toString().trim(), "Per serving", 1 + random.nextInt(5), random.nextInt(50),
+                    1 + random.nextInt(10)));
+        }
+        var index = new RecipeTextIndex(RecipeColumns.of(recipes));
+        assertThat(index.terms())
+                .isGreaterThan(words.size());
+
+        for (var i = 0; i < 200; i++) {
+            var keywords = words.get(random.nextInt(words.size())) + " " + words.get(random.nextInt(words.size()));
+            var minStars = 1 + random.nextInt(5);
+
+            var expected = recipes.stream()
+                    .filter(recipe -> recipe.starRating() >= minStars)
+                    .filter(recipe -> RecipeTextIndex.tokenize(recipe.name())
+                            .containsAll(RecipeTextIndex.tokenize(keywords)))
+                    .toList();
+
+            var hits = index.search(keywords, row -> recipes.get(row).starRating() >= minStars, Integer.MAX_VALUE);
+            assertThat(new HashSet<>(recipes(hits)))
+                    .as(keywords)
+                    .isEqualTo(new HashSet<>(expected));
+        }
+    }
+
+    private static List<Recipe> recipes(List<RecipeTextIndex.Hit> hits) {
+        return hits.stream()
+                .map(RecipeTextIndex.Hit::recipe)
+                .toList();
+    }
+
+    private static Recipe recipe(String name, String variant, int starRating, double protein, double netCarb) {
+        var nutritionInfo = "%sg Protein; %sg Net Carbs".formatted(protein, netCarb);
+        return new Recipe(name, "url", variant, nutritionInfo, starRating, protein / netCarb);
+    }
+}
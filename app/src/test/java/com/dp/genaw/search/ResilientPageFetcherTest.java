@@ -0,0 +1,178 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLHandshakeException;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientPageFetcherTest {
+
+    private static final Duration BACKOFF = Duration.ofMillis(1);
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void transientFailuresAreRetried() throws IOException {
+        var fixture = new ResilientPageFetcher(failing(2, new HttpStatusException("", 503, "")), 2, BACKOFF, false);
+
+        assertThat(fixture.fetch("http://host/page.html").statusCode())
+                .isEqualTo(200);
+        assertThat(attempts.get())
+                .isEqualTo(3);
+        assertThat(fixture.retried())
+                .isEqualTo(2);
+        assertThat(fixture.lostPages())
+                .isEmpty();
+    }
+
+    @Test
+    void pageIsLostAfterAllRetries() {
+        var fixture = new ResilientPageFetcher(
+                failing(Integer.MAX_VALUE, new SocketTimeoutException("Read timed out")), 2, BACKOFF, false);
+
+        assertThatThrownBy(() -> fixture.fetch("http://host/page.html"))
+                .isInstanceOf(SocketTimeoutException.class);
+        assertThat(attempts.get())
+                .isEqualTo(3);
+        assertThat(fixture.lostPages())
+                .containsEntry("http://host/page.html", "java.net.SocketTimeoutException: Read timed out");
+    }
+
+    @Test
+    void permanentFailureIsNotRetried() {
+        var fixture = new ResilientPageFetcher(
+                failing(Integer.MAX_VALUE, new HttpStatusException("Not found", 404, "")), 2, BACKOFF, false);
+
+        assertThatThrownBy(() -> fixture.fetch("http://host/missing.html"))
+                .isInstanceOf(HttpStatusException.class);
+        assertThat(attempts.get())
+                .isEqualTo(1);
+        assertThat(fixture.lostPages())
+                .containsKey("http://host/missing.html");
+    }
+
+    @Test
+    void slowFetchIsHedged() throws IOException, InterruptedException {
+        var slowFetchReleased = new CountDownLatch(1);
+        PageFetcher delegate = (url, requestHeaders) -> {
+            // first request of the slow page hangs, hedged one returns right away
+            if (url.endsWith("slow.html") && attempts.getAndIncrement() == 0) {
+                try {
+                    slowFetchReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new FetchedPage(url, 200, Map.of(), new byte[0]);
+        };
+        var fixture = new ResilientPageFetcher(delegate, 0, BACKOFF, true);
+
+        // enough latency samples to know what is slow
+        for (var i = 0; i < 50; i++) {
+            fixture.fetch("http://host/page%d.html".formatted(i));
+        }
+
+        var start = System.nanoTime();
+        assertThat(fixture.fetch("http://host/slow.html").url())
+                .isEqualTo("http://host/slow.html");
+        assertThat(Duration.ofNanos(System.nanoTime() - start))
+                .isLessThan(Duration.ofSeconds(5));
+        // slow page requested twice, any of the fast pages over p95 may be hedged too
+        assertThat(attempts.get())
+                .isEqualTo(2);
+        assertThat(fixture.hedgeWins())
+                .isPositive();
+
+        slowFetchReleased.countDown();
+    }
+
+    @Test
+    void backoffIsJitteredAndCapped() {
+        var fixture = new ResilientPageFetcher(failing(0, null), 2, Duration.ofMillis(100), false);
+
+        for (var i = 0; i < 100; i++) {
+            assertThat(fixture.backoff(1))
+                    .isLessThanOrEqualTo(Duration.ofMillis(100));
+            assertThat(fixture.backoff(3))
+                    .isLessThanOrEqualTo(Duration.ofMillis(400));
+            assertThat(fixture.backoff(50))
+                    .isLessThanOrEqualTo(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void transientFailures() {
+        assertThat(ResilientPageFetcher.isTransient(new SocketTimeoutException()))
+                .isTrue();
+        assertThat(ResilientPageFetcher.isTransient(new IOException("Connection reset")))
+                .isTrue();
+        assertThat(ResilientPageFetcher.isTransient(new HttpStatusException("", 502, "")))
+                .isTrue();
+        assertThat(ResilientPageFetcher.isTransient(new HttpStatusException("", 429, "")))
+                .isTrue();
+        assertThat(ResilientPageFetcher.isTransient(new HttpStatusException("", 403, "")))
+                .isFalse();
+        assertThat(ResilientPageFetcher.isTransient(new HttpConnectTimeoutException("HTTP connect timed out")))
+                .isTrue();
+        assertThat(ResilientPageFetcher.isTransient(new ConnectException("Connection refused")))
+                .isTrue();
+        assertThat(ResilientPageFetcher.isTransient(
+                new IOException("Cannot fetch", new SocketException("Connection reset by peer"))))
+                .isTrue();
+    }
+
+    @Test
+    void permanentFailures() {
+        assertThat(ResilientPageFetcher.isTransient(new UnknownHostException("recipe-url")))
+                .isFalse();
+        assertThat(ResilientPageFetcher.isTransient(
+                new IOException("Invalid URL: recipe-url", new IllegalArgumentException())))
+                .isFalse();
+        assertThat(ResilientPageFetcher.isTransient(new IOException("Unsupported content encoding: br")))
+                .isFalse();
+        assertThat(ResilientPageFetcher.isTransient(new SSLHandshakeException("PKIX path building failed")))
+                .isFalse();
+    }
+
+    @Test
+    void latencyPercentile() {
+        var fixture = new ResilientPageFetcher.LatencyWindow(100, 10);
+        for (var i = 1; i < 10; i++) {
+            fixture.record(i);
+        }
+        assertThat(fixture.percentile(0.95))
+                .isEqualTo(-1);
+
+        for (var i = 10; i <= 200; i++) {
+            fixture.record(i);
+        }
+        // only the last 100 samples (101..200) are kept
+        assertThat(fixture.percentile(0.95))
+                .isEqualTo(195);
+        assertThat(fixture.percentile(1))
+                .isEqualTo(200);
+    }
+
+    // delegate failing given number of times before returning a page
+    private PageFetcher failing(int failures, IOException failure) {
+        return (url, requestHeaders) -> {
+            if (attempts.getAndIncrement() < failures) {
+                throw failure;
+            }
+            return new FetchedPage(url, 200, Map.of(), new byte[0]);
+        };
+    }
+}
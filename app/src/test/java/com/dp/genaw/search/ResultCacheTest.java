@@ -0,0 +1,60 @@
+package com.dp.genaw.search;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResultCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        var computed = new ArrayList<String>();
+        var cache = new ResultCache<String, String>(2);
+
+        cache.get("a", key -> compute(computed, key));
+        cache.get("b", key -> compute(computed, key));
+        // "a" used more recently than "b"
+        assertThat(cache.get("a", key -> compute(computed, key)))
+                .isEqualTo("A");
+        cache.get("c", key -> compute(computed, key));
+        cache.get("a", key -> compute(computed, key));
+        cache.get("b", key -> compute(computed, key));
+
+        assertThat(computed)
+                .containsExactly("a", "b", "c", "b");
+        assertThat(cache.size())
+                .isEqualTo(2);
+        assertThat(cache.hits())
+                .isEqualTo(2);
+        assertThat(cache.misses())
+                .isEqualTo(4);
+    }
+
+    @Test
+    void disabledAndCleared() {
+        var computed = new ArrayList<String>();
+        var disabled = new ResultCache<String, String>(0);
+        disabled.get("a", key -> compute(computed, key));
+        disabled.get("a", key -> compute(computed, key));
+
+        var cache = new ResultCache<String, String>(10);
+        cache.get("a", key -> compute(computed, key));
+        cache.clear();
+        cache.get("a", key -> compute(computed, key));
+
+        assertThat(computed)
+                .containsExactly("a", "a", "a", "a");
+        assertThat(disabled.size())
+                .isEqualTo(0);
+        assertThatThrownBy(() -> new ResultCache<String, String>(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String compute(ArrayList<String> computed, String key) {
+        computed.add(key);
+        return key.toUpperCase();
+    }
+}
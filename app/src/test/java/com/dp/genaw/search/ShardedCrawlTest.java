@@ -0,0 +1,102 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.dp.genaw.search.TestUtils.category;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sharded crawl ({@link TopRecipeSearch#crawlSharded}) run by several local JVMs against local {@link TestHttpServer},
+ * shards exchange links through {@link ShardExchange}.
+ */
+class ShardedCrawlTest {
+
+    private static final int SHARDS = 3;
+    private static final int TOP = 5;
+
+    private static final String[] RECIPE_RESOURCES = {
+            "recipe_single_variant.html",
+            "recipe_multiple_variants.html",
+            "recipe_optional_grams.html",
+            "recipe_optional_net.html",
+            "recipe_trace_protein_single.html"
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shardOfIsStable() {
+        assertThat(ShardExchange.shardOf("https://www.genaw.com/lowcarb/recipes.html", 4))
+                .isEqualTo(ShardExchange.shardOf("https://www.genaw.com/lowcarb/recipes.html", 4))
+                .isEqualTo(ShardExchange.shardOf("https://www.genaw.com/LowCarb/Recipes.html", 4));
+        // all shards get some URLs
+        assertThat(IntStream.range(0, 100)
+                .map(i -> ShardExchange.shardOf("https://www.genaw.com/lowcarb/recipe%d.html".formatted(i), 4))
+                .distinct()
+                .count())
+                .isEqualTo(4L);
+    }
+
+    @Test
+    void shardsFetchEachPageOnceAndMergeToSingleProcessResult() throws IOException, InterruptedException {
+        try (var server = new TestHttpServer()) {
+            // nested categories, some recipes are linked from several categories
+            var categories = IntStream.range(0, 4).mapToObj("category%d.html"::formatted).toArray(String[]::new);
+            server.page("recipes.html", category(categories));
+            for (var i = 0; i < categories.length; i++) {
+                var links = IntStream.range(i * 5, i * 5 + 7).mapToObj("recipe%d.html"::formatted).toList();
+                server.page(categories[i], category(links.toArray(String[]::new)));
+            }
+            var recipes = categories.length * 5 + 2;
+            for (var i = 0; i < recipes; i++) {
+                server.resource("recipe%d.html".formatted(i), RECIPE_RESOURCES[i % RECIPE_RESOURCES.length]);
+            }
+
+            var exchangeDir = tempDir.resolve("exchange");
+            var shards = new ArrayList<Process>();
+            for (var shard = 0; shard < SHARDS; shard++) {
+                shards.add(shard(server.rootUrl(), exchangeDir, shard));
+            }
+            for (var shard : shards) {
+                assertThat(shard.waitFor(60, TimeUnit.SECONDS))
+                        .isTrue();
+                assertThat(shard.exitValue())
+                        .isEqualTo(0);
+            }
+
+            // root, categories and recipes
+            assertThat(server.requests())
+                    .isEqualTo(1 + categories.length + recipes);
+
+            var merged = ShardExchange.merge(exchangeDir, SHARDS, new TopRecipes(TOP));
+            var expected = new TopRecipeSearch(new TableLinkExtractor(), new RecipeExtractor())
+                    .findTopRecipes(server.rootUrl(), "recipes.html", new TopRecipes(TOP));
+            assertThat(merged.stream().map(Recipe::proteinToNetCarb).toList())
+                    .isNotEmpty()
+                    .isEqualTo(expected.stream().map(Recipe::proteinToNetCarb).toList());
+        }
+    }
+
+    private Process shard(String rootUrl, Path exchangeDir, int shard) throws IOException {
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(
+                java, "-cp", System.getProperty("java.class.path"), App.class.getName(),
+                "--root-url=" + rootUrl,
+                "--shard=" + shard,
+                "--shards=" + SHARDS,
+                "--exchange-dir=" + exchangeDir,
+                "--top=" + TOP)
+                .redirectErrorStream(true)
+                .redirectOutput(Files.createFile(tempDir.resolve("shard-%d.log".formatted(shard))).toFile())
+                .start();
+    }
+}
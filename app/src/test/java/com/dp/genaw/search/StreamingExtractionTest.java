@@ -0,0 +1,189 @@
+package com.dp.genaw.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.TextNode;
+import org.junit.jupiter.api.Test;
+
+import static com.dp.genaw.search.TestUtils.BASE_URL;
+import static com.dp.genaw.search.TestUtils.loadDocument;
+import static com.dp.genaw.search.TestUtils.scanPage;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Conformance tests of streaming {@link HtmlScanner} based extraction against reference XPath selections on the
+ * {@code Jsoup} DOM and against the single DOM traversal of {@link ScannedPage#scan(Document)} - all must return the
+ * same data for all HTML test resource files.
+ */
+class StreamingExtractionTest {
+
+    private static final List<String> PAGES = List.of(
+            "links.html",
+            "links_invalid.html",
+            "recipe_case_insensitive_nutrition.html",
+            "recipe_invalid.html",
+            "recipe_missing_space_before_nutrition.html",
+            "recipe_multiple.html",
+            "recipe_multiple_ingredient_variants.html",
+            "recipe_multiple_methods.html",
+            "recipe_multiple_variants.html",
+            "recipe_optional_grams.html",
+            "recipe_optional_net.html",
+            "recipe_single_variant.html",
+            "recipe_trace_protein_multiple.html",
+            "recipe_trace_protein_single.html");
+
+    private final RecipeExtractor recipeExtractor = new RecipeExtractor();
+    private final TableLinkExtractor tableLinkExtractor = new TableLinkExtractor();
+
+    @Test
+    void recipesSameAsDom() throws IOException {
+        for (var page : PAGES) {
+            assertThat(recipeExtractor.extractFromPage(scanPage(page)))
+                    .as(page)
+                    .isEqualTo(recipeExtractor.extractFromPage(xpathPage(loadDocument(page))));
+        }
+    }
+
+    @Test
+    void linksSameAsDom() throws IOException {
+        for (var page : PAGES) {
+            assertThat(tableLinkExtractor.extractFromPage(scanPage(page)))
+                    .as(page)
+                    .isEqualTo(tableLinkExtractor.extractFromPage(xpathPage(loadDocument(page))));
+        }
+    }
+
+    @Test
+    void recipesSameAsDocumentVisitor() throws IOException {
+        for (var page : PAGES) {
+            assertThat(recipeExtractor.extractFromPage(scanPage(page)))
+                    .as(page)
+                    .isEqualTo(recipeExtractor.extractFromDocument(loadDocument(page)));
+        }
+    }
+
+    @Test
+    void linksSameAsDocumentVisitor() throws IOException {
+        for (var page : PAGES) {
+            assertThat(tableLinkExtractor.extractFromPage(scanPage(page)))
+                    .as(page)
+                    .isEqualTo(tableLinkExtractor.extractFromDocument(loadDocument(page)));
+        }
+    }
+
+    @Test
+    void italicTextsSameAsDom() throws IOException {
+        for (var page : PAGES) {
+            var domTexts = xpathPage(loadDocument(page)).italicTexts()
+                    .stream()
+                    .filter(text -> !text.isBlank())
+                    .toList();
+            var scannedTexts = scanPage(page).italicTexts()
+                    .stream()
+                    .filter(text -> !text.isBlank())
+                    .toList();
+
+            assertThat(scannedTexts)
+                    .as(page)
+                    .isEqualTo(domTexts);
+        }
+    }
+
+    @Test
+    void scanSkipsCommentsScriptsAndDecodesEntities() throws IOException {
+        var html = """
+                <!DOCTYPE html>
+                <html><head><script>var s = "<b>not bold</b>";</script><style>b { color: red }</style></head>
+                <body>
+                <!-- <b>commented out</b> -->
+                <b>FISH &amp; CHIPS&#160;</b>
+                <table><tr><td><a href="fish.html?a=1&b=2">Fish</a><a name="anchor">Anchor</a></td></tr></table>
+                <a href="outside.html">Outside</a>
+                <IMG SRC='5_star.gif'>
+                <i>Per Serving: 1g Protein<br>Per <font>Cup</font>: 2g Protein</i>
+                </body></html>
+                """;
+
+        var page = ScannedPage.scan(BASE_URL, new StringReader(html));
+
+        assertThat(page.bolds())
+                .containsExactly("FISH & CHIPS");
+        assertThat(page.tableLinks())
+                .containsExactly("fish.html?a=1&b=2");
+        assertThat(page.images())
+                .containsExactly("5_star.gif");
+        assertThat(page.italicTexts())
+                .containsExactly("Per Serving: 1g Protein", "Per ", ": 2g Protein");
+    }
+
+    @Test
+    void entitiesDecodedSameAsDom() throws IOException {
+        var html = """
+                <html><body>
+                <b>1 &frac13; cup &times; 2&trade; &#x1F600;&#128512; &#0; &#xD800; &Rightarrow; &unknown; AT&T</b>
+                <table><tr><td><a href="a.html?x=1&copy=2&amp;frac13=3&frac13;">A</a></td></tr></table>
+                </body></html>
+                """;
+
+        var page = ScannedPage.scan(BASE_URL, new StringReader(html));
+        var domPage = ScannedPage.scan(Jsoup.parse(html, BASE_URL));
+
+        assertThat(page.bolds())
+                .isEqualTo(domPage.bolds());
+        assertThat(page.bolds().get(0))
+                .contains("\u2153", "\u00d7", "\u2122", "\ud83d\ude00\ud83d\ude00", "\u21d2", "&unknown;");
+        assertThat(page.tableLinks())
+                .isEqualTo(domPage.tableLinks());
+    }
+
+    @Test
+    void charsetDetectedSameAsDom() throws IOException {
+        var html = """
+                <html><head><meta http-equiv="Content-Type" content="text/html; charset=ISO-8859-1"></head>
+                <body><b>Cr\u00e8me br\u00fbl\u00e9e</b></body></html>
+                """;
+        var page = new FetchedPage(BASE_URL, 200, Map.of(), html.getBytes(StandardCharsets.ISO_8859_1));
+        var bom = new FetchedPage(BASE_URL, 200, Map.of(FetchedPage.CONTENT_TYPE, "text/html; charset=ISO-8859-1"),
+                ("\ufeff" + html).getBytes(StandardCharsets.UTF_16BE));
+
+        assertThat(page.detectCharset())
+                .isEqualTo(StandardCharsets.ISO_8859_1);
+        assertThat(bom.detectCharset())
+                .isEqualTo(StandardCharsets.UTF_16BE);
+        var scanned = ScannedPage.scan(BASE_URL, new InputStreamReader(
+                new ByteArrayInputStream(page.body()), page.detectCharset()));
+        var domPage = ScannedPage.scan(Jsoup.parse(new ByteArrayInputStream(page.body()), null, BASE_URL));
+        assertThat(scanned.bolds())
+                .containsExactly("Cr\u00e8me br\u00fbl\u00e9e")
+                .isEqualTo(domPage.bolds());
+    }
+
+    /**
+     * Reference page data selected from the DOM by XPath queries, independent of both scanners.
+     */
+    private static ScannedPage xpathPage(Document doc) {
+        return new ScannedPage(
+                doc.location(),
+                doc.selectXpath("//b").eachText(),
+                doc.selectXpath("//img").eachAttr("src"),
+                doc.selectXpath("//i")
+                        .stream()
+                        .flatMap(element -> element.textNodes().stream())
+                        .map(TextNode::text)
+                        .toList(),
+                doc.selectXpath("//table//a")
+                        .stream()
+                        .map(link -> link.attr("href"))
+                        .filter(link -> !link.isBlank())
+                        .toList());
+    }
+}
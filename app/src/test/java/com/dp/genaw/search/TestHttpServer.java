@@ -0,0 +1,166 @@
+package com.dp.genaw.search;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Local stand-in for Genaw site - serves in-memory pages with {@code ETag} header and supports conditional
+ * {@code If-None-Match} requests. Optionally bodies are {@code gzip} compressed for clients accepting it.
+ * <p>
+ * Tests running against one server per test register it as extension, the server is stopped after each test:
+ * <pre>
+ * &#64;RegisterExtension
+ * final TestHttpServer server = new TestHttpServer();
+ * </pre>
+ */
+class TestHttpServer implements AutoCloseable, AfterEachCallback {
+
+    private record Page(String body, String etag) {}
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, Page> pages = new ConcurrentHashMap<>();
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    private volatile boolean gzip;
+
+    TestHttpServer() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String rootUrl() {
+        return "http://localhost:%d/".formatted(server.getAddress().getPort());
+    }
+
+    String url(String path) {
+        return rootUrl() + path;
+    }
+
+    void page(String path, String body) {
+        pages.put("/" + path, new Page(body, "\"%08x\"".formatted(body.hashCode())));
+    }
+
+    void resource(String path, String resourceFileName) {
+        try {
+            page(path, TestUtils.resource(resourceFileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serves category page with links to given pages, see {@link TestUtils#category(String...)}.
+     */
+    void category(String path, String... links) {
+        page(path, TestUtils.category(links));
+    }
+
+    /**
+     * Serves recipe pages {@code recipe1.html}, {@code recipe2.html}, ... read from given resource files.
+     */
+    void recipes(String... resourceFileNames) {
+        for (var i = 0; i < resourceFileNames.length; i++) {
+            resource("recipe%d.html".formatted(i + 1), resourceFileNames[i]);
+        }
+    }
+
+    /**
+     * Serves recipe site - {@code recipes.html} category page linking all recipe pages served by
+     * {@link #recipes(String...)}.
+     */
+    void recipeSite(String... resourceFileNames) {
+        var links = new String[resourceFileNames.length];
+        for (var i = 0; i < links.length; i++) {
+            links[i] = "recipe%d.html".formatted(i + 1);
+        }
+        category("recipes.html", links);
+        recipes(resourceFileNames);
+    }
+
+    void gzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    void remove(String path) {
+        pages.remove("/" + path);
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    int notModified() {
+        return notModified.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+
+        try (exchange) {
+            var page = pages.get(exchange.getRequestURI().getPath());
+            if (page == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("ETag", page.etag());
+            if (page.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            var body = page.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            var acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (gzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                body = gzip(body);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+}
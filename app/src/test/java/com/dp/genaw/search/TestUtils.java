@@ -1,6 +1,7 @@
 package com.dp.genaw.search;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 
 import org.jsoup.Jsoup;
@@ -16,4 +17,30 @@ class TestUtils {
                 StandardCharsets.UTF_8.name(),
                 BASE_URL);
     }
+
+    static ScannedPage scanPage(String resourceFileName) throws IOException {
+        try (var reader = new InputStreamReader(
+                RecipesExtractorTest.class.getResourceAsStream(resourceFileName),
+                StandardCharsets.UTF_8)) {
+            return ScannedPage.scan(BASE_URL, reader);
+        }
+    }
+
+    static String resource(String resourceFileName) throws IOException {
+        try (var in = RecipesExtractorTest.class.getResourceAsStream(resourceFileName)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static TopRecipeSearch search() {
+        return new TopRecipeSearch(new TableLinkExtractor(), new RecipeExtractor());
+    }
+
+    static String category(String... links) {
+        var html = new StringBuilder("<table>");
+        for (var link : links) {
+            html.append("<tr><td><a href=\"%s\">%s</a></td></tr>".formatted(link, link));
+        }
+        return html.append("</table>").toString();
+    }
 }
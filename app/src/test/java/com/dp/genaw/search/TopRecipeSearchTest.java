@@ -2,15 +2,15 @@ package com.dp.genaw.search;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,7 +28,7 @@ class TopRecipeSearchTest {
     void searchRootUrlNoDocument() {
         var fixture = new TopRecipeSearch(tableLinkExtractor, recipeExtractor) {
             @Override
-            Optional<Document> loadDocument(String url) {
+            Optional<ScannedPage> loadPage(String url) {
                 return Optional.empty();
             }
         };
@@ -38,7 +38,8 @@ class TopRecipeSearchTest {
     }
 
     /**
-     * Test with mocked page structure, see {@link #mockWithPageStructure(Document, Document, Document, Document)}:
+     * Test with mocked page structure, see
+     * {@link #mockWithPageStructure(CrawlExecutor, ScannedPage, ScannedPage, ScannedPage, ScannedPage)}:
      * <tt>
      * root
      * -- section1
@@ -54,40 +55,132 @@ class TopRecipeSearchTest {
      */
     @Test
     void searchWithSubPages() {
-        var recipe1 = mock(Document.class);
-        var recipe2 = mock(Document.class);
-        var recipe3 = mock(Document.class);
-        var recipe4 = mock(Document.class);
+        var recipe1 = page("recipe1");
+        var recipe2 = page("recipe2");
+        var recipe3 = page("recipe3");
+        var recipe4 = page("recipe4");
 
-        TopRecipeSearch fixture = mockWithPageStructure(recipe1, recipe2, recipe3, recipe4);
+        TopRecipeSearch fixture = mockWithPageStructure(
+                new CommonPoolCrawlExecutor(), recipe1, recipe2, recipe3, recipe4);
 
         // recipe2 is top 5-star Protein to Net Carb ratio
         assertThat(fixture.findTopRecipe(ROOT_URL, "root"))
                 .contains(new Recipe("recipe2", "url2", "v2", "info2", 5, 2D));
 
         // assert all recipes were visited
-        verify(recipeExtractor).extractFromDocument(recipe1);
-        verify(recipeExtractor).extractFromDocument(recipe2);
-        verify(recipeExtractor).extractFromDocument(recipe3);
-        verify(recipeExtractor).extractFromDocument(recipe4);
+        verify(recipeExtractor).extractFromPage(recipe1);
+        verify(recipeExtractor).extractFromPage(recipe2);
+        verify(recipeExtractor).extractFromPage(recipe3);
+        verify(recipeExtractor).extractFromPage(recipe4);
     }
 
-    private TopRecipeSearch mockWithPageStructure(
-            Document recipe1,
-            Document recipe2,
-            Document recipe3,
-            Document recipe4) {
+    @Test
+    void searchWithSubPagesThreadPerFetch() {
+        var recipe1 = page("recipe1");
+        var recipe2 = page("recipe2");
+        var recipe3 = page("recipe3");
+        var recipe4 = page("recipe4");
+
+        try (var crawlExecutor = new ThreadPerFetchCrawlExecutor(2)) {
+            TopRecipeSearch fixture = mockWithPageStructure(crawlExecutor, recipe1, recipe2, recipe3, recipe4);
+
+            assertThat(fixture.findTopRecipe(ROOT_URL, "root"))
+                    .contains(new Recipe("recipe2", "url2", "v2", "info2", 5, 2D));
+        }
+
+        verify(recipeExtractor).extractFromPage(recipe1);
+        verify(recipeExtractor).extractFromPage(recipe2);
+        verify(recipeExtractor).extractFromPage(recipe3);
+        verify(recipeExtractor).extractFromPage(recipe4);
+    }
 
-        var root = mock(Document.class);
-        var section1 = mock(Document.class);
-        var section2 = mock(Document.class);
-        var subSection1 = mock(Document.class);
-        var subSection2 = mock(Document.class);
+    @Test
+    void searchTopRecipesWithCustomFilter() {
+        TopRecipeSearch fixture = mockWithPageStructure(
+                new CommonPoolCrawlExecutor(), page("recipe1"), page("recipe2"), page("recipe3"), page("recipe4"));
+
+        assertThat(fixture.findTopRecipes(ROOT_URL, "root", new TopRecipes(
+                3, recipe -> recipe.starRating() >= 4, TopRecipes.BY_PROTEIN_TO_NET_CARB)))
+                .containsExactly(
+                        new Recipe("recipe4", "url4", "v4", "info4", 4, 4D),
+                        new Recipe("recipe2", "url2", "v2", "info2", 5, 2D),
+                        new Recipe("recipe1", "url1", "v1", "info1", 5, 1D));
+    }
+
+    /**
+     * Test with pages linked from multiple categories and a link cycle:
+     * <tt>
+     * root
+     * -- section1
+     * ------ recipe1
+     * ------ root (cycle)
+     * -- ./section2#top
+     * ------ Recipe1 (same page as recipe1)
+     * ------ ./section1 (same page as section1)
+     * </tt>
+     */
+    @Test
+    void searchVisitsSharedPagesOnce() {
+        var root = page("root");
+        var section1 = page("section1");
+        var section2 = page("section2");
+        var recipe1 = page("recipe1");
+        var loads = new AtomicInteger();
 
-        // mock document loading
         var fixture = new TopRecipeSearch(tableLinkExtractor, recipeExtractor) {
             @Override
-            Optional<Document> loadDocument(String url) {
+            Optional<ScannedPage> loadPage(String url) {
+                loads.incrementAndGet();
+                var document = switch (url.toLowerCase()) {
+                    case ROOT_URL + "root" -> root;
+                    case ROOT_URL + "section1" -> section1;
+                    case ROOT_URL + "section2" -> section2;
+                    case ROOT_URL + "recipe1" -> recipe1;
+                    default -> throw new IllegalStateException("Unexpected url");
+                };
+
+                return Optional.of(document);
+            }
+        };
+
+        when(tableLinkExtractor.extractFromPage(root))
+                .thenReturn(List.of("section1", "./section2#top"));
+        when(tableLinkExtractor.extractFromPage(section1))
+                .thenReturn(List.of("recipe1", "root"));
+        when(tableLinkExtractor.extractFromPage(section2))
+                .thenReturn(List.of("Recipe1", "./section1"));
+        when(tableLinkExtractor.extractFromPage(recipe1))
+                .thenReturn(List.of());
+        when(recipeExtractor.extractFromPage(recipe1))
+                .thenReturn(List.of(
+                        new Recipe("recipe1", "url1", "v1", "info1", 5, 1D)));
+
+        assertThat(fixture.findTopRecipe(ROOT_URL, "root"))
+                .contains(new Recipe("recipe1", "url1", "v1", "info1", 5, 1D));
+
+        // each page loaded exactly once
+        assertThat(loads.get())
+                .isEqualTo(4);
+        verify(recipeExtractor, times(1)).extractFromPage(recipe1);
+    }
+
+    private TopRecipeSearch mockWithPageStructure(
+            CrawlExecutor crawlExecutor,
+            ScannedPage recipe1,
+            ScannedPage recipe2,
+            ScannedPage recipe3,
+            ScannedPage recipe4) {
+
+        var root = page("root");
+        var section1 = page("section1");
+        var section2 = page("section2");
+        var subSection1 = page("sub-section1");
+        var subSection2 = page("sub-section2");
+
+        // mock document loading
+        var fixture = new TopRecipeSearch(tableLinkExtractor, recipeExtractor, crawlExecutor) {
+            @Override
+            Optional<ScannedPage> loadPage(String url) {
                 var document = switch (url) {
                     case ROOT_URL + "root" -> root;
                     case ROOT_URL + "section1" -> section1;
@@ -107,39 +200,44 @@ class TopRecipeSearchTest {
         };
 
         // mock-page structure
-        when(tableLinkExtractor.extractFromDocument(root))
+        when(tableLinkExtractor.extractFromPage(root))
                 .thenReturn(List.of("section1", "section2"));
-        when(tableLinkExtractor.extractFromDocument(section1))
+        when(tableLinkExtractor.extractFromPage(section1))
                 .thenReturn(List.of("recipe1"));
-        when(tableLinkExtractor.extractFromDocument(section2))
+        when(tableLinkExtractor.extractFromPage(section2))
                 .thenReturn(List.of("sub-section1", "sub-section2"));
-        when(tableLinkExtractor.extractFromDocument(subSection1))
+        when(tableLinkExtractor.extractFromPage(subSection1))
                 .thenReturn(List.of("recipe2", "recipe3"));
-        when(tableLinkExtractor.extractFromDocument(subSection2))
+        when(tableLinkExtractor.extractFromPage(subSection2))
                 .thenReturn(List.of("recipe4", "recipe5"));
-        when(tableLinkExtractor.extractFromDocument(recipe1))
+        when(tableLinkExtractor.extractFromPage(recipe1))
                 .thenReturn(List.of());
-        when(tableLinkExtractor.extractFromDocument(recipe2))
+        when(tableLinkExtractor.extractFromPage(recipe2))
                 .thenReturn(List.of());
-        when(tableLinkExtractor.extractFromDocument(recipe3))
+        when(tableLinkExtractor.extractFromPage(recipe3))
                 .thenReturn(List.of());
-        when(tableLinkExtractor.extractFromDocument(recipe4))
+        when(tableLinkExtractor.extractFromPage(recipe4))
                 .thenReturn(List.of());
 
         // mock recipes
-        when(recipeExtractor.extractFromDocument(recipe1))
+        when(recipeExtractor.extractFromPage(recipe1))
                 .thenReturn(List.of(
                         new Recipe("recipe1", "url1", "v1", "info1", 5, 1D)));
-        when(recipeExtractor.extractFromDocument(recipe2))
+        when(recipeExtractor.extractFromPage(recipe2))
                 .thenReturn(List.of(
                         new Recipe("recipe2", "url2", "v2", "info2", 5, 2D)));
-        when(recipeExtractor.extractFromDocument(recipe3))
+        when(recipeExtractor.extractFromPage(recipe3))
                 .thenReturn(List.of(
                         new Recipe("recipe3", "url3", "v3", "info3", 3, 3D)));
-        when(recipeExtractor.extractFromDocument(recipe4))
+        when(recipeExtractor.extractFromPage(recipe4))
                 .thenReturn(List.of(
                         new Recipe("recipe4", "url4", "v4", "info4", 4, 4D)));
 
         return fixture;
     }
+
+    // pages are distinguished by their location only, extraction results are mocked
+    private static ScannedPage page(String name) {
+        return ScannedPage.empty(ROOT_URL + name);
+    }
 }
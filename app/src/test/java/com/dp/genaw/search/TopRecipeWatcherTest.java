@@ -0,0 +1,154 @@
+package com.dp.genaw.search;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static com.dp.genaw.search.TestUtils.category;
+import static com.dp.genaw.search.TestUtils.search;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Top recipes watch ({@link TopRecipeWatcher}) tests running against local {@link TestHttpServer}.
+ */
+class TopRecipeWatcherTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @RegisterExtension
+    final TestHttpServer server = new TestHttpServer();
+    private final StringWriter events = new StringWriter();
+    private final TopRecipeWatcher watcher = new TopRecipeWatcher(
+            search(),
+            server.rootUrl(),
+            "recipes.html",
+            CrawlState.empty(),
+            2,
+            events,
+            CLOCK);
+
+    @BeforeEach
+    void serveSite() {
+        server.page("recipes.html", category("recipe1.html", "recipe2.html", "recipe3.html"));
+        server.page("recipe1.html", recipe("STEAK", 5, "40g Protein; 2g Net Carbs"));
+        server.page("recipe2.html", recipe("SOUP", 5, "20g Protein; 2g Net Carbs"));
+        server.page("recipe3.html", recipe("SALAD", 5, "10g Protein; 2g Net Carbs"));
+    }
+
+    @Test
+    void firstCycleEntersTopRecipes() throws IOException {
+        assertThat(watcher.cycle())
+                .isEqualTo(2);
+        assertThat(watcher.topRecipes().stream().map(Recipe::name).toList())
+                .containsExactly("STEAK", "SOUP");
+        assertThat(events())
+                .containsExactly(
+                        "{\"type\":\"enter\",\"cycle\":1,\"time\":\"2024-01-01T00:00:00Z\",\"rank\":1,\"recipe\":"
+                                + "{\"name\":\"STEAK\",\"url\":\"%s\",\"variant\":\"Per Serving\",".formatted(
+                                        server.url("recipe1.html"))
+                                + "\"nutritionInfo\":\"40g Protein; 2g Net Carbs\",\"starRating\":5,"
+                                + "\"proteinToNetCarb\":20.0}}",
+                        "{\"type\":\"enter\",\"cycle\":1,\"time\":\"2024-01-01T00:00:00Z\",\"rank\":2,\"recipe\":"
+                                + "{\"name\":\"SOUP\",\"url\":\"%s\",\"variant\":\"Per Serving\",".formatted(
+                                        server.url("recipe2.html"))
+                                + "\"nutritionInfo\":\"20g Protein; 2g Net Carbs\",\"starRating\":5,"
+                                + "\"proteinToNetCarb\":10.0}}");
+    }
+
+    @Test
+    void unchangedSiteHasNoEvents() throws IOException {
+        watcher.cycle();
+        var requests = server.requests();
+
+        assertThat(watcher.cycle())
+                .isEqualTo(0);
+        assertThat(events())
+                .hasSize(2);
+        // known pages revalidated without body
+        assertThat(server.notModified())
+                .isEqualTo(4);
+        assertThat(server.requests() - requests)
+                .isEqualTo(4);
+    }
+
+    @Test
+    void changesOutsideTopRecipesHaveNoEvents() throws IOException {
+        watcher.cycle();
+
+        server.page("recipe3.html", recipe("SALAD", 5, "6g Protein; 2g Net Carbs"));
+
+        assertThat(watcher.cycle())
+                .isEqualTo(0);
+    }
+
+    @Test
+    void rankingChanges() throws IOException {
+        watcher.cycle();
+
+        server.page("recipe3.html", recipe("SALAD", 5, "60g Protein; 2g Net Carbs"));
+        watcher.cycle();
+        server.remove("recipe3.html");
+        server.page("recipes.html", category("recipe1.html", "recipe2.html"));
+        watcher.cycle();
+
+        assertThat(events().stream().skip(2).map(TopRecipeWatcherTest::summary).toList())
+                .containsExactly(
+                        "2 leave SOUP",
+                        "2 enter SALAD",
+                        "2 move STEAK",
+                        "3 leave SALAD",
+                        "3 move STEAK",
+                        "3 enter SOUP");
+    }
+
+    @Test
+    void nutritionChanges() throws IOException {
+        watcher.cycle();
+
+        server.page("recipe1.html", recipe("STEAK", 5, "42g Protein; 2g Net Carbs"));
+
+        assertThat(watcher.cycle())
+                .isEqualTo(1);
+        assertThat(events().get(2))
+                .startsWith("{\"type\":\"nutrition\",\"cycle\":2,\"time\":\"2024-01-01T00:00:00Z\",\"rank\":1,"
+                        + "\"previousNutritionInfo\":\"40g Protein; 2g Net Carbs\",\"previousStarRating\":5,"
+                        + "\"recipe\":{\"name\":\"STEAK\"");
+    }
+
+    @Test
+    void loweredRatingLeavesTopRecipes() throws IOException {
+        watcher.cycle();
+
+        server.page("recipe1.html", recipe("STEAK", 4, "40g Protein; 2g Net Carbs"));
+        watcher.cycle();
+
+        assertThat(events().stream().skip(2).map(TopRecipeWatcherTest::summary).toList())
+                .containsExactly(
+                        "2 leave STEAK",
+                        "2 move SOUP",
+                        "2 enter SALAD");
+    }
+
+    private List<String> events() {
+        return events.toString().lines().toList();
+    }
+
+    // cycle, type and recipe name of an event
+    private static String summary(String event) {
+        var type = event.substring("{\"type\":\"".length(), event.indexOf('"', "{\"type\":\"".length()));
+        var cycle = event.substring(event.indexOf("\"cycle\":") + "\"cycle\":".length(), event.indexOf(",\"time\""));
+        var name = event.substring(event.indexOf("\"name\":\"") + "\"name\":\"".length(), event.indexOf("\",\"url\""));
+        return cycle + " " + type + " " + name;
+    }
+
+    private static String recipe(String name, int starRating, String nutritionInfo) {
+        return "<b>%s</b><i>Per Serving: %s</i><img src=\"%d_star.gif\">".formatted(name, nutritionInfo, starRating);
+    }
+}
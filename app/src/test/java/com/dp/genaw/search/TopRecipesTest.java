@@ -0,0 +1,56 @@
+package com.dp.genaw.search;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopRecipesTest {
+
+    @Test
+    void keepsTopFiveStarRecipes() {
+        var fixture = new TopRecipes(2);
+        fixture.accept(recipe("a", 5, 1D));
+        fixture.accept(recipe("b", 4, 10D));
+        fixture.accept(recipe("c", 5, 3D));
+        fixture.accept(recipe("d", 5, 2D));
+
+        assertThat(fixture.result())
+                .containsExactly(recipe("c", 5, 3D), recipe("d", 5, 2D));
+    }
+
+    @Test
+    void customFilterAndComparator() {
+        var fixture = new TopRecipes(1, recipe -> true, Comparator.comparing(Recipe::name).reversed());
+        fixture.accept(recipe("b", 4, 10D));
+        fixture.accept(recipe("a", 1, 1D));
+
+        assertThat(fixture.result())
+                .containsExactly(recipe("a", 1, 1D));
+    }
+
+    @Test
+    void concurrentAccept() {
+        var fixture = new TopRecipes(10);
+        IntStream.range(0, 10_000)
+                .parallel()
+                .forEach(i -> fixture.accept(recipe("r" + i, 5, i)));
+
+        assertThat(fixture.result())
+                .containsExactlyElementsOf(IntStream.range(0, 10)
+                        .mapToObj(i -> recipe("r" + (9_999 - i), 5, 9_999 - i))
+                        .toList());
+    }
+
+    @Test
+    void noRecipes() {
+        assertThat(new TopRecipes(10).result())
+                .isEmpty();
+    }
+
+    private static Recipe recipe(String name, int starRating, double proteinToNetCarb) {
+        return new Recipe(name, "url", "variant", "info", starRating, proteinToNetCarb);
+    }
+}
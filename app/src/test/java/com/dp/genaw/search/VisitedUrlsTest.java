@@ -0,0 +1,51 @@
+package com.dp.genaw.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VisitedUrlsTest {
+
+    private static final String ROOT_URL = "https://www.genaw.com/lowcarb/";
+
+    private final VisitedUrls fixture = new VisitedUrls();
+
+    @Test
+    void normalizeRelativeLinks() {
+        assertThat(VisitedUrls.normalize(ROOT_URL, "recipe.html"))
+                .contains("https://www.genaw.com/lowcarb/recipe.html");
+        assertThat(VisitedUrls.normalize(ROOT_URL, "./recipe.html#nutrition"))
+                .contains("https://www.genaw.com/lowcarb/recipe.html");
+        assertThat(VisitedUrls.normalize(ROOT_URL, "sub/../recipe.html"))
+                .contains("https://www.genaw.com/lowcarb/recipe.html");
+    }
+
+    @Test
+    void normalizeAbsoluteLinks() {
+        assertThat(VisitedUrls.normalize(ROOT_URL, "HTTPS://WWW.Genaw.com:443/lowcarb/recipe.html"))
+                .contains("https://www.genaw.com/lowcarb/recipe.html");
+        assertThat(VisitedUrls.normalize(ROOT_URL, "http://www.genaw.com:8080"))
+                .contains("http://www.genaw.com:8080/");
+    }
+
+    @Test
+    void normalizeInvalidLinks() {
+        assertThat(VisitedUrls.normalize(ROOT_URL, "mailto:linda@genaw.com"))
+                .isEmpty();
+        assertThat(VisitedUrls.normalize(ROOT_URL, "recipe page.html"))
+                .isEmpty();
+    }
+
+    @Test
+    void markVisitedCaseInsensitive() {
+        assertThat(fixture.markVisited("https://www.genaw.com/lowcarb/recipe.html"))
+                .isTrue();
+        assertThat(fixture.markVisited("https://www.genaw.com/lowcarb/RECIPE.html"))
+                .isFalse();
+        assertThat(fixture.markVisited("https://www.genaw.com/lowcarb/other.html"))
+                .isTrue();
+
+        assertThat(fixture.deduplicated())
+                .isEqualTo(1);
+    }
+}